@@ -111,6 +111,20 @@ CREATE TABLE products (
     updated_at DATETIME,
     status BIT DEFAULT 1,
     product_gender NVARCHAR(20) DEFAULT 'Unisex' CHECK (product_gender IN ('Male', 'Female', 'Unisex', 'Kids')),
+    -- Khoá sắp xếp tính sẵn, do ProductSortKeyService cập nhật
+    min_sell_price DECIMAL(15,2) NULL,
+    -- 1 khi sản phẩm chưa có biến thể đang bán (chưa có giá): đứng sau cùng khi sắp theo giá, cả tăng lẫn giảm
+    price_missing AS CAST(CASE WHEN min_sell_price IS NULL THEN 1 ELSE 0 END AS BIT) PERSISTED,
+    max_sell_price DECIMAL(15,2) NULL,
+    avg_rating FLOAT NOT NULL DEFAULT 0,
+    review_count INT NOT NULL DEFAULT 0,
+    -- Số review gốc đang hiển thị theo từng mức sao, cập nhật cộng/trừ khi thêm/sửa/xoá review
+    rating_1_count INT NOT NULL DEFAULT 0,
+    rating_2_count INT NOT NULL DEFAULT 0,
+    rating_3_count INT NOT NULL DEFAULT 0,
+    rating_4_count INT NOT NULL DEFAULT 0,
+    rating_5_count INT NOT NULL DEFAULT 0,
+    total_stock INT NOT NULL DEFAULT 0,
     FOREIGN KEY (brand_id) REFERENCES brands(id),
     FOREIGN KEY (category_id) REFERENCES categories(id),
     FOREIGN KEY (material_id) REFERENCES materials(id)
@@ -126,6 +140,8 @@ CREATE TABLE product_variants (
     sell_price DECIMAL(15,2) CHECK (sell_price >= 0),   -- Giá bán
     quantity INT CHECK (quantity >= 0),
     status BIT DEFAULT 1,
+    -- Tự đổi sau mỗi lần ghi, kiểm tra lạc quan khi cập nhật giá/tồn hàng loạt
+    row_version ROWVERSION,
     FOREIGN KEY (product_id) REFERENCES products(id),
     FOREIGN KEY (size_id) REFERENCES sizes(id),
     FOREIGN KEY (color_id) REFERENCES colors(id)
@@ -430,6 +446,68 @@ CREATE TABLE return_item_images (
 );
 CREATE INDEX idx_rimg_ri ON return_item_images(return_item_id);
 
+-- Sequences cấp mã theo khối (INCREMENT BY = IdGeneratorService.BLOCK_SIZE)
+CREATE SEQUENCE seq_order_code AS BIGINT START WITH 1 INCREMENT BY 100;
+CREATE SEQUENCE seq_product_sku AS BIGINT START WITH 1000000 INCREMENT BY 100;
+CREATE SEQUENCE seq_transaction_code AS BIGINT START WITH 1 INCREMENT BY 100;
+CREATE SEQUENCE seq_promotion_code AS BIGINT START WITH 1 INCREMENT BY 100;
+
+-- Dấu commit của sổ tồn kho flash sale: ghi cùng transaction đơn hàng, xoá khi lượng trừ đã ghi xuống product_variants
+CREATE TABLE flash_sale_reservations (
+    node_id VARCHAR(100) NOT NULL,
+    seq BIGINT NOT NULL,
+    CONSTRAINT pk_flash_sale_reservations PRIMARY KEY (node_id, seq)
+);
+
+-- Tiến trình đang giữ sổ tồn kho flash sale (bộ đếm trong bộ nhớ nên chỉ một node), gia hạn bằng lease
+CREATE TABLE flash_sale_owner (
+    id TINYINT NOT NULL PRIMARY KEY CHECK (id = 1),
+    node_id VARCHAR(100) NOT NULL,
+    owner VARCHAR(100) NOT NULL,
+    lease_until DATETIME2 NOT NULL
+);
+
+-- Phân trang keyset danh sách đơn hàng theo (created_at, id)
+CREATE INDEX idx_orders_created_id ON orders(created_at DESC, id DESC) INCLUDE (status, type);
+CREATE INDEX idx_orders_user_created_id ON orders(user_id, created_at DESC, id DESC) INCLUDE (status, type);
+
+-- Transactional outbox: sự kiện được ghi cùng transaction nghiệp vụ, OutboxRelay phát đi sau commit
+CREATE TABLE outbox_events (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    event_type VARCHAR(100) NOT NULL,
+    aggregate_key VARCHAR(100) NOT NULL,
+    dedup_key VARCHAR(200) NOT NULL,
+    payload NVARCHAR(MAX) NOT NULL,
+    created_at DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME(),
+    attempts INT NOT NULL DEFAULT 0,
+    lease_owner VARCHAR(100) NULL,
+    lease_until DATETIME2 NULL,
+    dispatched_at DATETIME2 NULL,
+    last_error NVARCHAR(500) NULL
+);
+CREATE UNIQUE INDEX ux_outbox_dedup ON outbox_events(dedup_key);
+CREATE INDEX idx_outbox_pending ON outbox_events(id) INCLUDE (attempts, lease_until) WHERE dispatched_at IS NULL;
+CREATE INDEX idx_outbox_key_pending ON outbox_events(aggregate_key, id) INCLUDE (lease_until) WHERE dispatched_at IS NULL;
+CREATE INDEX idx_outbox_dispatched ON outbox_events(dispatched_at) WHERE dispatched_at IS NOT NULL;
+
+-- quoteToken đã dùng để đặt hàng (jti): ghi cùng transaction đơn hàng nên đơn lỗi không làm mất báo giá
+CREATE TABLE checkout_quote_redemptions (
+    jti VARCHAR(36) NOT NULL PRIMARY KEY,
+    expires_at DATETIME2 NOT NULL
+);
+CREATE INDEX idx_checkout_quote_redemptions_expires ON checkout_quote_redemptions(expires_at);
+
+-- Sắp xếp/phân trang sản phẩm theo giá, đánh giá, tồn kho ngay trong DB
+CREATE INDEX idx_products_min_price ON products(price_missing, min_sell_price, id);
+CREATE INDEX idx_products_avg_rating ON products(avg_rating, id);
+CREATE INDEX idx_products_total_stock ON products(total_stock, id);
+-- Tính lại khoá sắp xếp theo từng sản phẩm
+CREATE INDEX idx_product_variants_product ON product_variants(product_id) INCLUDE (status, sell_price, quantity);
+CREATE INDEX idx_reviews_product ON reviews(product_id) INCLUDE (parent_id, is_hidden, rating);
+-- Phân trang review gốc theo sản phẩm (keyset trên created_at, id) và nạp phản hồi theo từng tầng
+CREATE INDEX idx_reviews_product_roots ON reviews(product_id, created_at DESC, id DESC) INCLUDE (is_hidden) WHERE parent_id IS NULL;
+CREATE INDEX idx_reviews_parent ON reviews(parent_id) INCLUDE (is_hidden) WHERE parent_id IS NOT NULL;
+
 -- trigger auto-update updated_at
 GO
 CREATE TRIGGER trg_rr_set_updated_at
@@ -1988,6 +2066,24 @@ INNER JOIN (
 ) AS first_image ON pv.id = first_image.product_variant_id;
 
 
+-- Khởi tạo khoá sắp xếp tính sẵn cho dữ liệu mẫu
+UPDATE p SET min_sell_price = v.min_price, max_sell_price = v.max_price, total_stock = v.stock
+FROM products p
+CROSS APPLY (SELECT MIN(sell_price) AS min_price, MAX(sell_price) AS max_price, COALESCE(SUM(quantity), 0) AS stock
+             FROM product_variants WHERE product_id = p.id AND status = 1) v;
+
+UPDATE p SET avg_rating = r.avg_rating, review_count = r.review_count,
+             rating_1_count = r.c1, rating_2_count = r.c2, rating_3_count = r.c3,
+             rating_4_count = r.c4, rating_5_count = r.c5
+FROM products p
+CROSS APPLY (SELECT COALESCE(AVG(CAST(rating AS FLOAT)), 0) AS avg_rating, COUNT(*) AS review_count,
+                    COUNT(CASE WHEN rating = 1 THEN 1 END) AS c1, COUNT(CASE WHEN rating = 2 THEN 1 END) AS c2,
+                    COUNT(CASE WHEN rating = 3 THEN 1 END) AS c3, COUNT(CASE WHEN rating = 4 THEN 1 END) AS c4,
+                    COUNT(CASE WHEN rating = 5 THEN 1 END) AS c5
+             FROM reviews
+             WHERE product_id = p.id AND parent_id IS NULL AND ISNULL(is_hidden, 0) = 0 AND rating IS NOT NULL) r;
+
+
 SELECT DISTINCT p.id, p.name, p.thumbnail, pr.name AS promotion_name, pr.value, pr.start_date, pr.expiration_date
 FROM products p
 JOIN product_variants pv ON pv.product_id = p.id
@@ -4,9 +4,13 @@ import com.example.shoozy_shop.model.Coupon;
 import com.example.shoozy_shop.model.DefineStatus;
 import com.example.shoozy_shop.model.Promotion;
 import com.example.shoozy_shop.repository.CouponRepository;
+import com.example.shoozy_shop.repository.PromotionProductRepository;
 import com.example.shoozy_shop.repository.PromotionRepository;
+import com.example.shoozy_shop.service.CatalogIndexUpdater;
+import com.example.shoozy_shop.service.CatalogVersions;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -19,6 +23,9 @@ import java.util.List;
 public class AutoUpdateStatus {
     private final PromotionRepository promotionRepository;
     private final CouponRepository couponRepository;
+    private final PromotionProductRepository promotionProductRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogVersions catalogVersions;
 
     @Scheduled(fixedRate = 600000) // chạy mỗi 6p
     public void updatePromotionStatus() {
@@ -33,6 +40,12 @@ public class AutoUpdateStatus {
             if (promotion.getStatus() != newStatus) {
                 promotion.setStatus(newStatus);
                 promotionRepository.save(promotion);
+                // Khuyến mãi bắt đầu/hết hạn: sản phẩm được áp phải nạp lại giá trong cache
+                eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofVariants(
+                        promotionProductRepository.findByPromotionId(promotion.getId()).stream()
+                                .map(pp -> pp.getProductVariant().getId())
+                                .toList()));
+                catalogVersions.bump(CatalogVersions.PROMOTIONS);
                 updatedCount++;
                 log.info("Đã cập nhật Promotion ID={} sang trạng thái={}",
                         promotion.getId(), newStatus);
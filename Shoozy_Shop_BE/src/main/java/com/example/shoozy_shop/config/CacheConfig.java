@@ -0,0 +1,124 @@
+package com.example.shoozy_shop.config;
+
+import com.example.shoozy_shop.service.CatalogVersions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cache Caffeine trong bộ nhớ cho chi tiết/thẻ sản phẩm và dữ liệu danh mục (thương hiệu, danh mục, màu,
+ * size, chất liệu, phương thức thanh toán).
+ * - Dữ liệu danh mục bị xoá bằng @CacheEvict ngay trong service ghi
+ * - Sản phẩm bị xoá theo id khi có ProductChangedEvent (xem ProductCacheEvictor)
+ * - Bọc TransactionAwareCacheManagerProxy để lệnh xoá chạy sau commit, tránh request khác nạp lại dữ liệu cũ
+ * Mỗi lần xoá đều tăng phiên bản trong CatalogVersions, dùng làm ETag cho các API GET danh mục.
+ * TTL chỉ là lưới an toàn cho thay đổi từ node khác hoặc sửa tay trong DB.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCT_DETAIL = "productDetail";
+    public static final String PRODUCT_CARDS = "productCards";
+    public static final String BRANDS = "brands";
+    public static final String CATEGORIES = "categories";
+    public static final String COLORS = "colors";
+    public static final String SIZES = "sizes";
+    public static final String MATERIALS = "materials";
+    public static final String PAYMENT_METHODS = "paymentMethods";
+
+    public static final List<String> REFERENCE_CACHES = List.of(BRANDS, CATEGORIES, COLORS, SIZES, MATERIALS, PAYMENT_METHODS);
+
+    @Bean
+    public CaffeineCacheManager caffeineCacheManager(
+            @Value("${app.cache.product-ttl-minutes:10}") long productTtlMinutes,
+            @Value("${app.cache.product-max-size:10000}") long productMaxSize,
+            @Value("${app.cache.reference-ttl-minutes:60}") long referenceTtlMinutes,
+            CatalogVersions catalogVersions) {
+        CaffeineCacheManager manager = new CaffeineCacheManager() {
+            @Override
+            protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+                return new VersionedCaffeineCache(name, cache, catalogVersions);
+            }
+        };
+        // Chỉ dùng các cache đã khai báo, sai tên cache thì lỗi ngay thay vì âm thầm tạo cache mới
+        manager.setCacheNames(List.of());
+        manager.registerCustomCache(PRODUCT_DETAIL,
+                build(PRODUCT_DETAIL, productMaxSize / 5, productTtlMinutes, catalogVersions));
+        manager.registerCustomCache(PRODUCT_CARDS,
+                build(PRODUCT_CARDS, productMaxSize, productTtlMinutes, catalogVersions));
+        for (String name : REFERENCE_CACHES) {
+            manager.registerCustomCache(name, build(name, 1000, referenceTtlMinutes, catalogVersions));
+        }
+        return manager;
+    }
+
+    private static Cache<Object, Object> build(String name, long maxSize, long ttlMinutes,
+                                               CatalogVersions catalogVersions) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                // Hết TTL/vượt kích thước cũng đổi phiên bản: lần nạp lại có thể mang thay đổi từ node khác
+                .evictionListener((key, value, cause) -> catalogVersions.entryChanged(name, key))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Mỗi lần xoá entry/cache thì tăng phiên bản trong {@link CatalogVersions} (ETag của API danh mục).
+     * Tăng sau khi đã xoá khỏi Caffeine nên request thấy phiên bản mới chắc chắn đọc lại dữ liệu mới.
+     */
+    static class VersionedCaffeineCache extends CaffeineCache {
+
+        private final CatalogVersions catalogVersions;
+
+        VersionedCaffeineCache(String name, Cache<Object, Object> cache, CatalogVersions catalogVersions) {
+            super(name, cache);
+            this.catalogVersions = catalogVersions;
+        }
+
+        @Override
+        public void evict(Object key) {
+            super.evict(key);
+            catalogVersions.entryChanged(getName(), key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean present = super.evictIfPresent(key);
+            catalogVersions.entryChanged(getName(), key);
+            return present;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            catalogVersions.cacheCleared(getName());
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean notEmpty = super.invalidate();
+            catalogVersions.cacheCleared(getName());
+            return notEmpty;
+        }
+    }
+
+    // CacheManager mặc định cho @Cacheable/@CacheEvict; caffeineCacheManager dùng để đọc thống kê
+    @Bean
+    @Primary
+    public CacheManager cacheManager(CaffeineCacheManager caffeineCacheManager) {
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
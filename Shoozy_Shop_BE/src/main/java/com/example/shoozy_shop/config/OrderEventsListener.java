@@ -19,8 +19,9 @@ public class OrderEventsListener {
 
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void onOrderCreated(OrderService.OrderCreatedEvent e) {
-        webSocketService.broadcastRefresh(
-                "order",
+        webSocketService.broadcastOrderEvent(
+                e.getOrderId(),
+                e.getUserEmail(),
                 Map.of("orderId", e.getOrderId(), "orderCode", e.getOrderCode()),
                 "ORDER_CREATED"
         );
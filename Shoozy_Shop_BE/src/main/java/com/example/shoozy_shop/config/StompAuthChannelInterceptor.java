@@ -0,0 +1,115 @@
+package com.example.shoozy_shop.config;
+
+import com.example.shoozy_shop.model.Token;
+import com.example.shoozy_shop.repository.TokenRepository;
+import com.example.shoozy_shop.security.JwtUtils;
+import com.example.shoozy_shop.security.UserDetailsServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Xác thực STOMP bằng JWT trong header "Authorization: Bearer ..." của frame CONNECT
+ * (cùng các bước kiểm tra như JwtAuthenticationFilter) và chặn SUBSCRIBE sai quyền:
+ * - /topic/admin/** chỉ cho Admin, Staff
+ * - /user/queue/**, /user/topic/** cần đăng nhập (mỗi session chỉ nhận message của chính user đó);
+ *   không được nghe /user/{user khác}/... hay /queue/** trực tiếp
+ * - SEND chỉ được tới /app/**
+ * Kết nối không có token vẫn được nhận các topic công khai.
+ */
+@Component
+@RequiredArgsConstructor
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Set<String> STAFF_ROLES = Set.of("Admin", "Staff");
+
+    private final JwtUtils jwtUtils;
+    private final TokenRepository tokenRepository;
+    private final UserDetailsServiceImpl userDetailsService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String header = accessor.getFirstNativeHeader("Authorization");
+            if (header != null && header.startsWith("Bearer ")) {
+                accessor.setUser(authenticate(header.substring(7)));
+            }
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            checkSubscribe(accessor.getDestination(), accessor.getUser());
+        } else if (StompCommand.SEND.equals(accessor.getCommand())) {
+            // Client không được gửi thẳng vào broker (giả message cho /topic/admin/...)
+            String destination = accessor.getDestination();
+            if (destination == null || !destination.startsWith("/app/")) {
+                throw new MessageDeliveryException("Không được gửi tới " + destination);
+            }
+        }
+        return message;
+    }
+
+    private Authentication authenticate(String jwt) {
+        if (!jwtUtils.validateJwtToken(jwt)) {
+            throw new MessageDeliveryException("Token không hợp lệ");
+        }
+        Optional<Token> token = tokenRepository.findByToken(jwt);
+        if (token.isEmpty()
+                || Boolean.TRUE.equals(token.get().getRevoked())
+                || Boolean.TRUE.equals(token.get().getExpired())) {
+            throw new MessageDeliveryException("Token đã bị thu hồi hoặc hết hạn");
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(jwtUtils.getUserNameFromJwtToken(jwt));
+        if (!userDetails.isEnabled() || !userDetails.isAccountNonLocked()) {
+            throw new MessageDeliveryException("Tài khoản đã bị khoá");
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+
+    private void checkSubscribe(String destination, Principal user) {
+        if (destination == null) {
+            return;
+        }
+        if (destination.startsWith("/user/")) {
+            if (user == null) {
+                throw new MessageDeliveryException("Cần đăng nhập để nghe " + destination);
+            }
+            // Chỉ dạng /user/queue/..., /user/topic/...: resolver tự gắn session của user đang đăng nhập.
+            // Dạng /user/{email}/queue/... (nghe thay user khác) bị chặn
+            String target = destination.substring("/user".length());
+            if (!target.startsWith("/queue/") && !target.startsWith("/topic/")) {
+                throw new MessageDeliveryException("Không được nghe " + destination);
+            }
+            checkTopic(target, destination, user);
+        } else if (destination.startsWith("/queue")) {
+            // Queue riêng của từng session (vd /queue/orders-user{sessionId}) chỉ được nghe qua /user/
+            throw new MessageDeliveryException("Không được nghe trực tiếp " + destination);
+        } else {
+            checkTopic(destination, destination, user);
+        }
+    }
+
+    private void checkTopic(String target, String destination, Principal user) {
+        if (target.startsWith("/topic/admin")) {
+            boolean staff = user instanceof Authentication auth && auth.getAuthorities().stream()
+                    .anyMatch(a -> STAFF_ROLES.contains(a.getAuthority()));
+            if (!staff) {
+                throw new MessageDeliveryException("Không có quyền nghe " + destination);
+            }
+        }
+    }
+}
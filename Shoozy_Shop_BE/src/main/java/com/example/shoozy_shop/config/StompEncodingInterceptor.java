@@ -0,0 +1,113 @@
+package com.example.shoozy_shop.config;
+
+import com.example.shoozy_shop.service.RealtimeEventCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cho client chọn mã hoá CBOR thay vì JSON.
+ * - Chỉ áp dụng cho endpoint WebSocket thuần /ws-native (SockJS chỉ truyền được text)
+ * - Client gửi header "x-encoding: cbor" trong frame CONNECT
+ * - Message gửi tới session đó được chuyển sang CBOR, kèm content-type application/octet-stream
+ *   và header "x-encoding: cbor"; broker dùng chung một mảng payload cho mọi subscriber
+ *   nên mỗi message chỉ chuyển mã một lần
+ * Session không xin CBOR vẫn nhận JSON như cũ.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StompEncodingInterceptor implements ChannelInterceptor, HandshakeInterceptor {
+
+    static final String NATIVE_SESSION_ATTR = "nativeWebSocket";
+
+    private final RealtimeEventCodec codec;
+
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+    // [json, cbor] của message chuyển mã gần nhất trên luồng này
+    private final ThreadLocal<byte[][]> lastTranscoded = ThreadLocal.withInitial(() -> new byte[2][]);
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        attributes.put(NATIVE_SESSION_ATTR, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (type == null || sessionId == null) {
+            return message;
+        }
+        switch (type) {
+            case CONNECT -> {
+                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                Map<String, Object> attributes = accessor.getSessionAttributes();
+                if (RealtimeEventCodec.CBOR.equalsIgnoreCase(accessor.getFirstNativeHeader(RealtimeEventCodec.ENCODING_HEADER))
+                        && attributes != null && attributes.containsKey(NATIVE_SESSION_ATTR)) {
+                    cborSessions.add(sessionId);
+                }
+            }
+            case DISCONNECT -> cborSessions.remove(sessionId);
+            case MESSAGE -> {
+                if (cborSessions.contains(sessionId) && message.getPayload() instanceof byte[] json) {
+                    return toCborMessage(message, json);
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    boolean isCborSession(String sessionId) {
+        return cborSessions.contains(sessionId);
+    }
+
+    private Message<?> toCborMessage(Message<?> message, byte[] json) {
+        byte[][] cache = lastTranscoded.get();
+        byte[] cbor;
+        if (cache[0] == json) {
+            cbor = cache[1];
+        } else {
+            try {
+                cbor = codec.toCbor(json);
+            } catch (IOException e) {
+                log.warn("Cannot transcode message to CBOR, sending JSON", e);
+                return message;
+            }
+            cache[0] = json;
+            cache[1] = cbor;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(RealtimeEventCodec.ENCODING_HEADER, RealtimeEventCodec.CBOR);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+}
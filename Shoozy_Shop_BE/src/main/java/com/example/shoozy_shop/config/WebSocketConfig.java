@@ -1,7 +1,9 @@
 package com.example.shoozy_shop.config;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -13,14 +15,23 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @Configuration
 @EnableWebSocketMessageBroker
 @EnableScheduling
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final StompEncodingInterceptor stompEncodingInterceptor;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Đăng ký endpoint cho WebSocket
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("http://localhost:5173/")
                 .withSockJS(); // Sử dụng SockJS để hỗ trợ các trình duyệt không hỗ trợ WebSocket
-        log.info("WebSocket endpoint registered at /ws");
+        // WebSocket thuần (không SockJS) cho client cần nhận message dạng CBOR
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("http://localhost:5173/")
+                .addInterceptors(stompEncodingInterceptor);
+        log.info("WebSocket endpoints registered at /ws and /ws-native");
     }
 
     @Override
@@ -28,6 +39,19 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // Cấu hình message broker
         registry.enableSimpleBroker("/topic","/queue"); // Sử dụng một message broker đơn giản
         registry.setApplicationDestinationPrefixes("/app"); // Tiền tố cho các điểm đến của ứng dụng
+        registry.setUserDestinationPrefix("/user"); // /user/queue/... chỉ tới các session của đúng user
         log.info("Message broker configured with prefixes /topic and /queue");
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Xác thực JWT ở frame CONNECT và kiểm tra quyền khi SUBSCRIBE
+        registration.interceptors(stompAuthChannelInterceptor, stompEncodingInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Chuyển message sang CBOR cho các session đã chọn
+        registration.interceptors(stompEncodingInterceptor);
+    }
 }
\ No newline at end of file
@@ -1,14 +1,20 @@
 package com.example.shoozy_shop.controller;
 
+import com.example.shoozy_shop.config.CacheConfig;
 import com.example.shoozy_shop.exception.ApiResponse;
 import com.example.shoozy_shop.model.Brand;
 import com.example.shoozy_shop.service.BrandService;
+import com.example.shoozy_shop.service.CatalogVersions;
+import com.example.shoozy_shop.util.ConditionalGet;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -16,21 +22,32 @@ import java.util.List;
 @RequiredArgsConstructor
 public class BrandController {
 
+    // Bộ lọc ở trang cửa hàng dùng lại trong vài phút; màn hình quản trị luôn hỏi lại để thấy ngay thay đổi
+    private static final CacheControl STOREFRONT = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
     private final BrandService brandService;
+    private final CatalogVersions catalogVersions;
 
     @GetMapping("")
-    public ResponseEntity<ApiResponse<List<Brand>>> getAllBrands() {
-        return ResponseEntity.ok(ApiResponse.success("Lấy tất cả thương hiệu thành công", brandService.getAllBrands()));
+    public ResponseEntity<ApiResponse<List<Brand>>> getAllBrands(WebRequest request) {
+        return ConditionalGet.respond(request,
+                catalogVersions.etag(CacheConfig.BRANDS), catalogVersions.lastModified(CacheConfig.BRANDS),
+                REVALIDATE, () -> ApiResponse.success("Lấy tất cả thương hiệu thành công", brandService.getAllBrands()));
     }
 
     @GetMapping("/active")
-    public ResponseEntity<ApiResponse<List<Brand>>> getActiveBrands() {
-        return ResponseEntity.ok(ApiResponse.success("Lấy thương hiệu đang hoạt động", brandService.getActiveBrands()));
+    public ResponseEntity<ApiResponse<List<Brand>>> getActiveBrands(WebRequest request) {
+        return ConditionalGet.respond(request,
+                catalogVersions.etag(CacheConfig.BRANDS), catalogVersions.lastModified(CacheConfig.BRANDS),
+                STOREFRONT, () -> ApiResponse.success("Lấy thương hiệu đang hoạt động", brandService.getActiveBrands()));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Brand>> getBrandById(@PathVariable Long id) {
-        return ResponseEntity.ok(ApiResponse.success("Lấy thương hiệu theo ID thành công", brandService.getBrandById(id)));
+    public ResponseEntity<ApiResponse<Brand>> getBrandById(@PathVariable Long id, WebRequest request) {
+        return ConditionalGet.respond(request,
+                catalogVersions.entryEtag(CacheConfig.BRANDS, id), catalogVersions.entryLastModified(CacheConfig.BRANDS, id),
+                REVALIDATE, () -> ApiResponse.success("Lấy thương hiệu theo ID thành công", brandService.getBrandById(id)));
     }
 
     @PostMapping("")
@@ -0,0 +1,26 @@
+package com.example.shoozy_shop.controller;
+
+import com.example.shoozy_shop.dto.response.CacheStatsResponse;
+import com.example.shoozy_shop.exception.ApiResponse;
+import com.example.shoozy_shop.service.CacheStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/cache")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final CacheStatsService cacheStatsService;
+
+    // Tỉ lệ hit và số entry của từng cache để theo dõi hiệu quả cache
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<List<CacheStatsResponse>>> getStats() {
+        return ResponseEntity.ok(ApiResponse.success("Lấy thống kê cache thành công", cacheStatsService.stats()));
+    }
+}
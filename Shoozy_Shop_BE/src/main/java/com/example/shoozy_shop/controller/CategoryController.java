@@ -1,13 +1,19 @@
 package com.example.shoozy_shop.controller;
 
+import com.example.shoozy_shop.config.CacheConfig;
 import com.example.shoozy_shop.exception.ApiResponse;
 import com.example.shoozy_shop.model.Category;
 import com.example.shoozy_shop.service.CategoryService;
+import com.example.shoozy_shop.service.CatalogVersions;
+import com.example.shoozy_shop.util.ConditionalGet;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -15,21 +21,32 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CategoryController {
 
+    // Bộ lọc ở trang cửa hàng dùng lại trong vài phút; màn hình quản trị luôn hỏi lại để thấy ngay thay đổi
+    private static final CacheControl STOREFRONT = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
     private final CategoryService categoryService;
+    private final CatalogVersions catalogVersions;
 
     @GetMapping("")
-    public ResponseEntity<ApiResponse<List<Category>>> getAllCategories() {
-        return ResponseEntity.ok(ApiResponse.success("Lấy tất cả danh mục thành công", categoryService.getAllCategories()));
+    public ResponseEntity<ApiResponse<List<Category>>> getAllCategories(WebRequest request) {
+        return ConditionalGet.respond(request,
+                catalogVersions.etag(CacheConfig.CATEGORIES), catalogVersions.lastModified(CacheConfig.CATEGORIES),
+                REVALIDATE, () -> ApiResponse.success("Lấy tất cả danh mục thành công", categoryService.getAllCategories()));
     }
 
     @GetMapping("/active")
-    public ResponseEntity<ApiResponse<List<Category>>> getActiveCategories() {
-        return ResponseEntity.ok(ApiResponse.success("Lấy danh mục đang hoạt động", categoryService.getActiveCategories()));
+    public ResponseEntity<ApiResponse<List<Category>>> getActiveCategories(WebRequest request) {
+        return ConditionalGet.respond(request,
+                catalogVersions.etag(CacheConfig.CATEGORIES), catalogVersions.lastModified(CacheConfig.CATEGORIES),
+                STOREFRONT, () -> ApiResponse.success("Lấy danh mục đang hoạt động", categoryService.getActiveCategories()));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Category>> getCategoryById(@PathVariable Long id) {
-        return ResponseEntity.ok(ApiResponse.success("Lấy danh mục theo ID thành công", categoryService.getCategoryById(id)));
+    public ResponseEntity<ApiResponse<Category>> getCategoryById(@PathVariable Long id, WebRequest request) {
+        return ConditionalGet.respond(request,
+                catalogVersions.entryEtag(CacheConfig.CATEGORIES, id), catalogVersions.entryLastModified(CacheConfig.CATEGORIES, id),
+                REVALIDATE, () -> ApiResponse.success("Lấy danh mục theo ID thành công", categoryService.getCategoryById(id)));
     }
 
     @PostMapping("")
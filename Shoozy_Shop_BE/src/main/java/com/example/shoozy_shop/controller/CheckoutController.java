@@ -0,0 +1,34 @@
+package com.example.shoozy_shop.controller;
+
+import com.example.shoozy_shop.dto.request.CheckoutQuoteRequest;
+import com.example.shoozy_shop.dto.response.CheckoutQuoteResponse;
+import com.example.shoozy_shop.exception.ApiResponse;
+import com.example.shoozy_shop.security.UserDetailsImpl;
+import com.example.shoozy_shop.service.CheckoutQuoteService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("${api.prefix}/checkout")
+public class CheckoutController {
+
+    private final CheckoutQuoteService checkoutQuoteService;
+
+    /**
+     * Giá từng dòng, mã giảm giá dùng được, phí ship và tổng tiền cho các dòng giỏ được chọn,
+     * kèm quoteToken để gửi lại khi đặt hàng. Giỏ hàng là của người đang đăng nhập, không nhận userId từ client.
+     */
+    @PostMapping("/quote")
+    public ResponseEntity<ApiResponse<CheckoutQuoteResponse>> quote(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                                    @RequestBody @Valid CheckoutQuoteRequest request) {
+        return ResponseEntity.ok(ApiResponse.success("Báo giá đơn hàng thành công",
+                checkoutQuoteService.quote(userDetails.getId(), request)));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.shoozy_shop.controller;
+
+import com.example.shoozy_shop.exception.ApiResponse;
+import com.example.shoozy_shop.service.FlashSaleStockLedger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/v1/flash-sale")
+@RequiredArgsConstructor
+public class FlashSaleController {
+
+    private final FlashSaleStockLedger flashSaleStockLedger;
+
+    // Danh sách biến thể đang flash sale kèm tồn kho khả dụng trong sổ
+    @GetMapping("/variants")
+    public ResponseEntity<ApiResponse<Map<Long, Integer>>> getVariants() {
+        Map<Long, Integer> result = new TreeMap<>();
+        for (Long id : flashSaleStockLedger.managedVariantIds()) {
+            Integer available = flashSaleStockLedger.available(id);
+            if (available != null) {
+                result.put(id, available);
+            }
+        }
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách biến thể flash sale thành công", result));
+    }
+
+    @PostMapping("/variants/{id}")
+    public ResponseEntity<ApiResponse<Integer>> enable(@PathVariable Long id) {
+        int available = flashSaleStockLedger.enable(id);
+        return ResponseEntity.ok(ApiResponse.success("Bật flash sale cho biến thể thành công", available));
+    }
+
+    @DeleteMapping("/variants/{id}")
+    public ResponseEntity<ApiResponse<String>> disable(@PathVariable Long id) {
+        flashSaleStockLedger.disable(id);
+        return ResponseEntity.ok(ApiResponse.success("Tắt flash sale cho biến thể thành công", null));
+    }
+}
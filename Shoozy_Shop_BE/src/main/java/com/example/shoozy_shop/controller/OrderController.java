@@ -1,26 +1,30 @@
 package com.example.shoozy_shop.controller;
 
 import com.example.shoozy_shop.dto.request.OrderRequest;
+import com.example.shoozy_shop.dto.request.OrderSearchRequest;
 import com.example.shoozy_shop.dto.request.StatusOrderRequest;
 import com.example.shoozy_shop.dto.request.UpdateUserOrderInfoRequest;
+import com.example.shoozy_shop.dto.response.CursorPageResponse;
+import com.example.shoozy_shop.dto.response.OrderListItemResponse;
 import com.example.shoozy_shop.dto.response.OrderResponse;
 import com.example.shoozy_shop.dto.response.ProductCheckoutResponse;
 import com.example.shoozy_shop.dto.response.ReturnableItemDto;
 import com.example.shoozy_shop.exception.ApiResponse;
 import com.example.shoozy_shop.model.Order;
-import com.example.shoozy_shop.model.OrderDetail;
 import com.example.shoozy_shop.model.Transaction;
 import com.example.shoozy_shop.repository.CartItemRepository;
-import com.example.shoozy_shop.repository.ReturnRequestRepository;
+import com.example.shoozy_shop.security.UserDetailsImpl;
 import com.example.shoozy_shop.service.OrderService;
 import com.example.shoozy_shop.service.TransactionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/orders")
@@ -30,7 +34,6 @@ public class OrderController {
     private final OrderService orderService;
     private final CartItemRepository cartItemRepository;
     private final TransactionService transactionService;
-    private final ReturnRequestRepository  returnRepository;
 
     @GetMapping("")
     public ResponseEntity<ApiResponse<List<Order>>> getAllOrders() {
@@ -44,6 +47,42 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Lấy đơn hàng của người dùng thành công", orders));
     }
 
+    // Danh sách đơn cho admin/nhân viên, phân trang keyset: truyền nextCursor của trang trước vào cursor
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<OrderListItemResponse>>> getOrderPage(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Boolean type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeDetails) {
+        OrderSearchRequest request = OrderSearchRequest.builder()
+                .status(status).type(type).fromDate(fromDate).toDate(toDate)
+                .cursor(cursor).size(size).includeDetails(includeDetails)
+                .build();
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng thành công",
+                orderService.getOrderPage(request)));
+    }
+
+    // Đơn của chính người đang đăng nhập, userId lấy từ token chứ không nhận từ client
+    @GetMapping("/user/page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<OrderListItemResponse>>> getOrderPageByUserId(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "true") boolean includeDetails) {
+        OrderSearchRequest request = OrderSearchRequest.builder()
+                .userId(userDetails.getId()).status(status).fromDate(fromDate).toDate(toDate)
+                .cursor(cursor).size(size).includeDetails(includeDetails)
+                .build();
+        return ResponseEntity.ok(ApiResponse.success("Lấy đơn hàng của người dùng thành công",
+                orderService.getOrderPage(request)));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<OrderResponse>> getDetail(@PathVariable Long id) {
         return ResponseEntity
@@ -95,22 +134,7 @@ public class OrderController {
             @PathVariable Long orderId,
             @RequestParam Long userId) {
 
-        List<OrderDetail> returnableItems = orderService.getReturnableItems(orderId, userId);
-
-        List<ReturnableItemDto> result = returnableItems.stream()
-                .map(od -> {
-                    int returnedQuantity = returnRepository.sumReturnedQuantityByOrderDetailId(od.getId()); // tổng đã
-                                                                                                            // trả
-                    int availableQuantity = od.getQuantity() - returnedQuantity; // còn lại
-                    return new ReturnableItemDto(
-                            od.getId(),
-                            availableQuantity,
-                            od.getProductVariant().getThumbnail(),
-                            od.getProductVariant().getColor().getName(),
-                            od.getProductVariant().getSize().getValue(),
-                            od.getProductVariant().getProduct().getName());
-                })
-                .collect(Collectors.toList());
+        List<ReturnableItemDto> result = orderService.getReturnableItems(orderId, userId);
 
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách sản phẩm có thể trả thành công", result));
     }
@@ -0,0 +1,24 @@
+package com.example.shoozy_shop.controller;
+
+import com.example.shoozy_shop.dto.response.OutboxStatsResponse;
+import com.example.shoozy_shop.exception.ApiResponse;
+import com.example.shoozy_shop.service.OutboxRelay;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/outbox")
+@RequiredArgsConstructor
+public class OutboxController {
+
+    private final OutboxRelay outboxRelay;
+
+    // Backlog và độ trễ của outbox để theo dõi relay
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<OutboxStatsResponse>> getStats() {
+        return ResponseEntity.ok(ApiResponse.success("Lấy thống kê outbox thành công", outboxRelay.stats()));
+    }
+}
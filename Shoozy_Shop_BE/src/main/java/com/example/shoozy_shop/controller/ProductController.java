@@ -1,20 +1,34 @@
 package com.example.shoozy_shop.controller;
 
+import com.example.shoozy_shop.config.CacheConfig;
+import com.example.shoozy_shop.dto.request.CatalogFilterRequest;
 import com.example.shoozy_shop.dto.request.ProductRequest;
+import com.example.shoozy_shop.dto.response.CatalogFacetResponse;
 import com.example.shoozy_shop.dto.response.ListProductPromotion;
+import com.example.shoozy_shop.dto.response.ProductCardResponse;
+import com.example.shoozy_shop.dto.response.ProductImportResponse;
 import com.example.shoozy_shop.dto.response.ProductPromotionResponse;
 import com.example.shoozy_shop.dto.response.ProductResponse;
 import com.example.shoozy_shop.dto.response.ProductResponseForPromotion;
+import com.example.shoozy_shop.dto.response.SuggestionResponse;
 import com.example.shoozy_shop.exception.ApiResponse;
 import com.example.shoozy_shop.model.Product;
+import com.example.shoozy_shop.service.CatalogVersions;
+import com.example.shoozy_shop.service.ProductImportService;
 import com.example.shoozy_shop.service.ProductService;
+import com.example.shoozy_shop.service.RelatedProductsUpdater;
+import com.example.shoozy_shop.util.ConditionalGet;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -23,11 +37,18 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ProductController {
 
+    // Giá/tồn kho phải luôn mới: trình duyệt/CDN giữ bản sao nhưng hỏi lại mỗi lần, thường chỉ nhận 304
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
     private final ProductService productService;
+    private final CatalogVersions catalogVersions;
+    private final ProductImportService productImportService;
 
     @GetMapping("")
-    public ResponseEntity<ApiResponse<Page<ProductResponse>>> getAllProducts(
+    public ResponseEntity<ApiResponse<Page<ProductCardResponse>>> getAllProducts(
             @RequestParam(name = "keyword", required = false) String keyword,
+            // Tìm không dấu theo tên/SKU/thương hiệu/danh mục/mô tả, xếp theo độ liên quan trừ khi sortBy là price/rating/stock/createdAt
+            @RequestParam(name = "q", required = false) String q,
             @RequestParam(name = "brand_id", required = false) List<Long> brandIds,
             @RequestParam(name = "category_id", required = false) List<Long> categoryIds,
             @RequestParam(name = "minPrice", required = false) Double minPrice,
@@ -37,21 +58,83 @@ public class ProductController {
             @RequestParam(name = "material_id", required = false) List<Long> materialIds,
             @RequestParam(name = "gender", required = false) String gender,
             @RequestParam(name = "status", required = false) Boolean status,
+            @RequestParam(name = "inStock", required = false) Boolean inStock,
             @RequestParam(name = "pageNo", defaultValue = "1") Integer pageNo,
             @RequestParam(name = "pageSize", defaultValue = "10") Integer pageSize,
             @RequestParam(name = "sortBy", defaultValue = "id") String sortBy,
-            @RequestParam(name = "sortDirection", defaultValue = "asc") String sortDirection
+            @RequestParam(name = "sortDirection", defaultValue = "asc") String sortDirection,
+            WebRequest request
+    ) {
+        // Mọi thay đổi sản phẩm đều xoá thẻ trong cache nên phiên bản cache thẻ cũng là phiên bản của danh sách
+        return ConditionalGet.respond(request,
+                catalogVersions.etag(CacheConfig.PRODUCT_CARDS),
+                catalogVersions.lastModified(CacheConfig.PRODUCT_CARDS),
+                REVALIDATE,
+                () -> ApiResponse.success("Lấy danh sách sản phẩm thành công", productService.searchProductByQueryBuilder(
+                        keyword, q, brandIds, categoryIds, minPrice, maxPrice,
+                        sizeIds, colorIds, materialIds, gender, status, inStock, pageNo, pageSize, sortBy, sortDirection
+                )));
+    }
+
+    // Số sản phẩm theo từng giá trị bộ lọc, cùng tham số với danh sách sản phẩm
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<CatalogFacetResponse>> getFacets(
+            @RequestParam(name = "brand_id", required = false) List<Long> brandIds,
+            @RequestParam(name = "category_id", required = false) List<Long> categoryIds,
+            @RequestParam(name = "minPrice", required = false) Double minPrice,
+            @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(name = "size_id", required = false) List<Long> sizeIds,
+            @RequestParam(name = "color_id", required = false) List<Long> colorIds,
+            @RequestParam(name = "material_id", required = false) List<Long> materialIds,
+            @RequestParam(name = "gender", required = false) String gender,
+            @RequestParam(name = "status", required = false) Boolean status,
+            @RequestParam(name = "inStock", required = false) Boolean inStock
+    ) {
+        CatalogFilterRequest filter = CatalogFilterRequest.builder()
+                .brandIds(brandIds)
+                .categoryIds(categoryIds)
+                .materialIds(materialIds)
+                .sizeIds(sizeIds)
+                .colorIds(colorIds)
+                .gender(gender)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .inStock(inStock)
+                .status(status)
+                .build();
+        return ResponseEntity.ok(ApiResponse.success("Lấy số lượng theo bộ lọc thành công", productService.getCatalogFacets(filter)));
+    }
+
+    // Gợi ý cho ô tìm kiếm theo từng phím gõ, trả từ bộ nhớ
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionResponse>>> suggest(
+            @RequestParam(name = "q") String q,
+            @RequestParam(name = "limit", defaultValue = "8") Integer limit
     ) {
-        Page<ProductResponse> results = productService.searchProductByQueryBuilder(
-                keyword, brandIds, categoryIds, minPrice, maxPrice,
-                sizeIds, colorIds, materialIds, gender, status, pageNo, pageSize, sortBy, sortDirection
-        );
-        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách sản phẩm thành công", results));
+        return ResponseEntity.ok(ApiResponse.success("Lấy gợi ý tìm kiếm thành công", productService.suggest(q, limit)));
+    }
+
+    // Sản phẩm liên quan/thường mua cùng cho trang chi tiết, tính sẵn trong bộ nhớ
+    @GetMapping("/{id}/related")
+    public ResponseEntity<ApiResponse<List<ProductCardResponse>>> getRelatedProducts(
+            @PathVariable Long id,
+            @RequestParam(name = "limit", defaultValue = "12") Integer limit,
+            WebRequest request
+    ) {
+        return ConditionalGet.respond(request,
+                catalogVersions.etag(CacheConfig.PRODUCT_CARDS, RelatedProductsUpdater.VERSION_KEY),
+                catalogVersions.lastModified(CacheConfig.PRODUCT_CARDS, RelatedProductsUpdater.VERSION_KEY),
+                REVALIDATE,
+                () -> ApiResponse.success("Lấy sản phẩm liên quan thành công", productService.getRelatedProducts(id, limit)));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<ProductResponse>> getProductById(@PathVariable Long id) {
-        return ResponseEntity.ok(ApiResponse.success("Lấy thông tin sản phẩm thành công", productService.getProductById(id)));
+    public ResponseEntity<ApiResponse<ProductResponse>> getProductById(@PathVariable Long id, WebRequest request) {
+        return ConditionalGet.respond(request,
+                catalogVersions.entryEtag(CacheConfig.PRODUCT_DETAIL, id),
+                catalogVersions.entryLastModified(CacheConfig.PRODUCT_DETAIL, id),
+                REVALIDATE,
+                () -> ApiResponse.success("Lấy thông tin sản phẩm thành công", productService.getProductById(id)));
     }
 
     @PostMapping("")
@@ -59,6 +142,15 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("Tạo sản phẩm thành công", productService.addProduct(productRequest)));
     }
 
+    /**
+     * Nhập sản phẩm/biến thể hàng loạt từ file .xlsx/.xls/.csv (mỗi dòng một biến thể).
+     * Dòng lỗi được bỏ qua và trả về trong danh sách lỗi kèm số dòng.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<ProductImportResponse>> importProducts(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(ApiResponse.success("Nhập sản phẩm hoàn tất", productImportService.importProducts(file)));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<Product>> updateProduct(@PathVariable Long id, @RequestBody @Valid ProductRequest productRequest) {
         return ResponseEntity.ok(ApiResponse.success("Cập nhật sản phẩm thành công", productService.updateProduct(id, productRequest)));
@@ -2,7 +2,9 @@ package com.example.shoozy_shop.controller;
 
 import com.example.shoozy_shop.dto.request.ProductVariantAddRequest;
 import com.example.shoozy_shop.dto.request.ProductVariantUpdateRequest;
+import com.example.shoozy_shop.dto.request.VariantBulkUpdateRequest;
 import com.example.shoozy_shop.dto.response.ProductVariantResponse;
+import com.example.shoozy_shop.dto.response.VariantBulkUpdateResponse;
 import com.example.shoozy_shop.exception.ApiResponse;
 import com.example.shoozy_shop.model.ProductVariant;
 import com.example.shoozy_shop.service.ProductVariantService;
@@ -47,6 +49,16 @@ public class ProductVariantController {
         return ResponseEntity.ok(ApiResponse.success("Cập nhật biến thể sản phẩm thành công", updated));
     }
 
+    /**
+     * Đổi giá/nhập kho nhiều biến thể cùng lúc, tất cả hoặc không biến thể nào được cập nhật.
+     */
+    @PatchMapping("/bulk")
+    public ResponseEntity<ApiResponse<VariantBulkUpdateResponse>> bulkUpdate(
+            @RequestBody @Valid VariantBulkUpdateRequest request) {
+        VariantBulkUpdateResponse result = productVariantService.bulkUpdate(request);
+        return ResponseEntity.ok(ApiResponse.success("Cập nhật hàng loạt biến thể thành công", result));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<ApiResponse<String>> deleteProductVariant(@PathVariable Long id) {
         productVariantService.deleteProductVariant(id);
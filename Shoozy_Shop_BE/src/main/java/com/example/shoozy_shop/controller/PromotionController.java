@@ -4,13 +4,17 @@ import com.example.shoozy_shop.dto.request.PromotionRequest;
 import com.example.shoozy_shop.dto.response.ListPromotionResponse;
 import com.example.shoozy_shop.dto.response.PromotionDetailResponse;
 import com.example.shoozy_shop.dto.response.PromotionResponse;
+import com.example.shoozy_shop.service.CatalogVersions;
 import com.example.shoozy_shop.service.PromotionService;
+import com.example.shoozy_shop.util.ConditionalGet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import com.example.shoozy_shop.exception.ApiResponse;
 
 import java.time.LocalDate;
@@ -20,7 +24,11 @@ import java.time.LocalDate;
 @RestController
 @RequestMapping("${api.prefix}/promotions")
 public class PromotionController {
+    // API cần đăng nhập: chỉ trình duyệt được giữ bản sao, luôn hỏi lại bằng ETag
+    private static final CacheControl PRIVATE_REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final PromotionService promotionService;
+    private final CatalogVersions catalogVersions;
 
     @GetMapping("")
     public ResponseEntity<?> getPromotions(
@@ -29,8 +37,15 @@ public class PromotionController {
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            @RequestParam(required = false) Integer status
+            @RequestParam(required = false) Integer status,
+            WebRequest request
     ) throws Exception {
+        ResponseEntity<?> notModified = ConditionalGet.notModified(request,
+                catalogVersions.etag(CatalogVersions.PROMOTIONS), catalogVersions.lastModified(CatalogVersions.PROMOTIONS),
+                PRIVATE_REVALIDATE);
+        if (notModified != null) {
+            return notModified;
+        }
         PageRequest pageRequest = PageRequest.of(page, limit);
 
         if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
@@ -48,14 +63,22 @@ public class PromotionController {
                 .totalElements((int) promotionResponses.getTotalElements())
                 .build();
 
-        return ResponseEntity.ok(ApiResponse.success("Get promotions successfully", response));
+        return ResponseEntity.ok().cacheControl(PRIVATE_REVALIDATE)
+                .body(ApiResponse.success("Get promotions successfully", response));
     }
 
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getPromotionById(@PathVariable("id") Long id) throws Exception {
+    public ResponseEntity<?> getPromotionById(@PathVariable("id") Long id, WebRequest request) throws Exception {
+        ResponseEntity<?> notModified = ConditionalGet.notModified(request,
+                catalogVersions.etag(CatalogVersions.PROMOTIONS), catalogVersions.lastModified(CatalogVersions.PROMOTIONS),
+                PRIVATE_REVALIDATE);
+        if (notModified != null) {
+            return notModified;
+        }
         PromotionDetailResponse promotionResponse = promotionService.getPromotionInfoById(id);
-        return ResponseEntity.ok(ApiResponse.success("Get promotion successfully", promotionResponse));
+        return ResponseEntity.ok().cacheControl(PRIVATE_REVALIDATE)
+                .body(ApiResponse.success("Get promotion successfully", promotionResponse));
     }
     @PutMapping("/status/{id}")
     public ResponseEntity<?> updatePromotionStatus(@PathVariable("id") Long id) throws Exception {
@@ -4,6 +4,7 @@ import com.example.shoozy_shop.model.Review;
 import com.example.shoozy_shop.dto.request.ReviewRequest;
 import com.example.shoozy_shop.dto.response.ReviewResponseDTO;
 import com.example.shoozy_shop.dto.response.ReviewInfoDTO;
+import com.example.shoozy_shop.dto.response.ReviewPageResponse;
 
 import com.example.shoozy_shop.service.ReviewService;
 import com.example.shoozy_shop.repository.UserRepository;
@@ -53,11 +54,14 @@ public class ReviewController {
         List<ReviewResponseDTO> dtos = reviewService.getReviewDTOsByProductId(request.getProductId());
         return ResponseEntity.ok(dtos);
     }
-    // Lấy review theo productId
+    // Review theo productId, phân trang keyset (mới nhất trước): truyền nextCursor của trang trước vào cursor.
+    // Mỗi trang kèm thống kê điểm (trung bình, số review, số review theo từng mức sao) của sản phẩm
     @GetMapping("/by-product/{productId}")
-    public ResponseEntity<List<ReviewResponseDTO>> getReviewsByProductId(@PathVariable Long productId) {
-        List<ReviewResponseDTO> dtos = reviewService.getReviewDTOsByProductId(productId);
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<ReviewPageResponse> getReviewsByProductId(
+            @PathVariable Long productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(reviewService.getReviewPage(productId, cursor, size));
     }
 
     @PostMapping("/reviews/{id}/reply")
@@ -0,0 +1,37 @@
+package com.example.shoozy_shop.dto.event;
+
+import com.example.shoozy_shop.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record OrderEventPayload(
+        Long id,
+        String orderCode,
+        String status,
+        Boolean type,
+        String fullname,
+        String phoneNumber,
+        String address,
+        BigDecimal totalMoney,
+        BigDecimal finalPrice,
+        // Tên phương thức thanh toán (FE đọc field paymentType)
+        String paymentType,
+        LocalDateTime createdAt
+) implements RealtimeEvent {
+
+    public static OrderEventPayload from(Order order) {
+        return new OrderEventPayload(
+                order.getId(),
+                order.getOrderCode(),
+                order.getStatus(),
+                order.getType(),
+                order.getFullname(),
+                order.getPhoneNumber(),
+                order.getAddress(),
+                order.getTotalMoney(),
+                order.getFinalPrice(),
+                order.getPaymentMethod() != null ? order.getPaymentMethod().getName() : null,
+                order.getCreatedAt());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.shoozy_shop.dto.event;
+
+/**
+ * Payload gọn gửi qua WebSocket, chỉ gồm dữ liệu FE cần hiển thị.
+ * Được dựng từ entity ngay trên luồng nghiệp vụ nên khi serialize không còn chạm tới Hibernate.
+ */
+public interface RealtimeEvent {
+
+    // Id thực thể, dùng làm khoá gộp message
+    Long id();
+}
@@ -0,0 +1,13 @@
+package com.example.shoozy_shop.dto.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Khung message refresh gửi cho FE: {type, action, timestamp, payload}.
+ */
+public record RefreshMessage(String type, String action, LocalDateTime timestamp, Object payload) {
+
+    public static RefreshMessage of(String type, String action, Object payload) {
+        return new RefreshMessage(type, action, LocalDateTime.now(), payload);
+    }
+}
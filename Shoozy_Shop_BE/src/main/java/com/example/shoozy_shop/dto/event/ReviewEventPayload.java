@@ -0,0 +1,27 @@
+package com.example.shoozy_shop.dto.event;
+
+import com.example.shoozy_shop.model.Review;
+
+import java.time.LocalDateTime;
+
+public record ReviewEventPayload(
+        Long id,
+        Long productId,
+        String productName,
+        String content,
+        Integer rating,
+        String userName,
+        LocalDateTime createdAt
+) implements RealtimeEvent {
+
+    public static ReviewEventPayload from(Review review) {
+        return new ReviewEventPayload(
+                review.getId(),
+                review.getProduct() != null ? review.getProduct().getId() : null,
+                review.getProduct() != null ? review.getProduct().getName() : null,
+                review.getContent(),
+                review.getRating(),
+                review.getUser() != null ? review.getUser().getFullname() : null,
+                review.getCreatedAt());
+    }
+}
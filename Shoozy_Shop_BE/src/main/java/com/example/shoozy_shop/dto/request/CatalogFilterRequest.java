@@ -0,0 +1,25 @@
+package com.example.shoozy_shop.dto.request;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+
+public class CatalogFilterRequest {
+    private List<Long> brandIds;
+    private List<Long> categoryIds;
+    private List<Long> materialIds;
+    private List<Long> sizeIds;
+    private List<Long> colorIds;
+    private String gender;
+    // Lọc theo giá bán của biến thể (cùng biến thể phải thoả size/màu/giá)
+    private Double minPrice;
+    private Double maxPrice;
+    // true = chỉ sản phẩm còn biến thể có hàng
+    private Boolean inStock;
+    private Boolean status;
+}
@@ -0,0 +1,26 @@
+package com.example.shoozy_shop.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Báo giá cho các dòng giỏ được chọn ở trang thanh toán; người dùng lấy từ token đăng nhập.
+ * {@code shippingAddress} null thì tính phí ship theo địa chỉ đang chọn của user; weight trong đó bị bỏ qua,
+ * khối lượng được tính lại từ sản phẩm.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutQuoteRequest {
+
+    @NotEmpty(message = "Chưa chọn sản phẩm nào")
+    @Size(max = 100, message = "Tối đa 100 sản phẩm mỗi đơn")
+    private List<Long> cartItemIds;
+
+    private String couponCode;
+
+    private OpenApiRequest shippingAddress;
+}
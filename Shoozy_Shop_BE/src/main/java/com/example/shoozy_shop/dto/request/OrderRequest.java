@@ -39,4 +39,10 @@ public class OrderRequest {
     private List<Long> cartItemId;
 
     private List<OrderDetailRequest> orderDetails;
+
+    // Token từ /checkout/quote: có thì giá, khuyến mãi, giảm giá và phí ship lấy theo báo giá đã ký
+    private String quoteToken;
+
+    // Điểm giao có cấu trúc (tỉnh/quận/phường) như lúc báo giá, bắt buộc khi đặt bằng quoteToken
+    private OpenApiRequest shippingAddress;
 }
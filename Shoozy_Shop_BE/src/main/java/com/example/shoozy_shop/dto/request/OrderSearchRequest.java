@@ -0,0 +1,23 @@
+package com.example.shoozy_shop.dto.request;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+
+public class OrderSearchRequest {
+    private Long userId;
+    private String status;
+    // true = online, false = tại quầy
+    private Boolean type;
+    private LocalDate fromDate;
+    // bao gồm cả ngày toDate
+    private LocalDate toDate;
+    private String cursor;
+    private int size;
+    private boolean includeDetails;
+}
@@ -0,0 +1,53 @@
+package com.example.shoozy_shop.dto.request;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+import lombok.*;
+
+/**
+ * Một dòng của file nhập sản phẩm (Excel/CSV), mỗi dòng là một biến thể.
+ * Các dòng cùng tên sản phẩm thuộc cùng một sản phẩm; thông tin sản phẩm (thương hiệu, danh mục, ...)
+ * chỉ lấy từ dòng tạo sản phẩm, sản phẩm đã có trong DB thì chỉ thêm biến thể.
+ * Thương hiệu, danh mục, chất liệu, size, màu ghi theo tên như trên trang quản trị.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportRow {
+
+    @ExcelProperty("Tên sản phẩm")
+    private String productName;
+
+    @ExcelProperty("Thương hiệu")
+    private String brand;
+
+    @ExcelProperty("Danh mục")
+    private String category;
+
+    @ExcelProperty("Chất liệu")
+    private String material;
+
+    @ExcelProperty("Giới tính")
+    private String gender;
+
+    @ExcelProperty("Cân nặng")
+    private Double weight;
+
+    @ExcelProperty("Mô tả")
+    private String description;
+
+    @ExcelProperty("Size")
+    private String size;
+
+    @ExcelProperty("Màu")
+    private String color;
+
+    @ExcelProperty("Số lượng")
+    private Integer quantity;
+
+    @ExcelProperty("Giá vốn")
+    private Double costPrice;
+
+    @ExcelProperty("Giá bán")
+    private Double sellPrice;
+}
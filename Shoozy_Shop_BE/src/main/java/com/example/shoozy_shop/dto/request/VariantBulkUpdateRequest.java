@@ -0,0 +1,46 @@
+package com.example.shoozy_shop.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Đổi giá/nhập kho cho nhiều biến thể trong một request. Trường null thì giữ nguyên.
+ * {@code version} lấy từ lúc tải biến thể; có gửi thì biến thể đã bị sửa sau đó sẽ làm cả request thất bại.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantBulkUpdateRequest {
+
+    @NotEmpty(message = "Items must not be empty")
+    @Size(max = 1000, message = "At most 1000 items per request")
+    @Valid
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+
+        @NotNull(message = "Variant ID is required")
+        private Long variantId;
+
+        @Min(value = 0, message = "Sell price must be >= 0")
+        private Double sellPrice;
+
+        @Min(value = 0, message = "Cost price must be >= 0")
+        private Double costPrice;
+
+        // Lượng tồn cộng thêm (âm khi xuất bớt)
+        private Integer quantityDelta;
+
+        private Long version;
+    }
+}
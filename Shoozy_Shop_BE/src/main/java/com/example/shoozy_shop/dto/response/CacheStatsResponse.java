@@ -0,0 +1,19 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatsResponse {
+    private String name;
+    // Số entry hiện có (ước lượng của Caffeine)
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    // Entry bị đẩy ra do vượt kích thước/hết TTL, không tính lệnh xoá khi dữ liệu đổi
+    private long evictionCount;
+}
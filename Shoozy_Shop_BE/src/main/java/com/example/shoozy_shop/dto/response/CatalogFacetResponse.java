@@ -0,0 +1,28 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Số sản phẩm theo từng giá trị thuộc tính. Số đếm của một thuộc tính tính theo mọi bộ lọc khác,
+ * bỏ qua bộ lọc của chính thuộc tính đó (chọn thêm giá trị cùng nhóm thì ra đúng số này).
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogFacetResponse {
+    // Tổng số sản phẩm thoả toàn bộ bộ lọc
+    private long total;
+    private Map<Long, Integer> brands;
+    private Map<Long, Integer> categories;
+    private Map<Long, Integer> materials;
+    private Map<String, Integer> genders;
+    private Map<Long, Integer> sizes;
+    private Map<Long, Integer> colors;
+    // Khoá là giá bắt đầu của khoảng giá (bước app.catalog-index.price-bucket)
+    private Map<Long, Integer> priceBuckets;
+    private long inStock;
+}
@@ -0,0 +1,34 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Giá từng dòng, mã giảm giá dùng được, phí ship và tổng tiền tính trong một request.
+ * Gửi lại {@code quoteToken} trong OrderRequest để đặt hàng đúng theo báo giá này (hết hạn ở {@code expiresAt}).
+ * {@code warnings} liệt kê phần phải dùng giá trị dự phòng (vd hết thời gian chờ tính phí ship).
+ */
+@Getter
+@AllArgsConstructor
+public class CheckoutQuoteResponse {
+    private List<Line> lines;
+    // Mã giảm giá dùng được với tổng tiền hàng này
+    private List<CouponForOrderResponse> coupons;
+    private String couponCode;
+    // Tổng tiền hàng sau khuyến mãi sản phẩm, trước mã giảm giá
+    private BigDecimal subtotal;
+    private BigDecimal couponDiscount;
+    private FeeShippingResponse shipping;
+    private BigDecimal total;
+    private List<String> warnings;
+    private String quoteToken;
+    private LocalDateTime expiresAt;
+
+    public record Line(Long cartItemId, Long productVariantId, Long productId, String productName, String productImage,
+                       Integer size, String color, Integer quantity, Integer availableQuantity, BigDecimal unitPrice,
+                       Long promotionId, Double discountPercent, BigDecimal unitDiscount, BigDecimal lineTotal) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Trang kết quả phân trang theo keyset: client gửi lại nextCursor để lấy trang kế tiếp.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasNext;
+}
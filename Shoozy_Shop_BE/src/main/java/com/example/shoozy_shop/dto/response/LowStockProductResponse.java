@@ -10,4 +10,6 @@ public class LowStockProductResponse {
     private String productName;
     private String thumbnail;
     private Long totalQuantity;
-}
\ No newline at end of file
+    // Ngưỡng đang áp cho sản phẩm (mặc định hoặc theo danh mục)
+    private Integer threshold;
+}
@@ -4,7 +4,6 @@ import com.example.shoozy_shop.enums.RefundStatus;
 import com.example.shoozy_shop.model.OrderDetail;
 import com.example.shoozy_shop.model.ProductVariant;
 import com.example.shoozy_shop.model.Review;
-import com.example.shoozy_shop.repository.ReviewRepository;
 import lombok.*;
 
 @AllArgsConstructor
@@ -51,14 +50,9 @@ public class OrderDetailResponse {
                                 .build();
         }
 
-        // Hàm mới lấy thêm review
-        public static OrderDetailResponse fromEntity(OrderDetail orderDetail, Long userId,
-                        ReviewRepository reviewRepository) {
+        // Dựng DTO từ review + số lượng đã hoàn đã được nạp sẵn (xem OrderDetailBatchLoader)
+        public static OrderDetailResponse fromEntity(OrderDetail orderDetail, Review review, Integer refundedQty) {
                 ProductVariant pv = orderDetail.getProductVariant();
-                Review review = reviewRepository
-                                .findByUserIdAndProductIdAndOrderDetailId(userId, pv.getProduct().getId(),
-                                                orderDetail.getId())
-                                .stream().findFirst().orElse(null);
                 return OrderDetailResponse.builder()
                                 .orderDetailId(orderDetail.getId())
                                 .productId(pv.getProduct().getId())
@@ -72,34 +66,7 @@ public class OrderDetailResponse {
                                 .totalMoney(orderDetail.getTotalMoney())
                                 .status(orderDetail.getStatus())
                                 .refundStatus(orderDetail.getRefundStatus())
-                                .reviewId(review != null ? review.getId() : null)
-                                .reviewContent(review != null ? review.getContent() : null)
-                                .reviewRating(review != null ? review.getRating() : null)
-                                .build();
-        }
-
-        public static OrderDetailResponse fromEntity(OrderDetail orderDetail, Long userId,
-                        ReviewRepository reviewRepository, int refundedQty) {
-                ProductVariant pv = orderDetail.getProductVariant();
-                Review review = reviewRepository
-                                .findByUserIdAndProductIdAndOrderDetailId(userId, pv.getProduct().getId(),
-                                                orderDetail.getId())
-                                .stream().findFirst().orElse(null);
-
-                return OrderDetailResponse.builder()
-                                .orderDetailId(orderDetail.getId())
-                                .productId(pv.getProduct().getId())
-                                .productVariantId(pv.getId())
-                                .productName(pv.getProduct().getName())
-                                .thumbnail(pv.getThumbnail())
-                                .color(pv.getColor().getName())
-                                .size(pv.getSize().getValue())
-                                .price(orderDetail.getPrice())
-                                .quantity(orderDetail.getQuantity())
-                                .totalMoney(orderDetail.getTotalMoney())
-                                .status(orderDetail.getStatus())
-                                .refundStatus(orderDetail.getRefundStatus())
-                                .refundedQuantity(refundedQty) // <-- thêm đây
+                                .refundedQuantity(refundedQty)
                                 .reviewId(review != null ? review.getId() : null)
                                 .reviewContent(review != null ? review.getContent() : null)
                                 .reviewRating(review != null ? review.getRating() : null)
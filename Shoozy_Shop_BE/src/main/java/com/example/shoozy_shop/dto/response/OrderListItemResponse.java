@@ -0,0 +1,45 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Một dòng trong danh sách đơn hàng — chỉ các cột cần hiển thị, lấy bằng constructor projection.
+ * orderDetails chỉ được nạp khi client yêu cầu, và chỉ cho các đơn của trang hiện tại.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderListItemResponse {
+    private Long id;
+    private String orderCode;
+    private Boolean type;
+    private String status;
+    private String fullName;
+    private String phoneNumber;
+    private BigDecimal totalMoney;
+    private BigDecimal finalPrice;
+    private String paymentMethodName;
+    private LocalDateTime createdAt;
+    private List<OrderDetailResponse> orderDetails;
+
+    public OrderListItemResponse(Long id, String orderCode, Boolean type, String status, String fullName,
+                                 String phoneNumber, BigDecimal totalMoney, BigDecimal finalPrice,
+                                 String paymentMethodName, LocalDateTime createdAt) {
+        this.id = id;
+        this.orderCode = orderCode;
+        this.type = type;
+        this.status = status;
+        this.fullName = fullName;
+        this.phoneNumber = phoneNumber;
+        this.totalMoney = totalMoney;
+        this.finalPrice = finalPrice;
+        this.paymentMethodName = paymentMethodName;
+        this.createdAt = createdAt;
+    }
+}
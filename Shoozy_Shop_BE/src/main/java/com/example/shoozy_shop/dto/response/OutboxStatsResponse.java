@@ -0,0 +1,26 @@
+package com.example.shoozy_shop.dto.response;
+
+import com.example.shoozy_shop.service.PartitionedDispatcher;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxStatsResponse {
+    // Số sự kiện chưa phát (kể cả dead)
+    private long pending;
+    // Số sự kiện đã vượt số lần thử tối đa, cần xử lý tay
+    private long dead;
+    // Tuổi của sự kiện chưa phát lâu nhất
+    private long oldestPendingMs;
+    // Độ trễ từ lúc ghi tới lúc phát của sự kiện gần nhất trên node này
+    private long lastDispatchLagMs;
+    private long dispatchedTotal;
+    private long failedTotal;
+    // Thông lượng/độ trễ từng lane phát trên node này
+    private List<PartitionedDispatcher.LaneStats> lanes;
+}
@@ -0,0 +1,94 @@
+package com.example.shoozy_shop.dto.response;
+
+import com.example.shoozy_shop.model.*;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Sản phẩm trong trang danh sách: không có review, mô tả, ảnh biến thể hay giá vốn.
+ * Tồn kho, khoảng giá, điểm đánh giá lấy từ các cột tính sẵn trên products; review đầy đủ chỉ có ở trang chi tiết.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class ProductCardResponse extends BaseResponse {
+    private Long id;
+    private String sku;
+    private String name;
+    private Brand brand;
+    private Category category;
+    private String gender;
+    private Material material;
+    private String thumbnail;
+    private Boolean status;
+    private Integer totalQuantity;
+    private Double minPrice;
+    private Double maxPrice;
+    private Double averageRating;
+    private Integer reviewCount;
+
+    @JsonProperty("active_promotions")
+    private List<PromotionResponse> activePromotions;
+
+    @JsonProperty("variants")
+    private List<Variant> variants;
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    @Builder
+    public static class Variant {
+        private Long id;
+
+        @JsonProperty("product_id")
+        private Long productId;
+
+        private Size size;
+        private Color color;
+        private Integer quantity;
+        private Double sellPrice;
+        private String thumbnail;
+
+        @JsonProperty("promotions")
+        private List<VariantPromotionResponse> promotions;
+    }
+
+    // Bản sao với danh sách biến thể khác (đã lọc), thẻ gốc giữ nguyên để dùng lại từ cache
+    public ProductCardResponse withVariants(List<Variant> filtered) {
+        ProductCardResponse copy = new ProductCardResponse(id, sku, name, brand, category, gender, material, thumbnail,
+                status, totalQuantity, minPrice, maxPrice, averageRating, reviewCount, activePromotions, filtered);
+        copy.setCreatedAt(getCreatedAt());
+        copy.setUpdatedAt(getUpdatedAt());
+        return copy;
+    }
+
+    public static ProductCardResponse fromProduct(Product product, List<PromotionResponse> activePromotions,
+                                                  List<Variant> variants) {
+        ProductCardResponse response = ProductCardResponse.builder()
+                .id(product.getId())
+                .sku(product.getSku())
+                .name(product.getName())
+                .thumbnail(product.getThumbnail())
+                .brand(product.getBrand())
+                .category(product.getCategory())
+                .gender(product.getGender())
+                .material(product.getMaterial())
+                .status(product.getStatus())
+                .totalQuantity(product.getTotalStock() != null ? product.getTotalStock() : 0)
+                .minPrice(product.getMinSellPrice() != null ? product.getMinSellPrice() : 0.0)
+                .maxPrice(product.getMaxSellPrice() != null ? product.getMaxSellPrice() : 0.0)
+                .averageRating(product.getAvgRating() != null ? product.getAvgRating() : 0.0)
+                .reviewCount(product.getReviewCount() != null ? product.getReviewCount() : 0)
+                .activePromotions(activePromotions)
+                .variants(variants)
+                .build();
+        response.setCreatedAt(product.getCreatedAt());
+        response.setUpdatedAt(product.getUpdatedAt());
+        return response;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Kết quả nhập sản phẩm hàng loạt. Danh sách lỗi chỉ giữ {@code errors} dòng đầu tiên,
+ * {@code failedRows} là tổng số dòng lỗi.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class ProductImportResponse {
+    private int totalRows;
+    private int createdProducts;
+    private int createdVariants;
+    private int failedRows;
+    private long elapsedMs;
+    private List<RowError> errors;
+
+    /**
+     * @param row số dòng trong file, tính cả dòng tiêu đề (dòng dữ liệu đầu tiên là 2)
+     */
+    public record RowError(int row, String message) {
+    }
+}
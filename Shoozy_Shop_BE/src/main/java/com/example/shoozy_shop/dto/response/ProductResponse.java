@@ -1,6 +1,7 @@
 package com.example.shoozy_shop.dto.response;
 
 import com.example.shoozy_shop.model.*;
+import com.example.shoozy_shop.util.ReviewThreads;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -40,84 +41,10 @@ public class ProductResponse extends BaseResponse {
     @JsonProperty("reviews")
     private List<ReviewResponseDTO> reviews;
 
-    // getAll products - Hiển thị promotion chung
-    public static ProductResponse fromProduct(Product product, List<Long> sizeIds, List<Long> colorIds, List<Long> materialIds) {
-        int totalQuantity = product.getProductVariants()
-                .stream()
-                .mapToInt(ProductVariant::getQuantity)
-                .sum();
-
-        Double minPrice = product.getProductVariants()
-                .stream()
-                .filter(variant -> variant.getSellPrice() != null) // Filter null values
-                .mapToDouble(ProductVariant::getSellPrice)
-                .min()
-                .orElse(0.0);
-
-        Double maxPrice = product.getProductVariants()
-                .stream()
-                .filter(variant -> variant.getSellPrice() != null) // Filter null values
-                .mapToDouble(ProductVariant::getSellPrice)
-                .max()
-                .orElse(0.0);
-
-        Double avgRating = product.getReviews().stream()
-                .filter(r -> !Boolean.TRUE.equals(r.getIsHidden()))
-                .filter(r -> r.getRating() != null)
-                .mapToInt(r -> r.getRating())
-                .average()
-                .orElse(0.0);
-
-        List<Review> allReviews = product.getReviews().stream()
-                .filter(r -> !Boolean.TRUE.equals(r.getIsHidden()))
-                .collect(Collectors.toList());
-        List<ReviewResponseDTO> parentReviews = allReviews.stream()
-                .filter(r -> r.getParent() == null)
-                .map(r -> mapReviewWithReplies(r, allReviews))
-                .collect(Collectors.toList());
-
-        // Lấy promotion active cho sản phẩm (cho màn hình chung)
-        List<PromotionResponse> activePromotions = getActivePromotionsForProduct(product);
-
-        ProductResponse productResponse = ProductResponse.builder()
-                .id(product.getId())
-                .sku(product.getSku())
-                .name(product.getName())
-                .thumbnail(product.getThumbnail())
-                .description(product.getDescription())
-                .brand(product.getBrand())
-                .category(product.getCategory())
-                .gender(product.getGender())
-                .weight(product.getWeight())
-                .material(product.getMaterial())
-                .status(product.getStatus())
-                .totalQuantity(totalQuantity)
-                .minPrice(minPrice)
-                .maxPrice(maxPrice)
-                .averageRating(avgRating)
-                .activePromotions(activePromotions) // Thêm promotion
-                .variants(
-                        product.getProductVariants()
-                                .stream()
-                                .filter(variant -> sizeIds == null || sizeIds.isEmpty() || sizeIds.contains(variant.getSize().getId()))
-                                .filter(variant -> colorIds == null || colorIds.isEmpty() || colorIds.contains(variant.getColor().getId()))
-                                .map(ProductVariantResponse::fromProductVariant)
-                                .collect(Collectors.toList())
-                )
-                .reviews(parentReviews)
-                .build();
-
-        productResponse.setCreatedAt(product.getCreatedAt());
-        productResponse.setUpdatedAt(product.getUpdatedAt());
-        return productResponse;
-    }
-
     // product-detail - Hiển thị promotion chi tiết
     public static ProductResponse fromProduct(Product product) {
-        int totalQuantity = product.getProductVariants()
-                .stream()
-                .mapToInt(ProductVariant::getQuantity)
-                .sum();
+        // Tổng tồn tính sẵn trên products (ProductSortKeyService), không cộng lại từng biến thể
+        int totalQuantity = product.getTotalStock() != null ? product.getTotalStock() : 0;
 
         Double minPrice = product.getProductVariants()
                 .stream()
@@ -143,10 +70,7 @@ public class ProductResponse extends BaseResponse {
         List<Review> allReviews = product.getReviews().stream()
                 .filter(r -> !Boolean.TRUE.equals(r.getIsHidden()))
                 .collect(Collectors.toList());
-        List<ReviewResponseDTO> parentReviews = allReviews.stream()
-                .filter(r -> r.getParent() == null)
-                .map(r -> mapReviewWithReplies(r, allReviews))
-                .collect(Collectors.toList());
+        List<ReviewResponseDTO> parentReviews = ReviewThreads.build(allReviews, ReviewResponseDTO::fromReview);
 
         // Lấy promotion active cho sản phẩm
         List<PromotionResponse> activePromotions = getActivePromotionsForProduct(product);
@@ -196,23 +120,4 @@ public class ProductResponse extends BaseResponse {
                 .map(PromotionResponse::fromPromotion)
                 .collect(Collectors.toList());
     }
-
-    private static ReviewResponseDTO mapReviewWithReplies(Review review, List<Review> allReviews) {
-        List<ReviewResponseDTO> replies = allReviews.stream()
-                .filter(r -> r.getParent() != null && r.getParent().getId().equals(review.getId()))
-                .map(r -> mapReviewWithReplies(r, allReviews))
-                .collect(Collectors.toList());
-        return new ReviewResponseDTO(
-                review.getId(),
-                review.getContent(),
-                review.getRating(),
-                review.getUser() != null ? review.getUser().getId() : null,
-                review.getUser() != null ? review.getUser().getFullname() : null,
-                review.getProduct() != null ? review.getProduct().getId() : null,
-                review.getCreatedAt() != null ? review.getCreatedAt().toString() : null,
-                review.getUpdatedAt() != null ? review.getUpdatedAt().toString() : null,
-                review.getOrderDetail() != null ? review.getOrderDetail().getId() : null,
-                replies
-        );
-    }
 }
@@ -32,6 +32,9 @@ public class ProductVariantResponse {
     private String thumbnail;
     private List<ProductImageResponse> images;
 
+    // Gửi kèm khi cập nhật hàng loạt để phát hiện biến thể đã bị sửa từ lúc tải
+    private Long version;
+
     // Thêm promotion với custom value cho variant
     @JsonProperty("promotions")
     private List<VariantPromotionResponse> promotions;
@@ -49,6 +52,7 @@ public class ProductVariantResponse {
                 .costPrice(productVariant.getCostPrice())   // lấy từ entity
                 .sellPrice(productVariant.getSellPrice())   // lấy từ entity
                 .thumbnail(productVariant.getThumbnail())
+                .version(productVariant.getVersion())
                 .promotions(variantPromotions)
                 .images(
                         productVariant.getProductVariantImages().stream()
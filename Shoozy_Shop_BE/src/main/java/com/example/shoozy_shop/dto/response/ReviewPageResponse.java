@@ -0,0 +1,21 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Một trang review gốc (kèm phản hồi) của sản phẩm, cùng thống kê điểm của cả sản phẩm.
+ */
+@Getter
+@NoArgsConstructor
+public class ReviewPageResponse extends CursorPageResponse<ReviewResponseDTO> {
+    private ReviewSummaryResponse summary;
+
+    public ReviewPageResponse(List<ReviewResponseDTO> items, String nextCursor, boolean hasNext,
+                              ReviewSummaryResponse summary) {
+        super(items, nextCursor, hasNext);
+        this.summary = summary;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.shoozy_shop.dto.response;
 
+import com.example.shoozy_shop.model.Review;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -22,4 +23,19 @@ public class ReviewResponseDTO {
     private String updatedAt;
     private Long orderDetailId;
     private List<ReviewResponseDTO> replies;
-} 
\ No newline at end of file
+
+    public static ReviewResponseDTO fromReview(Review review, List<ReviewResponseDTO> replies) {
+        return new ReviewResponseDTO(
+                review.getId(),
+                review.getContent(),
+                review.getRating(),
+                review.getUser() != null ? review.getUser().getId() : null,
+                review.getUser() != null ? review.getUser().getFullname() : null,
+                review.getProduct() != null ? review.getProduct().getId() : null,
+                review.getCreatedAt() != null ? review.getCreatedAt().toString() : null,
+                review.getUpdatedAt() != null ? review.getUpdatedAt().toString() : null,
+                review.getOrderDetail() != null ? review.getOrderDetail().getId() : null,
+                replies
+        );
+    }
+}
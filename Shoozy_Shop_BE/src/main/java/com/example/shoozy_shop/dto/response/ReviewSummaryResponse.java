@@ -0,0 +1,19 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thống kê điểm đánh giá của một sản phẩm (chỉ review gốc đang hiển thị, không tính phản hồi).
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReviewSummaryResponse {
+    private Long productId;
+    private double averageRating;
+    private int reviewCount;
+    // histogram[i] = số review (i + 1) sao
+    private int[] histogram;
+}
@@ -0,0 +1,22 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một gợi ý trong ô tìm kiếm: sản phẩm (mở trang chi tiết) hoặc thương hiệu/danh mục (mở danh sách đã lọc).
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SuggestionResponse {
+    // PRODUCT, BRAND hoặc CATEGORY
+    private String type;
+    private Long id;
+    private String label;
+    // Chỉ có với PRODUCT
+    private String thumbnail;
+    // Số lượng đã bán (DELIVERED/COMPLETED), dùng để xếp hạng
+    private long sold;
+}
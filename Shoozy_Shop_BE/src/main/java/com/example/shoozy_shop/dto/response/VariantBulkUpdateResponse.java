@@ -0,0 +1,19 @@
+package com.example.shoozy_shop.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Giá, tồn và phiên bản mới của các biến thể sau khi cập nhật hàng loạt.
+ */
+@Getter
+@AllArgsConstructor
+public class VariantBulkUpdateResponse {
+    private int updated;
+    private List<Variant> variants;
+
+    public record Variant(Long id, Long productId, Integer quantity, Double costPrice, Double sellPrice,
+                          Long version) {
+    }
+}
@@ -162,6 +162,13 @@ public class GlobalExceptionHandle extends ResponseEntityExceptionHandler {
         return ResponseEntity.status(409).body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiResponse<?>> handleUnavailable(ServiceUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ApiResponse.error(503, ex.getMessage()));
+    }
+
     @ExceptionHandler(OutOfStockException.class)
     public ResponseEntity<Map<String, Object>> handle(OutOfStockException ex) {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
@@ -0,0 +1,16 @@
+package com.example.shoozy_shop.exception;
+
+import lombok.Getter;
+
+/**
+ * Tài nguyên tạm thời chưa sẵn sàng (vd chỉ mục đang dựng lúc khởi động): trả 503 kèm Retry-After.
+ */
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -40,6 +40,27 @@ public class Product extends BaseEntity {
     @JoinColumn(name = "material_id", referencedColumnName = "id")
     private Material material;
 
+    // Khoá sắp xếp tính sẵn, chỉ được ghi bởi ProductSortKeyService
+    @Column(name = "min_sell_price", insertable = false, updatable = false)
+    private Double minSellPrice;
+
+    // Cột tính (persisted) từ min_sell_price, để sắp theo giá đưa sản phẩm chưa có giá xuống cuối
+    @Column(name = "price_missing", insertable = false, updatable = false)
+    @JsonIgnore
+    private Boolean priceMissing;
+
+    @Column(name = "max_sell_price", insertable = false, updatable = false)
+    private Double maxSellPrice;
+
+    @Column(name = "avg_rating", insertable = false, updatable = false)
+    private Double avgRating;
+
+    @Column(name = "review_count", insertable = false, updatable = false)
+    private Integer reviewCount;
+
+    @Column(name = "total_stock", insertable = false, updatable = false)
+    private Integer totalStock;
+
     @OneToMany(mappedBy = "product")
     @Where(clause = "status = true")
     private List<ProductVariant> productVariants;
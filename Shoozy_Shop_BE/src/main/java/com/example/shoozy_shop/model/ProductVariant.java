@@ -3,6 +3,7 @@ package com.example.shoozy_shop.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Formula;
 
 import java.util.List;
 
@@ -42,6 +43,10 @@ public class ProductVariant {
     @Column(insertable = false)
     private Boolean status;
 
+    // Cột ROWVERSION đổi sau mỗi lần ghi (JPA hay JDBC), dùng làm phiên bản cho cập nhật hàng loạt
+    @Formula("CAST(row_version AS BIGINT)")
+    private Long version;
+
     @OneToMany(mappedBy = "productVariant")
     @JsonIgnore
     List<ProductVariantImage> productVariantImages;
@@ -53,7 +58,7 @@ public class ProductVariant {
     public ProductVariant() {
     }
 
-    public ProductVariant(Long id, Product product, Size size, Color color, String thumbnail, Integer quantity, Double costPrice, Double sellPrice, Boolean status, List<ProductVariantImage> productVariantImages, List<ProductPromotion> productPromotions) {
+    public ProductVariant(Long id, Product product, Size size, Color color, String thumbnail, Integer quantity, Double costPrice, Double sellPrice, Boolean status, Long version, List<ProductVariantImage> productVariantImages, List<ProductPromotion> productPromotions) {
         this.id = id;
         this.product = product;
         this.size = size;
@@ -63,6 +68,7 @@ public class ProductVariant {
         this.costPrice = costPrice;
         this.sellPrice = sellPrice;
         this.status = status;
+        this.version = version;
         this.productVariantImages = productVariantImages;
         this.productPromotions = productPromotions;
     }
@@ -139,6 +145,14 @@ public class ProductVariant {
         this.status = status;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<ProductVariantImage> getProductVariantImages() {
         return productVariantImages;
     }
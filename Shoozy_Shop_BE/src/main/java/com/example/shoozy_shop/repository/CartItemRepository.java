@@ -1,6 +1,5 @@
 package com.example.shoozy_shop.repository;
 
-import com.example.shoozy_shop.dto.response.ProductCartResponse;
 import com.example.shoozy_shop.dto.response.ProductCheckoutResponse;
 import com.example.shoozy_shop.model.Cart;
 import com.example.shoozy_shop.model.CartItem;
@@ -19,41 +18,6 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     Optional<CartItem> findByIdAndCartId(Long id, Long cartId);
 
-    // Lấy toàn bộ sản phẩm trong giỏ hàng
-    @Query("""
-                SELECT new com.example.shoozy_shop.dto.response.ProductCartResponse(
-                    ci.id,
-                    p.id,
-                    p.name,
-                    pv.thumbnail,
-                    pv.sellPrice,
-                    CAST(COALESCE(MAX(COALESCE(pp.customValue, pr.value)), 0) AS double),
-                    s.value,
-                    c.name,
-                    ci.quantity,
-                    pv.quantity
-                )
-                FROM CartItem ci
-                JOIN ci.productVariant pv
-                JOIN pv.product p
-                LEFT JOIN pv.size s
-                LEFT JOIN pv.color c
-                LEFT JOIN pv.productPromotions pp
-                LEFT JOIN pp.promotion pr
-                WHERE ci.cart.id = :cartId
-                  AND (
-                        pr IS NULL
-                        OR (
-                            pr.status = 1
-                            AND CURRENT_TIMESTAMP BETWEEN pr.startDate AND pr.expirationDate
-                        )
-                      )
-                GROUP BY
-                    ci.id, p.name, pv.thumbnail, pv.sellPrice,
-                    s.value, c.name, ci.quantity, pv.quantity,p.id
-            """)
-    List<ProductCartResponse> findCartItemsByCartId(@Param("cartId") Long cartId);
-
     @Query(value = """
             SELECT 
                 ci.id, pv.id, p.name, p.thumbnail, pv.sell_price,
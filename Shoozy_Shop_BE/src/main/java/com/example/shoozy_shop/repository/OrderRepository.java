@@ -12,6 +12,7 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -25,8 +26,12 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             "LEFT JOIN FETCH o.coupon " +
             "LEFT JOIN FETCH o.orderDetails od " +
             "LEFT JOIN FETCH od.productVariant pv " +
+            "LEFT JOIN FETCH pv.color " +
+            "LEFT JOIN FETCH pv.size " +
             "LEFT JOIN FETCH pv.product p " +
             "LEFT JOIN FETCH p.category " +
+            "LEFT JOIN FETCH p.brand " +
+            "LEFT JOIN FETCH p.material " +
             "WHERE o.id = :orderId")
     Order getOrderWithDetails(@Param("orderId") Long orderId);
 
@@ -36,12 +41,27 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             "LEFT JOIN FETCH o.coupon " +
             "LEFT JOIN FETCH o.orderDetails od " +
             "LEFT JOIN FETCH od.productVariant pv " +
+            "LEFT JOIN FETCH pv.color " +
+            "LEFT JOIN FETCH pv.size " +
             "LEFT JOIN FETCH pv.product p " +
             "LEFT JOIN FETCH p.category " +
+            "LEFT JOIN FETCH p.brand " +
+            "LEFT JOIN FETCH p.material " +
             "WHERE o.user.id = :userId " +
             "ORDER BY o.id DESC")
     List<Order> getAllOrderByUserId(@Param("userId") Long userId);
 
+    // Nạp chi tiết cho đúng các đơn của một trang
+    @Query("SELECT DISTINCT o FROM Order o " +
+            "LEFT JOIN FETCH o.user " +
+            "LEFT JOIN FETCH o.orderDetails od " +
+            "LEFT JOIN FETCH od.productVariant pv " +
+            "LEFT JOIN FETCH pv.color " +
+            "LEFT JOIN FETCH pv.size " +
+            "LEFT JOIN FETCH pv.product p " +
+            "WHERE o.id IN :ids")
+    List<Order> getOrdersWithDetailsByIds(@Param("ids") Collection<Long> ids);
+
     void deleteByUser_Id(Long userId);
 
     @Query("""
@@ -11,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,6 +20,25 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
 
     List<Product> findProductByCategoryIdAndIdNot(Long categoryId, Long idProduct);
 
+    // Dự phòng khi chỉ mục sản phẩm liên quan chưa sẵn sàng: sản phẩm đang bán cùng danh mục, đánh giá cao trước
+    @Query("""
+                SELECT p.id FROM Product p
+                WHERE p.category.id = (SELECT c.category.id FROM Product c WHERE c.id = :productId)
+                  AND p.id <> :productId AND p.status = true
+                ORDER BY p.avgRating DESC, p.id
+            """)
+    List<Long> findRelatedIdsByCategory(@Param("productId") Long productId, Pageable pageable);
+
+    // Trang danh sách: nạp sản phẩm kèm thương hiệu/danh mục/chất liệu trong một truy vấn
+    @Query("""
+                SELECT p FROM Product p
+                LEFT JOIN FETCH p.brand
+                LEFT JOIN FETCH p.category
+                LEFT JOIN FETCH p.material
+                WHERE p.id IN :ids
+            """)
+    List<Product> findWithRefsByIdIn(@Param("ids") Collection<Long> ids);
+
     Boolean existsBySku(String sku);
 
     @Query("""
@@ -44,22 +64,6 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
             Pageable pageable
     );
 
-    @Query("""
-                SELECT new com.example.shoozy_shop.dto.response.LowStockProductResponse(
-                    p.id,
-                    p.name,
-                    p.thumbnail,
-                    SUM(pv.quantity)
-                )
-                FROM Product p
-                JOIN ProductVariant pv ON pv.product.id = p.id
-                WHERE p.status = true AND pv.status = true
-                GROUP BY p.id, p.name, p.thumbnail
-                HAVING SUM(pv.quantity) < 10
-                ORDER BY SUM(pv.quantity) ASC
-            """)
-    List<LowStockProductResponse> findLowStockProducts();
-
     @Query("""
                 SELECT p.id, p.name, sum(pv.quantity), pv.id, s.value, c.name, pv.sellPrice, pv.quantity
                                        FROM Product p
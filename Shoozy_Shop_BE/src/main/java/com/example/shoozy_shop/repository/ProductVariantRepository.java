@@ -5,10 +5,12 @@ import com.example.shoozy_shop.model.*;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +22,25 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select pv from ProductVariant pv where pv.id = :id")
     Optional<ProductVariant> findByIdForUpdate(@Param("id") Long id);
+
+    // Khoá nhiều biến thể trong một truy vấn, luôn theo thứ tự id tăng dần để tránh deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select pv from ProductVariant pv where pv.id in :ids order by pv.id asc")
+    List<ProductVariant> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Cộng kho tương đối: không ghi đè lượng trừ mà sổ flash sale vừa ghi xuống giữa lúc đọc và ghi entity
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductVariant pv SET pv.quantity = pv.quantity + :quantity WHERE pv.id = :id")
+    int addQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Biến thể đang bán của nhiều sản phẩm: id, productId, size, color, quantity, sellPrice, thumbnail
+    @Query("""
+                SELECT pv.id, pv.product.id, s, c, pv.quantity, pv.sellPrice, pv.thumbnail
+                FROM ProductVariant pv
+                LEFT JOIN pv.size s
+                LEFT JOIN pv.color c
+                WHERE pv.product.id IN :productIds AND pv.status = true
+                ORDER BY pv.id
+            """)
+    List<Object[]> findCardRowsByProductIdIn(@Param("productIds") Collection<Long> productIds);
 }
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -33,4 +35,19 @@ public interface PromotionProductRepository extends JpaRepository<ProductPromoti
 
     ProductPromotion findByPromotionIdAndProductVariantId(Long promotionId, Long productId);
 
+    // Khuyến mãi đang chạy của các biến thể đang bán: variantId, productId, customValue, promotion
+    @Query("""
+                SELECT pv.id, pv.product.id, pp.customValue, pr
+                FROM ProductPromotion pp
+                JOIN pp.productVariant pv
+                JOIN pp.promotion pr
+                WHERE pv.product.id IN :productIds
+                  AND pv.status = true
+                  AND pr.status = 1
+                  AND pr.startDate <= :now
+                  AND pr.expirationDate >= :now
+                ORDER BY pr.id
+            """)
+    List<Object[]> findActiveByProductIdIn(@Param("productIds") Collection<Long> productIds,
+                                           @Param("now") LocalDateTime now);
 }
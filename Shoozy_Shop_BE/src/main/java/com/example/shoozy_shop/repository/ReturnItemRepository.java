@@ -1,5 +1,6 @@
 package com.example.shoozy_shop.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -46,4 +47,23 @@ public interface ReturnItemRepository extends JpaRepository<ReturnItem, Long> {
                         """)
         int sumReturnedQuantityByOrderDetailIdAndStatus(@Param("orderDetailId") Long orderDetailId,
                         @Param("status") ReturnStatus status);
+
+        // Bản gom nhóm cho nhiều dòng đơn: mỗi phần tử là [orderDetailId, tổng số lượng]
+        @Query("""
+                            SELECT ri.orderDetail.id, COALESCE(SUM(ri.quantity), 0)
+                            FROM ReturnItem ri
+                            WHERE ri.orderDetail.id IN :orderDetailIds
+                              AND ri.returnRequest.status = :status
+                            GROUP BY ri.orderDetail.id
+                        """)
+        List<Object[]> sumQuantityByOrderDetailIdsAndStatus(@Param("orderDetailIds") Collection<Long> orderDetailIds,
+                        @Param("status") ReturnStatus status);
+
+        @Query("""
+                            SELECT ri.orderDetail.id, COALESCE(SUM(ri.quantity), 0)
+                            FROM ReturnItem ri
+                            WHERE ri.orderDetail.id IN :orderDetailIds
+                            GROUP BY ri.orderDetail.id
+                        """)
+        List<Object[]> sumQuantityByOrderDetailIds(@Param("orderDetailIds") Collection<Long> orderDetailIds);
 }
@@ -1,12 +1,15 @@
 package com.example.shoozy_shop.repository;
 
 import com.example.shoozy_shop.model.Review;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -30,5 +33,35 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT r FROM Review r WHERE r.user.id = :userId AND r.product.id = :productId AND r.orderDetail.id = :orderDetailId")
     List<Review> findByUserIdAndProductIdAndOrderDetailId(@Param("userId") Long userId, @Param("productId") Long productId, @Param("orderDetailId") Long orderDetailId);
 
+    @Query("SELECT r FROM Review r WHERE r.user.id = :userId AND r.orderDetail.id IN :orderDetailIds ORDER BY r.id")
+    List<Review> findByUserIdAndOrderDetailIdIn(@Param("userId") Long userId, @Param("orderDetailIds") Collection<Long> orderDetailIds);
+
     List<Review> findByProductIdAndIsHiddenFalse(Long productId);
+
+    // Review gốc đang hiển thị của sản phẩm, phân trang keyset trên (created_at, id), mới nhất trước.
+    // Pageable chỉ dùng để giới hạn số dòng (luôn page 0), vị trí trang nằm ở cursor.
+    @Query("""
+            SELECT r FROM Review r
+            LEFT JOIN FETCH r.user
+            WHERE r.product.id = :productId
+              AND r.parent IS NULL
+              AND r.isHidden = false
+              AND (:cursorCreatedAt IS NULL
+                   OR r.createdAt < :cursorCreatedAt
+                   OR (r.createdAt = :cursorCreatedAt AND r.id < :cursorId))
+            ORDER BY r.createdAt DESC, r.id DESC
+            """)
+    List<Review> findThreadRootPage(@Param("productId") Long productId,
+                                    @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                    @Param("cursorId") Long cursorId,
+                                    Pageable pageable);
+
+    // Phản hồi đang hiển thị của một tầng review, gọi lần lượt từng tầng
+    @Query("""
+            SELECT r FROM Review r
+            LEFT JOIN FETCH r.user
+            WHERE r.parent.id IN :parentIds AND r.isHidden = false
+            ORDER BY r.id
+            """)
+    List<Review> findVisibleRepliesByParentIdIn(@Param("parentIds") Collection<Long> parentIds);
 }
@@ -91,11 +91,15 @@ public class SecurityConfig {
                         // -- Products --
                         .requestMatchers(HttpMethod.GET, base + "/products").permitAll()
                         .requestMatchers(HttpMethod.GET, base + "/products/all").permitAll()
+                        .requestMatchers(HttpMethod.GET, base + "/products/facets").permitAll()
+                        .requestMatchers(HttpMethod.GET, base + "/products/suggest").permitAll()
                         .requestMatchers(HttpMethod.GET, base + "/products/{id}").permitAll()
+                        .requestMatchers(HttpMethod.GET, base + "/products/{id}/related").permitAll()
                         .requestMatchers(HttpMethod.GET, base + "/products/check-name").hasAuthority("Admin")
                         .requestMatchers(HttpMethod.GET, base + "/products/by-category").permitAll()
 
                         .requestMatchers(HttpMethod.POST, base + "/products").hasAnyAuthority("Staff", "Admin")
+                        .requestMatchers(HttpMethod.POST, base + "/products/import").hasAnyAuthority("Staff", "Admin")
                         .requestMatchers(HttpMethod.PUT, base + "/products/{id}").hasAnyAuthority("Staff", "Admin")
                         .requestMatchers(HttpMethod.DELETE, base + "/products/{id}").hasAnyAuthority("Staff", "Admin")
 
@@ -117,6 +121,10 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, base + "/carts/{userId}/items")
                         .hasAnyAuthority("Customer", "Staff", "Admin")
 
+                        // -- Checkout --
+                        .requestMatchers(HttpMethod.POST, base + "/checkout/quote")
+                        .hasAnyAuthority("Customer", "Staff", "Admin")
+
                         // -- Categories --
                         .requestMatchers(HttpMethod.GET, base + "/categories").permitAll()
                         .requestMatchers(HttpMethod.GET, base + "/categories/active").permitAll()
@@ -163,6 +171,9 @@ public class SecurityConfig {
 
                         // -- Order --
                         .requestMatchers(HttpMethod.GET, base + "/orders").hasAnyAuthority("Customer", "Staff", "Admin")
+                        .requestMatchers(HttpMethod.GET, base + "/orders/page").hasAnyAuthority("Staff", "Admin")
+                        .requestMatchers(HttpMethod.GET, base + "/orders/user/page")
+                        .hasAnyAuthority("Customer", "Staff", "Admin")
                         .requestMatchers(HttpMethod.GET, base + "/orders/{id}")
                         .hasAnyAuthority("Customer", "Staff", "Admin")
 
@@ -188,6 +199,17 @@ public class SecurityConfig {
                         .hasAnyAuthority("Staff", "Admin")
                         .requestMatchers(HttpMethod.DELETE, base + "/product-variants/{id}")
                         .hasAnyAuthority("Staff", "Admin")
+                        .requestMatchers(HttpMethod.PATCH, base + "/product-variants/bulk")
+                        .hasAnyAuthority("Staff", "Admin")
+
+                        // -- Flash sale --
+                        .requestMatchers(base + "/flash-sale/**").hasAuthority("Admin")
+
+                        // -- Outbox --
+                        .requestMatchers(HttpMethod.GET, base + "/outbox/stats").hasAuthority("Admin")
+
+                        // -- Cache --
+                        .requestMatchers(HttpMethod.GET, base + "/cache/stats").hasAuthority("Admin")
 
                         // -- Product Variant Images --
                         .requestMatchers(HttpMethod.GET, base + "/product-variant-images/grouped-images-by-ids/{ids}")
@@ -208,6 +230,7 @@ public class SecurityConfig {
                         // -- Reviews --
                         .requestMatchers(HttpMethod.GET, base + "/reviews").permitAll()
                         .requestMatchers(HttpMethod.GET, base + "/reviews/{id}").permitAll()
+                        .requestMatchers(HttpMethod.GET, base + "/reviews/by-product/{productId}").permitAll()
                         .requestMatchers(HttpMethod.PUT, base + "/reviews/{id}")
                         .hasAnyAuthority("Customer", "Staff", "Admin")
 
@@ -236,7 +259,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET,  "/api/v1/payments/vnpay-ipn").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/v1/payments/vnpay-ipn").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/v1/payments/create-vnpay").authenticated()
-                        .requestMatchers("/ws/**").permitAll()
+                        .requestMatchers("/ws/**", "/ws-native").permitAll()
 
 
                         .requestMatchers(base + "/chat/**").permitAll()
@@ -1,10 +1,13 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.config.CacheConfig;
 import com.example.shoozy_shop.exception.ResourceNotFoundException;
 import com.example.shoozy_shop.model.Brand;
 import com.example.shoozy_shop.model.Product;
 import com.example.shoozy_shop.repository.BrandRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,16 +21,19 @@ public class BrandService implements IBrandService {
     private final BrandRepository brandRepository;
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.BRANDS, key = "'all'", sync = true)
     public List<Brand> getAllBrands() {
         return brandRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.BRANDS, key = "'active'", sync = true)
     public List<Brand> getActiveBrands() {
         return brandRepository.findAllByStatusTrue();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.BRANDS, key = "#id", sync = true)
     public Brand getBrandById(Long id) {
         return brandRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("brand", id));
@@ -35,6 +41,7 @@ public class BrandService implements IBrandService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BRANDS, allEntries = true)
     public Brand addBrand(Brand brand) {
         if(brandRepository.existsByName(brand.getName().toLowerCase())) {
             throw new IllegalArgumentException("Brand " + brand.getName() + " already exists!");
@@ -44,6 +51,7 @@ public class BrandService implements IBrandService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = {CacheConfig.BRANDS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Brand updateBrand(Long id, Brand brand) {
         Brand existingBrand = this.getBrandById(id);
         existingBrand.setName(brand.getName());
@@ -54,6 +62,7 @@ public class BrandService implements IBrandService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.BRANDS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public void deleteBrand(Long id) {
         Brand existingBrand = this.getBrandById(id);
         existingBrand.setStatus(false);
@@ -61,6 +70,7 @@ public class BrandService implements IBrandService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.BRANDS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Boolean restoreBrand(Long id) {
         Optional<Brand> optional = brandRepository.findById(id);
         if (optional.isPresent()) {
@@ -0,0 +1,132 @@
+package com.example.shoozy_shop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gom các message WebSocket gửi ra theo từng destination trong một cửa sổ thời gian (mặc định 100ms).
+ * - Cùng entity key trong một cửa sổ thì chỉ giữ trạng thái mới nhất
+ * - Hết cửa sổ gửi một frame cho mỗi destination: 1 message thì gửi nguyên dạng,
+ *   nhiều message thì gói thành {"type": "BATCH", "messages": [...]}
+ * Chế độ LEGACY gửi ngay từng message như trước.
+ * Buffer của destination bị bỏ ngay khi flush, nên destination theo từng user không tích luỹ trong bộ nhớ.
+ */
+@Slf4j
+@Component
+public class BroadcastCoalescer {
+
+    public enum Mode {
+        LEGACY,
+        COALESCE
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Mode mode;
+    private final ScheduledExecutorService scheduler;
+
+    // Buffer chỉ được đọc/ghi trong compute của ConcurrentHashMap nên thêm message và lấy ra khi flush không tranh nhau
+    private final Map<String, Map<String, Object>> buffers = new ConcurrentHashMap<>();
+    // Khoá tạm cho message không có entity key để không bị gộp
+    private final AtomicLong anonymousSeq = new AtomicLong();
+
+    private final AtomicLong messagesIn = new AtomicLong();
+    private final AtomicLong framesOut = new AtomicLong();
+
+    public BroadcastCoalescer(SimpMessagingTemplate messagingTemplate,
+                              @Value("${app.websocket.coalesce.mode:COALESCE}") Mode mode,
+                              @Value("${app.websocket.coalesce.window-ms:100}") long windowMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.mode = mode;
+        if (mode == Mode.COALESCE) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ws-coalescer");
+                t.setDaemon(true);
+                return t;
+            });
+            this.scheduler.scheduleAtFixedRate(this::flushSafely, windowMs, windowMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @param entityKey khoá thực thể kèm loại message (vd "coupon:COUPON_OUT_OF_STOCK:3"): chỉ message cùng khoá
+     *                  mới thay nhau, null nếu message không được gộp
+     */
+    public void send(String destination, String entityKey, Object message) {
+        messagesIn.incrementAndGet();
+        if (mode == Mode.LEGACY) {
+            messagingTemplate.convertAndSend(destination, message);
+            framesOut.incrementAndGet();
+            return;
+        }
+        String key = entityKey != null ? entityKey : "#" + anonymousSeq.incrementAndGet();
+        buffers.compute(destination, (d, buffer) -> {
+            Map<String, Object> b = buffer != null ? buffer : new LinkedHashMap<>();
+            // Xoá rồi thêm lại để message mới nhất nằm cuối frame
+            b.remove(key);
+            b.put(key, message);
+            return b;
+        });
+    }
+
+    void flush() {
+        for (String destination : buffers.keySet()) {
+            List<Object> messages = new ArrayList<>();
+            // Lấy hết và bỏ luôn buffer; message đến sau tạo buffer mới cho cửa sổ kế tiếp
+            buffers.computeIfPresent(destination, (d, buffer) -> {
+                messages.addAll(buffer.values());
+                return null;
+            });
+            if (messages.isEmpty()) {
+                continue;
+            }
+            Object frame = messages.size() == 1
+                    ? messages.get(0)
+                    : Map.of("type", "BATCH", "count", messages.size(), "messages", messages);
+            messagingTemplate.convertAndSend(destination, frame);
+            framesOut.incrementAndGet();
+        }
+    }
+
+    int pendingDestinations() {
+        return buffers.size();
+    }
+
+    public long getMessagesIn() {
+        return messagesIn.get();
+    }
+
+    public long getFramesOut() {
+        return framesOut.get();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("WebSocket coalescer flush failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            flushSafely();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.CacheStatsResponse;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Thống kê hit/miss/eviction của các cache Caffeine khai báo trong CacheConfig, tính từ lúc node khởi động.
+ */
+@Service
+@RequiredArgsConstructor
+public class CacheStatsService {
+
+    private final CaffeineCacheManager cacheManager;
+
+    public List<CacheStatsResponse> stats() {
+        return cacheManager.getCacheNames().stream()
+                .sorted()
+                .map(name -> {
+                    com.github.benmanes.caffeine.cache.Cache<Object, Object> cache =
+                            ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+                    CacheStats stats = cache.stats();
+                    return new CacheStatsResponse(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                            stats.hitRate(), stats.evictionCount());
+                })
+                .toList();
+    }
+}
@@ -9,6 +9,7 @@ import com.example.shoozy_shop.model.User;
 import com.example.shoozy_shop.repository.*;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
@@ -22,6 +23,9 @@ public class CartService implements ICartService {
     private final ProductVariantRepository productVariantRepository;
     private final UserRepository userRepository;
     private final CartItemRepository cartItemRepository;
+    private final FlashSaleStockLedger flashSaleStockLedger;
+    private final CartViewCache cartViewCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -42,7 +46,7 @@ public class CartService implements ICartService {
         ProductVariant productVariant = productVariantRepository.findById(productVariantId)
                 .orElseThrow(() -> new Exception("Product variant not found"));
 
-        final int stock = productVariant.getQuantity();
+        final int stock = currentStock(productVariant);
 
         CartItem existingCartItem = cartItemRepository.findByCartIdAndProductVariantId(cart.getId(), productVariantId);
         int cartQty = (existingCartItem != null) ? existingCartItem.getQuantity() : 0;
@@ -50,16 +54,19 @@ public class CartService implements ICartService {
         if (quantity > allowAdd) {
             throw new OutOfStockException(cartQty, allowAdd);
         }
+        CartItem saved;
         if (existingCartItem != null) {
             existingCartItem.setQuantity(cartQty + quantity);
-            return cartItemRepository.save(existingCartItem);
+            saved = cartItemRepository.save(existingCartItem);
         } else {
             CartItem cartItem = new CartItem();
             cartItem.setCart(cart);
             cartItem.setProductVariant(productVariant);
             cartItem.setQuantity(quantity);
-            return cartItemRepository.save(cartItem);
+            saved = cartItemRepository.save(cartItem);
         }
+        eventPublisher.publishEvent(new CartViewCache.CartItemChangedEvent(cart.getId(), saved.getId(), saved.getQuantity()));
+        return saved;
     }
 
 //    @Override
@@ -82,7 +89,7 @@ public class CartService implements ICartService {
         if (productVariant == null) {
             throw new Exception("Product variant not found for this cart item");
         }
-        final int stock = productVariant.getQuantity();
+        final int stock = currentStock(productVariant);
         int cartQty = cartItem.getQuantity();
         int allowAdd = Math.max(stock - cartQty, 0);
         if (quantity > stock) {
@@ -90,14 +97,25 @@ public class CartService implements ICartService {
         }
         cartItem.setQuantity(quantity);
         cartItemRepository.save(cartItem);
+        eventPublisher.publishEvent(new CartViewCache.CartItemChangedEvent(cartItem.getCart().getId(), cartItemId, quantity));
     }
 
 
+    // Biến thể đang flash sale lấy tồn kho từ sổ trong bộ nhớ thay vì cột quantity (được ghi trễ)
+    private int currentStock(ProductVariant productVariant) {
+        Integer ledgerStock = flashSaleStockLedger.available(productVariant.getId());
+        return ledgerStock != null ? ledgerStock : productVariant.getQuantity();
+    }
+
+    // Đọc từ CartViewCache, chỉ xuống DB khi giỏ chưa có trong cache hoặc vừa bị bỏ do sản phẩm đổi
     @Override
     public List<ProductCartResponse> getProductCartResponses(Long userId) {
-        Cart cart = cartRepository.findByUserId(userId);
-        if (cart == null) return Collections.emptyList();
-        return cartItemRepository.findCartItemsByCartId(cart.getId());
+        Long cartId = cartViewCache.cartIdOf(userId, () -> {
+            Cart cart = cartRepository.findByUserId(userId);
+            return cart != null ? cart.getId() : null;
+        });
+        if (cartId == null) return Collections.emptyList();
+        return cartViewCache.items(cartId);
     }
 
     @Override
@@ -105,6 +123,7 @@ public class CartService implements ICartService {
         CartItem cartItem = cartItemRepository.findById(cartItemId)
                 .orElseThrow(() -> new Exception("Cart item not found"));
         cartItemRepository.delete(cartItem);
+        eventPublisher.publishEvent(new CartViewCache.CartItemChangedEvent(cartItem.getCart().getId(), cartItemId, null));
     }
 
 
@@ -0,0 +1,296 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.ProductCartResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Giỏ hàng đã ghép sẵn (tên, ảnh, giá, % giảm, size, màu, tồn) giữ trong cache LRU theo id giỏ,
+ * cùng ánh xạ userId -> id giỏ, để icon giỏ hàng và trang giỏ không chạy lại truy vấn join mỗi lần mở.
+ * - Thêm/đổi số lượng/xoá dòng giỏ: sửa thẳng bản trong cache sau commit ({@link CartItemChangedEvent})
+ * - Sản phẩm/biến thể/khuyến mãi đổi ({@link CatalogIndexUpdater.ProductChangedEvent}): bỏ mọi giỏ chứa chúng
+ * - Mỗi giỏ hết hạn ở mốc bắt đầu/kết thúc khuyến mãi gần nhất của các dòng trong giỏ, tối đa app.cart-cache.ttl-minutes
+ */
+@Slf4j
+@Component
+public class CartViewCache {
+
+    // Khuyến mãi chỉ lấy khi đang chạy, chọn khuyến mãi giảm nhiều nhất như lúc đặt hàng;
+    // dòng không có khuyến mãi hợp lệ vẫn hiện với 0%
+    private static final String ITEM_COLUMNS = """
+            SELECT ci.id, ci.cart_id, ci.quantity, pv.id AS variant_id, pv.thumbnail, pv.sell_price,
+                   pv.quantity AS available_quantity, p.id AS product_id, p.name, p.weight,
+                   s.value AS size, c.name AS color,
+                   bp.id AS promotion_id, bp.code AS promotion_code, bp.name AS promotion_name,
+                   bp.value AS promotion_value, bp.discount_percent,
+                   (SELECT MIN(CASE WHEN pr.start_date > SYSDATETIME() THEN pr.start_date ELSE pr.expiration_date END)
+                    FROM product_promotions pp JOIN promotions pr ON pp.promotion_id = pr.id
+                    WHERE pp.product_variant_id = pv.id AND pr.status = 1
+                      AND pr.expiration_date > SYSDATETIME()) AS promotion_change_at
+            FROM cart_items ci
+            JOIN product_variants pv ON ci.product_variant_id = pv.id
+            JOIN products p ON pv.product_id = p.id
+            LEFT JOIN sizes s ON pv.size_id = s.id
+            LEFT JOIN colors c ON pv.color_id = c.id
+            OUTER APPLY (SELECT TOP 1 pr.id, pr.code, pr.name, pr.value,
+                                COALESCE(pp.custom_value, pr.value) AS discount_percent
+                         FROM product_promotions pp JOIN promotions pr ON pp.promotion_id = pr.id
+                         WHERE pp.product_variant_id = pv.id AND pr.status = 1
+                           AND SYSDATETIME() BETWEEN pr.start_date AND pr.expiration_date
+                         ORDER BY COALESCE(pp.custom_value, pr.value) DESC, pr.id) bp
+            """;
+
+    /**
+     * Khuyến mãi tốt nhất đang áp cho một dòng, đủ để chụp lại vào chi tiết đơn hàng.
+     */
+    record Promotion(long id, String code, String name, Double value) {
+    }
+
+    /**
+     * Một dòng giỏ đã ghép. response không được sửa sau khi tạo: đổi số lượng thì tạo bản mới.
+     */
+    record Item(long cartItemId, long variantId, long productId, Double weight, Promotion promotion,
+                LocalDateTime promotionChangeAt, ProductCartResponse response) {
+
+        Item withQuantity(int quantity) {
+            ProductCartResponse r = response;
+            return new Item(cartItemId, variantId, productId, weight, promotion, promotionChangeAt, new ProductCartResponse(
+                    r.getIdCartItem(), r.getIdProductVariant(), r.getProductName(), r.getProductImage(), r.getPrice(),
+                    r.getDiscountPercent(), r.getSize(), r.getColor(), quantity, r.getAvailableQuantity()));
+        }
+    }
+
+    /**
+     * Bản giỏ bất biến, sửa bằng cách tạo bản mới nên request đang đọc không thấy giỏ sửa dở.
+     *
+     * @param validUntil mốc khuyến mãi gần nhất làm đổi % giảm của một dòng, null nếu không có
+     */
+    record CartView(List<Item> items, LocalDateTime validUntil) {
+
+        static CartView of(List<Item> items) {
+            LocalDateTime validUntil = items.stream()
+                    .map(Item::promotionChangeAt)
+                    .filter(Objects::nonNull)
+                    .min(Comparator.naturalOrder())
+                    .orElse(null);
+            return new CartView(List.copyOf(items), validUntil);
+        }
+
+        CartView upsert(Item item) {
+            List<Item> next = new ArrayList<>(items.size() + 1);
+            boolean replaced = false;
+            for (Item current : items) {
+                if (current.cartItemId() == item.cartItemId()) {
+                    next.add(item);
+                    replaced = true;
+                } else {
+                    next.add(current);
+                }
+            }
+            if (!replaced) {
+                next.add(item);
+                next.sort(Comparator.comparingLong(Item::cartItemId));
+            }
+            return of(next);
+        }
+
+        CartView withQuantity(long cartItemId, int quantity) {
+            return of(items.stream().map(i -> i.cartItemId() == cartItemId ? i.withQuantity(quantity) : i).toList());
+        }
+
+        CartView remove(long cartItemId) {
+            return of(items.stream().filter(i -> i.cartItemId() != cartItemId).toList());
+        }
+
+        boolean contains(long cartItemId) {
+            return items.stream().anyMatch(i -> i.cartItemId() == cartItemId);
+        }
+
+        boolean touches(Set<Long> productIds, Set<Long> variantIds) {
+            return items.stream().anyMatch(i -> productIds.contains(i.productId()) || variantIds.contains(i.variantId()));
+        }
+
+        List<ProductCartResponse> responses() {
+            return items.stream().map(Item::response).toList();
+        }
+    }
+
+    /**
+     * Dòng giỏ vừa được thêm/đổi số lượng/xoá, phát trong transaction ghi.
+     *
+     * @param quantity số lượng mới, null khi dòng bị xoá
+     */
+    public record CartItemChangedEvent(Long cartId, Long cartItemId, Integer quantity) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Long, CartView> views;
+    private final Cache<Long, Long> cartIdsByUser;
+    // Tăng trước mỗi lần sửa/bỏ giỏ; bản nạp từ DB chỉ được cất nếu không có thay đổi nào chen vào lúc đang nạp
+    private final AtomicLong generation = new AtomicLong();
+
+    public CartViewCache(JdbcTemplate jdbcTemplate,
+                         @Value("${app.cart-cache.max-size:20000}") long maxSize,
+                         @Value("${app.cart-cache.ttl-minutes:30}") long ttlMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        long ttlNanos = Duration.ofMinutes(ttlMinutes).toNanos();
+        this.views = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, CartView>() {
+                    @Override
+                    public long expireAfterCreate(Long key, CartView view, long currentTime) {
+                        return lifetime(view, ttlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long key, CartView view, long currentTime, long currentDuration) {
+                        return Math.min(currentDuration, lifetime(view, ttlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long key, CartView view, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        // Giỏ không bao giờ bị xoá hay đổi chủ nên ánh xạ user -> giỏ chỉ cần giới hạn kích thước
+        this.cartIdsByUser = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    private static long lifetime(CartView view, long ttlNanos) {
+        if (view.validUntil() == null) {
+            return ttlNanos;
+        }
+        long untilChange = Duration.between(LocalDateTime.now(), view.validUntil()).toNanos();
+        return Math.max(0, Math.min(ttlNanos, untilChange));
+    }
+
+    /**
+     * @param lookup đọc id giỏ của user từ DB khi chưa có trong cache; user chưa có giỏ thì không cất gì
+     * @return id giỏ, null nếu user chưa có giỏ
+     */
+    public Long cartIdOf(Long userId, Supplier<Long> lookup) {
+        Long cartId = cartIdsByUser.getIfPresent(userId);
+        if (cartId == null) {
+            cartId = lookup.get();
+            if (cartId != null) {
+                cartIdsByUser.put(userId, cartId);
+            }
+        }
+        return cartId;
+    }
+
+    /**
+     * Các dòng giỏ theo thứ tự thêm vào. Danh sách và phần tử dùng chung giữa các request, không được sửa.
+     */
+    public List<ProductCartResponse> items(Long cartId) {
+        return view(cartId).responses();
+    }
+
+    /**
+     * Các dòng giỏ kèm id biến thể, khối lượng và khuyến mãi đang áp, cho báo giá thanh toán.
+     */
+    List<Item> lines(Long cartId) {
+        return view(cartId).items();
+    }
+
+    private CartView view(Long cartId) {
+        CartView view = views.getIfPresent(cartId);
+        if (view != null) {
+            return view;
+        }
+        long loadedAt = generation.get();
+        CartView loaded = CartView.of(jdbcTemplate.query(ITEM_COLUMNS + " WHERE ci.cart_id = ? ORDER BY ci.id",
+                (rs, i) -> mapItem(rs), cartId));
+        // Có thay đổi giỏ/sản phẩm chen vào lúc đang đọc thì bản vừa đọc có thể đã cũ: trả về nhưng không cất
+        views.asMap().compute(cartId, (id, current) -> current == null && generation.get() == loadedAt ? loaded : current);
+        return loaded;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCartItemChanged(CartItemChangedEvent event) {
+        generation.incrementAndGet();
+        Long cartId = event.cartId();
+        CartView view = views.getIfPresent(cartId);
+        if (view == null) {
+            return;
+        }
+        try {
+            if (event.quantity() == null) {
+                views.asMap().computeIfPresent(cartId, (id, v) -> v.remove(event.cartItemId()));
+            } else if (view.contains(event.cartItemId())) {
+                views.asMap().computeIfPresent(cartId, (id, v) -> v.withQuantity(event.cartItemId(), event.quantity()));
+            } else {
+                // Dòng mới: chỉ đọc đúng dòng đó rồi chèn vào giỏ đang cache
+                List<Item> added = jdbcTemplate.query(ITEM_COLUMNS + " WHERE ci.id = ?",
+                        (rs, i) -> mapItem(rs), event.cartItemId());
+                if (added.isEmpty()) {
+                    views.invalidate(cartId);
+                } else {
+                    views.asMap().computeIfPresent(cartId, (id, v) -> v.upsert(added.get(0)));
+                }
+            }
+        } catch (RuntimeException e) {
+            views.invalidate(cartId);
+            log.warn("Cart view update failed for {}, evicted", event, e);
+        }
+    }
+
+    /**
+     * Giá, tồn, tên/ảnh hoặc khuyến mãi của sản phẩm/biến thể đổi: bỏ mọi giỏ đang cache có chứa chúng.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogIndexUpdater.ProductChangedEvent event) {
+        generation.incrementAndGet();
+        views.asMap().values().removeIf(view -> view.touches(event.productIds(), event.variantIds()));
+    }
+
+    private static Item mapItem(ResultSet rs) throws SQLException {
+        Timestamp promotionChangeAt = rs.getTimestamp("promotion_change_at");
+        int size = rs.getInt("size");
+        Integer sizeValue = rs.wasNull() ? null : size;
+        Double discount = rs.getObject("discount_percent") != null ? rs.getDouble("discount_percent") : 0.0;
+        Double price = rs.getObject("sell_price") != null ? rs.getDouble("sell_price") : null;
+        Double weight = rs.getObject("weight") != null ? rs.getDouble("weight") : null;
+        long promotionId = rs.getLong("promotion_id");
+        Promotion promotion = rs.wasNull() ? null : new Promotion(promotionId, rs.getString("promotion_code"),
+                rs.getString("promotion_name"),
+                rs.getObject("promotion_value") != null ? rs.getDouble("promotion_value") : null);
+        // idProductVariant giữ là id sản phẩm như truy vấn JPQL cũ, trang giỏ dùng nó để mở chi tiết sản phẩm
+        ProductCartResponse response = new ProductCartResponse(
+                rs.getLong("id"),
+                rs.getLong("product_id"),
+                rs.getString("name"),
+                rs.getString("thumbnail"),
+                price,
+                discount,
+                sizeValue,
+                rs.getString("color"),
+                rs.getInt("quantity"),
+                rs.getInt("available_quantity"));
+        return new Item(rs.getLong("id"), rs.getLong("variant_id"), rs.getLong("product_id"), weight, promotion,
+                promotionChangeAt != null ? promotionChangeAt.toLocalDateTime() : null, response);
+    }
+}
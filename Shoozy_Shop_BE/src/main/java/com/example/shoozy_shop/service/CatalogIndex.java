@@ -0,0 +1,458 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.CatalogFilterRequest;
+import com.example.shoozy_shop.dto.response.CatalogFacetResponse;
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục lọc sản phẩm trong bộ nhớ cho trang cửa hàng, thay cho truy vấn JOIN biến thể + DISTINCT mỗi request.
+ * - Mỗi giá trị thuộc tính có một RoaringBitmap: brand/category/material/gender/trạng thái theo id sản phẩm;
+ *   size/màu/khoảng giá/còn hàng theo id biến thể (size, màu, giá phải thoả trên CÙNG một biến thể như JOIN cũ)
+ * - Lọc bằng AND/OR giữa các bitmap, đếm facet bằng andCardinality, không chạm DB
+ * - Chỉ chứa biến thể đang bán; được dựng lúc khởi động và cập nhật theo từng sản phẩm bởi {@link CatalogIndexUpdater}
+ */
+@Component
+public class CatalogIndex {
+
+    public record ProductRow(long id, Long brandId, Long categoryId, Long materialId, String gender, boolean active,
+                             Double minSellPrice, double avgRating, int totalStock, LocalDateTime createdAt) {
+    }
+
+    public record VariantRow(long id, long productId, Long sizeId, Long colorId, Double sellPrice, int quantity) {
+    }
+
+    public record SearchResult(List<Long> productIds, long total) {
+    }
+
+    private enum Facet {
+        BRAND, CATEGORY, MATERIAL, GENDER, SIZE, COLOR, PRICE, IN_STOCK
+    }
+
+    private final long priceBucketWidth;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Được bảo vệ bởi lock
+    private State state = new State();
+    private volatile boolean ready;
+
+    public CatalogIndex(@Value("${app.catalog-index.price-bucket:200000}") long priceBucketWidth) {
+        this.priceBucketWidth = priceBucketWidth;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Thay toàn bộ chỉ mục: dựng bản mới ngoài khoá rồi tráo, request đang chạy vẫn đọc bản cũ.
+     */
+    public void rebuild(Collection<ProductRow> products, Collection<VariantRow> variants) {
+        State fresh = new State();
+        products.forEach(fresh::addProduct);
+        variants.forEach(fresh::addVariant);
+        lock.writeLock().lock();
+        try {
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+    }
+
+    /**
+     * Thay dữ liệu của một sản phẩm cùng các biến thể đang bán của nó.
+     *
+     * @param product null nếu sản phẩm không còn tồn tại
+     */
+    public void upsert(long productId, ProductRow product, Collection<VariantRow> variants) {
+        lock.writeLock().lock();
+        try {
+            state.removeProduct(productId);
+            if (product != null) {
+                state.addProduct(product);
+                variants.forEach(state::addVariant);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return id sản phẩm của các biến thể đang có trong chỉ mục
+     */
+    public Set<Long> productsOfVariants(Collection<Long> variantIds) {
+        lock.readLock().lock();
+        try {
+            Set<Long> result = new HashSet<>();
+            for (Long variantId : variantIds) {
+                VariantRow row = state.variantRows.get(Math.toIntExact(variantId));
+                if (row != null) {
+                    result.add(row.productId());
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult search(CatalogFilterRequest filter, String sortBy, String sortDirection, int pageNo, int pageSize) {
+        return search(filter, null, sortBy, sortDirection, pageNo, pageSize);
+    }
+
+    /**
+     * @param within chỉ xét các sản phẩm này (vd. kết quả {@link ProductSearchIndex#match}), null nếu không giới hạn
+     */
+    public SearchResult search(CatalogFilterRequest filter, RoaringBitmap within, String sortBy, String sortDirection,
+                               int pageNo, int pageSize) {
+        boolean desc = "desc".equalsIgnoreCase(sortDirection);
+        int from = Math.max(0, (pageNo - 1) * pageSize);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matched = state.match(filter);
+            if (within != null) {
+                matched.and(within);
+            }
+            int total = matched.getCardinality();
+            if (from >= total) {
+                return new SearchResult(List.of(), total);
+            }
+            int to = Math.min(total, from + pageSize);
+            List<Long> page = new ArrayList<>(to - from);
+
+            Comparator<ProductRow> order = state.comparator(sortBy, desc);
+            if (order == null) {
+                // Sắp theo id: bitmap vốn đã có thứ tự, chỉ cần bỏ qua các phần tử trước trang
+                IntIterator it = desc ? matched.getReverseIntIterator() : matched.getIntIterator();
+                for (int i = 0; i < to && it.hasNext(); i++) {
+                    int id = it.next();
+                    if (i >= from) {
+                        page.add((long) id);
+                    }
+                }
+            } else {
+                List<ProductRow> rows = new ArrayList<>(total);
+                matched.forEach((IntConsumer) id -> rows.add(state.productRows.get(id)));
+                rows.sort(order);
+                for (int i = from; i < to; i++) {
+                    page.add(rows.get(i).id());
+                }
+            }
+            return new SearchResult(page, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id các sản phẩm thoả bộ lọc (bản sao, được phép sửa).
+     */
+    public RoaringBitmap match(CatalogFilterRequest filter) {
+        lock.readLock().lock();
+        try {
+            return state.match(filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public CatalogFacetResponse facets(CatalogFilterRequest filter) {
+        lock.readLock().lock();
+        try {
+            return state.facets(filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long bucketOf(double price) {
+        return (long) Math.floor(price / priceBucketWidth) * priceBucketWidth;
+    }
+
+    private static boolean notEmpty(Collection<?> values) {
+        return values != null && !values.isEmpty();
+    }
+
+    private static <K> void add(Map<K, RoaringBitmap> index, K key, int id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    private static <K> void remove(Map<K, RoaringBitmap> index, K key, int id) {
+        if (key == null) {
+            return;
+        }
+        RoaringBitmap bitmap = index.get(key);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <K> RoaringBitmap union(Map<K, RoaringBitmap> index, Collection<K> keys) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (K key : keys) {
+            RoaringBitmap bitmap = index.get(key);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    // a == null nghĩa là chưa có điều kiện nào
+    private static RoaringBitmap intersect(RoaringBitmap a, RoaringBitmap b) {
+        if (a == null) {
+            return b.clone();
+        }
+        a.and(b);
+        return a;
+    }
+
+    private final class State {
+        final RoaringBitmap products = new RoaringBitmap();
+        final RoaringBitmap activeProducts = new RoaringBitmap();
+        final Map<Long, RoaringBitmap> byBrand = new HashMap<>();
+        final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+        final Map<Long, RoaringBitmap> byMaterial = new HashMap<>();
+        final Map<String, RoaringBitmap> byGender = new HashMap<>();
+
+        final RoaringBitmap inStockVariants = new RoaringBitmap();
+        final Map<Long, RoaringBitmap> bySize = new HashMap<>();
+        final Map<Long, RoaringBitmap> byColor = new HashMap<>();
+        // Khoá là giá bắt đầu của khoảng
+        final TreeMap<Long, RoaringBitmap> byPriceBucket = new TreeMap<>();
+
+        final Map<Integer, ProductRow> productRows = new HashMap<>();
+        final Map<Integer, VariantRow> variantRows = new HashMap<>();
+        final Map<Integer, RoaringBitmap> variantsOfProduct = new HashMap<>();
+        // Tra nhanh id biến thể -> id sản phẩm / giá bán khi duyệt bitmap
+        int[] productOfVariant = new int[1024];
+        double[] priceOfVariant = new double[1024];
+
+        void addProduct(ProductRow p) {
+            int id = Math.toIntExact(p.id());
+            productRows.put(id, p);
+            products.add(id);
+            if (p.active()) {
+                activeProducts.add(id);
+            }
+            add(byBrand, p.brandId(), id);
+            add(byCategory, p.categoryId(), id);
+            add(byMaterial, p.materialId(), id);
+            add(byGender, p.gender(), id);
+        }
+
+        void addVariant(VariantRow v) {
+            int id = Math.toIntExact(v.id());
+            int productId = Math.toIntExact(v.productId());
+            if (!productRows.containsKey(productId)) {
+                return;
+            }
+            if (id >= productOfVariant.length) {
+                int size = Math.max(id + 1, productOfVariant.length * 2);
+                productOfVariant = Arrays.copyOf(productOfVariant, size);
+                priceOfVariant = Arrays.copyOf(priceOfVariant, size);
+            }
+            productOfVariant[id] = productId;
+            priceOfVariant[id] = v.sellPrice() != null ? v.sellPrice() : Double.NaN;
+            variantRows.put(id, v);
+            variantsOfProduct.computeIfAbsent(productId, k -> new RoaringBitmap()).add(id);
+            if (v.quantity() > 0) {
+                inStockVariants.add(id);
+            }
+            add(bySize, v.sizeId(), id);
+            add(byColor, v.colorId(), id);
+            if (v.sellPrice() != null) {
+                add(byPriceBucket, bucketOf(v.sellPrice()), id);
+            }
+        }
+
+        void removeProduct(long productId) {
+            int id = Math.toIntExact(productId);
+            ProductRow p = productRows.remove(id);
+            if (p == null) {
+                return;
+            }
+            products.remove(id);
+            activeProducts.remove(id);
+            remove(byBrand, p.brandId(), id);
+            remove(byCategory, p.categoryId(), id);
+            remove(byMaterial, p.materialId(), id);
+            remove(byGender, p.gender(), id);
+            RoaringBitmap variants = variantsOfProduct.remove(id);
+            if (variants != null) {
+                variants.forEach((IntConsumer) this::removeVariant);
+            }
+        }
+
+        void removeVariant(int id) {
+            VariantRow v = variantRows.remove(id);
+            if (v == null) {
+                return;
+            }
+            inStockVariants.remove(id);
+            remove(bySize, v.sizeId(), id);
+            remove(byColor, v.colorId(), id);
+            if (v.sellPrice() != null) {
+                remove(byPriceBucket, bucketOf(v.sellPrice()), id);
+            }
+        }
+
+        RoaringBitmap match(CatalogFilterRequest f) {
+            RoaringBitmap result = productBits(f, null);
+            RoaringBitmap variants = variantBits(f, null);
+            if (variants != null) {
+                result.and(productsOf(variants));
+            }
+            return result;
+        }
+
+        RoaringBitmap productBits(CatalogFilterRequest f, Facet skip) {
+            RoaringBitmap result;
+            if (f.getStatus() == null) {
+                result = products.clone();
+            } else if (f.getStatus()) {
+                result = activeProducts.clone();
+            } else {
+                result = RoaringBitmap.andNot(products, activeProducts);
+            }
+            if (skip != Facet.BRAND && notEmpty(f.getBrandIds())) {
+                result.and(union(byBrand, f.getBrandIds()));
+            }
+            if (skip != Facet.CATEGORY && notEmpty(f.getCategoryIds())) {
+                result.and(union(byCategory, f.getCategoryIds()));
+            }
+            if (skip != Facet.MATERIAL && notEmpty(f.getMaterialIds())) {
+                result.and(union(byMaterial, f.getMaterialIds()));
+            }
+            if (skip != Facet.GENDER && f.getGender() != null && !f.getGender().trim().isEmpty()) {
+                result.and(union(byGender, List.of(f.getGender())));
+            }
+            return result;
+        }
+
+        // null nếu không có điều kiện nào trên biến thể
+        RoaringBitmap variantBits(CatalogFilterRequest f, Facet skip) {
+            RoaringBitmap result = null;
+            if (skip != Facet.SIZE && notEmpty(f.getSizeIds())) {
+                result = intersect(result, union(bySize, f.getSizeIds()));
+            }
+            if (skip != Facet.COLOR && notEmpty(f.getColorIds())) {
+                result = intersect(result, union(byColor, f.getColorIds()));
+            }
+            if (skip != Facet.PRICE && (f.getMinPrice() != null || f.getMaxPrice() != null)) {
+                result = intersect(result, priceBits(f.getMinPrice(), f.getMaxPrice()));
+            }
+            if (skip != Facet.IN_STOCK && Boolean.TRUE.equals(f.getInStock())) {
+                result = intersect(result, inStockVariants);
+            }
+            return result;
+        }
+
+        // Khoảng nằm trọn trong [min, max] thì lấy nguyên bitmap, chỉ kiểm tra từng giá ở hai khoảng biên
+        RoaringBitmap priceBits(Double min, Double max) {
+            RoaringBitmap result = new RoaringBitmap();
+            long from = min != null ? bucketOf(min) : Long.MIN_VALUE;
+            long to = max != null ? bucketOf(max) : Long.MAX_VALUE;
+            if (from > to) {
+                return result;
+            }
+            for (Map.Entry<Long, RoaringBitmap> e : byPriceBucket.subMap(from, true, to, true).entrySet()) {
+                long low = e.getKey();
+                boolean inside = (min == null || low >= min) && (max == null || low + priceBucketWidth <= max);
+                if (inside) {
+                    result.or(e.getValue());
+                } else {
+                    e.getValue().forEach((IntConsumer) id -> {
+                        double price = priceOfVariant[id];
+                        if ((min == null || price >= min) && (max == null || price <= max)) {
+                            result.add(id);
+                        }
+                    });
+                }
+            }
+            return result;
+        }
+
+        RoaringBitmap productsOf(RoaringBitmap variants) {
+            RoaringBitmap result = new RoaringBitmap();
+            variants.forEach((IntConsumer) id -> result.add(productOfVariant[id]));
+            return result;
+        }
+
+        CatalogFacetResponse facets(CatalogFilterRequest f) {
+            RoaringBitmap variants = variantBits(f, null);
+            RoaringBitmap variantProducts = variants != null ? productsOf(variants) : null;
+            RoaringBitmap productBase = productBits(f, null);
+
+            RoaringBitmap matched = productBase.clone();
+            if (variantProducts != null) {
+                matched.and(variantProducts);
+            }
+
+            RoaringBitmap inStock = productsOf(intersect(variantBits(f, Facet.IN_STOCK), inStockVariants));
+            return new CatalogFacetResponse(
+                    matched.getLongCardinality(),
+                    countProducts(byBrand, withVariants(productBits(f, Facet.BRAND), variantProducts)),
+                    countProducts(byCategory, withVariants(productBits(f, Facet.CATEGORY), variantProducts)),
+                    countProducts(byMaterial, withVariants(productBits(f, Facet.MATERIAL), variantProducts)),
+                    countProducts(byGender, withVariants(productBits(f, Facet.GENDER), variantProducts)),
+                    countVariants(bySize, variantBits(f, Facet.SIZE), productBase),
+                    countVariants(byColor, variantBits(f, Facet.COLOR), productBase),
+                    countVariants(byPriceBucket, variantBits(f, Facet.PRICE), productBase),
+                    RoaringBitmap.andCardinality(inStock, productBase));
+        }
+
+        RoaringBitmap withVariants(RoaringBitmap productBits, RoaringBitmap variantProducts) {
+            if (variantProducts != null) {
+                productBits.and(variantProducts);
+            }
+            return productBits;
+        }
+
+        <K> Map<K, Integer> countProducts(Map<K, RoaringBitmap> index, RoaringBitmap base) {
+            Map<K, Integer> counts = new TreeMap<>();
+            index.forEach((key, bitmap) -> counts.put(key, RoaringBitmap.andCardinality(base, bitmap)));
+            return counts;
+        }
+
+        // variants == null: không có điều kiện nào khác trên biến thể
+        <K> Map<K, Integer> countVariants(Map<K, RoaringBitmap> index, RoaringBitmap variants, RoaringBitmap productBase) {
+            Map<K, Integer> counts = new TreeMap<>();
+            index.forEach((key, bitmap) -> {
+                RoaringBitmap candidates = variants != null ? RoaringBitmap.and(variants, bitmap) : bitmap;
+                counts.put(key, RoaringBitmap.andCardinality(productsOf(candidates), productBase));
+            });
+            return counts;
+        }
+
+        Comparator<ProductRow> comparator(String sortBy, boolean desc) {
+            if (sortBy == null) {
+                return null;
+            }
+            Comparator<ProductRow> key = switch (sortBy.toLowerCase().trim()) {
+                case "createdat", "created_at" -> Comparator.comparing(ProductRow::createdAt, nullsLast(desc));
+                case "price" -> Comparator.comparing(ProductRow::minSellPrice, nullsLast(desc));
+                case "rating" -> Comparator.comparing(ProductRow::avgRating, nullsLast(desc));
+                case "stock" -> Comparator.comparing(ProductRow::totalStock, nullsLast(desc));
+                default -> null;
+            };
+            return key != null ? key.thenComparingLong(ProductRow::id) : null;
+        }
+
+        <T extends Comparable<? super T>> Comparator<T> nullsLast(boolean desc) {
+            return Comparator.nullsLast(desc ? Comparator.<T>reverseOrder() : Comparator.<T>naturalOrder());
+        }
+    }
+}
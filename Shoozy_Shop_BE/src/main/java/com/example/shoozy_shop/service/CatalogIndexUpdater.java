@@ -0,0 +1,310 @@
+package com.example.shoozy_shop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Giữ {@link CatalogIndex}, {@link ProductSearchIndex} và {@link ProductSuggestIndex} khớp với DB:
+ * - Dựng toàn bộ khi ứng dụng sẵn sàng và định kỳ (app.catalog-index.rebuild-interval-ms) để bắt kịp
+ *   thay đổi từ node khác hoặc sửa tay trong DB
+ * - Sau mỗi transaction phát {@link ProductChangedEvent}, nạp lại đúng các sản phẩm bị ảnh hưởng
+ * - Sau mỗi transaction phát {@link SalesChangedEvent}, cộng/trừ số lượng đã bán của đơn đó vào gợi ý
+ * - Thay đổi commit trong lúc đang dựng toàn bộ được ghi lại và áp lại sau khi tráo, vì bản chụp có thể đã đọc
+ *   dữ liệu trước thay đổi đó; số đã bán của các đơn này được đọc lại giá trị tuyệt đối thay vì cộng dồn
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogIndexUpdater {
+
+    /**
+     * Sản phẩm/biến thể vừa thay đổi (thông tin, giá, tồn kho, đánh giá).
+     */
+    public record ProductChangedEvent(Set<Long> productIds, Set<Long> variantIds) {
+
+        public static ProductChangedEvent ofProduct(Long productId) {
+            return new ProductChangedEvent(Set.of(productId), Set.of());
+        }
+
+        public static ProductChangedEvent ofVariants(Collection<Long> variantIds) {
+            return new ProductChangedEvent(Set.of(), Set.copyOf(variantIds));
+        }
+    }
+
+    /**
+     * Đơn hàng vừa vào (sign = 1) hoặc rời (sign = -1) nhóm trạng thái được tính là đã bán.
+     */
+    public record SalesChangedEvent(Long orderId, int sign) {
+    }
+
+    // Cùng cách tính "đã bán" với thống kê top sản phẩm bán chạy
+    public static final Set<String> SOLD_STATUSES = Set.of("DELIVERED", "COMPLETED");
+
+    private static final String SOLD_COLUMNS = """
+            SELECT pv.product_id, SUM(od.quantity) AS sold
+            FROM order_details od
+            JOIN orders o ON o.id = od.order_id
+            JOIN product_variants pv ON pv.id = od.product_variant_id
+            """;
+
+    // Tổng đã bán của mọi sản phẩm có trong các đơn, kể cả sản phẩm về 0
+    private static final String SOLD_OF_ORDERS = """
+            SELECT pv.product_id,
+                   SUM(CASE WHEN o.status IN ('DELIVERED', 'COMPLETED') THEN od.quantity ELSE 0 END) AS sold
+            FROM order_details od
+            JOIN orders o ON o.id = od.order_id
+            JOIN product_variants pv ON pv.id = od.product_variant_id
+            WHERE pv.product_id IN (SELECT pv2.product_id
+                                    FROM order_details od2
+                                    JOIN product_variants pv2 ON pv2.id = od2.product_variant_id
+                                    WHERE od2.order_id IN (%s))
+            GROUP BY pv.product_id
+            """;
+
+    private static final String PRODUCT_COLUMNS = """
+            SELECT id, brand_id, category_id, material_id, product_gender, status,
+                   min_sell_price, avg_rating, total_stock, created_at
+            FROM products
+            """;
+    private static final String VARIANT_COLUMNS = """
+            SELECT id, product_id, size_id, color_id, sell_price, quantity
+            FROM product_variants
+            WHERE status = 1
+            """;
+
+    private static final String TEXT_COLUMNS = """
+            SELECT p.id, p.name, p.sku, p.description, p.thumbnail, p.status,
+                   p.brand_id, b.name AS brand_name, p.category_id, c.name AS category_name
+            FROM products p
+            LEFT JOIN brands b ON b.id = p.brand_id
+            LEFT JOIN categories c ON c.id = p.category_id
+            """;
+
+    private static final RowMapper<CatalogIndex.ProductRow> PRODUCT_MAPPER = (rs, i) -> {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new CatalogIndex.ProductRow(
+                rs.getLong("id"),
+                rs.getObject("brand_id", Long.class),
+                rs.getObject("category_id", Long.class),
+                rs.getObject("material_id", Long.class),
+                rs.getString("product_gender"),
+                rs.getBoolean("status"),
+                rs.getObject("min_sell_price") != null ? rs.getDouble("min_sell_price") : null,
+                rs.getDouble("avg_rating"),
+                rs.getInt("total_stock"),
+                createdAt != null ? createdAt.toLocalDateTime() : null);
+    };
+
+    private static final RowMapper<CatalogIndex.VariantRow> VARIANT_MAPPER = (rs, i) -> new CatalogIndex.VariantRow(
+            rs.getLong("id"),
+            rs.getLong("product_id"),
+            rs.getObject("size_id", Long.class),
+            rs.getObject("color_id", Long.class),
+            rs.getObject("sell_price") != null ? rs.getDouble("sell_price") : null,
+            rs.getInt("quantity"));
+
+    private static final RowMapper<ProductSearchIndex.ProductText> TEXT_MAPPER = (rs, i) -> new ProductSearchIndex.ProductText(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("sku"),
+            rs.getString("brand_name"),
+            rs.getString("category_name"),
+            rs.getString("description"));
+
+    private static final RowMapper<ProductSuggestIndex.ProductRow> SUGGEST_MAPPER = (rs, i) -> new ProductSuggestIndex.ProductRow(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("thumbnail"),
+            rs.getBoolean("status"),
+            rs.getObject("brand_id", Long.class),
+            rs.getString("brand_name"),
+            rs.getObject("category_id", Long.class),
+            rs.getString("category_name"));
+
+    private final CatalogIndex catalogIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Thay đổi nhận được trong lúc rebuild() chạy, null khi không dựng; được bảo vệ bởi rebuildLock
+    private final Object rebuildLock = new Object();
+    private Changes changesDuringRebuild;
+
+    private static final class Changes {
+        final Set<Long> productIds = new HashSet<>();
+        final Set<Long> variantIds = new HashSet<>();
+        final Set<Long> orderIds = new HashSet<>();
+
+        boolean isEmpty() {
+            return productIds.isEmpty() && variantIds.isEmpty() && orderIds.isEmpty();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${app.catalog-index.rebuild-interval-ms:600000}",
+            fixedDelayString = "${app.catalog-index.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        synchronized (rebuildLock) {
+            changesDuringRebuild = new Changes();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            List<CatalogIndex.ProductRow> products = jdbcTemplate.query(PRODUCT_COLUMNS, PRODUCT_MAPPER);
+            List<CatalogIndex.VariantRow> variants = jdbcTemplate.query(VARIANT_COLUMNS, VARIANT_MAPPER);
+            List<ProductSearchIndex.ProductText> texts = new ArrayList<>();
+            List<ProductSuggestIndex.ProductRow> suggestRows = new ArrayList<>();
+            queryTexts(TEXT_COLUMNS, new Object[0], texts, suggestRows);
+            Map<Long, Long> sold = new HashMap<>();
+            jdbcTemplate.query(SOLD_COLUMNS + " WHERE o.status IN ('DELIVERED', 'COMPLETED') GROUP BY pv.product_id",
+                    rs -> { sold.put(rs.getLong("product_id"), rs.getLong("sold")); });
+            catalogIndex.rebuild(products, variants);
+            productSearchIndex.rebuild(texts);
+            productSuggestIndex.rebuild(suggestRows, sold);
+            applyChangesDuringRebuild();
+            log.info("Catalog index built: {} products, {} variants in {} ms",
+                    products.size(), variants.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            // Chỉ mục chưa sẵn sàng thì ProductService dùng lại truy vấn DB
+            log.error("Catalog index build failed", e);
+        } finally {
+            synchronized (rebuildLock) {
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    // Đọc lại từ DB (sau khi tráo) những gì đổi trong lúc dựng, lặp tới khi không còn thay đổi mới chen vào
+    private void applyChangesDuringRebuild() {
+        while (true) {
+            Changes changes;
+            synchronized (rebuildLock) {
+                changes = changesDuringRebuild;
+                if (changes.isEmpty()) {
+                    changesDuringRebuild = null;
+                    return;
+                }
+                changesDuringRebuild = new Changes();
+            }
+            Set<Long> productIds = new HashSet<>(changes.productIds);
+            productIds.addAll(catalogIndex.productsOfVariants(changes.variantIds));
+            if (!productIds.isEmpty()) {
+                reload(productIds, changes.productIds);
+            }
+            if (!changes.orderIds.isEmpty()) {
+                Map<Long, Long> sold = new HashMap<>();
+                jdbcTemplate.query(SOLD_OF_ORDERS.formatted(
+                                String.join(",", Collections.nCopies(changes.orderIds.size(), "?"))),
+                        rs -> { sold.put(rs.getLong("product_id"), rs.getLong("sold")); },
+                        changes.orderIds.toArray());
+                productSuggestIndex.setSold(sold);
+            }
+        }
+    }
+
+    // Đang dựng toàn bộ thì ghi lại thay đổi để áp sau khi tráo
+    private void recordDuringRebuild(Consumer<Changes> record) {
+        synchronized (rebuildLock) {
+            if (changesDuringRebuild != null) {
+                record.accept(changesDuringRebuild);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        recordDuringRebuild(changes -> {
+            changes.productIds.addAll(event.productIds());
+            changes.variantIds.addAll(event.variantIds());
+        });
+        // Vẫn áp vào bản đang dùng để đọc ngay; bản đang dựng được sửa sau khi tráo
+        if (!catalogIndex.isReady()) {
+            return;
+        }
+        Set<Long> productIds = new HashSet<>(event.productIds());
+        productIds.addAll(catalogIndex.productsOfVariants(event.variantIds()));
+        if (productIds.isEmpty()) {
+            return;
+        }
+        try {
+            reload(productIds, event.productIds());
+        } catch (RuntimeException e) {
+            // Lần dựng lại định kỳ sẽ sửa phần lệch
+            log.error("Catalog index update failed for products {}", productIds, e);
+        }
+    }
+
+    // Đổi tồn kho chỉ báo id biến thể, không cần nạp lại văn bản cho chỉ mục tìm kiếm
+    private void reload(Set<Long> productIds, Set<Long> textIds) {
+        Object[] ids = productIds.toArray();
+        String placeholders = productIds.stream().map(id -> "?").collect(Collectors.joining(","));
+        Map<Long, CatalogIndex.ProductRow> products = jdbcTemplate
+                .query(PRODUCT_COLUMNS + " WHERE id IN (" + placeholders + ")", PRODUCT_MAPPER, ids)
+                .stream()
+                .collect(Collectors.toMap(CatalogIndex.ProductRow::id, p -> p));
+        Map<Long, List<CatalogIndex.VariantRow>> variants = jdbcTemplate
+                .query(VARIANT_COLUMNS + " AND product_id IN (" + placeholders + ")", VARIANT_MAPPER, ids)
+                .stream()
+                .collect(Collectors.groupingBy(CatalogIndex.VariantRow::productId));
+        for (Long productId : productIds) {
+            catalogIndex.upsert(productId, products.get(productId), variants.getOrDefault(productId, List.of()));
+        }
+        if (textIds.isEmpty()) {
+            return;
+        }
+        List<ProductSearchIndex.ProductText> textRows = new ArrayList<>();
+        List<ProductSuggestIndex.ProductRow> suggestRows = new ArrayList<>();
+        queryTexts(TEXT_COLUMNS + " WHERE p.id IN (" + String.join(",", Collections.nCopies(textIds.size(), "?")) + ")",
+                textIds.toArray(), textRows, suggestRows);
+        Map<Long, ProductSearchIndex.ProductText> texts = textRows.stream()
+                .collect(Collectors.toMap(ProductSearchIndex.ProductText::id, t -> t));
+        Map<Long, ProductSuggestIndex.ProductRow> suggestions = suggestRows.stream()
+                .collect(Collectors.toMap(ProductSuggestIndex.ProductRow::id, r -> r));
+        for (Long productId : textIds) {
+            productSearchIndex.upsert(productId, texts.get(productId));
+            productSuggestIndex.upsert(productId, suggestions.get(productId));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSalesChanged(SalesChangedEvent event) {
+        recordDuringRebuild(changes -> changes.orderIds.add(event.orderId()));
+        if (!productSuggestIndex.isReady()) {
+            return;
+        }
+        try {
+            Map<Long, Long> delta = new HashMap<>();
+            jdbcTemplate.query(SOLD_COLUMNS + " WHERE o.id = ? GROUP BY pv.product_id",
+                    rs -> { delta.put(rs.getLong("product_id"), event.sign() * rs.getLong("sold")); },
+                    event.orderId());
+            productSuggestIndex.addSold(delta);
+        } catch (RuntimeException e) {
+            log.error("Suggest index update failed for order {}", event.orderId(), e);
+        }
+    }
+
+    // Một lần đọc cho cả chỉ mục tìm kiếm và gợi ý
+    private void queryTexts(String sql, Object[] args, List<ProductSearchIndex.ProductText> texts,
+                            List<ProductSuggestIndex.ProductRow> suggestRows) {
+        jdbcTemplate.query(sql, rs -> {
+            texts.add(TEXT_MAPPER.mapRow(rs, 0));
+            suggestRows.add(SUGGEST_MAPPER.mapRow(rs, 0));
+        }, args);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.shoozy_shop.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phiên bản dữ liệu danh mục, dùng làm ETag/Last-Modified cho conditional GET mà không phải dựng lại body.
+ * - Dữ liệu có cache: tăng ngay sau khi entry/cache bị xoá (xem CacheConfig), tức là sau commit và sau khi
+ *   cache không còn giữ bản cũ. Bản nạp từ DB chỉ được cất nếu phiên bản không đổi trong lúc nạp
+ *   (@Cacheable sync nạp nguyên tử trong Caffeine, {@link ProductCardLoader} so phiên bản trước khi cất),
+ *   nên ETag mới không đi kèm body cũ lấy từ cache
+ * - Dữ liệu không cache (khuyến mãi): tăng sau commit qua {@link #bumpAfterCommit}
+ * - Last-Modified làm tròn xuống giây; thay đổi trong giây hiện tại chỉ được kiểm bằng ETag (xem ConditionalGet)
+ * Bộ đếm nằm trong bộ nhớ của node; epoch khởi động đứng đầu ETag để giá trị sau restart không trùng giá trị cũ.
+ */
+@Component
+public class CatalogVersions {
+
+    public static final String PROMOTIONS = "promotions";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // Last-Modified chỉ có độ chính xác tới giây; lùi một giây để thay đổi ngay trong giây khởi động vẫn mới hơn
+    private final long startedAt = System.currentTimeMillis() / 1000 * 1000 - 1000;
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    private static final class Version {
+        private final AtomicLong counter = new AtomicLong();
+        private volatile long modifiedAt;
+    }
+
+    public void bump(String key) {
+        Version version = versions.computeIfAbsent(key, k -> new Version());
+        version.counter.incrementAndGet();
+        version.modifiedAt = System.currentTimeMillis() / 1000 * 1000;
+    }
+
+    public void bumpAfterCommit(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump(key);
+            }
+        });
+    }
+
+    // Một entry đổi: đổi phiên bản của entry đó và của cả cache (danh sách)
+    public void entryChanged(String cacheName, Object key) {
+        bump(entryKey(cacheName, key));
+        bump(cacheName);
+    }
+
+    public void cacheCleared(String cacheName) {
+        bump(cacheName + ":*");
+        bump(cacheName);
+    }
+
+    public String etag(String... keys) {
+        StringBuilder etag = new StringBuilder(epoch);
+        for (String key : keys) {
+            Version version = versions.get(key);
+            etag.append(etag.length() == epoch.length() ? '-' : '.').append(version != null ? version.counter.get() : 0);
+        }
+        return etag.toString();
+    }
+
+    public long lastModified(String... keys) {
+        long lastModified = startedAt;
+        for (String key : keys) {
+            Version version = versions.get(key);
+            if (version != null) {
+                lastModified = Math.max(lastModified, version.modifiedAt);
+            }
+        }
+        return lastModified;
+    }
+
+    // Một entry cũng đổi khi cả cache bị xoá (ví dụ đổi tên thương hiệu xoá mọi chi tiết sản phẩm)
+    public String entryEtag(String cacheName, Object key) {
+        return etag(cacheName + ":*", entryKey(cacheName, key));
+    }
+
+    public long entryLastModified(String cacheName, Object key) {
+        return lastModified(cacheName + ":*", entryKey(cacheName, key));
+    }
+
+    private static String entryKey(String cacheName, Object key) {
+        return cacheName + ":" + key;
+    }
+}
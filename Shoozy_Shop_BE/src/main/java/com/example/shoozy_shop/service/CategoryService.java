@@ -1,9 +1,12 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.config.CacheConfig;
 import com.example.shoozy_shop.exception.ResourceNotFoundException;
 import com.example.shoozy_shop.model.Category;
 import com.example.shoozy_shop.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,16 +23,19 @@ public class CategoryService implements ICategoryService {
 
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'all'", sync = true)
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'active'", sync = true)
     public List<Category> getActiveCategories() {
         return categoryRepository.findAllByStatusTrue();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "#id", sync = true)
     public Category getCategoryById(Long id) {
         return categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("category", id));
@@ -37,6 +43,7 @@ public class CategoryService implements ICategoryService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
     public Category addCategory(Category category) {
         if(categoryRepository.existsByName(category.getName())) {
             throw new IllegalArgumentException("Category " + category.getName() +" already exists!");
@@ -47,6 +54,7 @@ public class CategoryService implements ICategoryService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = {CacheConfig.CATEGORIES, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Category updateCategory(Long id, Category category) {
         Category existingCategory = this.getCategoryById(id);
         existingCategory.setName(category.getName());
@@ -56,6 +64,7 @@ public class CategoryService implements ICategoryService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.CATEGORIES, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public void deleteCategory(Long id) {
         Category category = this.getCategoryById(id);
         category.setStatus(false);
@@ -63,6 +72,7 @@ public class CategoryService implements ICategoryService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.CATEGORIES, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Boolean restoreCategory(Long id) {
         Optional<Category> optional = categoryRepository.findById(id);
         if (optional.isPresent()) {
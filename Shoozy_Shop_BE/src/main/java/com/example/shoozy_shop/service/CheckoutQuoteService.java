@@ -0,0 +1,469 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.CheckoutQuoteRequest;
+import com.example.shoozy_shop.dto.request.OpenApiRequest;
+import com.example.shoozy_shop.dto.request.OrderDetailRequest;
+import com.example.shoozy_shop.dto.request.OrderRequest;
+import com.example.shoozy_shop.dto.response.AddressResponse;
+import com.example.shoozy_shop.dto.response.CheckoutQuoteResponse;
+import com.example.shoozy_shop.dto.response.CouponForOrderResponse;
+import com.example.shoozy_shop.dto.response.FeeShippingResponse;
+import com.example.shoozy_shop.dto.response.ProductCartResponse;
+import com.example.shoozy_shop.exception.CustomException;
+import com.example.shoozy_shop.model.Cart;
+import com.example.shoozy_shop.repository.CartRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.math.BigDecimal.ZERO;
+
+/**
+ * Báo giá trang thanh toán trong một request: giá từng dòng kèm khuyến mãi tốt nhất, mã giảm giá dùng được,
+ * phí ship và tổng tiền, thay cho chuỗi gọi checkout-items -> coupons/order/all -> shipping/fee-from-openapi.
+ * - Dòng giỏ (qua {@link CartViewCache}), mã giảm giá của user và điểm giao GHN được tra song song trên virtual thread,
+ *   mỗi phần có thời hạn riêng (app.checkout-quote.*-timeout-ms); phí ship chỉ chờ thêm phần tính theo khối lượng
+ * - Mã giảm giá/phí ship quá hạn hoặc lỗi thì dùng giá trị dự phòng và ghi vào warnings; giỏ hàng lỗi thì báo lỗi
+ * - Kết quả được ký thành quoteToken (HS256, khoá dẫn xuất từ app.checkout-quote.secret) để
+ *   {@link OrderService#addOrder} dùng lại mà không tính lại khuyến mãi, mã giảm giá và phí ship
+ * - Token gắn với người dùng đăng nhập, các dòng giỏ, mã giảm giá và điểm giao đã báo giá; mỗi token chỉ đặt được
+ *   một đơn (jti ghi vào checkout_quote_redemptions cùng transaction đơn hàng)
+ */
+@Slf4j
+@Service
+public class CheckoutQuoteService {
+
+    private static final String AUDIENCE = "checkout-quote";
+    // Như trang thanh toán: sản phẩm chưa khai báo khối lượng tính 0.8kg, cả đơn tối thiểu 800g
+    private static final double DEFAULT_WEIGHT_KG = 0.8;
+    private static final int MIN_WEIGHT_GRAMS = 800;
+
+    /**
+     * Một dòng đã báo giá; tiền là đơn giá và số tiền giảm cho một sản phẩm.
+     */
+    public record QuotedLine(long cartItemId, long variantId, int quantity, BigDecimal unitPrice,
+                             BigDecimal unitDiscount, Long promotionId, String promotionCode, String promotionName,
+                             Double promotionValue) {
+    }
+
+    /**
+     * Nội dung đã ký của báo giá.
+     */
+    public record Quote(String id, long userId, List<QuotedLine> lines, String couponCode, BigDecimal couponDiscount,
+                        BigDecimal shippingFee, BigDecimal subtotal, BigDecimal total, String destination,
+                        Instant expiresAt) {
+
+        public QuotedLine line(Long variantId) {
+            return lines.stream().filter(l -> l.variantId() == variantId).findFirst().orElse(null);
+        }
+    }
+
+    private final CartViewCache cartViewCache;
+    private final CartRepository cartRepository;
+    private final ICouponService couponService;
+    private final IAddressService addressService;
+    private final ShippingService shippingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final Key key;
+    private final Duration ttl;
+    private final Duration linesTimeout;
+    private final Duration couponsTimeout;
+    private final Duration shippingTimeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CheckoutQuoteService(CartViewCache cartViewCache, CartRepository cartRepository,
+                                ICouponService couponService, IAddressService addressService,
+                                ShippingService shippingService, JdbcTemplate jdbcTemplate,
+                                @Value("${app.checkout-quote.secret:${app.jwtSecret}}") String secret,
+                                @Value("${app.checkout-quote.ttl-minutes:15}") long ttlMinutes,
+                                @Value("${app.checkout-quote.lines-timeout-ms:2000}") long linesTimeoutMs,
+                                @Value("${app.checkout-quote.coupons-timeout-ms:1500}") long couponsTimeoutMs,
+                                @Value("${app.checkout-quote.shipping-timeout-ms:3000}") long shippingTimeoutMs) {
+        this.cartViewCache = cartViewCache;
+        this.cartRepository = cartRepository;
+        this.couponService = couponService;
+        this.addressService = addressService;
+        this.shippingService = shippingService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.key = deriveKey(secret);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.linesTimeout = Duration.ofMillis(linesTimeoutMs);
+        this.couponsTimeout = Duration.ofMillis(couponsTimeoutMs);
+        this.shippingTimeout = Duration.ofMillis(shippingTimeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Dọn jti đã hết hạn: token hết hạn bị từ chối trước khi tới bước ghi jti
+    @Scheduled(fixedDelayString = "${app.checkout-quote.cleanup-interval-ms:3600000}")
+    public void cleanupRedemptions() {
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                    "DELETE TOP (5000) FROM checkout_quote_redemptions WHERE expires_at < SYSUTCDATETIME()");
+        } while (deleted == 5000);
+    }
+
+    /**
+     * @param userId người đang đăng nhập; giỏ hàng, mã giảm giá và địa chỉ đang chọn đều là của người này
+     */
+    public CheckoutQuoteResponse quote(Long userId, CheckoutQuoteRequest request) {
+        long start = System.nanoTime();
+        Future<List<CartViewCache.Item>> linesTask = executor.submit(() -> selectedLines(userId, request.getCartItemIds()));
+        Future<List<CouponForOrderResponse>> couponsTask = executor.submit(() -> couponService.getUsableCoupons(userId));
+        Future<OpenApiRequest> addressTask = executor.submit(() -> shippingAddress(userId, request));
+        Future<ShippingService.Destination> destinationTask = executor.submit(() ->
+                shippingService.resolveDestination(await(addressTask, start, shippingTimeout)));
+
+        List<String> warnings = new ArrayList<>();
+        List<CartViewCache.Item> items;
+        try {
+            items = await(linesTask, start, linesTimeout);
+        } catch (TimeoutException | RuntimeException e) {
+            // Không báo giá được khi thiếu giỏ hàng: dừng luôn các phần đang tra song song
+            couponsTask.cancel(true);
+            addressTask.cancel(true);
+            destinationTask.cancel(true);
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new CustomException("Không tải được giỏ hàng, vui lòng thử lại", 503);
+        }
+
+        List<CheckoutQuoteResponse.Line> lines = new ArrayList<>(items.size());
+        List<QuotedLine> quotedLines = new ArrayList<>(items.size());
+        BigDecimal subtotal = ZERO;
+        int weightGrams = 0;
+        for (CartViewCache.Item item : items) {
+            ProductCartResponse r = item.response();
+            BigDecimal unitPrice = r.getPrice() != null ? BigDecimal.valueOf(r.getPrice()) : ZERO;
+            CartViewCache.Promotion promotion = item.promotion();
+            BigDecimal unitDiscount = promotion != null ? promotionDiscount(unitPrice, r.getDiscountPercent()) : ZERO;
+            BigDecimal lineTotal = unitPrice.subtract(unitDiscount).multiply(BigDecimal.valueOf(r.getQuantity()));
+            subtotal = subtotal.add(lineTotal);
+            double weightKg = item.weight() != null ? item.weight() : DEFAULT_WEIGHT_KG;
+            weightGrams += (int) Math.round(weightKg * 1000) * r.getQuantity();
+            if (r.getQuantity() > r.getAvailableQuantity()) {
+                warnings.add(r.getProductName() + " chỉ còn " + r.getAvailableQuantity() + " sản phẩm");
+            }
+            lines.add(new CheckoutQuoteResponse.Line(item.cartItemId(), item.variantId(), item.productId(),
+                    r.getProductName(), r.getProductImage(), r.getSize(), r.getColor(), r.getQuantity(),
+                    r.getAvailableQuantity(), unitPrice, promotion != null ? promotion.id() : null,
+                    promotion != null ? r.getDiscountPercent() : 0.0, unitDiscount, lineTotal));
+            quotedLines.add(new QuotedLine(item.cartItemId(), item.variantId(), r.getQuantity(), unitPrice,
+                    unitDiscount, promotion != null ? promotion.id() : null, promotion != null ? promotion.code() : null,
+                    promotion != null ? promotion.name() : null, promotion != null ? promotion.value() : null));
+        }
+
+        List<CouponForOrderResponse> coupons = usableCoupons(couponsTask, start, subtotal, warnings);
+        String couponCode = null;
+        BigDecimal couponDiscount = ZERO;
+        if (request.getCouponCode() != null && !request.getCouponCode().isBlank()) {
+            String requested = request.getCouponCode().trim();
+            CouponForOrderResponse coupon = coupons.stream()
+                    .filter(c -> requested.equals(c.getCode()))
+                    .findFirst()
+                    .orElse(null);
+            if (coupon != null) {
+                couponCode = coupon.getCode();
+                couponDiscount = couponDiscount(coupon.getType(), coupon.getValue(), coupon.getValueLimit(), subtotal);
+            } else {
+                warnings.add("Mã giảm giá " + requested + " không áp dụng được cho đơn này");
+            }
+        }
+
+        FeeShippingResponse shipping = shippingFee(destinationTask, start, Math.max(weightGrams, MIN_WEIGHT_GRAMS),
+                warnings);
+        BigDecimal shippingFee = shipping.getTotal() != null && shipping.getTotal().signum() >= 0
+                ? shipping.getTotal() : ZERO;
+        BigDecimal netMerchandise = subtotal.subtract(couponDiscount).max(ZERO);
+        BigDecimal total = netMerchandise.add(shippingFee);
+
+        // Điểm giao chưa quy ra mã GHN thì token không gắn điểm giao nào và không dùng để đặt hàng được
+        String destination = destinationTask.state() == Future.State.SUCCESS
+                ? destinationHash(destinationTask.resultNow()) : null;
+        Instant expiresAt = Instant.now().plus(ttl);
+        Quote quote = new Quote(UUID.randomUUID().toString(), userId, quotedLines, couponCode, couponDiscount,
+                shippingFee, subtotal, total, destination, expiresAt);
+        return new CheckoutQuoteResponse(lines, coupons, couponCode, subtotal, couponDiscount, shipping, total,
+                warnings, sign(quote), LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+    }
+
+    /**
+     * Kiểm tra chữ ký, hạn, chủ sở hữu và việc đơn đặt đúng các dòng giỏ/biến thể/số lượng/mã giảm giá/điểm giao
+     * đã báo giá, rồi đánh dấu token đã dùng. Phải gọi trong transaction tạo đơn: đơn rollback thì token dùng lại được.
+     *
+     * @param userId người đang đăng nhập, không lấy từ body
+     */
+    public Quote verify(String token, Long userId, OrderRequest order) {
+        Quote quote = parse(token);
+        if (userId == null || quote.userId() != userId || !userId.equals(order.getUserId())) {
+            throw new CustomException("Báo giá không thuộc người dùng này", 400);
+        }
+        Map<Long, Integer> ordered = order.getOrderDetails() == null ? Map.of() : order.getOrderDetails().stream()
+                .collect(Collectors.toMap(OrderDetailRequest::getProductVariantId, OrderDetailRequest::getQuantity,
+                        Integer::sum));
+        Map<Long, Integer> quoted = quote.lines().stream()
+                .collect(Collectors.toMap(QuotedLine::variantId, QuotedLine::quantity, Integer::sum));
+        String couponCode = order.getCouponCode() == null || order.getCouponCode().isBlank()
+                ? null : order.getCouponCode().trim();
+        Set<Long> cartItems = order.getCartItemId() == null ? Set.of() : new HashSet<>(order.getCartItemId());
+        Set<Long> quotedCartItems = quote.lines().stream().map(QuotedLine::cartItemId).collect(Collectors.toSet());
+        if (!ordered.equals(quoted) || !cartItems.equals(quotedCartItems)
+                || !Objects.equals(couponCode, quote.couponCode())
+                || quote.destination() == null || !quote.destination().equals(orderDestinationHash(order))) {
+            throw new CustomException("Đơn hàng đã thay đổi so với báo giá, vui lòng tải lại trang thanh toán", 409);
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO checkout_quote_redemptions (jti, expires_at) VALUES (?, ?)",
+                    quote.id(), Timestamp.from(quote.expiresAt()));
+        } catch (DuplicateKeyException e) {
+            throw new CustomException("Báo giá đã được dùng để đặt hàng", 409);
+        }
+        return quote;
+    }
+
+    /**
+     * Số tiền giảm cho một sản phẩm theo % khuyến mãi, làm tròn tới đồng.
+     */
+    public static BigDecimal promotionDiscount(BigDecimal unitPrice, Double discountPercent) {
+        if (discountPercent == null) {
+            return ZERO;
+        }
+        return unitPrice.multiply(BigDecimal.valueOf(discountPercent))
+                .divide(BigDecimal.valueOf(100), 0, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Số tiền giảm của mã giảm giá: type true là theo % (chặn bởi valueLimit), còn lại là số tiền cố định.
+     */
+    public static BigDecimal couponDiscount(Boolean type, Double value, Double valueLimit, BigDecimal total) {
+        BigDecimal couponVal = BigDecimal.valueOf(value == null ? 0.0 : value);
+        if (Boolean.TRUE.equals(type)) {
+            BigDecimal discount = total.multiply(couponVal).divide(BigDecimal.valueOf(100), 0, RoundingMode.HALF_UP);
+            if (valueLimit != null && discount.compareTo(BigDecimal.valueOf(valueLimit)) > 0) {
+                discount = BigDecimal.valueOf(valueLimit);
+            }
+            return discount;
+        }
+        return couponVal.min(total);
+    }
+
+    private List<CartViewCache.Item> selectedLines(Long userId, List<Long> cartItemIds) {
+        Long cartId = cartViewCache.cartIdOf(userId, () -> {
+            Cart cart = cartRepository.findByUserId(userId);
+            return cart != null ? cart.getId() : null;
+        });
+        Map<Long, CartViewCache.Item> byId = cartId == null ? Map.of() : cartViewCache.lines(cartId).stream()
+                .collect(Collectors.toMap(CartViewCache.Item::cartItemId, Function.identity()));
+        List<Long> missing = cartItemIds.stream().filter(id -> !byId.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Sản phẩm không còn trong giỏ hàng: " + missing);
+        }
+        return new LinkedHashSet<>(cartItemIds).stream().map(byId::get).toList();
+    }
+
+    private OpenApiRequest shippingAddress(Long userId, CheckoutQuoteRequest request) {
+        if (request.getShippingAddress() != null) {
+            return request.getShippingAddress();
+        }
+        AddressResponse address = addressService.getSelectedAddress(userId)
+                .orElseThrow(() -> new IllegalStateException("Chưa chọn địa chỉ giao hàng"));
+        OpenApiRequest r = new OpenApiRequest();
+        r.setProvinceName(address.getProvinceName());
+        r.setDistrictName(address.getDistrictName());
+        r.setWardName(address.getWardName());
+        return r;
+    }
+
+    private List<CouponForOrderResponse> usableCoupons(Future<List<CouponForOrderResponse>> task, long start,
+                                                       BigDecimal subtotal, List<String> warnings) {
+        try {
+            return await(task, start, couponsTimeout).stream()
+                    .filter(c -> c.getCondition() == null || subtotal.compareTo(BigDecimal.valueOf(c.getCondition())) >= 0)
+                    .toList();
+        } catch (TimeoutException | RuntimeException e) {
+            log.warn("Checkout quote: coupon lookup failed, quoting without coupons", e);
+            warnings.add("Không tải được mã giảm giá");
+            return List.of();
+        }
+    }
+
+    private FeeShippingResponse shippingFee(Future<ShippingService.Destination> destinationTask, long start,
+                                            int weightGrams, List<String> warnings) {
+        Future<FeeShippingResponse> feeTask = null;
+        try {
+            ShippingService.Destination destination = await(destinationTask, start, shippingTimeout);
+            feeTask = executor.submit(() -> shippingService.calcFee(destination, weightGrams, 0));
+            return await(feeTask, start, shippingTimeout);
+        } catch (TimeoutException | RuntimeException e) {
+            log.warn("Checkout quote: shipping fee unavailable, using default fee", e);
+            warnings.add(e instanceof IllegalStateException ? e.getMessage()
+                    : "Không tính được phí vận chuyển, tạm tính " + ShippingService.DEFAULT_FEE + " VND");
+            return shippingService.fallback();
+        }
+    }
+
+    /**
+     * Điểm giao đã báo giá: mã quận và mã phường GHN (không phụ thuộc cách viết tên địa giới).
+     */
+    static String destinationHash(ShippingService.Destination destination) {
+        return hash(Arrays.asList(String.valueOf(destination.toDistrictId()), destination.toWardCode()));
+    }
+
+    // Quy điểm giao có cấu trúc của đơn ra mã GHN như lúc báo giá; đơn không gửi kèm thì không khớp báo giá nào
+    private String orderDestinationHash(OrderRequest order) {
+        if (order.getShippingAddress() == null) {
+            return null;
+        }
+        return destinationHash(shippingService.resolveArea(order.getShippingAddress()));
+    }
+
+    private static String hash(List<String> parts) {
+        String normalized = parts.stream()
+                .map(p -> p == null ? "" : p.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining("|"));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Chờ kết quả tới hạn tính từ lúc bắt đầu báo giá; quá hạn thì huỷ task. Lỗi trong task được ném lại nguyên dạng.
+     */
+    private static <T> T await(Future<T> task, long startNanos, Duration timeout) throws TimeoutException {
+        long remaining = timeout.toNanos() - (System.nanoTime() - startNanos);
+        try {
+            return task.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Báo giá bị gián đoạn", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String sign(Quote quote) {
+        List<Map<String, Object>> lines = quote.lines().stream().map(l -> {
+            Map<String, Object> m = new HashMap<>();
+            m.put("ci", l.cartItemId());
+            m.put("v", l.variantId());
+            m.put("q", l.quantity());
+            m.put("u", l.unitPrice().toPlainString());
+            m.put("d", l.unitDiscount().toPlainString());
+            m.put("p", l.promotionId());
+            m.put("pc", l.promotionCode());
+            m.put("pn", l.promotionName());
+            m.put("pv", l.promotionValue());
+            return m;
+        }).toList();
+        return Jwts.builder()
+                .setId(quote.id())
+                .setSubject(String.valueOf(quote.userId()))
+                .setAudience(AUDIENCE)
+                .setIssuedAt(new Date())
+                .setExpiration(Date.from(quote.expiresAt()))
+                .claim("lines", lines)
+                .claim("coupon", quote.couponCode())
+                .claim("couponDiscount", quote.couponDiscount().toPlainString())
+                .claim("shippingFee", quote.shippingFee().toPlainString())
+                .claim("subtotal", quote.subtotal().toPlainString())
+                .claim("total", quote.total().toPlainString())
+                .claim("dst", quote.destination())
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Quote parse(String token) {
+        Claims claims;
+        try {
+            claims = Jwts.parserBuilder()
+                    .setSigningKey(key)
+                    .requireAudience(AUDIENCE)
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        } catch (ExpiredJwtException e) {
+            throw new CustomException("Báo giá đã hết hạn, vui lòng tải lại trang thanh toán", 409);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new CustomException("Báo giá không hợp lệ", 400);
+        }
+        List<QuotedLine> lines = ((List<Map<String, Object>>) claims.get("lines", List.class)).stream()
+                .map(m -> new QuotedLine(
+                        ((Number) m.get("ci")).longValue(),
+                        ((Number) m.get("v")).longValue(),
+                        ((Number) m.get("q")).intValue(),
+                        new BigDecimal((String) m.get("u")),
+                        new BigDecimal((String) m.get("d")),
+                        m.get("p") != null ? ((Number) m.get("p")).longValue() : null,
+                        (String) m.get("pc"),
+                        (String) m.get("pn"),
+                        m.get("pv") != null ? ((Number) m.get("pv")).doubleValue() : null))
+                .toList();
+        return new Quote(claims.getId(), Long.parseLong(claims.getSubject()), lines, claims.get("coupon", String.class),
+                new BigDecimal(claims.get("couponDiscount", String.class)),
+                new BigDecimal(claims.get("shippingFee", String.class)),
+                new BigDecimal(claims.get("subtotal", String.class)),
+                new BigDecimal(claims.get("total", String.class)),
+                claims.get("dst", String.class),
+                claims.getExpiration().toInstant());
+    }
+
+    // Khoá riêng cho báo giá, dẫn xuất từ secret: token đăng nhập và token báo giá không dùng lẫn được cho nhau
+    private static Key deriveKey(String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Keys.hmacShaKeyFor(mac.doFinal(AUDIENCE.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Không tạo được khoá ký báo giá", e);
+        }
+    }
+}
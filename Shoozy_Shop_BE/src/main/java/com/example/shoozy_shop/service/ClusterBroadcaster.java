@@ -0,0 +1,117 @@
+package com.example.shoozy_shop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Điểm phát WebSocket cho cả cụm.
+ * - LOCAL: giao thẳng cho {@link BroadcastCoalescer} của node hiện tại (một instance)
+ * - KAFKA: đóng gói message vào topic Kafka, partition key là destination nên thứ tự theo từng destination
+ *   được giữ; mọi node (kể cả node gửi) nhận lại qua {@link KafkaBroadcastListener} và giao cho STOMP cục bộ.
+ *   Message trùng id (producer gửi lại) bị bỏ qua.
+ */
+@Slf4j
+@Component
+public class ClusterBroadcaster {
+
+    public enum Mode {
+        LOCAL,
+        KAFKA
+    }
+
+    record Envelope(String id, String origin, String destination, String key, JsonNode payload) {
+    }
+
+    private static final int DEDUP_CAPACITY = 50_000;
+
+    private final BroadcastCoalescer broadcastCoalescer;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final Mode mode;
+    private final String topic;
+    private final String nodeId;
+
+    private final Map<String, Boolean> seen = Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > DEDUP_CAPACITY;
+                }
+            });
+
+    @Autowired
+    public ClusterBroadcaster(BroadcastCoalescer broadcastCoalescer,
+                              ObjectProvider<KafkaTemplate<String, String>> kafkaTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${app.websocket.cluster.mode:LOCAL}") Mode mode,
+                              @Value("${app.websocket.cluster.topic:shoozy.ws-broadcast}") String topic,
+                              @Value("${app.websocket.cluster.node-id:default}") String nodeId) {
+        this(broadcastCoalescer, mode == Mode.KAFKA ? kafkaTemplate.getObject() : null,
+                objectMapper, mode, topic, nodeId);
+    }
+
+    ClusterBroadcaster(BroadcastCoalescer broadcastCoalescer, KafkaTemplate<String, String> kafkaTemplate,
+                       ObjectMapper objectMapper, Mode mode, String topic, String nodeId) {
+        this.broadcastCoalescer = broadcastCoalescer;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.mode = mode;
+        this.topic = topic;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * @param entityKey khoá thực thể để gộp message (xem {@link BroadcastCoalescer}), có thể null
+     */
+    public void publish(String destination, String entityKey, Object message) {
+        if (mode == Mode.LOCAL) {
+            broadcastCoalescer.send(destination, entityKey, message);
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(new Envelope(UUID.randomUUID().toString(), nodeId,
+                    destination, entityKey, objectMapper.valueToTree(message)));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.error("Cannot serialize broadcast for {}, delivering locally only", destination, e);
+            broadcastCoalescer.send(destination, entityKey, message);
+            return;
+        }
+        kafkaTemplate.send(topic, destination, json).whenComplete((result, error) -> {
+            if (error != null) {
+                // Kafka lỗi: ít nhất client trên node này vẫn nhận được
+                log.error("Kafka broadcast to {} failed, delivering locally only", destination, error);
+                broadcastCoalescer.send(destination, entityKey, message);
+            }
+        });
+    }
+
+    /**
+     * Nhận một message từ topic Kafka và giao cho STOMP cục bộ.
+     */
+    public void deliver(String json) {
+        Envelope envelope;
+        try {
+            envelope = objectMapper.readValue(json, Envelope.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping malformed broadcast envelope", e);
+            return;
+        }
+        if (seen.putIfAbsent(envelope.id(), Boolean.TRUE) != null) {
+            return;
+        }
+        broadcastCoalescer.send(envelope.destination(), envelope.key(), envelope.payload());
+    }
+}
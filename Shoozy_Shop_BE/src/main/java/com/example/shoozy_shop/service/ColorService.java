@@ -1,9 +1,12 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.config.CacheConfig;
 import com.example.shoozy_shop.exception.ResourceNotFoundException;
 import com.example.shoozy_shop.model.Color;
 import com.example.shoozy_shop.repository.ColorRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,16 +19,19 @@ public class ColorService implements IColorService {
     private final ColorRepository colorRepository;
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.COLORS, key = "'all'", sync = true)
     public List<Color> getAllColors() {
         return colorRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.COLORS, key = "'active'", sync = true)
     public List<Color> getActiveColors() {
         return colorRepository.findAllByStatusTrue();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.COLORS, key = "#id", sync = true)
     public Color getColorById(Long id) {
         return colorRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("color", id));
@@ -33,6 +39,7 @@ public class ColorService implements IColorService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COLORS, allEntries = true)
     public Color addColor(Color color) {
         if(colorRepository.existsByName(color.getName().toLowerCase())) {
             throw new IllegalArgumentException("Color " + color.getName() +" already exists!");
@@ -42,6 +49,7 @@ public class ColorService implements IColorService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.COLORS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Color updateColor(Long id, Color color) {
         Color existingColor = this.getColorById(id);
         existingColor.setName(color.getName());
@@ -51,6 +59,7 @@ public class ColorService implements IColorService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.COLORS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public void deleteColor(Long id) {
         Color existingColor = this.getColorById(id);
         existingColor.setStatus(false);
@@ -58,6 +67,7 @@ public class ColorService implements IColorService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.COLORS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Boolean restoreColor(Long id) {
         Color existingColor = this.getColorById(id);
         if(existingColor.getStatus()) {
@@ -430,17 +430,29 @@ public class CouponService implements ICouponService {
                     boolean inUseOrInvalidForUser = couponRepository.checkCouponInUse(coupon.getCode(), idUser);
                     return !inUseOrInvalidForUser;
                 })
-                .map(coupon -> CouponForOrderResponse.builder()
-                        .id(coupon.getId())
-                        .name(coupon.getName())
-                        .code(coupon.getCode())
-                        .type(coupon.getType())
-                        .condition(coupon.getCondition())
-                        .value(coupon.getValue())
-                        .valueLimit(coupon.getValueLimit())
-                        .status(coupon.getStatus())
-                        .build()
-                )
+                .map(CouponService::toCouponForOrder)
                 .toList();
     }
+
+    // Mã đang hoạt động mà user chưa dùng, chưa lọc theo giá trị đơn; báo giá thanh toán tra song song với giá sản phẩm
+    @Override
+    public List<CouponForOrderResponse> getUsableCoupons(Long idUser) {
+        return couponRepository.findAllByStatus(1).stream()
+                .filter(coupon -> !couponRepository.checkCouponInUse(coupon.getCode(), idUser))
+                .map(CouponService::toCouponForOrder)
+                .toList();
+    }
+
+    private static CouponForOrderResponse toCouponForOrder(Coupon coupon) {
+        return CouponForOrderResponse.builder()
+                .id(coupon.getId())
+                .name(coupon.getName())
+                .code(coupon.getCode())
+                .type(coupon.getType())
+                .condition(coupon.getCondition())
+                .value(coupon.getValue())
+                .valueLimit(coupon.getValueLimit())
+                .status(coupon.getStatus())
+                .build();
+    }
 }
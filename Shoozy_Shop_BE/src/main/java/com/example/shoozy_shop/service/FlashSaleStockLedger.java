@@ -0,0 +1,493 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.exception.ResourceNotFoundException;
+import com.example.shoozy_shop.model.ProductVariant;
+import com.example.shoozy_shop.repository.ProductVariantRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sổ tồn kho cho chế độ flash sale.
+ * - Biến thể bật chế độ này giữ số lượng khả dụng trong {@link StripedStockCounter}, nạp từ ProductVariant.quantity
+ * - Giữ hàng chỉ chạm bộ nhớ + ghi một dòng journal (fsync theo nhóm trước khi trả về), không khoá dòng product_variants
+ * - Cùng transaction của đơn hàng ghi một dấu (node_id, seq) vào flash_sale_reservations: dấu có nghĩa là đơn đã commit
+ * - Định kỳ gom các lượng trừ đã commit và ghi xuống DB theo batch (write-behind), cùng transaction xoá dấu tương ứng
+ * - Khi khởi động lại, chỉ phát lại dòng journal còn dấu trong DB; dòng của đơn chưa kịp commit bị bỏ qua
+ * Danh sách biến thể đang bật không được lưu lại: sau khi khởi động lại cần bật lại qua API.
+ * Bộ đếm chỉ nằm trong bộ nhớ của một tiến trình nên sổ chỉ chạy trên một node: lúc khởi động tiến trình giữ
+ * dòng flash_sale_owner bằng lease gia hạn định kỳ, nếu một tiến trình khác đang giữ thì khởi động lỗi.
+ * node-id phải cố định cho mỗi thư mục journal vì dấu commit được đối chiếu theo node-id khi khôi phục.
+ */
+@Slf4j
+@Service
+public class FlashSaleStockLedger {
+
+    private static final String ACTIVE_JOURNAL = "journal.log";
+    private static final String SEALED_PREFIX = "journal-";
+
+    private final ProductVariantRepository productVariantRepository;
+    private final ProductSortKeyService productSortKeyService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path journalDir;
+    private final int stripeCount;
+    private final String nodeId;
+    private final long leaseMs;
+    // Mỗi tiến trình một owner riêng, kể cả khi cấu hình trùng node-id
+    private final String owner;
+    private volatile boolean owned;
+
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    // Lượng đã trừ khỏi bộ đếm nhưng chưa ghi xuống DB (đơn đang chạy hoặc chờ flush), theo biến thể
+    private final Map<Long, Integer> unsettled = new ConcurrentHashMap<>();
+
+    // Các trường dưới đây được bảo vệ bởi journalLock
+    private final Object journalLock = new Object();
+    private final Map<Long, Integer> pending = new HashMap<>();
+    private final List<Long> pendingSeqs = new ArrayList<>();
+    private long journalSeq;
+    private FileChannel journal;
+
+    // Một luồng fsync cho cả nhóm dòng ghi trước nó (group commit)
+    private final Object syncLock = new Object();
+    private volatile long syncedSeq;
+
+    // seq đã giữ hàng nhưng chưa ghi xuống DB hoặc chưa trả lại: segment journal chứa chúng chưa được xoá
+    private final NavigableSet<Long> outstanding = new ConcurrentSkipListSet<>();
+
+    private final Object flushLock = new Object();
+
+    public FlashSaleStockLedger(ProductVariantRepository productVariantRepository,
+                                ProductSortKeyService productSortKeyService,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${app.flash-sale.journal-dir:flash-sale-journal}") String journalDir,
+                                @Value("${app.flash-sale.stripes:8}") int stripeCount,
+                                @Value("${app.flash-sale.node-id:default}") String nodeId,
+                                @Value("${app.flash-sale.lease-ms:30000}") long leaseMs) {
+        this.productVariantRepository = productVariantRepository;
+        this.productSortKeyService = productSortKeyService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.journalDir = Paths.get(journalDir);
+        this.stripeCount = stripeCount;
+        this.nodeId = nodeId;
+        this.leaseMs = leaseMs;
+        this.owner = nodeId + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        claimOwnership();
+        Files.createDirectories(journalDir);
+
+        // seq -> {variantId, quantity}
+        Map<Long, long[]> entries = new HashMap<>();
+        long maxSeq = 0;
+        List<Path> files = journalFiles();
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(";");
+                if (parts.length != 3) {
+                    continue; // dòng ghi dở khi tiến trình bị dừng
+                }
+                long seq = Long.parseLong(parts[0]);
+                entries.put(seq, new long[]{Long.parseLong(parts[1]), Long.parseLong(parts[2])});
+                maxSeq = Math.max(maxSeq, seq);
+            }
+        }
+
+        // Chỉ đơn đã commit mới để lại dấu; dòng journal không có dấu là đơn đã rollback hoặc chết giữa chừng
+        Map<Long, Integer> replay = new HashMap<>();
+        int replayed = 0;
+        List<Long> committed = jdbcTemplate.queryForList(
+                "SELECT seq FROM flash_sale_reservations WHERE node_id = ?", Long.class, nodeId);
+        for (Long seq : committed) {
+            long[] entry = entries.get(seq);
+            if (entry == null) {
+                log.error("Flash sale reservation seq {} has no journal entry, stock of its order was not replayed", seq);
+                continue;
+            }
+            replay.merge(entry[0], (int) entry[1], Integer::sum);
+            replayed++;
+            maxSeq = Math.max(maxSeq, seq);
+        }
+
+        if (!committed.isEmpty()) {
+            applyBatch(replay, committed);
+            log.info("Flash sale journal replayed {} committed reservations ({} variants), skipped {} uncommitted",
+                    replayed, replay.size(), entries.size() - replayed);
+        }
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+
+        journalSeq = maxSeq;
+        syncedSeq = maxSeq;
+        journal = openActiveJournal();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flush();
+        synchronized (journalLock) {
+            journal.close();
+        }
+        // Trả lease ngay để tiến trình thay thế khởi động được, không phải đợi hết hạn
+        owned = false;
+        jdbcTemplate.update("DELETE FROM flash_sale_owner WHERE id = 1 AND owner = ?", owner);
+    }
+
+    /**
+     * Gia hạn lease. Mất lease (tiến trình bị treo quá lease-ms và node khác đã nhận) thì ngừng giữ hàng,
+     * phần đã commit vẫn được flush xuống DB.
+     */
+    @Scheduled(fixedDelayString = "${app.flash-sale.heartbeat-ms:10000}")
+    public void renewOwnership() {
+        if (!owned) {
+            return;
+        }
+        int renewed = jdbcTemplate.update("""
+                UPDATE flash_sale_owner SET lease_until = DATEADD(millisecond, ?, SYSUTCDATETIME())
+                WHERE id = 1 AND owner = ?""", leaseMs, owner);
+        if (renewed == 0) {
+            owned = false;
+            counters.clear();
+            log.error("Flash sale ledger lost ownership to another node, flash sale mode disabled on {}", owner);
+        }
+    }
+
+    // Nhận dòng flash_sale_owner nếu chưa ai giữ hoặc lease của tiến trình trước đã hết hạn
+    private void claimOwnership() {
+        int claimed = jdbcTemplate.update("""
+                UPDATE flash_sale_owner
+                SET node_id = ?, owner = ?, lease_until = DATEADD(millisecond, ?, SYSUTCDATETIME())
+                WHERE id = 1 AND lease_until < SYSUTCDATETIME()""", nodeId, owner, leaseMs);
+        if (claimed == 0) {
+            try {
+                claimed = jdbcTemplate.update("""
+                        INSERT INTO flash_sale_owner (id, node_id, owner, lease_until)
+                        SELECT 1, ?, ?, DATEADD(millisecond, ?, SYSUTCDATETIME())
+                        WHERE NOT EXISTS (SELECT 1 FROM flash_sale_owner WHERE id = 1)""", nodeId, owner, leaseMs);
+            } catch (DataIntegrityViolationException e) {
+                claimed = 0; // tiến trình khác vừa chèn cùng lúc
+            }
+        }
+        if (claimed == 0) {
+            throw new IllegalStateException("Sổ tồn kho flash sale đang do node khác giữ (bảng flash_sale_owner), "
+                    + "chỉ được chạy một node có flash sale");
+        }
+        owned = true;
+        log.info("Flash sale ledger owned by {}", owner);
+    }
+
+    /**
+     * Bật chế độ flash sale cho biến thể: nạp tồn kho hiện tại từ DB vào bộ đếm.
+     */
+    public int enable(Long variantId) {
+        checkOwned();
+        flush();
+        StripedStockCounter counter;
+        // Đọc DB và lượng chưa ghi trong cùng flushLock để một lần flush không chen vào giữa hai lần đọc
+        synchronized (flushLock) {
+            counter = counters.computeIfAbsent(variantId, id -> {
+                ProductVariant pv = productVariantRepository.findById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("product variant", id));
+                int quantity = pv.getQuantity() == null ? 0 : pv.getQuantity();
+                // Đơn giữ hàng từ lần bật trước chưa commit hoặc chưa flush: DB chưa trừ nhưng hàng đã bán
+                return new StripedStockCounter(Math.max(0, quantity - unsettled.getOrDefault(id, 0)), stripeCount);
+            });
+        }
+        return counter.available();
+    }
+
+    /**
+     * Tắt chế độ flash sale: ghi hết phần còn treo xuống DB, từ đó DB lại là nguồn tồn kho duy nhất.
+     */
+    public void disable(Long variantId) {
+        counters.remove(variantId);
+        flush();
+    }
+
+    public boolean isManaged(Long variantId) {
+        return counters.containsKey(variantId);
+    }
+
+    public Set<Long> managedVariantIds() {
+        return Set.copyOf(counters.keySet());
+    }
+
+    /**
+     * @return số lượng khả dụng trong sổ, hoặc null nếu biến thể không ở chế độ flash sale
+     */
+    public Integer available(Long variantId) {
+        StripedStockCounter counter = counters.get(variantId);
+        return counter != null ? counter.available() : null;
+    }
+
+    /**
+     * Giữ hàng cho biến thể đang ở chế độ flash sale, gọi trong transaction của đơn hàng.
+     * Dòng journal đã nằm trên đĩa khi hàm trả về; dấu commit được ghi cùng transaction đó.
+     * Nếu transaction rollback, lượng đã giữ được trả lại và dòng journal bị bỏ qua khi khôi phục.
+     */
+    public boolean tryReserve(Long variantId, int quantity) {
+        checkOwned();
+        StripedStockCounter counter = counters.get(variantId);
+        if (counter == null) {
+            throw new IllegalStateException("Biến thể " + variantId + " không ở chế độ flash sale");
+        }
+        if (!counter.tryTake(quantity)) {
+            return false;
+        }
+        settle(variantId, quantity);
+        long seq;
+        try {
+            seq = append(variantId, quantity);
+        } catch (RuntimeException e) {
+            counter.add(quantity);
+            settle(variantId, -quantity);
+            throw e;
+        }
+        try {
+            syncUpTo(seq);
+            jdbcTemplate.update("INSERT INTO flash_sale_reservations (node_id, seq) VALUES (?, ?)", nodeId, seq);
+        } catch (RuntimeException e) {
+            release(seq, variantId, quantity);
+            throw e;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        committed(seq, variantId, quantity);
+                    } else {
+                        release(seq, variantId, quantity);
+                    }
+                }
+            });
+        } else {
+            committed(seq, variantId, quantity);
+        }
+        return true;
+    }
+
+    /**
+     * Cộng lại bộ đếm khi hàng được hoàn kho (huỷ đơn, trả hàng). Nơi gọi đã cộng DB bằng UPDATE tương đối
+     * ({@code ProductVariantRepository.addQuantity}), nên chỉ cộng vào bộ nhớ sau khi transaction đó commit.
+     */
+    public void restock(Long variantId, int quantity) {
+        if (!isManaged(variantId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    StripedStockCounter counter = counters.get(variantId);
+                    if (counter != null) {
+                        counter.add(quantity);
+                    }
+                }
+            });
+        } else {
+            counters.get(variantId).add(quantity);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.flash-sale.flush-interval-ms:500}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, Integer> batch;
+            List<Long> seqs;
+            long sealedSeq;
+            synchronized (journalLock) {
+                if (pendingSeqs.isEmpty()) {
+                    return;
+                }
+                batch = new HashMap<>(pending);
+                seqs = new ArrayList<>(pendingSeqs);
+                pending.clear();
+                pendingSeqs.clear();
+                sealedSeq = journalSeq;
+                sealActiveJournal(sealedSeq);
+            }
+
+            try {
+                applyBatch(batch, seqs);
+                batch.forEach((id, delta) -> settle(id, -delta));
+                seqs.forEach(outstanding::remove);
+                deleteSettledSegments();
+            } catch (RuntimeException e) {
+                // Giữ lại để lần flush sau ghi tiếp; segment journal cũng chưa bị xoá
+                synchronized (journalLock) {
+                    batch.forEach((id, delta) -> pending.merge(id, delta, Integer::sum));
+                    pendingSeqs.addAll(seqs);
+                }
+                log.error("Flash sale flush failed, will retry", e);
+            }
+        }
+    }
+
+    private void committed(long seq, Long variantId, int quantity) {
+        synchronized (journalLock) {
+            pending.merge(variantId, quantity, Integer::sum);
+            pendingSeqs.add(seq);
+        }
+    }
+
+    // Trả vào bộ đếm hiện tại của biến thể: nếu biến thể vừa được bật lại, bộ đếm mới đã trừ sẵn lượng này
+    private void release(long seq, Long variantId, int quantity) {
+        StripedStockCounter counter = counters.get(variantId);
+        if (counter != null) {
+            counter.add(quantity);
+        }
+        settle(variantId, -quantity);
+        outstanding.remove(seq);
+    }
+
+    private void settle(Long variantId, int delta) {
+        unsettled.merge(variantId, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private void checkOwned() {
+        if (!owned) {
+            throw new IllegalStateException("Node này không giữ sổ tồn kho flash sale");
+        }
+    }
+
+    private long append(Long variantId, int quantity) {
+        synchronized (journalLock) {
+            long seq = journalSeq + 1;
+            byte[] line = (seq + ";" + variantId + ";" + quantity + "\n").getBytes(StandardCharsets.UTF_8);
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Không ghi được journal flash sale", e);
+            }
+            journalSeq = seq;
+            outstanding.add(seq);
+            return seq;
+        }
+    }
+
+    // Luồng đầu tiên vào fsync hộ mọi dòng đã ghi trước đó, các luồng đến sau thấy syncedSeq đủ thì trả về ngay
+    private void syncUpTo(long seq) {
+        if (syncedSeq >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSeq >= seq) {
+                return;
+            }
+            FileChannel channel;
+            long target;
+            synchronized (journalLock) {
+                channel = journal;
+                target = journalSeq;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // Segment vừa bị flush() đóng lại, sealActiveJournal đã force trước khi đóng
+            } catch (IOException e) {
+                throw new UncheckedIOException("Không fsync được journal flash sale", e);
+            }
+            syncedSeq = target;
+        }
+    }
+
+    private void applyBatch(Map<Long, Integer> batch, List<Long> seqs) {
+        List<Object[]> args = new ArrayList<>();
+        Map<Long, Integer> stockDelta = new HashMap<>();
+        batch.forEach((id, delta) -> {
+            if (delta != 0) {
+                args.add(new Object[]{delta, id});
+                stockDelta.put(id, -delta);
+            }
+        });
+        List<Object[]> markers = seqs.stream().map(seq -> new Object[]{nodeId, seq}).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!args.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE product_variants SET quantity = quantity - ? WHERE id = ?", args);
+                productSortKeyService.adjustStock(stockDelta);
+            }
+            jdbcTemplate.batchUpdate("DELETE FROM flash_sale_reservations WHERE node_id = ? AND seq = ?", markers);
+        });
+    }
+
+    // Đóng journal hiện tại thành segment "journal-<seq>.log" và mở journal mới
+    private void sealActiveJournal(long upToSeq) {
+        try {
+            journal.force(false);
+            journal.close();
+            Files.move(journalDir.resolve(ACTIVE_JOURNAL), journalDir.resolve(SEALED_PREFIX + upToSeq + ".log"));
+            journal = openActiveJournal();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không xoay vòng được journal flash sale", e);
+        }
+    }
+
+    // Segment chỉ được xoá khi mọi dòng trong nó đã ghi xuống DB hoặc đã trả lại (đơn rollback)
+    private void deleteSettledSegments() {
+        Long oldest = outstanding.ceiling(Long.MIN_VALUE);
+        try (DirectoryStream<Path> sealed = Files.newDirectoryStream(journalDir, SEALED_PREFIX + "*.log")) {
+            for (Path file : sealed) {
+                String name = file.getFileName().toString();
+                long seq = Long.parseLong(name.substring(SEALED_PREFIX.length(), name.length() - 4));
+                if (oldest == null || seq < oldest) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete settled flash sale journal segments", e);
+        }
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(journalDir, "journal*.log")) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    private FileChannel openActiveJournal() throws IOException {
+        return FileChannel.open(journalDir.resolve(ACTIVE_JOURNAL),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
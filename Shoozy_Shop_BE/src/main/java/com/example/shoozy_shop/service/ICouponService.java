@@ -22,4 +22,5 @@ public interface ICouponService {
     void updateCouponStatus(Long id) throws Exception;
     CouponForOrderResponse getCouponForOrder(String codeCoupon,Long idUser) throws Exception;
     List<CouponForOrderResponse> getAllCouponForOrder(Long idUser, BigDecimal moneyOrder) throws Exception;
+    List<CouponForOrderResponse> getUsableCoupons(Long idUser);
 }
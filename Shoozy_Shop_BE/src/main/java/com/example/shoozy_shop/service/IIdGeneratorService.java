@@ -0,0 +1,11 @@
+package com.example.shoozy_shop.service;
+
+public interface IIdGeneratorService {
+    String nextOrderCode();
+
+    String nextSku();
+
+    String nextTransactionCode(String prefix);
+
+    String nextPromotionCode();
+}
@@ -1,18 +1,23 @@
 package com.example.shoozy_shop.service;
 
 import com.example.shoozy_shop.dto.request.OrderRequest;
+import com.example.shoozy_shop.dto.request.OrderSearchRequest;
 import com.example.shoozy_shop.dto.request.StatusOrderRequest;
 import com.example.shoozy_shop.dto.request.UpdateUserOrderInfoRequest;
+import com.example.shoozy_shop.dto.response.CursorPageResponse;
+import com.example.shoozy_shop.dto.response.OrderListItemResponse;
 import com.example.shoozy_shop.dto.response.OrderResponse;
 import com.example.shoozy_shop.dto.response.OrderStatusStatisticsDto;
+import com.example.shoozy_shop.dto.response.ReturnableItemDto;
 import com.example.shoozy_shop.model.Order;
-import com.example.shoozy_shop.model.OrderDetail;
 
 import java.util.List;
 
 public interface IOrderService {
     List<Order> getAllOrders();
 
+    CursorPageResponse<OrderListItemResponse> getOrderPage(OrderSearchRequest request);
+
     Order addOrder(OrderRequest orderRequest);
 
     Order updateOrder(Long id, OrderRequest orderRequest);
@@ -29,5 +34,5 @@ public interface IOrderService {
 
     List<OrderResponse> getAllOrderByUserId(Long userId);
 
-    List<OrderDetail> getReturnableItems(Long orderId, Long userId);
+    List<ReturnableItemDto> getReturnableItems(Long orderId, Long userId);
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.dto.request.CatalogFilterRequest;
 import com.example.shoozy_shop.dto.request.ProductRequest;
 import com.example.shoozy_shop.dto.response.*;
 import com.example.shoozy_shop.model.Product;
@@ -11,9 +12,11 @@ import java.util.List;
 
 public interface IProducService {
     // List<ProductResponse> getAllProducts();
-    Page<ProductResponse> searchProductByQueryBuilder(String keyword, List<Long> brandIds, List<Long> categoryIds,
+    Page<ProductCardResponse> searchProductByQueryBuilder(String keyword, String q, List<Long> brandIds, List<Long> categoryIds,
                                                       Double minPrice, Double maxPrice, List<Long> sizeIds, List<Long> colorIds, List<Long> materialIds,
-                                                      String gender, Boolean status, Integer pageNo, Integer pageSize, String sortBy, String sortDirection);
+                                                      String gender, Boolean status, Boolean inStock, Integer pageNo, Integer pageSize, String sortBy, String sortDirection);
+    CatalogFacetResponse getCatalogFacets(CatalogFilterRequest filter);
+    List<SuggestionResponse> suggest(String q, int limit);
     ProductResponse getProductById(Long id);
     Product addProduct(ProductRequest productRequest);
     Product updateProduct(Long id, ProductRequest productRequest);
@@ -21,6 +24,7 @@ public interface IProducService {
     boolean existsProductByName(String name);
     List<ProductResponseForPromotion> getAllActiveProductsForPromotion(List<Long> productIds);
     List<ProductResponse> getProductsByCategoryId(Long categoryId, Long productId);
+    List<ProductCardResponse> getRelatedProducts(Long productId, int limit);
     List<TopSellingProductResponse> getTopSellingProducts(String filterType);
     List<LowStockProductResponse> findLowStockProducts();
     Page<ProductPromotionResponse> getProductPromotionPage(String productName, Long categoryId, Pageable pageable);
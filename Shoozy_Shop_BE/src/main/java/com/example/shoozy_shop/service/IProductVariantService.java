@@ -2,7 +2,9 @@ package com.example.shoozy_shop.service;
 
 import com.example.shoozy_shop.dto.request.ProductVariantAddRequest;
 import com.example.shoozy_shop.dto.request.ProductVariantUpdateRequest;
+import com.example.shoozy_shop.dto.request.VariantBulkUpdateRequest;
 import com.example.shoozy_shop.dto.response.ProductVariantResponse;
+import com.example.shoozy_shop.dto.response.VariantBulkUpdateResponse;
 import com.example.shoozy_shop.model.ProductVariant;
 
 import java.util.List;
@@ -13,4 +15,5 @@ public interface IProductVariantService {
     ProductVariant addProductVariant(ProductVariantAddRequest productVariantRequest);
     ProductVariant updateProductVariant(Long id, ProductVariantUpdateRequest productVariantUpdateRequest);
     void deleteProductVariant(Long id);
+    VariantBulkUpdateResponse bulkUpdate(VariantBulkUpdateRequest request);
 }
@@ -0,0 +1,90 @@
+package com.example.shoozy_shop.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sinh mã (đơn hàng, SKU, giao dịch, khuyến mãi) không cần truy vấn kiểm tra trùng.
+ * Mỗi node thuê một khối {@link #BLOCK_SIZE} giá trị từ SEQUENCE của DB rồi cấp phát dần trong bộ nhớ,
+ * nên chỉ chạm DB một lần cho mỗi khối và các node không bao giờ cấp trùng giá trị.
+ * Độ dài mã mới luôn khác mã cũ (sinh ngẫu nhiên) nên không thể trùng với dữ liệu cũ.
+ */
+@Service
+public class IdGeneratorService implements IIdGeneratorService {
+
+    // Phải khớp với INCREMENT BY của các sequence seq_*_code trong script DB
+    static final int BLOCK_SIZE = 100;
+
+    static final String ORDER_SEQUENCE = "seq_order_code";
+    static final String SKU_SEQUENCE = "seq_product_sku";
+    static final String TRANSACTION_SEQUENCE = "seq_transaction_code";
+    static final String PROMOTION_SEQUENCE = "seq_promotion_code";
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyMMdd");
+    private static final DateTimeFormatter SECOND = DateTimeFormatter.ofPattern("yyMMddHHmmss");
+
+    private final ToLongFunction<String> sequenceSource;
+    private final Map<String, SequenceBlock> blocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdGeneratorService(JdbcTemplate jdbcTemplate) {
+        this(sequence -> jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class));
+    }
+
+    IdGeneratorService(ToLongFunction<String> sequenceSource) {
+        this.sequenceSource = sequenceSource;
+    }
+
+    @Override
+    public String nextOrderCode() {
+        // ví dụ: HD2508150000123 (mã cũ: HD250815042)
+        return String.format("HD%s%07d", LocalDateTime.now().format(DAY), next(ORDER_SEQUENCE));
+    }
+
+    @Override
+    public String nextSku() {
+        // sequence bắt đầu từ 1.000.000 nên luôn dài hơn SKU cũ SP + 6 số (cột sku NVARCHAR(10))
+        return "SP" + next(SKU_SEQUENCE);
+    }
+
+    @Override
+    public String nextTransactionCode(String prefix) {
+        // ví dụ: COD250815101530000123 (mã cũ: COD250815101530123)
+        return String.format("%s%s%06d", prefix, LocalDateTime.now().format(SECOND), next(TRANSACTION_SEQUENCE));
+    }
+
+    @Override
+    public String nextPromotionCode() {
+        // ví dụ: SHOOZY00042 (mã cũ: SHOOZY + 4 ký tự hex)
+        return String.format("SHOOZY%05d", next(PROMOTION_SEQUENCE));
+    }
+
+    long next(String sequence) {
+        return blocks.computeIfAbsent(sequence, SequenceBlock::new).next();
+    }
+
+    private final class SequenceBlock {
+        private final String sequence;
+        private long nextValue;
+        private long endExclusive;
+
+        private SequenceBlock(String sequence) {
+            this.sequence = sequence;
+        }
+
+        private synchronized long next() {
+            if (nextValue >= endExclusive) {
+                nextValue = sequenceSource.applyAsLong(sequence);
+                endExclusive = nextValue + BLOCK_SIZE;
+            }
+            return nextValue++;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.shoozy_shop.service;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Chỉ bật khi app.websocket.cluster.mode=KAFKA.
+ * Mỗi tiến trình dùng một consumer group riêng "ws-fanout-<node-id>:<hậu tố ngẫu nhiên>" (như lease owner của
+ * {@link OutboxRelay}) để node nào cũng nhận đủ mọi message, kể cả khi các node để trùng node-id hoặc để mặc định.
+ * Group của tiến trình đã tắt không còn consumer, offset của nó bị broker dọn theo offsets.retention.minutes.
+ * Khi được gán partition thì nhảy tới offset mới nhất, bỏ qua phần tồn đọng lúc node tắt,
+ * vì message cũ không còn ý nghĩa với client đang kết nối.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.cluster.mode", havingValue = "KAFKA")
+public class KafkaBroadcastListener implements ConsumerSeekAware {
+
+    private final ClusterBroadcaster clusterBroadcaster;
+    private final String groupId;
+
+    public KafkaBroadcastListener(ClusterBroadcaster clusterBroadcaster,
+                                  @Value("${app.websocket.cluster.node-id:default}") String nodeId) {
+        this.clusterBroadcaster = clusterBroadcaster;
+        this.groupId = "ws-fanout-" + nodeId + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    @KafkaListener(
+            topics = "${app.websocket.cluster.topic:shoozy.ws-broadcast}",
+            groupId = "#{__listener.groupId}",
+            properties = "auto.offset.reset=latest",
+            concurrency = "1")
+    public void onMessage(String json) {
+        clusterBroadcaster.deliver(json);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+}
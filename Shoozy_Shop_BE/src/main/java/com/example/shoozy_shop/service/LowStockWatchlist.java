@@ -0,0 +1,227 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.LowStockProductResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Danh sách sản phẩm sắp hết hàng giữ trong bộ nhớ, dựa trên cột products.total_stock
+ * mà {@link ProductSortKeyService} đã cập nhật trong cùng transaction với mọi thay đổi tồn kho
+ * (đặt hàng, huỷ/hoàn kho, trả hàng, sửa biến thể) - không còn GROUP BY trên product_variants mỗi lần xem.
+ * - Ngưỡng mặc định app.low-stock.threshold, ghi đè theo danh mục bằng app.low-stock.category-thresholds
+ *   dạng "idDanhMục:ngưỡng,..."
+ * - Sau mỗi {@link CatalogIndexUpdater.ProductChangedEvent} đọc lại đúng các sản phẩm bị ảnh hưởng;
+ *   sản phẩm vào/rời/đổi tồn trong danh sách được đẩy tới admin qua /topic/admin/refresh (type "low-stock")
+ * - Dựng lại định kỳ (app.low-stock.rebuild-interval-ms) để bắt kịp thay đổi từ node khác hoặc sửa tay trong DB
+ * - Mỗi lần đọc DB lấy số thứ tự trước khi truy vấn; kết quả của lần đọc cũ hơn không ghi đè sản phẩm
+ *   đã được áp từ lần đọc mới hơn, dù hai lần áp tới theo thứ tự nào
+ */
+@Slf4j
+@Component
+public class LowStockWatchlist {
+
+    public static final String ADDED = "ADDED";
+    public static final String UPDATED = "UPDATED";
+    public static final String REMOVED = "REMOVED";
+
+    // Giống truy vấn GROUP BY cũ: sản phẩm chưa có biến thể đang bán không tính là sắp hết hàng
+    private static final String PRODUCT_COLUMNS = """
+            SELECT p.id, p.name, p.thumbnail, p.category_id, p.total_stock,
+                   CASE WHEN p.status = 1 AND EXISTS (SELECT 1 FROM product_variants pv
+                                                      WHERE pv.product_id = p.id AND pv.status = 1)
+                        THEN 1 ELSE 0 END AS active
+            FROM products p
+            """;
+
+    private static final Comparator<LowStockProductResponse> ORDER =
+            Comparator.comparing(LowStockProductResponse::getTotalQuantity)
+                    .thenComparing(LowStockProductResponse::getProductId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WebSocketService webSocketService;
+    private final int defaultThreshold;
+    private final Map<Long, Integer> categoryThresholds;
+
+    private final Map<Long, LowStockProductResponse> entries = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    private final AtomicLong reads = new AtomicLong();
+    // Lần đọc đã áp cho từng sản phẩm, chỉ giữ các lần mới hơn lần dựng lại gần nhất (rebuiltAt); truy cập trong apply
+    private final Map<Long, Long> appliedReads = new HashMap<>();
+    private long rebuiltAt;
+
+    public LowStockWatchlist(JdbcTemplate jdbcTemplate, WebSocketService webSocketService,
+                             @Value("${app.low-stock.threshold:10}") int defaultThreshold,
+                             @Value("${app.low-stock.category-thresholds:}") String categoryThresholds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.webSocketService = webSocketService;
+        this.defaultThreshold = defaultThreshold;
+        this.categoryThresholds = parseThresholds(categoryThresholds);
+    }
+
+    record StockRow(long id, String name, String thumbnail, Long categoryId, boolean active, long totalStock) {
+    }
+
+    /**
+     * Sản phẩm đang bán có tổng tồn dưới ngưỡng, tồn ít nhất trước.
+     * Lần gọi đầu trước khi dựng xong thì dựng ngay, không trả danh sách rỗng.
+     */
+    public List<LowStockProductResponse> list() {
+        if (!ready) {
+            rebuild();
+        }
+        return entries.values().stream().sorted(ORDER).toList();
+    }
+
+    public int thresholdOf(Long categoryId) {
+        return categoryId == null ? defaultThreshold : categoryThresholds.getOrDefault(categoryId, defaultThreshold);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${app.low-stock.rebuild-interval-ms:600000}",
+            fixedDelayString = "${app.low-stock.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            long read = startRead();
+            List<StockRow> rows = jdbcTemplate.query(PRODUCT_COLUMNS, (rs, i) -> mapRow(rs));
+            Set<Long> scope = new HashSet<>(entries.keySet());
+            rows.forEach(r -> scope.add(r.id()));
+            apply(rows, scope, read, true);
+            log.info("Low-stock watchlist built: {} of {} products in {} ms",
+                    entries.size(), rows.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Low-stock watchlist build failed", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogIndexUpdater.ProductChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        try {
+            List<Object> args = new ArrayList<>();
+            List<String> conditions = new ArrayList<>();
+            if (!event.productIds().isEmpty()) {
+                conditions.add("p.id IN (" + placeholders(event.productIds().size()) + ")");
+                args.addAll(event.productIds());
+            }
+            if (!event.variantIds().isEmpty()) {
+                conditions.add("p.id IN (SELECT product_id FROM product_variants WHERE id IN ("
+                        + placeholders(event.variantIds().size()) + "))");
+                args.addAll(event.variantIds());
+            }
+            if (conditions.isEmpty()) {
+                return;
+            }
+            long read = startRead();
+            List<StockRow> rows = jdbcTemplate.query(PRODUCT_COLUMNS + " WHERE " + String.join(" OR ", conditions),
+                    (rs, i) -> mapRow(rs), args.toArray());
+            // Sản phẩm bị xoá khỏi DB không còn dòng nào: vẫn xét lại để rời danh sách
+            Set<Long> scope = new HashSet<>(event.productIds());
+            rows.forEach(r -> scope.add(r.id()));
+            apply(rows, scope, read, false);
+        } catch (RuntimeException e) {
+            // Lần dựng lại định kỳ sẽ sửa phần lệch
+            log.error("Low-stock watchlist update failed for {}", event, e);
+        }
+    }
+
+    /**
+     * So từng sản phẩm trong scope với danh sách hiện tại và đẩy phần thay đổi cho admin.
+     * Lần dựng đầu tiên không đẩy gì vì chưa client nào có danh sách cũ.
+     * Đồng bộ để hai lần cập nhật sau commit chạy song song không ghi đè kết quả của nhau;
+     * sản phẩm đã được áp từ lần đọc bắt đầu sau {@code read} thì bỏ qua vì dữ liệu ở đây cũ hơn.
+     * {@code full}: lần dựng lại đọc mọi sản phẩm, từ đó mọi lần đọc bắt đầu trước nó đều cũ hơn.
+     */
+    synchronized void apply(Collection<StockRow> rows, Set<Long> scope, long read, boolean full) {
+        Map<Long, StockRow> byId = new HashMap<>();
+        rows.forEach(r -> byId.put(r.id(), r));
+        boolean notify = ready;
+        for (Long productId : scope) {
+            if (appliedReads.getOrDefault(productId, rebuiltAt) > read) {
+                continue;
+            }
+            appliedReads.put(productId, read);
+            StockRow row = byId.get(productId);
+            LowStockProductResponse previous = entries.get(productId);
+            LowStockProductResponse current = row != null && row.active()
+                    && row.totalStock() < thresholdOf(row.categoryId()) ? toResponse(row) : null;
+            if (current == null) {
+                if (previous != null) {
+                    entries.remove(productId);
+                    if (notify) {
+                        webSocketService.broadcastLowStock(previous, REMOVED);
+                    }
+                }
+            } else if (!current.equals(previous)) {
+                entries.put(productId, current);
+                if (notify) {
+                    webSocketService.broadcastLowStock(current, previous == null ? ADDED : UPDATED);
+                }
+            }
+        }
+        if (full && read > rebuiltAt) {
+            rebuiltAt = read;
+            appliedReads.values().removeIf(applied -> applied <= read);
+        }
+        ready = true;
+    }
+
+    // Lấy trước khi truy vấn: lần đọc có số lớn hơn bắt đầu sau nên thấy mọi commit mà lần nhỏ hơn thấy
+    long startRead() {
+        return reads.incrementAndGet();
+    }
+
+    private LowStockProductResponse toResponse(StockRow row) {
+        return new LowStockProductResponse(row.id(), row.name(), row.thumbnail(), row.totalStock(),
+                thresholdOf(row.categoryId()));
+    }
+
+    private static StockRow mapRow(ResultSet rs) throws SQLException {
+        return new StockRow(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("thumbnail"),
+                rs.getObject("category_id", Long.class),
+                rs.getBoolean("active"),
+                rs.getLong("total_stock"));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    static Map<Long, Integer> parseThresholds(String value) {
+        Map<Long, Integer> thresholds = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return thresholds;
+        }
+        for (String pair : value.split(",")) {
+            String[] parts = pair.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("app.low-stock.category-thresholds không hợp lệ: " + pair);
+            }
+            thresholds.put(Long.parseLong(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return thresholds;
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.config.CacheConfig;
 import com.example.shoozy_shop.exception.ResourceNotFoundException;
 import com.example.shoozy_shop.model.Material;
 import com.example.shoozy_shop.model.Size;
 import com.example.shoozy_shop.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import org.eclipse.tags.shaded.org.apache.regexp.RE;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,16 +22,19 @@ public class MaterialService implements IMaterialService {
     private final MaterialRepository materialRepository;
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.MATERIALS, key = "'all'", sync = true)
     public List<Material> getAllMaterials() {
         return materialRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.MATERIALS, key = "'active'", sync = true)
     public List<Material> getActiveMaterials() {
         return materialRepository.getAllByStatusTrue();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.MATERIALS, key = "#id", sync = true)
     public Material getMaterialById(Long id) {
         return materialRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("material",id));
@@ -36,6 +42,7 @@ public class MaterialService implements IMaterialService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.MATERIALS, allEntries = true)
     public Material addMaterial(Material material) {
         if(materialRepository.existsByName(material.getName().toLowerCase())) {
             throw  new IllegalArgumentException("Material with name +" + material.getName() + "  already exists!");
@@ -46,6 +53,7 @@ public class MaterialService implements IMaterialService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = {CacheConfig.MATERIALS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Material updateMaterial(Long id, Material material) {
         Material existingMaterial = this.getMaterialById(id);
         existingMaterial.setName(material.getName());
@@ -55,6 +63,7 @@ public class MaterialService implements IMaterialService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.MATERIALS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public void deleteMaterial(Long id) {
         Material existingMaterial = this.getMaterialById(id);
         existingMaterial.setStatus(false);
@@ -62,6 +71,7 @@ public class MaterialService implements IMaterialService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.MATERIALS, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Boolean restoreMaterial(Long id) {
         Optional<Material> optional = materialRepository.findById(id);
         if (optional.isPresent()) {
@@ -0,0 +1,100 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.OrderDetailResponse;
+import com.example.shoozy_shop.dto.response.ReturnableItemDto;
+import com.example.shoozy_shop.enums.ReturnStatus;
+import com.example.shoozy_shop.model.Order;
+import com.example.shoozy_shop.model.OrderDetail;
+import com.example.shoozy_shop.model.ProductVariant;
+import com.example.shoozy_shop.model.Review;
+import com.example.shoozy_shop.repository.ReturnItemRepository;
+import com.example.shoozy_shop.repository.ReviewRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Dựng danh sách dòng đơn cho response bằng số truy vấn cố định:
+ * gom tất cả orderDetailId, lấy số lượng đã hoàn và review bằng một truy vấn gom nhóm mỗi loại,
+ * rồi ghép DTO từ map thay vì truy vấn theo từng dòng.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderDetailBatchLoader {
+
+    private final ReturnItemRepository returnItemRepository;
+    private final ReviewRepository reviewRepository;
+
+    public List<OrderDetailResponse> load(Order order) {
+        return loadAll(List.of(order)).get(order.getId());
+    }
+
+    /**
+     * @return map orderId -> danh sách dòng đơn (null nếu đơn không có orderDetails)
+     */
+    public Map<Long, List<OrderDetailResponse>> loadAll(Collection<Order> orders) {
+        List<Long> detailIds = new ArrayList<>();
+        Map<Long, List<Long>> detailIdsByUser = new HashMap<>();
+        for (Order order : orders) {
+            if (order.getOrderDetails() == null) {
+                continue;
+            }
+            for (OrderDetail od : order.getOrderDetails()) {
+                detailIds.add(od.getId());
+                detailIdsByUser.computeIfAbsent(order.getUser().getId(), k -> new ArrayList<>()).add(od.getId());
+            }
+        }
+
+        Map<Long, Integer> refunded = detailIds.isEmpty()
+                ? Map.of()
+                : toQuantityMap(returnItemRepository.sumQuantityByOrderDetailIdsAndStatus(detailIds, ReturnStatus.REFUNDED));
+
+        // Review đầu tiên của người mua cho từng dòng đơn (một truy vấn cho mỗi người mua)
+        Map<Long, Review> reviews = new HashMap<>();
+        detailIdsByUser.forEach((userId, ids) -> reviewRepository.findByUserIdAndOrderDetailIdIn(userId, ids)
+                .forEach(r -> reviews.putIfAbsent(r.getOrderDetail().getId(), r)));
+
+        Map<Long, List<OrderDetailResponse>> result = new HashMap<>();
+        for (Order order : orders) {
+            result.put(order.getId(), order.getOrderDetails() == null ? null : order.getOrderDetails().stream()
+                    .map(od -> OrderDetailResponse.fromEntity(od, reviews.get(od.getId()),
+                            refunded.getOrDefault(od.getId(), 0)))
+                    .toList());
+        }
+        return result;
+    }
+
+    /**
+     * Các dòng đơn còn có thể trả, kèm số lượng còn lại (đã trừ mọi yêu cầu trả trước đó).
+     */
+    public List<ReturnableItemDto> loadReturnable(Collection<OrderDetail> details) {
+        if (details.isEmpty()) {
+            return List.of();
+        }
+        List<Long> detailIds = details.stream().map(OrderDetail::getId).toList();
+        Map<Long, Integer> returned = toQuantityMap(returnItemRepository.sumQuantityByOrderDetailIds(detailIds));
+
+        return details.stream()
+                .filter(od -> returned.getOrDefault(od.getId(), 0) < od.getQuantity())
+                .map(od -> {
+                    ProductVariant pv = od.getProductVariant();
+                    return new ReturnableItemDto(
+                            od.getId(),
+                            od.getQuantity() - returned.getOrDefault(od.getId(), 0),
+                            pv.getThumbnail(),
+                            pv.getColor().getName(),
+                            pv.getSize().getValue(),
+                            pv.getProduct().getName());
+                })
+                .toList();
+    }
+
+    private Map<Long, Integer> toQuantityMap(List<Object[]> rows) {
+        Map<Long, Integer> map = new HashMap<>();
+        for (Object[] row : rows) {
+            map.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return map;
+    }
+}
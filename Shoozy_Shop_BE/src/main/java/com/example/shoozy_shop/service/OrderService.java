@@ -1,40 +1,39 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.dto.event.OrderEventPayload;
 import com.example.shoozy_shop.dto.request.*;
+import com.example.shoozy_shop.dto.response.CursorPageResponse;
+import com.example.shoozy_shop.dto.response.OrderListItemResponse;
 import com.example.shoozy_shop.dto.response.OrderResponse;
 import com.example.shoozy_shop.dto.response.OrderStatusStatisticsDto;
+import com.example.shoozy_shop.dto.response.ReturnableItemDto;
 import com.example.shoozy_shop.exception.CouponException;
 import com.example.shoozy_shop.exception.ForbiddenException;
-import com.example.shoozy_shop.exception.OutOfStockException;
 import com.example.shoozy_shop.exception.ResourceNotFoundException;
 import com.example.shoozy_shop.model.*;
 import com.example.shoozy_shop.repository.*;
+import com.example.shoozy_shop.security.UserDetailsImpl;
 import com.example.shoozy_shop.dto.response.OrderDetailResponse;
 import com.example.shoozy_shop.dto.response.TransactionResponse;
 import com.example.shoozy_shop.enums.RefundStatus;
-import com.example.shoozy_shop.enums.ReturnStatus;
+import com.example.shoozy_shop.util.KeysetCursor;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static java.math.BigDecimal.ZERO;
 
@@ -46,6 +45,7 @@ public class OrderService implements IOrderService {
     public static class OrderCreatedEvent {
         Long orderId;
         String orderCode;
+        String userEmail;
     }
 
     @lombok.Value
@@ -59,8 +59,6 @@ public class OrderService implements IOrderService {
     }
 
 
-    private final ReturnItemRepository returnItemRepository;
-
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final PaymentMethodRepository paymentMethodRepository;
@@ -73,17 +71,113 @@ public class OrderService implements IOrderService {
     private final OrderTimelineService orderTimelineService;
     private final PromotionProductRepository promotionProductRepository;
     private final PromotionRepository promotionRepository;
-    private final ReviewRepository reviewRepository;
+    private final OrderDetailBatchLoader orderDetailBatchLoader;
     private final ApplicationEventPublisher eventPublisher;
     private final SimpMessagingTemplate messagingTemplate;
     private final WebSocketService webSocketService;
-    private final EventQueue eventQueue;
+    private final OutboxService outboxService;
+    private final StockReservationService stockReservationService;
+    private final FlashSaleStockLedger flashSaleStockLedger;
+    private final ProductSortKeyService productSortKeyService;
+    private final IIdGeneratorService idGeneratorService;
+    private final CheckoutQuoteService checkoutQuoteService;
+    private final JdbcTemplate jdbcTemplate;
 
     @Override
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Override
+    public CursorPageResponse<OrderListItemResponse> getOrderPage(OrderSearchRequest request) {
+        int size = Math.min(Math.max(request.getSize(), 1), MAX_PAGE_SIZE);
+        KeysetCursor cursor = KeysetCursor.decode(request.getCursor());
+
+        // Lấy dư một dòng để biết còn trang sau hay không, khỏi phải COUNT(*)
+        List<OrderListItemResponse> rows = findOrderPage(request, cursor, size + 1);
+
+        boolean hasNext = rows.size() > size;
+        List<OrderListItemResponse> items = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+
+        if (request.isIncludeDetails() && !items.isEmpty()) {
+            List<Order> orders = orderRepository.getOrdersWithDetailsByIds(
+                    items.stream().map(OrderListItemResponse::getId).toList());
+            Map<Long, List<OrderDetailResponse>> detailsByOrder = orderDetailBatchLoader.loadAll(orders);
+            items.forEach(item -> item.setOrderDetails(detailsByOrder.get(item.getId())));
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            OrderListItemResponse last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPageResponse<>(items, nextCursor, hasNext);
+    }
+
+    // Danh sách đơn phân trang keyset trên (created_at, id), chỉ lấy cột cần hiển thị, không join chi tiết.
+    // Chỉ ghép điều kiện của bộ lọc có giá trị: mỗi tổ hợp lọc có plan riêng và seek được
+    // idx_orders_user_created_id / idx_orders_created_id, thay vì một plan chung cho (:p IS NULL OR col = :p)
+    private List<OrderListItemResponse> findOrderPage(OrderSearchRequest request, KeysetCursor cursor, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT TOP (?) o.id, o.order_code, o.type, o.status, o.fullname, o.phone_number,
+                       o.total_money, o.final_price, pm.name AS payment_method_name, o.created_at
+                FROM orders o
+                LEFT JOIN payment_methods pm ON o.payment_method_id = pm.id
+                WHERE 1 = 1
+                """);
+        List<Object> args = new ArrayList<>();
+        args.add(limit);
+        if (request.getUserId() != null) {
+            sql.append(" AND o.user_id = ?");
+            args.add(request.getUserId());
+        }
+        if (request.getStatus() != null) {
+            sql.append(" AND o.status = ?");
+            args.add(request.getStatus());
+        }
+        if (request.getType() != null) {
+            sql.append(" AND o.type = ?");
+            args.add(request.getType());
+        }
+        if (request.getFromDate() != null) {
+            sql.append(" AND o.created_at >= ?");
+            args.add(request.getFromDate().atStartOfDay());
+        }
+        if (request.getToDate() != null) {
+            sql.append(" AND o.created_at < ?");
+            args.add(request.getToDate().plusDays(1).atStartOfDay());
+        }
+        if (cursor != null) {
+            // created_at là DATETIME (làm tròn 1/300 giây); tham số LocalDateTime được gửi dạng DATETIME2 nên
+            // phải ép về DATETIME, nếu không "=" không khớp và "<" trả lại chính dòng cuối trang trước
+            sql.append(" AND (o.created_at < CAST(? AS DATETIME) OR (o.created_at = CAST(? AS DATETIME) AND o.id < ?))");
+            args.add(cursor.createdAt());
+            args.add(cursor.createdAt());
+            args.add(cursor.id());
+        }
+        sql.append(" ORDER BY o.created_at DESC, o.id DESC");
+
+        return jdbcTemplate.query(sql.toString(), (rs, i) -> new OrderListItemResponse(
+                rs.getLong("id"),
+                rs.getString("order_code"),
+                rs.getObject("type", Boolean.class),
+                rs.getString("status"),
+                rs.getString("fullname"),
+                rs.getString("phone_number"),
+                rs.getBigDecimal("total_money"),
+                rs.getBigDecimal("final_price"),
+                rs.getString("payment_method_name"),
+                rs.getObject("created_at", LocalDateTime.class)), args.toArray());
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl user
+                ? user.getId() : null;
+    }
+
     @Override
     @Transactional
     public Order addOrder(OrderRequest orderRequest) {
@@ -93,12 +187,18 @@ public class OrderService implements IOrderService {
         PaymentMethod existingPaymentMethod = paymentMethodRepository.findById(orderRequest.getPaymentMethodId())
                 .orElseThrow(() -> new ResourceNotFoundException("payment method", orderRequest.getPaymentMethodId()));
 
+        // Có báo giá đã ký thì dùng luôn giá, khuyến mãi, giảm giá và phí ship trong đó, không tra lại từng dòng;
+        // báo giá phải của chính người đang đăng nhập và chỉ dùng được một lần (ghi cùng transaction đơn hàng)
+        CheckoutQuoteService.Quote quote = (orderRequest.getQuoteToken() != null && !orderRequest.getQuoteToken().isBlank())
+                ? checkoutQuoteService.verify(orderRequest.getQuoteToken(), currentUserId(), orderRequest)
+                : null;
+
         Coupon coupon = (orderRequest.getCouponCode() != null && !orderRequest.getCouponCode().isEmpty())
                 ? couponRepository.findByCode(orderRequest.getCouponCode())
                 : null;
 
         Order newOrder = Order.builder()
-                .orderCode(generateUniqueOrderCode())
+                .orderCode(idGeneratorService.nextOrderCode())
                 .user(existingUser)
                 .paymentMethod(existingPaymentMethod)
                 .fullname(orderRequest.getFullname())
@@ -114,27 +214,39 @@ public class OrderService implements IOrderService {
 
         BigDecimal totalBeforeDiscount = ZERO;
 
+        // Khoá + trừ kho cho tất cả item trong một lần
+        Map<Long, ProductVariant> reservedVariants = stockReservationService.reserve(orderRequest.getOrderDetails());
+
         // Lặp qua từng item
         for (OrderDetailRequest detailReq : orderRequest.getOrderDetails()) {
-            ProductVariant pv = productVariantRepository.findByIdForUpdate(detailReq.getProductVariantId())
-                    .orElseThrow(() -> new ResourceNotFoundException("product variant", detailReq.getProductVariantId()));
-
+            ProductVariant pv = reservedVariants.get(detailReq.getProductVariantId());
             int reqQuantity = detailReq.getQuantity();
-            int available = pv.getQuantity();
-            if (available <= 0 || reqQuantity > available) {
-                int allowAdd = Math.max(0, available);
-                throw new OutOfStockException(reqQuantity, allowAdd);
-            }
-
-            pv.setQuantity(available - reqQuantity);
-            productVariantRepository.save(pv);
 
             java.math.BigDecimal originalPrice = java.math.BigDecimal.valueOf(pv.getSellPrice()); // đơn giá 1 sp
             BigDecimal promotionDiscountAmount = ZERO;
 
-            Promotion promotion = null;
-            if (detailReq.getIdPromotion() != null) {
-                promotion = promotionRepository.findById(detailReq.getIdPromotion()).orElse(null);
+            boolean hasPromotion = false;
+            String promotionCode = null;
+            String promotionName = null;
+            Double promotionValue = null;
+            CheckoutQuoteService.QuotedLine quoted = quote != null ? quote.line(detailReq.getProductVariantId()) : null;
+            if (quoted != null) {
+                originalPrice = quoted.unitPrice();
+                promotionDiscountAmount = quoted.unitDiscount();
+                if (quoted.promotionId() != null) {
+                    hasPromotion = true;
+                    promotionCode = quoted.promotionCode();
+                    promotionName = quoted.promotionName();
+                    promotionValue = quoted.promotionValue();
+                }
+            } else if (detailReq.getIdPromotion() != null) {
+                Promotion promotion = promotionRepository.findById(detailReq.getIdPromotion()).orElse(null);
+                if (promotion != null) {
+                    hasPromotion = true;
+                    promotionCode = promotion.getCode();
+                    promotionName = promotion.getName();
+                    promotionValue = promotion.getValue();
+                }
                 ProductPromotion pp = promotionProductRepository
                         .findByPromotionIdAndProductVariantId(detailReq.getIdPromotion(), detailReq.getProductVariantId());
 
@@ -143,11 +255,7 @@ public class OrderService implements IOrderService {
                     if (discountPercent == null && pp.getPromotion() != null) {
                         discountPercent = pp.getPromotion().getValue();
                     }
-                    if (discountPercent != null) {
-                        promotionDiscountAmount = originalPrice
-                                .multiply(BigDecimal.valueOf(discountPercent))
-                                .divide(BigDecimal.valueOf(100), 0, RoundingMode.HALF_UP);
-                    }
+                    promotionDiscountAmount = CheckoutQuoteService.promotionDiscount(originalPrice, discountPercent);
                 }
             }
 
@@ -162,10 +270,10 @@ public class OrderService implements IOrderService {
             od.setTotalMoney(originalPrice.multiply(BigDecimal.valueOf(reqQuantity)).doubleValue());
             od.setFinalPrice(lineTotal);
 
-            if (promotion != null) {
-                od.setPromotionCode(promotion.getCode());
-                od.setPromotionName(promotion.getName());
-                od.setPromotionValue(promotion.getValue());
+            if (hasPromotion) {
+                od.setPromotionCode(promotionCode);
+                od.setPromotionName(promotionName);
+                od.setPromotionValue(promotionValue);
                 od.setPromotionDiscountAmount(promotionDiscountAmount.doubleValue());
             }
 
@@ -186,22 +294,12 @@ public class OrderService implements IOrderService {
                 savedOrder.setCouponValue(BigDecimal.valueOf(coupon.getValue()));
             }
 
-            BigDecimal couponVal = BigDecimal.valueOf(coupon.getValue() == null ? 0.0 : coupon.getValue());
-            if (Boolean.TRUE.equals(coupon.getType())) {
-                BigDecimal couponLimit = (coupon.getValueLimit() == null)
-                        ? null
-                        : BigDecimal.valueOf(coupon.getValueLimit());
-                couponDiscountAmount = totalBeforeDiscount
-                        .multiply(couponVal)
-                        .divide(BigDecimal.valueOf(100), 0, RoundingMode.HALF_UP);
-                if (couponLimit != null && couponDiscountAmount.compareTo(couponLimit) > 0) {
-                    couponDiscountAmount = couponLimit;
-                }
-                if (coupon.getValueLimit() != null) {
-                    savedOrder.setCouponValueLimit(BigDecimal.valueOf(coupon.getValueLimit()));
-                }
-            } else {
-                couponDiscountAmount = couponVal.min(totalBeforeDiscount);
+            couponDiscountAmount = quote != null
+                    ? quote.couponDiscount()
+                    : CheckoutQuoteService.couponDiscount(coupon.getType(), coupon.getValue(), coupon.getValueLimit(),
+                            totalBeforeDiscount);
+            if (Boolean.TRUE.equals(coupon.getType()) && coupon.getValueLimit() != null) {
+                savedOrder.setCouponValueLimit(BigDecimal.valueOf(coupon.getValueLimit()));
             }
 
             int changed = couponRepository.decrementIfAvailable(coupon.getId());
@@ -220,7 +318,7 @@ public class OrderService implements IOrderService {
         }
 
         // Tính phí ship và tổng cuối
-        BigDecimal shippingFee = orderRequest.getShippingFee();
+        BigDecimal shippingFee = quote != null ? quote.shippingFee() : orderRequest.getShippingFee();
         savedOrder.setShippingFee(shippingFee);
         if (shippingFee == null || shippingFee.signum() < 0) {
             shippingFee = ZERO;
@@ -241,31 +339,30 @@ public class OrderService implements IOrderService {
 
         if (orderRequest.getCartItemId() != null && !orderRequest.getCartItemId().isEmpty()) {
             for (Long cartItemId : orderRequest.getCartItemId()) {
-                cartItemRepository.deleteById(cartItemId);
+                cartItemRepository.findById(cartItemId).ifPresent(cartItem -> {
+                    cartItemRepository.delete(cartItem);
+                    eventPublisher.publishEvent(new CartViewCache.CartItemChangedEvent(
+                            cartItem.getCart().getId(), cartItemId, null));
+                });
             }
         }
 
-        // Đăng ký đẩy sự kiện vào queue SAU commit
-        final Long orderIdForEvent = savedOrder.getId();
-        final String orderCodeForEvent = savedOrder.getOrderCode();
-        final Coupon freshFinal = fresh;
-
-        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-            @Override
-            public void afterCommit() {
-                eventQueue.enqueue(new OrderCreatedEvent(orderIdForEvent, orderCodeForEvent));
-                if (coupon != null && freshFinal != null) {
-                    eventQueue.enqueue(new CouponDecrementedEvent(
-                            freshFinal.getId(),
-                            freshFinal.getCode(),
-                            freshFinal.getQuantity(),
-                            freshFinal.getStatus(),
-                            orderIdForEvent,
-                            orderCodeForEvent
+        // Ghi sự kiện vào outbox cùng transaction với đơn hàng, OutboxRelay phát đi sau khi commit
+        outboxService.publish(OutboxService.ORDER_CREATED, "order:" + savedOrder.getId(),
+                "order-created:" + savedOrder.getId(),
+                new OrderCreatedEvent(savedOrder.getId(), savedOrder.getOrderCode(), existingUser.getEmail()));
+        if (coupon != null && fresh != null) {
+            outboxService.publish(OutboxService.COUPON_QUANTITY_CHANGED, "coupon:" + fresh.getId(),
+                    "coupon-used:" + savedOrder.getId(),
+                    new CouponDecrementedEvent(
+                            fresh.getId(),
+                            fresh.getCode(),
+                            fresh.getQuantity(),
+                            fresh.getStatus(),
+                            savedOrder.getId(),
+                            savedOrder.getOrderCode()
                     ));
-                }
-            }
-        });
+        }
 
         // Lấy user hiện tại từ Spring Security
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -283,20 +380,6 @@ public class OrderService implements IOrderService {
     }
 
 
-    private String generateUniqueOrderCode() {
-        String code;
-        do {
-            code = generateInvoiceCode();
-        } while (orderRepository.existsByOrderCode(code));
-        return code;
-    }
-
-    private String generateInvoiceCode() {
-        String datePart = LocalDate.now().format(DateTimeFormatter.ofPattern("yyMMdd")); // ví dụ: 250716
-        int random = new Random().nextInt(1_000); // 000 → 999
-        return String.format("HD%s%03d", datePart, random); // ví dụ: HD250716042
-    }
-
     @Override
     @Transactional
     public Order updateOrder(Long id, OrderRequest orderRequest) {
@@ -322,7 +405,8 @@ public class OrderService implements IOrderService {
         List<OrderDetail> orderDetails = orderDetailRepository.findByOrderId(id);
 
         // 4. Gửi thông báo
-        webSocketService.broadcastRefresh("order", existingOrder, "ORDER_UPDATED");
+        webSocketService.broadcastOrderEvent(existingOrder.getId(), ownerEmail(existingOrder),
+                OrderEventPayload.from(existingOrder), "ORDER_UPDATED");
 
         return orderRepository.save(existingOrder);
     }
@@ -337,18 +421,8 @@ public class OrderService implements IOrderService {
         List<Transaction> transactions = transactionRepository.findByOrderId(id);
         order.setTransactions(transactions);
 
-        // Build orderDetails có review
-        List<OrderDetailResponse> orderDetails = order.getOrderDetails() != null
-                ? order.getOrderDetails().stream()
-                .map(od -> {
-                    int refundedQty = returnItemRepository
-                            .sumReturnedQuantityByOrderDetailIdAndStatus(od.getId(), ReturnStatus.REFUNDED);
-
-                    return OrderDetailResponse.fromEntity(od, order.getUser().getId(), reviewRepository,
-                            refundedQty);
-                })
-                .toList()
-                : null;
+        // Build orderDetails có review + số lượng đã hoàn (truy vấn gom nhóm, không theo từng dòng)
+        List<OrderDetailResponse> orderDetails = orderDetailBatchLoader.load(order);
 
         return getOrderResponse(order, orderDetails);
     }
@@ -387,7 +461,8 @@ public class OrderService implements IOrderService {
         orderRepository.save(existingOrder);
 
         // Gửi WebSocket thông báo
-        webSocketService.broadcastRefresh("order", existingOrder, "ORDER_CANCELLED");
+        webSocketService.broadcastOrderEvent(existingOrder.getId(), ownerEmail(existingOrder),
+                OrderEventPayload.from(existingOrder), "ORDER_CANCELLED");
 
         // Rollback lại số lượng sản phẩm và coupon
         this.retoreStockAndCoupon(existingOrder);
@@ -418,7 +493,13 @@ public class OrderService implements IOrderService {
                 .orElseThrow(() -> new ResourceNotFoundException("order", id));
 
         List<Transaction> transactions = transactionRepository.findByOrderId(id);
+        boolean wasSold = CatalogIndexUpdater.SOLD_STATUSES.contains(existingOrder.getStatus());
         existingOrder.setStatus(statusOrderRequest.getStatus());
+        boolean isSold = CatalogIndexUpdater.SOLD_STATUSES.contains(existingOrder.getStatus());
+        if (wasSold != isSold) {
+            // Số đã bán dùng để xếp hạng gợi ý tìm kiếm
+            eventPublisher.publishEvent(new CatalogIndexUpdater.SalesChangedEvent(id, isSold ? 1 : -1));
+        }
 
         if ("DELIVERED".equalsIgnoreCase(statusOrderRequest.getStatus())) {
             // CHỈ COD (ONLINE + CASH) mới auto thu hộ thành công
@@ -436,7 +517,8 @@ public class OrderService implements IOrderService {
             }
         }
 
-        webSocketService.broadcastRefresh("order", existingOrder, "ORDER_UPDATED_STATUS");
+        webSocketService.broadcastOrderEvent(existingOrder.getId(), ownerEmail(existingOrder),
+                OrderEventPayload.from(existingOrder), "ORDER_UPDATED_STATUS");
         return orderRepository.save(existingOrder);
     }
 
@@ -449,7 +531,8 @@ public class OrderService implements IOrderService {
         existingOrder.setPhoneNumber(updateUserOrderInfoRequest.getPhoneNumber());
         existingOrder.setAddress(updateUserOrderInfoRequest.getAddress());
         existingOrder.setNote(updateUserOrderInfoRequest.getNote());
-        webSocketService.broadcastRefresh("order", existingOrder, "ORDER_UPDATED_INFO");
+        webSocketService.broadcastOrderEvent(existingOrder.getId(), ownerEmail(existingOrder),
+                OrderEventPayload.from(existingOrder), "ORDER_UPDATED_INFO");
         return orderRepository.save(existingOrder);
     }
 
@@ -480,16 +563,9 @@ public class OrderService implements IOrderService {
     @Override
     public List<OrderResponse> getAllOrderByUserId(Long userId) {
         List<Order> orders = orderRepository.getAllOrderByUserId(userId);
+        Map<Long, List<OrderDetailResponse>> detailsByOrder = orderDetailBatchLoader.loadAll(orders);
         return orders.stream()
-                .map(order -> {
-                    List<OrderDetailResponse> orderDetails = order.getOrderDetails() != null
-                            ? order.getOrderDetails().stream()
-                            .map(od -> OrderDetailResponse.fromEntity(od, order.getUser().getId(),
-                                    reviewRepository))
-                            .toList()
-                            : null;
-                    return getOrderResponse(order, orderDetails);
-                })
+                .map(order -> getOrderResponse(order, detailsByOrder.get(order.getId())))
                 .toList();
     }
 
@@ -521,47 +597,42 @@ public class OrderService implements IOrderService {
     }
 
     @Override
-    public List<OrderDetail> getReturnableItems(Long orderId, Long userId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng"));
+    public List<ReturnableItemDto> getReturnableItems(Long orderId, Long userId) {
+        Order order = orderRepository.getOrderWithDetails(orderId);
+        if (order == null) {
+            throw new ResourceNotFoundException("Không tìm thấy đơn hàng");
+        }
 
         if (!order.getUser().getId().equals(userId)) {
             throw new ForbiddenException("Đơn hàng không thuộc về bạn");
         }
 
-        List<OrderDetail> allDetails = new ArrayList<>(order.getOrderDetails());
-
-        // Lấy tất cả return items của orderId
-        Map<Long, Integer> returnedMap = returnItemRepository.findAllByOrderId(orderId)
-                .stream()
-                .collect(Collectors.groupingBy(
-                        ri -> ri.getOrderDetail().getId(), // Lấy id từ OrderDetail
-                        Collectors.summingInt(ReturnItem::getQuantity)));
-
-        return allDetails.stream()
-                .filter(od -> {
-                    int returnedQty = returnedMap.getOrDefault(od.getId(), 0);
-                    return returnedQty < od.getQuantity(); // chỉ hiển thị nếu chưa trả hết
-                })
-                .collect(Collectors.toList());
+        // chỉ trả về các dòng chưa trả hết, số lượng đã trừ phần đã yêu cầu trả
+        return orderDetailBatchLoader.loadReturnable(order.getOrderDetails());
+    }
+
+    private String ownerEmail(Order order) {
+        return order.getUser() != null ? order.getUser().getEmail() : null;
     }
 
     private void retoreStockAndCoupon(Order order) {
+        Map<Long, Integer> stockDelta = new HashMap<>();
         for (OrderDetail detail : order.getOrderDetails()) {
             ProductVariant pv = detail.getProductVariant();
-            pv.setQuantity(pv.getQuantity() + detail.getQuantity());
-            productVariantRepository.save(pv);
+            productVariantRepository.addQuantity(pv.getId(), detail.getQuantity());
+            flashSaleStockLedger.restock(pv.getId(), detail.getQuantity());
+            stockDelta.merge(pv.getId(), detail.getQuantity(), Integer::sum);
         }
+        productSortKeyService.adjustStock(stockDelta);
         if (order.getCoupon() != null) {
             Coupon coupon = order.getCoupon();
             coupon.setQuantity(coupon.getQuantity() + 1);
             couponRepository.save(coupon);
 
-            // Đẩy event sau commit để cập nhật realtime
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    eventQueue.enqueue(new CouponDecrementedEvent(
+            // Ghi event vào outbox để cập nhật realtime sau commit
+            outboxService.publish(OutboxService.COUPON_QUANTITY_CHANGED, "coupon:" + coupon.getId(),
+                    "coupon-restored:" + order.getId(),
+                    new CouponDecrementedEvent(
                             coupon.getId(),
                             coupon.getCode(),
                             coupon.getQuantity(),
@@ -569,8 +640,6 @@ public class OrderService implements IOrderService {
                             order.getId(),
                             order.getOrderCode()
                     ));
-                }
-            });
         }
     }
 
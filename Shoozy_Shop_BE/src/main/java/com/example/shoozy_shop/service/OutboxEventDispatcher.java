@@ -0,0 +1,47 @@
+package com.example.shoozy_shop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Chuyển một dòng outbox thành các message WebSocket tương ứng (giữ đúng format FE đang nghe).
+ * Ném exception nếu phát thất bại để relay thử lại sau.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxEventDispatcher {
+
+    private final WebSocketService webSocketService;
+    private final ObjectMapper objectMapper;
+
+    public void dispatch(String eventType, String payload) throws JsonProcessingException {
+        JsonNode node = objectMapper.readTree(payload);
+        switch (eventType) {
+            case OutboxService.ORDER_CREATED -> {
+                Long orderId = node.path("orderId").asLong();
+                webSocketService.broadcastOrderEvent(orderId,
+                        node.hasNonNull("userEmail") ? node.get("userEmail").asText() : null,
+                        Map.of("id", orderId, "orderCode", node.path("orderCode").asText()),
+                        "ORDER_CREATED");
+            }
+            case OutboxService.COUPON_QUANTITY_CHANGED -> {
+                Long couponId = node.path("couponId").asLong();
+                String code = node.path("code").asText();
+                Integer quantity = node.path("quantity").asInt();
+                // Cập nhật realtime cho Admin + mọi user
+                webSocketService.broadcastCouponUpdate(
+                        couponId, code, quantity, node.path("status").asInt(), "DECREMENT");
+                webSocketService.broadcastOrderWithCoupon(
+                        node.path("orderId").asLong(), node.path("orderCode").asText(), code, quantity, "COUPON_USED");
+            }
+            default -> log.warn("Unknown outbox event type: {}", eventType);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.OutboxStatsResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay đọc outbox_events và phát đi qua {@link OutboxEventDispatcher}.
+ * - Các dòng của một batch được gom theo aggregate_key và chia ra các lane của {@link PartitionedDispatcher}:
+ *   cùng khoá thì tuần tự, khác khoá thì song song
+ * - Mỗi vòng "claim" một batch bằng lease (READPAST) nên nhiều node có thể chạy relay song song
+ *   mà không lấy trùng dòng; node chết giữa chừng thì lease hết hạn và dòng được node khác nhận lại
+ * - Phát at-least-once: dòng chỉ được đánh dấu dispatched sau khi phát xong
+ * - Không chờ cả batch: lane của mỗi aggregate_key tự đánh dấu dòng của mình khi phát xong,
+ *   một lần gửi chậm chỉ giữ lane của khoá đó
+ * - Sự kiện lỗi được trả lease với độ trễ tăng dần; các sự kiện sau cùng aggregate_key không được
+ *   claim cho tới khi sự kiện trước đó phát xong (hoặc hết số lần thử)
+ */
+@Slf4j
+@Service
+public class OutboxRelay {
+
+    private static final int RECENT_CAPACITY = 10_000;
+
+    record OutboxRow(long id, String eventType, String aggregateKey, String dedupKey, String payload,
+                     LocalDateTime createdAt, int attempts) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxEventDispatcher dispatcher;
+    private final PartitionedDispatcher lanes;
+    private final int batchSize;
+    private final long leaseMs;
+    private final int maxAttempts;
+    private final int retentionHours;
+    private final String leaseOwner;
+
+    // dedupKey đã phát trên node này, phòng trường hợp phát xong nhưng chưa kịp đánh dấu dispatched
+    private final Map<String, Boolean> recentlyDispatched = Collections.synchronizedMap(
+            new LinkedHashMap<>(RECENT_CAPACITY, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > RECENT_CAPACITY;
+                }
+            });
+
+    private final AtomicLong dispatchedTotal = new AtomicLong();
+    private final AtomicLong failedTotal = new AtomicLong();
+    private volatile long lastDispatchLagMs;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       OutboxEventDispatcher dispatcher,
+                       @Value("${app.outbox.batch-size:100}") int batchSize,
+                       @Value("${app.outbox.lease-ms:30000}") long leaseMs,
+                       @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${app.outbox.retention-hours:72}") int retentionHours,
+                       @Value("${app.outbox.node-id:default}") String nodeId,
+                       @Value("${app.outbox.lanes:4}") int laneCount,
+                       @Value("${app.outbox.lane-capacity:256}") int laneCapacity,
+                       @Value("${app.outbox.overflow-policy:BLOCK}") PartitionedDispatcher.OverflowPolicy overflowPolicy) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dispatcher = dispatcher;
+        this.batchSize = batchSize;
+        this.leaseMs = leaseMs;
+        this.maxAttempts = maxAttempts;
+        this.retentionHours = retentionHours;
+        // Mỗi tiến trình một lease owner riêng, kể cả khi cấu hình trùng node-id
+        this.leaseOwner = nodeId + ":" + UUID.randomUUID().toString().substring(0, 8);
+        this.lanes = new PartitionedDispatcher("outbox", laneCount, laneCapacity, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.close();
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:200}")
+    public void relay() {
+        List<OutboxRow> batch;
+        do {
+            batch = claim();
+            if (!batch.isEmpty()) {
+                process(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    // Dọn các dòng đã phát quá thời gian lưu, xoá từng phần để không giữ khoá lâu
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> jdbcTemplate.update("""
+                    DELETE TOP (5000) FROM outbox_events
+                    WHERE dispatched_at IS NOT NULL AND dispatched_at < DATEADD(hour, ?, SYSUTCDATETIME())
+                    """, -retentionHours));
+        } while (deleted == 5000);
+    }
+
+    public OutboxStatsResponse stats() {
+        return jdbcTemplate.queryForObject("""
+                        SELECT COUNT(*) AS pending,
+                               COALESCE(SUM(CASE WHEN attempts >= ? THEN 1 ELSE 0 END), 0) AS dead,
+                               COALESCE(DATEDIFF_BIG(millisecond, MIN(created_at), SYSUTCDATETIME()), 0) AS oldest_ms
+                        FROM outbox_events
+                        WHERE dispatched_at IS NULL
+                        """,
+                (rs, i) -> new OutboxStatsResponse(
+                        rs.getLong("pending"),
+                        rs.getLong("dead"),
+                        rs.getLong("oldest_ms"),
+                        lastDispatchLagMs,
+                        dispatchedTotal.get(),
+                        failedTotal.get(),
+                        lanes.stats()),
+                maxAttempts);
+    }
+
+    private List<OutboxRow> claim() {
+        // UPDLOCK + READPAST: các node khác bỏ qua dòng đang được claim thay vì chờ
+        return transactionTemplate.execute(status -> jdbcTemplate.query("""
+                        WITH batch AS (
+                            SELECT TOP (?) *
+                            FROM outbox_events o WITH (UPDLOCK, ROWLOCK, READPAST)
+                            WHERE o.dispatched_at IS NULL
+                              AND o.attempts < ?
+                              AND (o.lease_until IS NULL OR o.lease_until < SYSUTCDATETIME())
+                              -- giữ thứ tự theo aggregate_key: bỏ qua nếu sự kiện trước đó cùng khoá
+                              -- đang được node khác phát hoặc đang chờ thử lại
+                              AND NOT EXISTS (
+                                  SELECT 1 FROM outbox_events p
+                                  WHERE p.aggregate_key = o.aggregate_key
+                                    AND p.id < o.id
+                                    AND p.dispatched_at IS NULL
+                                    AND p.lease_until >= SYSUTCDATETIME())
+                            ORDER BY o.id
+                        )
+                        UPDATE batch
+                        SET lease_owner = ?,
+                            lease_until = DATEADD(millisecond, ?, SYSUTCDATETIME()),
+                            attempts = attempts + 1
+                        OUTPUT inserted.id, inserted.event_type, inserted.aggregate_key, inserted.dedup_key,
+                               inserted.payload, inserted.created_at, inserted.attempts
+                        """,
+                (rs, i) -> new OutboxRow(
+                        rs.getLong("id"),
+                        rs.getString("event_type"),
+                        rs.getString("aggregate_key"),
+                        rs.getString("dedup_key"),
+                        rs.getString("payload"),
+                        rs.getTimestamp("created_at").toLocalDateTime(),
+                        rs.getInt("attempts")),
+                batchSize, maxAttempts, leaseOwner, leaseMs));
+    }
+
+    private void process(List<OutboxRow> batch) {
+        // OUTPUT không đảm bảo thứ tự: sắp lại theo id rồi gom theo aggregate_key
+        Map<String, List<OutboxRow>> byKey = new LinkedHashMap<>();
+        batch.stream()
+                .sorted(Comparator.comparingLong(OutboxRow::id))
+                .forEach(row -> byKey.computeIfAbsent(row.aggregateKey(), k -> new ArrayList<>()).add(row));
+
+        byKey.forEach((key, rows) -> {
+            List<Long> done = new ArrayList<>(rows.size());
+            lanes.submit(key, () -> dispatchInOrder(rows, done))
+                    .whenComplete((ran, error) -> {
+                        if (error != null) {
+                            // Lỗi ngoài lần phát (vd ghi DB): dòng chưa xong đợi lease hết hạn rồi được claim lại
+                            log.error("Outbox lane task failed for key {}", key, error);
+                        } else if (!ran) {
+                            // Lane đầy hoặc đang dừng: trả các dòng về outbox, không tính lượt thử
+                            rows.forEach(row -> release(row, 0, null, 1));
+                            return;
+                        }
+                        markDispatched(done);
+                    });
+        });
+    }
+
+    // Chạy trên lane của aggregate_key: phát lần lượt, dừng ở dòng lỗi đầu tiên để giữ thứ tự
+    private void dispatchInOrder(List<OutboxRow> rows, List<Long> done) {
+        for (int i = 0; i < rows.size(); i++) {
+            OutboxRow row = rows.get(i);
+            if (recentlyDispatched.containsKey(row.dedupKey())) {
+                done.add(row.id());
+                continue;
+            }
+            try {
+                dispatcher.dispatch(row.eventType(), row.payload());
+                recentlyDispatched.put(row.dedupKey(), Boolean.TRUE);
+                done.add(row.id());
+                lastDispatchLagMs = Duration.between(row.createdAt(), LocalDateTime.now(ZoneOffset.UTC)).toMillis();
+            } catch (Exception e) {
+                failedTotal.incrementAndGet();
+                // Lùi lần thử lại theo hàm mũ, tối đa 5 phút
+                long backoffMs = Math.min(1000L << Math.min(row.attempts(), 9), 300_000L);
+                release(row, backoffMs, e.getMessage(), 0);
+                if (row.attempts() >= maxAttempts) {
+                    log.error("Outbox event {} ({}) gave up after {} attempts", row.id(), row.eventType(), row.attempts(), e);
+                } else {
+                    log.warn("Outbox event {} ({}) failed, retry in {} ms", row.id(), row.eventType(), backoffMs, e);
+                }
+                // Các dòng sau cùng khoá chưa thử phát nên không tính vào attempts
+                rows.subList(i + 1, rows.size()).forEach(next -> release(next, 0, null, 1));
+                return;
+            }
+        }
+    }
+
+    private void markDispatched(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = ids.stream().map(id -> new Object[]{id, leaseOwner}).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate("""
+                    UPDATE outbox_events
+                    SET dispatched_at = SYSUTCDATETIME(), lease_owner = NULL, lease_until = NULL
+                    WHERE id = ? AND lease_owner = ?
+                    """, args));
+            dispatchedTotal.addAndGet(ids.size());
+        } catch (RuntimeException e) {
+            // Dòng đã phát sẽ được claim lại khi lease hết hạn, recentlyDispatched chặn phát trùng trên node này
+            log.error("Could not mark {} outbox events dispatched", ids.size(), e);
+        }
+    }
+
+    private void release(OutboxRow row, long delayMs, String error, int refundAttempts) {
+        String lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("""
+                        UPDATE outbox_events
+                        SET lease_owner = NULL,
+                            lease_until = DATEADD(millisecond, ?, SYSUTCDATETIME()),
+                            last_error = COALESCE(?, last_error),
+                            attempts = attempts - ?
+                        WHERE id = ? AND lease_owner = ?
+                        """,
+                delayMs, lastError, refundAttempts, row.id(), leaseOwner));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.shoozy_shop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ghi sự kiện vào bảng outbox_events trong CÙNG transaction với thay đổi nghiệp vụ.
+ * Sự kiện chỉ tồn tại khi transaction commit; {@link OutboxRelay} sẽ đọc và phát đi sau.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String COUPON_QUANTITY_CHANGED = "COUPON_QUANTITY_CHANGED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param aggregateKey khoá thực thể (vd "order:12"), các sự kiện cùng khoá được phát theo thứ tự ghi
+     * @param dedupKey     khoá chống trùng: ghi lại cùng dedupKey lần hai sẽ bị bỏ qua
+     */
+    public void publish(String eventType, String aggregateKey, String dedupKey, Object payload) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox event phải được ghi trong transaction: " + eventType);
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Không serialize được outbox event " + eventType, e);
+        }
+        jdbcTemplate.update("""
+                        INSERT INTO outbox_events (event_type, aggregate_key, dedup_key, payload)
+                        SELECT ?, ?, ?, ?
+                        WHERE NOT EXISTS (SELECT 1 FROM outbox_events WITH (UPDLOCK, HOLDLOCK) WHERE dedup_key = ?)
+                        """,
+                eventType, aggregateKey, dedupKey, json, dedupKey);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.shoozy_shop.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chia việc phát sự kiện ra N lane, mỗi lane một luồng + hàng đợi giới hạn.
+ * Task được băm theo khoá (vd "order:12", "coupon:3") nên cùng khoá luôn vào cùng lane và chạy đúng thứ tự gửi,
+ * còn các khoá khác chạy song song: một lần gửi STOMP chậm chỉ làm chậm lane của nó.
+ * Khi lane đầy, xử lý theo {@link OverflowPolicy}. Task bị loại hoàn tất future với false để bên gửi trả lại nguồn.
+ */
+@Slf4j
+public class PartitionedDispatcher implements AutoCloseable {
+
+    public enum OverflowPolicy {
+        // Chờ tới khi lane có chỗ (tạo back-pressure lên bên gửi)
+        BLOCK,
+        // Loại task cũ nhất trong lane để nhận task mới
+        DROP_OLDEST,
+        // Từ chối task mới, bên gửi giữ lại ở kho bền (outbox) để gửi lại sau
+        SPILL
+    }
+
+    public record LaneStats(int lane, long processed, long failed, long rejected, int queued,
+                            double avgLatencyMs, double maxLatencyMs) {
+    }
+
+    private record LaneTask(Runnable task, CompletableFuture<Boolean> future, long enqueuedNanos) {
+    }
+
+    private final Lane[] lanes;
+    private final OverflowPolicy policy;
+
+    public PartitionedDispatcher(String name, int laneCount, int capacity, OverflowPolicy policy) {
+        this.policy = policy;
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(name + "-lane-" + i, Math.max(1, capacity));
+        }
+    }
+
+    /**
+     * @return future hoàn tất true khi task chạy xong, false khi task bị loại do lane đầy hoặc đã đóng;
+     * hoàn tất exceptionally nếu task ném exception
+     */
+    public CompletableFuture<Boolean> submit(String key, Runnable task) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        lanes[laneOf(key)].enqueue(new LaneTask(task, future, System.nanoTime()));
+        return future;
+    }
+
+    public int laneOf(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, lanes.length);
+    }
+
+    public List<LaneStats> stats() {
+        List<LaneStats> result = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            result.add(lanes[i].stats(i));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        for (Lane lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private final class Lane implements Runnable {
+
+        private final BlockingQueue<LaneTask> queue;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        Lane(String threadName, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, threadName);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        void enqueue(LaneTask task) {
+            if (!running) {
+                reject(task);
+                return;
+            }
+            switch (policy) {
+                case BLOCK -> {
+                    try {
+                        queue.put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        reject(task);
+                    }
+                }
+                case DROP_OLDEST -> {
+                    while (!queue.offer(task)) {
+                        LaneTask oldest = queue.poll();
+                        if (oldest != null) {
+                            reject(oldest);
+                        }
+                    }
+                }
+                case SPILL -> {
+                    if (!queue.offer(task)) {
+                        reject(task);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                LaneTask item;
+                try {
+                    item = queue.poll(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (item == null) {
+                    continue;
+                }
+                try {
+                    item.task().run();
+                    item.future().complete(true);
+                } catch (Throwable t) {
+                    failed.incrementAndGet();
+                    item.future().completeExceptionally(t);
+                } finally {
+                    long latency = System.nanoTime() - item.enqueuedNanos();
+                    processed.incrementAndGet();
+                    totalLatencyNanos.addAndGet(latency);
+                    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                }
+            }
+            // Lane bị dừng giữa chừng: các task còn lại trả về cho bên gửi
+            LaneTask left;
+            while ((left = queue.poll()) != null) {
+                reject(left);
+            }
+        }
+
+        private void reject(LaneTask task) {
+            rejected.incrementAndGet();
+            task.future().complete(false);
+        }
+
+        void shutdown() {
+            running = false;
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                log.warn("Dispatcher lane {} did not stop in time", thread.getName());
+                thread.interrupt();
+            }
+        }
+
+        LaneStats stats(int index) {
+            long count = processed.get();
+            return new LaneStats(index, count, failed.get(), rejected.get(), queue.size(),
+                    count == 0 ? 0 : totalLatencyNanos.get() / 1e6 / count,
+                    maxLatencyNanos.get() / 1e6);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.config.CacheConfig;
 import com.example.shoozy_shop.model.PaymentMethod;
 import com.example.shoozy_shop.repository.PaymentMethodRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -15,6 +17,7 @@ public class PaymentMethodService implements IPaymentMethodService {
 
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.PAYMENT_METHODS, key = "'all'", sync = true)
     public List<PaymentMethod> getAllPaymentMethods() {
         return paymentMethodRepository.findAll();
     }
@@ -0,0 +1,43 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.config.CacheConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Xoá chi tiết và thẻ sản phẩm khỏi cache sau commit, đúng các sản phẩm trong
+ * {@link CatalogIndexUpdater.ProductChangedEvent} (sửa sản phẩm/biến thể/ảnh, tồn kho, đánh giá, khuyến mãi).
+ * Sự kiện chỉ có id biến thể thì tra sản phẩm qua {@link CatalogIndex}; chỉ mục chưa sẵn sàng thì xoá cả cache.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCacheEvictor {
+
+    // Đã sau commit nên xoá thẳng trên cache gốc, không qua lớp trì hoãn tới commit của CacheManager mặc định
+    private final CaffeineCacheManager cacheManager;
+    private final CatalogIndex catalogIndex;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogIndexUpdater.ProductChangedEvent event) {
+        Cache details = cacheManager.getCache(CacheConfig.PRODUCT_DETAIL);
+        Cache cards = cacheManager.getCache(CacheConfig.PRODUCT_CARDS);
+        if (!event.variantIds().isEmpty() && !catalogIndex.isReady()) {
+            details.clear();
+            cards.clear();
+            return;
+        }
+        Set<Long> productIds = new HashSet<>(event.productIds());
+        productIds.addAll(catalogIndex.productsOfVariants(event.variantIds()));
+        for (Long productId : productIds) {
+            details.evict(productId);
+            cards.evict(productId);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.config.CacheConfig;
+import com.example.shoozy_shop.dto.response.ProductCardResponse;
+import com.example.shoozy_shop.dto.response.PromotionResponse;
+import com.example.shoozy_shop.dto.response.VariantPromotionResponse;
+import com.example.shoozy_shop.model.Color;
+import com.example.shoozy_shop.model.Product;
+import com.example.shoozy_shop.model.Promotion;
+import com.example.shoozy_shop.model.Size;
+import com.example.shoozy_shop.repository.ProductRepository;
+import com.example.shoozy_shop.repository.ProductVariantRepository;
+import com.example.shoozy_shop.repository.PromotionProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Dựng một trang {@link ProductCardResponse} bằng số truy vấn cố định, không phụ thuộc số sản phẩm:
+ * sản phẩm (kèm brand/category/material), biến thể, khuyến mãi đang chạy - mỗi loại một truy vấn IN theo id,
+ * thay vì duyệt các collection lazy (biến thể, review, khuyến mãi, ảnh) của từng sản phẩm.
+ * Thẻ đã dựng được cache theo id sản phẩm ({@link CacheConfig#PRODUCT_CARDS}), {@link ProductCacheEvictor} xoá khi sản phẩm đổi.
+ * Thẻ chỉ được cất khi phiên bản của entry ({@link CatalogVersions}) không đổi từ trước lúc đọc DB, nên một lần xoá
+ * rơi vào giữa lúc đọc và lúc cất không bị bản cũ ghi đè.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductCardLoader {
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final PromotionProductRepository promotionProductRepository;
+    // Cất thẳng vào cache gốc: put qua CacheManager mặc định bị hoãn tới sau commit, lúc đó phiên bản đã so không còn đúng
+    private final CaffeineCacheManager cacheManager;
+    private final CatalogVersions catalogVersions;
+
+    /**
+     * Trang từ Specification: chỉ dùng id và thứ tự. Sản phẩm chưa có trong cache được đọc lại sau khi ghi nhận
+     * phiên bản entry, vì bản đã nạp sẵn có thể cũ hơn một lần xoá xảy ra trước đó.
+     */
+    public List<ProductCardResponse> load(List<Product> products, List<Long> sizeIds, List<Long> colorIds) {
+        return loadByIds(products.stream().map(Product::getId).toList(), sizeIds, colorIds);
+    }
+
+    /**
+     * Nạp theo id (kết quả từ chỉ mục), giữ nguyên thứ tự của ids; id không còn tồn tại bị bỏ qua.
+     * Thẻ đầy đủ (mọi biến thể) được cache theo id sản phẩm; chỉ các sản phẩm chưa có trong cache mới bị truy vấn.
+     * Lọc biến thể theo size/màu làm trên bản sao nên không ảnh hưởng thẻ trong cache.
+     */
+    public List<ProductCardResponse> loadByIds(List<Long> ids, List<Long> sizeIds, List<Long> colorIds) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_CARDS);
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, ProductCardResponse> cards = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            ProductCardResponse card = cache.get(id, ProductCardResponse.class);
+            // Khuyến mãi đã hết hạn thì dựng lại thẻ, không đợi TTL
+            if (card != null && !hasExpiredPromotion(card, now)) {
+                cards.put(id, card);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, String> versions = new HashMap<>();
+            missing.forEach(id -> versions.put(id, catalogVersions.entryEtag(CacheConfig.PRODUCT_CARDS, id)));
+            for (ProductCardResponse card : build(productRepository.findWithRefsByIdIn(missing), now)) {
+                putIfUnchanged(cache, card, versions.get(card.getId()));
+                cards.put(card.getId(), card);
+            }
+        }
+
+        List<ProductCardResponse> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductCardResponse card = cards.get(id);
+            if (card != null) {
+                result.add(filterVariants(card, sizeIds, colorIds));
+            }
+        }
+        return result;
+    }
+
+    // Entry đã bị xoá từ lúc đọc DB thì không cất; lần xoá chen vào giữa lúc so và lúc put
+    // được phát hiện ở lần so thứ hai và chỉ gỡ đúng thẻ vừa cất
+    @SuppressWarnings("unchecked")
+    private void putIfUnchanged(Cache cache, ProductCardResponse card, String version) {
+        if (!version.equals(catalogVersions.entryEtag(CacheConfig.PRODUCT_CARDS, card.getId()))) {
+            return;
+        }
+        cache.put(card.getId(), card);
+        if (!version.equals(catalogVersions.entryEtag(CacheConfig.PRODUCT_CARDS, card.getId()))) {
+            ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache()).asMap()
+                    .remove(card.getId(), card);
+        }
+    }
+
+    private List<ProductCardResponse> build(List<Product> products, LocalDateTime now) {
+        products = products.stream().filter(Objects::nonNull).toList();
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        List<Long> productIds = products.stream().map(Product::getId).toList();
+
+        Map<Long, List<VariantPromotionResponse>> promotionsByVariant = new HashMap<>();
+        Map<Long, Map<Long, PromotionResponse>> promotionsByProduct = new HashMap<>();
+        for (Object[] row : promotionProductRepository.findActiveByProductIdIn(productIds, now)) {
+            Long variantId = (Long) row[0];
+            Long productId = (Long) row[1];
+            Promotion promotion = (Promotion) row[3];
+            promotionsByVariant.computeIfAbsent(variantId, k -> new ArrayList<>())
+                    .add(VariantPromotionResponse.builder()
+                            .id(promotion.getId())
+                            .name(promotion.getName())
+                            .code(promotion.getCode())
+                            .startDate(promotion.getStartDate())
+                            .expirationDate(promotion.getExpirationDate())
+                            .originalValue(promotion.getValue())
+                            .customValue((Double) row[2])
+                            .description(promotion.getDescription())
+                            .status(promotion.getStatus())
+                            .build());
+            // Một khuyến mãi áp cho nhiều biến thể chỉ hiện một lần ở mức sản phẩm
+            promotionsByProduct.computeIfAbsent(productId, k -> new LinkedHashMap<>())
+                    .putIfAbsent(promotion.getId(), PromotionResponse.fromPromotion(promotion));
+        }
+
+        Map<Long, List<ProductCardResponse.Variant>> variantsByProduct = new HashMap<>();
+        for (Object[] row : productVariantRepository.findCardRowsByProductIdIn(productIds)) {
+            Size size = (Size) row[2];
+            Color color = (Color) row[3];
+            Long variantId = (Long) row[0];
+            Long productId = (Long) row[1];
+            variantsByProduct.computeIfAbsent(productId, k -> new ArrayList<>())
+                    .add(ProductCardResponse.Variant.builder()
+                            .id(variantId)
+                            .productId(productId)
+                            .size(size)
+                            .color(color)
+                            .quantity((Integer) row[4])
+                            .sellPrice((Double) row[5])
+                            .thumbnail((String) row[6])
+                            .promotions(promotionsByVariant.getOrDefault(variantId, List.of()))
+                            .build());
+        }
+
+        return products.stream()
+                .map(product -> ProductCardResponse.fromProduct(product,
+                        new ArrayList<>(promotionsByProduct.getOrDefault(product.getId(), Map.of()).values()),
+                        variantsByProduct.getOrDefault(product.getId(), List.of())))
+                .toList();
+    }
+
+    // Lọc biến thể theo size/màu đang chọn như danh sách cũ
+    private static ProductCardResponse filterVariants(ProductCardResponse card, List<Long> sizeIds, List<Long> colorIds) {
+        if ((sizeIds == null || sizeIds.isEmpty()) && (colorIds == null || colorIds.isEmpty())) {
+            return card;
+        }
+        return card.withVariants(card.getVariants().stream()
+                .filter(v -> matches(sizeIds, v.getSize() != null ? v.getSize().getId() : null))
+                .filter(v -> matches(colorIds, v.getColor() != null ? v.getColor().getId() : null))
+                .toList());
+    }
+
+    private static boolean hasExpiredPromotion(ProductCardResponse card, LocalDateTime now) {
+        for (PromotionResponse promotion : card.getActivePromotions()) {
+            if (promotion.getExpirationDate() != null && promotion.getExpirationDate().isBefore(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(List<Long> selected, Long id) {
+        return selected == null || selected.isEmpty() || selected.contains(id);
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.shoozy_shop.service;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.exception.ExcelAnalysisException;
+import com.alibaba.excel.exception.ExcelDataConvertException;
+import com.alibaba.excel.metadata.data.ReadCellData;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.example.shoozy_shop.dto.request.ProductImportRow;
+import com.example.shoozy_shop.dto.response.ProductImportResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Nhập sản phẩm/biến thể hàng loạt từ file Excel/CSV ({@link ProductImportRow}, mỗi dòng một biến thể).
+ * - File được đọc tuần tự bằng EasyExcel, chỉ giữ một chunk (app.product-import.chunk-size dòng) trong bộ nhớ
+ * - Thương hiệu, danh mục, chất liệu, size, màu tra theo tên trong map nạp một lần, không findById từng dòng
+ * - Mỗi chunk ghi bằng batch JDBC trong một transaction riêng rồi tính lại khoá sắp xếp của các sản phẩm
+ *   bị ảnh hưởng bằng một câu UPDATE; chunk lỗi DB không làm mất các chunk đã ghi
+ * - Dòng sai dữ liệu bị bỏ qua và báo lỗi theo số dòng, các dòng khác vẫn được nhập
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    // Câu IN theo tên/SKU trong một chunk phải nằm trong giới hạn 2100 tham số của SQL Server
+    private static final int MAX_CHUNK_SIZE = 1000;
+
+    private static final List<String> REQUIRED_HEADERS =
+            List.of("Tên sản phẩm", "Size", "Màu", "Số lượng", "Giá vốn", "Giá bán");
+
+    private static final Map<String, String> GENDERS = Map.of(
+            "male", "Male", "nam", "Male",
+            "female", "Female", "nữ", "Female",
+            "unisex", "Unisex",
+            "kids", "Kids", "trẻ em", "Kids");
+
+    private static final String INSERT_PRODUCT = """
+            INSERT INTO products (sku, name, description, thumbnail, brand_id, category_id, material_id,
+                                  product_gender, weight, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_VARIANT = """
+            INSERT INTO product_variants (product_id, size_id, color_id, quantity, cost_price, sell_price)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IIdGeneratorService idGeneratorService;
+    private final ProductSortKeyService productSortKeyService;
+    private final int chunkSize;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                IIdGeneratorService idGeneratorService, ProductSortKeyService productSortKeyService,
+                                @Value("${app.product-import.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.idGeneratorService = idGeneratorService;
+        this.productSortKeyService = productSortKeyService;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE));
+    }
+
+    record Lookups(Map<String, Long> brands, Map<String, Long> categories, Map<String, Long> materials,
+                   Map<String, Long> sizes, Map<String, Long> colors) {
+    }
+
+    private record RowRef(int rowNumber, ProductImportRow row) {
+    }
+
+    private record NewProduct(String sku, String name, String description, Long brandId, Long categoryId,
+                              Long materialId, String gender, Double weight) {
+    }
+
+    private record NewVariant(int rowNumber, String productKey, long sizeId, long colorId, int quantity,
+                              double costPrice, double sellPrice) {
+    }
+
+    private record VariantKey(String productKey, long sizeId, long colorId) {
+    }
+
+    public ProductImportResponse importProducts(MultipartFile file) {
+        String filename = Objects.requireNonNullElse(file.getOriginalFilename(), "").toLowerCase(Locale.ROOT);
+        ExcelTypeEnum type;
+        if (filename.endsWith(".xlsx")) {
+            type = ExcelTypeEnum.XLSX;
+        } else if (filename.endsWith(".xls")) {
+            type = ExcelTypeEnum.XLS;
+        } else if (filename.endsWith(".csv")) {
+            type = ExcelTypeEnum.CSV;
+        } else {
+            throw new IllegalArgumentException("Chỉ hỗ trợ file .xlsx, .xls hoặc .csv");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return importProducts(in, type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Không đọc được file nhập: " + e.getMessage(), e);
+        }
+    }
+
+    public ProductImportResponse importProducts(InputStream in, ExcelTypeEnum type) {
+        long start = System.currentTimeMillis();
+        ImportRun run = new ImportRun(loadLookups());
+        try {
+            EasyExcel.read(in, ProductImportRow.class, run)
+                    .excelType(type)
+                    .charset(StandardCharsets.UTF_8)
+                    .autoCloseStream(false)
+                    .sheet()
+                    .doRead();
+        } catch (ExcelAnalysisException e) {
+            // Lỗi tiêu đề (thiếu cột) được EasyExcel bọc lại, trả về 400 như các lỗi dữ liệu khác
+            if (e.getCause() instanceof IllegalArgumentException invalid) {
+                throw invalid;
+            }
+            throw new IllegalArgumentException("File nhập không đúng định dạng: " + e.getMessage(), e);
+        }
+        ProductImportResponse response = run.result(System.currentTimeMillis() - start);
+        log.info("Product import: {} rows, {} products, {} variants, {} failed in {} ms", response.getTotalRows(),
+                response.getCreatedProducts(), response.getCreatedVariants(), response.getFailedRows(),
+                response.getElapsedMs());
+        return response;
+    }
+
+    private Lookups loadLookups() {
+        return new Lookups(
+                idsByName("SELECT id, name FROM brands"),
+                idsByName("SELECT id, name FROM categories"),
+                idsByName("SELECT id, name FROM materials"),
+                idsByName("SELECT id, value AS name FROM sizes"),
+                idsByName("SELECT id, name FROM colors"));
+    }
+
+    private Map<String, Long> idsByName(String sql) {
+        Map<String, Long> ids = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql)) {
+            Object name = row.get("name");
+            if (name != null) {
+                ids.putIfAbsent(key(name.toString()), ((Number) row.get("id")).longValue());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Trạng thái của một lần nhập. Ngoài chunk đang đọc chỉ giữ id sản phẩm theo tên và khoá size + màu
+     * của biến thể đã có, để các dòng của cùng sản phẩm nằm ở nhiều chunk vẫn gộp đúng và không tạo trùng.
+     */
+    private final class ImportRun implements ReadListener<ProductImportRow> {
+
+        private final Lookups lookups;
+        private final Map<String, Long> productIds = new HashMap<>();
+        private final Set<VariantKey> variantKeys = new HashSet<>();
+        private final List<RowRef> buffer = new ArrayList<>();
+        private final List<ProductImportResponse.RowError> errors = new ArrayList<>();
+        private int totalRows;
+        private int failedRows;
+        private int createdProducts;
+        private int createdVariants;
+
+        private ImportRun(Lookups lookups) {
+            this.lookups = lookups;
+        }
+
+        @Override
+        public void invokeHead(Map<Integer, ReadCellData<?>> headMap, AnalysisContext context) {
+            Set<String> headers = new HashSet<>();
+            headMap.values().forEach(cell -> {
+                if (cell != null && cell.getStringValue() != null) {
+                    headers.add(cell.getStringValue().trim());
+                }
+            });
+            List<String> missing = REQUIRED_HEADERS.stream().filter(h -> !headers.contains(h)).toList();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("File nhập thiếu cột: " + String.join(", ", missing));
+            }
+        }
+
+        @Override
+        public void invoke(ProductImportRow row, AnalysisContext context) {
+            totalRows++;
+            buffer.add(new RowRef(context.readRowHolder().getRowIndex() + 1, row));
+            if (buffer.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void onException(Exception exception, AnalysisContext context) throws Exception {
+            // Ô sai kiểu (chữ trong cột số lượng/giá) chỉ làm hỏng dòng đó
+            if (exception instanceof ExcelDataConvertException convert) {
+                totalRows++;
+                fail(convert.getRowIndex() + 1, "Cột " + (convert.getColumnIndex() + 1) + " sai kiểu dữ liệu");
+                return;
+            }
+            throw exception;
+        }
+
+        @Override
+        public void doAfterAllAnalysed(AnalysisContext context) {
+            flush();
+        }
+
+        private void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            resolveExistingProducts();
+            Map<String, NewProduct> newProducts = new LinkedHashMap<>();
+            List<NewVariant> variants = new ArrayList<>();
+            Set<VariantKey> chunkKeys = new HashSet<>();
+            for (RowRef ref : buffer) {
+                try {
+                    ProductImportRow row = ref.row();
+                    String name = required(row.getProductName(), "tên sản phẩm");
+                    if (name.length() > 255) {
+                        throw new IllegalArgumentException("Tên sản phẩm dài quá 255 ký tự");
+                    }
+                    String productKey = key(name);
+                    long sizeId = lookup(lookups.sizes(), row.getSize(), "size");
+                    long colorId = lookup(lookups.colors(), row.getColor(), "màu");
+                    int quantity = nonNegative(row.getQuantity(), "số lượng").intValue();
+                    double costPrice = nonNegative(row.getCostPrice(), "giá vốn").doubleValue();
+                    double sellPrice = nonNegative(row.getSellPrice(), "giá bán").doubleValue();
+                    if (!productIds.containsKey(productKey) && !newProducts.containsKey(productKey)) {
+                        newProducts.put(productKey, newProduct(name, row));
+                    }
+                    VariantKey variantKey = new VariantKey(productKey, sizeId, colorId);
+                    if (variantKeys.contains(variantKey) || !chunkKeys.add(variantKey)) {
+                        throw new IllegalArgumentException("Sản phẩm '" + name + "' đã có biến thể size "
+                                + row.getSize().trim() + " màu " + row.getColor().trim());
+                    }
+                    variants.add(new NewVariant(ref.rowNumber(), productKey, sizeId, colorId, quantity,
+                            costPrice, sellPrice));
+                } catch (IllegalArgumentException e) {
+                    fail(ref.rowNumber(), e.getMessage());
+                }
+            }
+            buffer.clear();
+            if (variants.isEmpty()) {
+                return;
+            }
+            try {
+                Map<String, Long> created = transactionTemplate.execute(status -> write(newProducts, variants));
+                productIds.putAll(created);
+                variants.forEach(v -> variantKeys.add(new VariantKey(v.productKey(), v.sizeId(), v.colorId())));
+                createdProducts += newProducts.size();
+                createdVariants += variants.size();
+            } catch (DataAccessException e) {
+                log.error("Product import chunk failed ({} rows)", variants.size(), e);
+                String message = "Không ghi được vào DB: " + e.getMostSpecificCause().getMessage();
+                variants.forEach(v -> fail(v.rowNumber(), message));
+            }
+        }
+
+        // Sản phẩm trùng tên với sản phẩm đã có trong DB thì thêm biến thể vào sản phẩm đó
+        private void resolveExistingProducts() {
+            Set<String> names = new LinkedHashSet<>();
+            for (RowRef ref : buffer) {
+                String name = ref.row().getProductName();
+                if (name != null && !name.isBlank() && !productIds.containsKey(key(name))) {
+                    names.add(name.trim());
+                }
+            }
+            if (names.isEmpty()) {
+                return;
+            }
+            Map<Long, String> keyById = new HashMap<>();
+            for (Map<String, Object> row : jdbcTemplate.queryForList(
+                    "SELECT id, name FROM products WHERE name IN (" + placeholders(names.size()) + ")",
+                    names.toArray())) {
+                String productKey = key(row.get("name").toString());
+                long id = ((Number) row.get("id")).longValue();
+                if (productIds.putIfAbsent(productKey, id) == null) {
+                    keyById.put(id, productKey);
+                }
+            }
+            if (keyById.isEmpty()) {
+                return;
+            }
+            for (Map<String, Object> row : jdbcTemplate.queryForList(
+                    "SELECT product_id, size_id, color_id FROM product_variants WHERE status = 1 AND product_id IN ("
+                            + placeholders(keyById.size()) + ")",
+                    keyById.keySet().toArray())) {
+                Number sizeId = (Number) row.get("size_id");
+                Number colorId = (Number) row.get("color_id");
+                if (sizeId != null && colorId != null) {
+                    variantKeys.add(new VariantKey(keyById.get(((Number) row.get("product_id")).longValue()),
+                            sizeId.longValue(), colorId.longValue()));
+                }
+            }
+        }
+
+        private NewProduct newProduct(String name, ProductImportRow row) {
+            Long brandId = lookup(lookups.brands(), row.getBrand(), "thương hiệu");
+            Long categoryId = lookup(lookups.categories(), row.getCategory(), "danh mục");
+            Long materialId = lookup(lookups.materials(), row.getMaterial(), "chất liệu");
+            if (row.getWeight() != null && row.getWeight() < 0) {
+                throw new IllegalArgumentException("Cân nặng không được âm");
+            }
+            return new NewProduct(idGeneratorService.nextSku(), name, row.getDescription(), brandId, categoryId,
+                    materialId, gender(row.getGender()), row.getWeight());
+        }
+
+        private Map<String, Long> write(Map<String, NewProduct> newProducts, List<NewVariant> variants) {
+            Map<String, Long> created = new HashMap<>();
+            if (!newProducts.isEmpty()) {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                List<Object[]> args = new ArrayList<>(newProducts.size());
+                Map<String, String> keyBySku = new HashMap<>();
+                newProducts.forEach((productKey, p) -> {
+                    args.add(new Object[]{p.sku(), p.name(), p.description(), ProductService.DEFAULT_THUMBNAIL,
+                            p.brandId(), p.categoryId(), p.materialId(), p.gender(), p.weight(), now, now});
+                    keyBySku.put(p.sku(), productKey);
+                });
+                jdbcTemplate.batchUpdate(INSERT_PRODUCT, args);
+                // Batch JDBC không trả về id tự tăng, tra lại theo SKU vừa sinh (không trùng)
+                for (Map<String, Object> row : jdbcTemplate.queryForList(
+                        "SELECT id, sku FROM products WHERE sku IN (" + placeholders(keyBySku.size()) + ")",
+                        keyBySku.keySet().toArray())) {
+                    created.put(keyBySku.get(row.get("sku").toString()), ((Number) row.get("id")).longValue());
+                }
+            }
+            List<Object[]> args = new ArrayList<>(variants.size());
+            Set<Long> touched = new HashSet<>();
+            for (NewVariant v : variants) {
+                Long productId = productIds.containsKey(v.productKey())
+                        ? productIds.get(v.productKey()) : created.get(v.productKey());
+                args.add(new Object[]{productId, v.sizeId(), v.colorId(), v.quantity(), v.costPrice(), v.sellPrice()});
+                touched.add(productId);
+            }
+            jdbcTemplate.batchUpdate(INSERT_VARIANT, args);
+            productSortKeyService.refreshVariantKeys(touched);
+            return created;
+        }
+
+        private void fail(int rowNumber, String message) {
+            failedRows++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportResponse.RowError(rowNumber, message));
+            }
+        }
+
+        private ProductImportResponse result(long elapsedMs) {
+            errors.sort(Comparator.comparingInt(ProductImportResponse.RowError::row));
+            return new ProductImportResponse(totalRows, createdProducts, createdVariants, failedRows, elapsedMs,
+                    errors);
+        }
+    }
+
+    static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String gender(String value) {
+        if (value == null || value.isBlank()) {
+            return "Unisex";
+        }
+        String gender = GENDERS.get(key(value));
+        if (gender == null) {
+            throw new IllegalArgumentException("Giới tính '" + value.trim() + "' không hợp lệ (Male, Female, Unisex, Kids)");
+        }
+        return gender;
+    }
+
+    private static String required(String value, String label) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Thiếu " + label);
+        }
+        return value.trim();
+    }
+
+    private static long lookup(Map<String, Long> ids, String value, String label) {
+        Long id = ids.get(key(required(value, label)));
+        if (id == null) {
+            throw new IllegalArgumentException("Không tìm thấy " + label + " '" + value.trim() + "'");
+        }
+        return id;
+    }
+
+    private static Number nonNegative(Number value, String label) {
+        if (value == null) {
+            throw new IllegalArgumentException("Thiếu " + label);
+        }
+        if (value.doubleValue() < 0) {
+            throw new IllegalArgumentException(label.substring(0, 1).toUpperCase() + label.substring(1) + " không được âm");
+        }
+        return value;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
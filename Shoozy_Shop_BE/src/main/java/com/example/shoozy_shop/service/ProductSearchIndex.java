@@ -0,0 +1,292 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.util.TextNormalizer;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục đảo cho tìm kiếm sản phẩm theo từ khoá (tham số q), thay cho LIKE '%kw%' trên name/sku.
+ * - Tên, SKU, thương hiệu, danh mục, mô tả được bỏ dấu bằng {@link TextNormalizer#fold} nên "giay chay bo" khớp "Giày chạy bộ"
+ * - Mỗi từ trong câu tìm đều phải khớp (AND); từ từ 2 ký tự trở lên khớp cả tiền tố ("gia" -> "giay")
+ * - SKU được đánh thêm mọi hậu tố từ 3 ký tự, cộng với khớp tiền tố thành khớp chuỗi con như LIKE cũ
+ *   ("041241", "0412" -> "SP041241"); khớp kiểu này tính điểm như khớp tiền tố
+ * - Xếp hạng BM25, tần suất từ nhân trọng số theo trường (tên/SKU nặng hơn mô tả), khớp tiền tố bị giảm điểm
+ * Dựng và cập nhật cùng {@link CatalogIndex} bởi {@link CatalogIndexUpdater}.
+ */
+@Component
+public class ProductSearchIndex {
+
+    public record ProductText(long id, String name, String sku, String brand, String category, String description) {
+    }
+
+    public record Result(List<Long> productIds, long total) {
+    }
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float SKU_WEIGHT = 3f;
+    private static final float BRAND_WEIGHT = 2f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_FACTOR = 0.6;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_SKU_FRAGMENT = 3;
+
+    // Phần tử "kém nhất" (điểm thấp, id lớn) nằm ở đầu hàng đợi
+    private static final Comparator<double[]> WORST_FIRST = Comparator
+            .<double[]>comparingDouble(e -> e[0])
+            .thenComparing(Comparator.<double[]>comparingDouble(e -> e[1]).reversed());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Được bảo vệ bởi lock
+    private State state = new State();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild(Collection<ProductText> products) {
+        State fresh = new State();
+        products.forEach(fresh::add);
+        lock.writeLock().lock();
+        try {
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+    }
+
+    /**
+     * @param product null nếu sản phẩm không còn tồn tại
+     */
+    public void upsert(long productId, ProductText product) {
+        lock.writeLock().lock();
+        try {
+            state.remove(Math.toIntExact(productId));
+            if (product != null) {
+                state.add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tất cả sản phẩm khớp câu tìm, không xếp hạng (dùng khi sắp theo giá/đánh giá...).
+     */
+    public RoaringBitmap match(String query) {
+        List<String> terms = TextNormalizer.tokens(query);
+        lock.readLock().lock();
+        try {
+            return state.prepare(terms).candidates();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Một trang kết quả theo điểm BM25 giảm dần, cùng điểm thì id tăng dần.
+     *
+     * @param within chỉ xét các sản phẩm này (kết quả bộ lọc), null nếu không giới hạn
+     */
+    public Result search(String query, RoaringBitmap within, int pageNo, int pageSize) {
+        List<String> terms = TextNormalizer.tokens(query);
+        int from = Math.max(0, (pageNo - 1) * pageSize);
+        lock.readLock().lock();
+        try {
+            Query prepared = state.prepare(terms);
+            RoaringBitmap candidates = prepared.candidates();
+            if (within != null) {
+                candidates.and(within);
+            }
+            int total = candidates.getCardinality();
+            if (from >= total) {
+                return new Result(List.of(), total);
+            }
+            int keep = Math.min(total, from + pageSize);
+            // Chỉ giữ top (from + pageSize) thay vì sắp toàn bộ kết quả
+            PriorityQueue<double[]> top = new PriorityQueue<>(keep + 1, WORST_FIRST);
+            candidates.forEach((IntConsumer) id -> {
+                double score = state.score(id, prepared);
+                if (top.size() < keep) {
+                    top.add(new double[]{score, id});
+                } else if (score > top.peek()[0]) {
+                    // Duyệt theo id tăng dần nên cùng điểm thì phần tử đã có (id nhỏ hơn) được giữ
+                    top.poll();
+                    top.add(new double[]{score, id});
+                }
+            });
+            List<double[]> ranked = new ArrayList<>(top);
+            ranked.sort(WORST_FIRST.reversed());
+            List<Long> page = new ArrayList<>(keep - from);
+            for (int i = from; i < keep; i++) {
+                page.add((long) ranked.get(i)[1]);
+            }
+            return new Result(page, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Câu tìm đã tách từ, quy về mã số của từ trong từ điển; idf tính theo số sản phẩm khớp từ đó
+     * (kể cả khớp tiền tố), tính một lần cho cả truy vấn.
+     */
+    private record Query(RoaringBitmap candidates, int[] exact, int[][] prefixes, double[] idf,
+                         double avgLength) {
+    }
+
+    private static final class Doc {
+        final String[] terms;
+        // Chấm điểm chỉ so sánh mã số của từ, không so chuỗi
+        final int[] termIds;
+        final float[] weights;
+        final float length;
+
+        Doc(String[] terms, int[] termIds, float[] weights, float length) {
+            this.terms = terms;
+            this.termIds = termIds;
+            this.weights = weights;
+            this.length = length;
+        }
+    }
+
+    private static final class State {
+        final TreeMap<String, RoaringBitmap> postings = new TreeMap<>();
+        // Mã số không thu hồi khi từ hết dùng; lần dựng lại toàn bộ sẽ đánh lại từ đầu
+        final Map<String, Integer> termIds = new HashMap<>();
+        Doc[] docs = new Doc[1024];
+        int docCount;
+        double totalLength;
+
+        void add(ProductText p) {
+            int id = Math.toIntExact(p.id());
+            Map<String, Float> weighted = new LinkedHashMap<>();
+            addField(weighted, p.name(), NAME_WEIGHT);
+            addField(weighted, p.sku(), SKU_WEIGHT);
+            addField(weighted, p.brand(), BRAND_WEIGHT);
+            addField(weighted, p.category(), CATEGORY_WEIGHT);
+            addField(weighted, p.description(), DESCRIPTION_WEIGHT);
+            // Độ dài văn bản cho BM25 chỉ tính các từ thật, không tính mảnh SKU
+            float length = 0;
+            for (float weight : weighted.values()) {
+                length += weight;
+            }
+            addSkuFragments(weighted, p.sku());
+
+            String[] terms = weighted.keySet().toArray(new String[0]);
+            int[] ids = new int[terms.length];
+            float[] weights = new float[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                ids[i] = termIds.computeIfAbsent(terms[i], k -> termIds.size());
+                weights[i] = weighted.get(terms[i]);
+                postings.computeIfAbsent(terms[i], k -> new RoaringBitmap()).add(id);
+            }
+            if (id >= docs.length) {
+                docs = Arrays.copyOf(docs, Math.max(id + 1, docs.length * 2));
+            }
+            Doc doc = new Doc(terms, ids, weights, length);
+            docs[id] = doc;
+            docCount++;
+            totalLength += doc.length;
+        }
+
+        void remove(int id) {
+            Doc doc = id < docs.length ? docs[id] : null;
+            if (doc == null) {
+                return;
+            }
+            docs[id] = null;
+            docCount--;
+            totalLength -= doc.length;
+            for (String term : doc.terms) {
+                RoaringBitmap bitmap = postings.get(term);
+                if (bitmap != null) {
+                    bitmap.remove(id);
+                    if (bitmap.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        static void addField(Map<String, Float> weighted, String text, float weight) {
+            for (String term : TextNormalizer.tokens(text)) {
+                weighted.merge(term, weight, Float::sum);
+            }
+        }
+
+        // Hậu tố của SKU đã bỏ ký tự phân cách ("SP-041241" -> "p041241", "041241", ..., "241")
+        static void addSkuFragments(Map<String, Float> weighted, String sku) {
+            String code = String.join("", TextNormalizer.tokens(sku));
+            for (int i = 1; i + MIN_SKU_FRAGMENT <= code.length(); i++) {
+                weighted.merge(code.substring(i), (float) PREFIX_FACTOR * SKU_WEIGHT, Float::sum);
+            }
+        }
+
+        Query prepare(List<String> tokens) {
+            String[] terms = tokens.stream().distinct().toArray(String[]::new);
+            int[] exact = new int[terms.length];
+            int[][] prefixes = new int[terms.length][];
+            double[] idf = new double[terms.length];
+            RoaringBitmap result = terms.length == 0 ? new RoaringBitmap() : null;
+            for (int t = 0; t < terms.length; t++) {
+                String term = terms[t];
+                exact[t] = postings.containsKey(term) ? termIds.get(term) : -1;
+                RoaringBitmap matches;
+                if (term.length() < MIN_PREFIX_LENGTH) {
+                    RoaringBitmap bitmap = postings.get(term);
+                    matches = bitmap != null ? bitmap.clone() : new RoaringBitmap();
+                } else {
+                    // Từ có tiền tố term nằm liền nhau trong từ điển đã sắp xếp
+                    SortedMap<String, RoaringBitmap> range = postings.subMap(term, term + Character.MAX_VALUE);
+                    // Mã số các từ dài hơn term có cùng tiền tố, đã sắp xếp
+                    prefixes[t] = range.keySet().stream()
+                            .filter(key -> !key.equals(term))
+                            .mapToInt(termIds::get)
+                            .sorted()
+                            .toArray();
+                    matches = range.isEmpty() ? new RoaringBitmap() : FastAggregation.or(range.values().iterator());
+                }
+                int df = matches.getCardinality();
+                idf[t] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.and(matches);
+                }
+            }
+            return new Query(result, exact, prefixes, idf, docCount == 0 ? 1 : totalLength / docCount);
+        }
+
+        double score(int id, Query query) {
+            Doc doc = docs[id];
+            double norm = K1 * (1 - B + B * doc.length / query.avgLength());
+            double score = 0;
+            for (int t = 0; t < query.exact().length; t++) {
+                int exact = query.exact()[t];
+                int[] prefix = query.prefixes()[t];
+                float tf = 0;
+                for (int i = 0; i < doc.termIds.length; i++) {
+                    int termId = doc.termIds[i];
+                    if (termId == exact) {
+                        tf = Math.max(tf, doc.weights[i]);
+                    } else if (prefix != null && prefix.length > 0 && Arrays.binarySearch(prefix, termId) >= 0) {
+                        // Khớp tiền tố bị giảm điểm so với khớp nguyên từ
+                        tf = Math.max(tf, (float) PREFIX_FACTOR * doc.weights[i]);
+                    }
+                }
+                score += query.idf()[t] * tf * (K1 + 1) / (tf + norm);
+            }
+            return score;
+        }
+    }
+}
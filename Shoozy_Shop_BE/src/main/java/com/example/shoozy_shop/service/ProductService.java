@@ -1,14 +1,20 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.config.CacheConfig;
+import com.example.shoozy_shop.dto.request.CatalogFilterRequest;
 import com.example.shoozy_shop.dto.request.ProductRequest;
 import com.example.shoozy_shop.dto.response.*;
 import com.example.shoozy_shop.exception.ResourceNotFoundException;
+import com.example.shoozy_shop.exception.ServiceUnavailableException;
 import com.example.shoozy_shop.model.*;
 import com.example.shoozy_shop.repository.*;
+import com.example.shoozy_shop.util.TextNormalizer;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
@@ -24,18 +30,66 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ProductService implements IProducService {
 
+    // Ảnh tạm cho sản phẩm mới, thay bằng ảnh biến thể sau khi upload
+    public static final String DEFAULT_THUMBNAIL =
+            "http://localhost:9000/product-variant-images/%E3%83%8E%E3%83%BC%E3%82%A4%E3%83%A1%E3%83%BC%E3%82%B7%E3%82%99-760x460.png";
+
     private final ProductRepository productRepository;
     private final BrandRepository brandRepository;
     private final CategoryRepository categoryRepository;
     private final OrderRepository orderRepository;
     private final MaterialRepository materialRepository;
+    private final IIdGeneratorService idGeneratorService;
+    private final CatalogIndex catalogIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductCardLoader productCardLoader;
+    private final RelatedProductsIndex relatedProductsIndex;
+    private final LowStockWatchlist lowStockWatchlist;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
-    public Page<ProductResponse> searchProductByQueryBuilder(
-            String keyword, List<Long> brandIds, List<Long> categoryIds,
+    public Page<ProductCardResponse> searchProductByQueryBuilder(
+            String keyword, String q, List<Long> brandIds, List<Long> categoryIds,
             Double minPrice, Double maxPrice, List<Long> sizeIds, List<Long> colorIds, List<Long> materialIds,
-            String gender, Boolean status, Integer pageNo, Integer pageSize, String sortBy, String sortDirection)
+            String gender, Boolean status, Boolean inStock, Integer pageNo, Integer pageSize, String sortBy, String sortDirection)
     {
+        // Có q thì bỏ qua keyword; keyword (LIKE trên name/sku) vẫn chạy trong DB như trước
+        boolean fullText = !TextNormalizer.tokens(q).isEmpty();
+        boolean indexed = fullText ? productSearchIndex.isReady() : keyword == null || keyword.trim().isEmpty();
+        if (catalogIndex.isReady() && indexed) {
+            CatalogFilterRequest filter = CatalogFilterRequest.builder()
+                    .brandIds(brandIds)
+                    .categoryIds(categoryIds)
+                    .materialIds(materialIds)
+                    .sizeIds(sizeIds)
+                    .colorIds(colorIds)
+                    .gender(gender)
+                    .minPrice(minPrice)
+                    .maxPrice(maxPrice)
+                    .inStock(inStock)
+                    .status(status)
+                    .build();
+            List<Long> ids;
+            long total;
+            if (fullText && !isFieldSort(sortBy)) {
+                // Tìm theo q, mặc định xếp theo độ liên quan trong phạm vi bộ lọc
+                ProductSearchIndex.Result result = productSearchIndex.search(q, catalogIndex.match(filter), pageNo, pageSize);
+                ids = result.productIds();
+                total = result.total();
+            } else {
+                // Lọc/sắp xếp/phân trang trên chỉ mục bộ nhớ, DB chỉ nạp đúng các sản phẩm của trang
+                CatalogIndex.SearchResult result = catalogIndex.search(filter,
+                        fullText ? productSearchIndex.match(q) : null, sortBy, sortDirection, pageNo, pageSize);
+                ids = result.productIds();
+                total = result.total();
+            }
+            List<ProductCardResponse> content = productCardLoader.loadByIds(ids, sizeIds, colorIds);
+            return new PageImpl<>(content, PageRequest.of(pageNo - 1, pageSize), total);
+        }
+
+        // Chỉ mục chưa sẵn sàng: q quay về LIKE như keyword (không bỏ dấu được)
+        String searchText = fullText ? q : keyword;
         Specification<Product> specification = ((root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
             query.distinct(true);
@@ -43,15 +97,15 @@ public class ProductService implements IProducService {
             Join<Product, ProductVariant> variantJoin = root.join("productVariants", JoinType.LEFT);
 
             // Keyword search
-            if (keyword != null && !keyword.trim().isEmpty()) {
+            if (searchText != null && !searchText.trim().isEmpty()) {
                 Predicate namePredicate = criteriaBuilder.like(
                         criteriaBuilder.lower(root.get("name")),
-                        "%" + keyword.toLowerCase() + "%"
+                        "%" + searchText.toLowerCase() + "%"
                 );
 
                 Predicate skuPredicate = criteriaBuilder.like(
                         criteriaBuilder.lower(root.get("sku")),
-                        "%" + keyword.toLowerCase() + "%"
+                        "%" + searchText.toLowerCase() + "%"
                 );
 
                 // Kết hợp 2 điều kiện bằng OR
@@ -72,11 +126,15 @@ public class ProductService implements IProducService {
             }
 
             if (minPrice != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(variantJoin.get("price"), minPrice));
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(variantJoin.get("sellPrice"), minPrice));
             }
 
             if (maxPrice != null) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(variantJoin.get("price"), maxPrice));
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(variantJoin.get("sellPrice"), maxPrice));
+            }
+
+            if (Boolean.TRUE.equals(inStock)) {
+                predicates.add(criteriaBuilder.greaterThan(variantJoin.get("quantity"), 0));
             }
 
             if (sizeIds != null && !sizeIds.isEmpty()) {
@@ -98,87 +156,23 @@ public class ProductService implements IProducService {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         });
 
-        // Xử lý sorting đặc biệt cho price
-        Pageable pageable;
-        if ("price".equalsIgnoreCase(sortBy)) {
-            List<Product> allProducts = productRepository.findAll(specification);
-            // Remove duplicates vì có thể có duplicate do join với variants
-            List<Product> distinctProducts = allProducts.stream()
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            // Tính giá thấp nhất cho mỗi product và sort
-            List<ProductWithMinPrice> productsWithPrice = distinctProducts.stream()
-                    .map(product -> {
-                        Double productMinPrice = product.getProductVariants().stream()
-                                .filter(variant -> variant.getSellPrice() != null)
-                                .mapToDouble(ProductVariant::getSellPrice)
-                                .min()
-                                .orElse(Double.MAX_VALUE);
-                        return new ProductWithMinPrice(product, productMinPrice);
-                    })
-                    .sorted((p1, p2) -> {
-                        int comparison = Double.compare(p1.minPrice, p2.minPrice);
-                        return "desc".equalsIgnoreCase(sortDirection) ? -comparison : comparison;
-                    })
-                    .collect(Collectors.toList());
-
-            int start = (pageNo - 1) * pageSize;
-            int end = Math.min(start + pageSize, productsWithPrice.size());
-
-            List<Product> paginatedProducts = productsWithPrice.subList(start, end)
-                    .stream()
-                    .map(pwp -> pwp.product)
-                    .collect(Collectors.toList());
-
-            List<ProductResponse> productResponses = paginatedProducts.stream()
-                    .map(product -> ProductResponse.fromProduct(product, sizeIds, colorIds, materialIds))
-                    .collect(Collectors.toList());
-
-            pageable = PageRequest.of(pageNo - 1, pageSize);
-            return new PageImpl<>(productResponses, pageable, productsWithPrice.size());
-
-        } else if ("rating".equalsIgnoreCase(sortBy)) {
-            List<Product> allProducts = productRepository.findAll(specification);
-            List<Product> distinctProducts = allProducts.stream().distinct().collect(Collectors.toList());
-
-            List<ProductWithRating> productsWithRating = distinctProducts.stream()
-                    .map(product -> {
-                        Double avgRating = product.getReviews().stream()
-                                .filter(r -> !Boolean.TRUE.equals(r.getIsHidden()))
-                                .filter(r -> r.getRating() != null)
-                                .mapToInt(r -> r.getRating())
-                                .average()
-                                .orElse(0.0);
-                        return new ProductWithRating(product, avgRating);
-                    })
-                    .sorted((p1, p2) -> {
-                        int comparison = Double.compare(p1.rating, p2.rating);
-                        return "desc".equalsIgnoreCase(sortDirection) ? -comparison : comparison;
-                    })
-                    .collect(Collectors.toList());
-
-            int start = (pageNo - 1) * pageSize;
-            int end = Math.min(start + pageSize, productsWithRating.size());
-
-            List<Product> paginatedProducts = productsWithRating.subList(start, end)
-                    .stream().map(pwr -> pwr.product).collect(Collectors.toList());
-
-            List<ProductResponse> productResponses = paginatedProducts.stream()
-                    .map(product -> ProductResponse.fromProduct(product, sizeIds, colorIds, materialIds))
-                    .collect(Collectors.toList());
-
-            pageable = PageRequest.of(pageNo - 1, pageSize);
-            return new PageImpl<>(productResponses, pageable, productsWithRating.size());
-
-        } else {
-            // Sorting bình thường
-            Sort sort = createSingleSort(sortBy, sortDirection);
-            pageable = PageRequest.of(pageNo - 1, pageSize, sort);
-
-            Page<Product> productPage = productRepository.findAll(specification, pageable);
-            return productPage.map(product -> ProductResponse.fromProduct(product, sizeIds, colorIds, materialIds));
+        // Giá/đánh giá/tồn kho sort theo cột tính sẵn trên products nên phân trang luôn chạy trong DB
+        Sort sort = createSingleSort(sortBy, sortDirection);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+
+        Page<Product> productPage = productRepository.findAll(specification, pageable);
+        return new PageImpl<>(productCardLoader.load(productPage.getContent(), sizeIds, colorIds),
+                pageable, productPage.getTotalElements());
+    }
+
+    private boolean isFieldSort(String sortBy) {
+        if (sortBy == null) {
+            return false;
         }
+        return switch (sortBy.toLowerCase().trim()) {
+            case "createdat", "created_at", "price", "rating", "stock" -> true;
+            default -> false;
+        };
     }
 
     private Sort createSingleSort(String sortBy, String sortDirection) {
@@ -194,36 +188,52 @@ public class ProductService implements IProducService {
                 case "created_at":
                     sortField = "createdAt";
                     break;
+                case "price":
+                    sortField = "minSellPrice";
+                    break;
+                case "rating":
+                    sortField = "avgRating";
+                    break;
+                case "stock":
+                    sortField = "totalStock";
+                    break;
                 default:
                     sortField = "id";
                     break;
             }
         }
-        return Sort.by(direction, sortField);
+        if ("id".equals(sortField)) {
+            return Sort.by(direction, sortField);
+        }
+        // SQL Server xếp NULL lên đầu khi tăng dần: sản phẩm chưa có giá luôn đứng cuối như trước
+        if ("minSellPrice".equals(sortField)) {
+            return Sort.by(Sort.Order.asc("priceMissing"), new Sort.Order(direction, sortField), Sort.Order.asc("id"));
+        }
+        // Thêm id để thứ tự giữa các trang ổn định khi nhiều sản phẩm cùng giá/điểm
+        return Sort.by(new Sort.Order(direction, sortField), Sort.Order.asc("id"));
     }
 
-    // Helper class để lưu product và min price
-    private static class ProductWithMinPrice {
-        final Product product;
-        final Double minPrice;
-
-        ProductWithMinPrice(Product product, Double minPrice) {
-            this.product = product;
-            this.minPrice = minPrice;
+    @Override
+    public CatalogFacetResponse getCatalogFacets(CatalogFilterRequest filter) {
+        if (!catalogIndex.isReady()) {
+            // Chỉ mục chỉ chưa sẵn sàng trong lúc dựng lần đầu khi khởi động: 503 để client thử lại, không phải 409
+            throw new ServiceUnavailableException("Chỉ mục sản phẩm đang được khởi tạo, vui lòng thử lại sau", 5);
         }
+        return catalogIndex.facets(filter);
     }
 
-    private static class ProductWithRating {
-        final Product product;
-        final Double rating;
-
-        ProductWithRating(Product product, Double rating) {
-            this.product = product;
-            this.rating = rating;
+    @Override
+    public List<SuggestionResponse> suggest(String q, int limit) {
+        // Chỉ mục chưa dựng xong thì trả rỗng, không dồn truy vấn theo từng phím gõ xuống DB
+        if (!productSuggestIndex.isReady()) {
+            return List.of();
         }
+        return productSuggestIndex.suggest(q, Math.max(1, Math.min(limit, ProductSuggestIndex.TOP_K)));
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_DETAIL, key = "#id", sync = true)
+    @Transactional(readOnly = true)
     public ProductResponse getProductById(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("product", id));
@@ -242,11 +252,11 @@ public class ProductService implements IProducService {
                 .orElseThrow(() -> new ResourceNotFoundException("category", productRequest.getCategoryId()));
         Material existingMaterial = materialRepository.findById(productRequest.getMaterialId())
                 .orElseThrow(() -> new ResourceNotFoundException("material", productRequest.getMaterialId()));
-        String generatedSku = generateUniqueSku();
+        String generatedSku = idGeneratorService.nextSku();
 
         Product newProduct = Product.builder()
                 .sku(generatedSku)
-                .thumbnail("http://localhost:9000/product-variant-images/%E3%83%8E%E3%83%BC%E3%82%A4%E3%83%A1%E3%83%BC%E3%82%B7%E3%82%99-760x460.png")
+                .thumbnail(DEFAULT_THUMBNAIL)
                 .name(productRequest.getName())
                 .description(productRequest.getDescription())
                 .brand(existingBrand)
@@ -256,20 +266,9 @@ public class ProductService implements IProducService {
                 .material(existingMaterial)
                 .status(true)
                 .build();
-        return productRepository.save(newProduct);
-    }
-
-    private String generateUniqueSku() {
-        String sku;
-        do {
-            sku = generateSku();
-        } while (productRepository.existsBySku(sku));
-        return sku;
-    }
-
-    private String generateSku() {
-        int random = new Random().nextInt(1_000_000); // 0 → 999999
-        return String.format("SP%06d", random);       // SP041241
+        Product saved = productRepository.save(newProduct);
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(saved.getId()));
+        return saved;
     }
 
     @Override
@@ -295,7 +294,9 @@ public class ProductService implements IProducService {
         existingProduct.setWeight(productRequest.getWeight());
         existingProduct.setMaterial(material);
         existingProduct.setStatus(productRequest.getStatus());
-        return productRepository.save(existingProduct);
+        Product saved = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(id));
+        return saved;
     }
 
     @Override
@@ -304,6 +305,7 @@ public class ProductService implements IProducService {
                 .orElseThrow(() -> new ResourceNotFoundException("product", id));
         existingProduct.setStatus(false);
         productRepository.save(existingProduct);
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(id));
     }
 
     @Override
@@ -367,6 +369,23 @@ public class ProductService implements IProducService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Sản phẩm liên quan cho trang chi tiết: id lấy từ danh sách tính sẵn, thẻ từ cache/batch như trang danh sách.
+     */
+    @Override
+    public List<ProductCardResponse> getRelatedProducts(Long productId, int limit) {
+        int size = Math.max(1, Math.min(limit, RelatedProductsIndex.TOP_N));
+        List<Long> ids = relatedProductsIndex.isReady() ? relatedProductsIndex.related(productId, size) : List.of();
+        // Chỉ mục chưa sẵn sàng hoặc chưa biết sản phẩm (vd sản phẩm mới sau lần tính lại gần nhất): lấy cùng danh mục
+        if (ids.isEmpty()) {
+            ids = productRepository.findRelatedIdsByCategory(productId, PageRequest.of(0, size));
+        }
+        // Danh sách có thể cũ tới lần tính lại sau: bỏ sản phẩm đã ngừng bán
+        return productCardLoader.loadByIds(ids, null, null).stream()
+                .filter(card -> Boolean.TRUE.equals(card.getStatus()))
+                .toList();
+    }
+
     @Override
     public List<TopSellingProductResponse> getTopSellingProducts(String filterType) {
         LocalDateTime now = LocalDateTime.now();
@@ -384,7 +403,7 @@ public class ProductService implements IProducService {
 
     @Override
     public List<LowStockProductResponse> findLowStockProducts() {
-        return productRepository.findLowStockProducts();
+        return lowStockWatchlist.list();
     }
 
     @Override
@@ -399,6 +418,7 @@ public class ProductService implements IProducService {
             Product product = optional.get();
             product.setStatus(true); // khôi phục
             productRepository.save(product);
+            eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(id));
             return true;
         }
         return false;
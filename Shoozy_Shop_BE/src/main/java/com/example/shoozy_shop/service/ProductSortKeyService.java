@@ -0,0 +1,152 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.ReviewSummaryResponse;
+import com.example.shoozy_shop.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Duy trì các cột sắp xếp tính sẵn trên bảng products
+ * (min_sell_price, max_sell_price, total_stock, avg_rating, review_count, rating_1_count..rating_5_count)
+ * để sort theo giá/đánh giá/tồn kho chạy bằng ORDER BY + phân trang ngay trong DB.
+ * Gọi trong cùng transaction với thay đổi biến thể/review/tồn kho; entity phải được flush trước.
+ * Mỗi lần cập nhật cũng báo cho {@link CatalogIndexUpdater} nạp lại sản phẩm sau commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductSortKeyService {
+
+    // Dưới giới hạn 2100 tham số của SQL Server cho một câu lệnh
+    static final int MAX_IDS_PER_STATEMENT = 2000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Tính lại giá thấp/cao nhất và tổng tồn từ các biến thể đang bán của một sản phẩm
+     * (sau khi thêm/sửa/ẩn biến thể).
+     */
+    public void refreshVariantKeys(Long productId) {
+        jdbcTemplate.update("""
+                        UPDATE p SET min_sell_price = v.min_price, max_sell_price = v.max_price, total_stock = v.stock
+                        FROM products p
+                        CROSS APPLY (SELECT MIN(sell_price) AS min_price, MAX(sell_price) AS max_price,
+                                            COALESCE(SUM(quantity), 0) AS stock
+                                     FROM product_variants WHERE product_id = p.id AND status = 1) v
+                        WHERE p.id = ?
+                        """,
+                productId);
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(productId));
+    }
+
+    /**
+     * Như {@link #refreshVariantKeys(Long)} cho nhiều sản phẩm (nhập hàng loạt): mỗi câu UPDATE nhận tối đa
+     * {@link #MAX_IDS_PER_STATEMENT} id vì giới hạn 2100 tham số của SQL Server, nhiều id hơn thì chia thành nhiều câu.
+     */
+    public void refreshVariantKeys(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(productIds);
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_STATEMENT));
+            jdbcTemplate.update("""
+                            UPDATE p SET min_sell_price = v.min_price, max_sell_price = v.max_price, total_stock = v.stock
+                            FROM products p
+                            CROSS APPLY (SELECT MIN(sell_price) AS min_price, MAX(sell_price) AS max_price,
+                                                COALESCE(SUM(quantity), 0) AS stock
+                                         FROM product_variants WHERE product_id = p.id AND status = 1) v
+                            WHERE p.id IN (""" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                    chunk.toArray());
+        }
+        eventPublisher.publishEvent(new CatalogIndexUpdater.ProductChangedEvent(Set.copyOf(productIds), Set.of()));
+    }
+
+    /**
+     * Cộng/trừ một review gốc vào histogram điểm (rating_1_count..rating_5_count) của sản phẩm,
+     * rồi suy ra điểm trung bình và số review từ histogram, không phải quét lại bảng reviews.
+     * Review được tính khi là review gốc, đang hiển thị và có điểm.
+     *
+     * @param removed điểm không còn được tính (null nếu trước đó review không được tính)
+     * @param added   điểm bắt đầu được tính (null nếu sau thay đổi review không được tính)
+     */
+    public void adjustRating(Long productId, Integer removed, Integer added) {
+        if (Objects.equals(removed, added)) {
+            return;
+        }
+        int[] delta = new int[5];
+        if (removed != null) {
+            delta[checkRating(removed) - 1]--;
+        }
+        if (added != null) {
+            delta[checkRating(added) - 1]++;
+        }
+        // Các biểu thức trong SET đọc giá trị cũ nên histogram mới được tính trước trong CROSS APPLY
+        jdbcTemplate.update("""
+                        UPDATE p SET rating_1_count = n.c1, rating_2_count = n.c2, rating_3_count = n.c3,
+                                     rating_4_count = n.c4, rating_5_count = n.c5,
+                                     review_count = n.c1 + n.c2 + n.c3 + n.c4 + n.c5,
+                                     avg_rating = CASE WHEN n.c1 + n.c2 + n.c3 + n.c4 + n.c5 = 0 THEN 0
+                                                       ELSE CAST(n.c1 + 2 * n.c2 + 3 * n.c3 + 4 * n.c4 + 5 * n.c5 AS FLOAT)
+                                                            / (n.c1 + n.c2 + n.c3 + n.c4 + n.c5) END
+                        FROM products p
+                        CROSS APPLY (SELECT p.rating_1_count + ? AS c1, p.rating_2_count + ? AS c2,
+                                            p.rating_3_count + ? AS c3, p.rating_4_count + ? AS c4,
+                                            p.rating_5_count + ? AS c5) n
+                        WHERE p.id = ?
+                        """,
+                delta[0], delta[1], delta[2], delta[3], delta[4], productId);
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(productId));
+    }
+
+    public ReviewSummaryResponse ratingSummary(Long productId) {
+        List<ReviewSummaryResponse> rows = jdbcTemplate.query("""
+                        SELECT avg_rating, review_count, rating_1_count, rating_2_count, rating_3_count,
+                               rating_4_count, rating_5_count
+                        FROM products WHERE id = ?
+                        """,
+                (rs, i) -> new ReviewSummaryResponse(productId, rs.getDouble(1), rs.getInt(2), new int[]{
+                        rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getInt(6), rs.getInt(7)}),
+                productId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("product", productId);
+        }
+        return rows.get(0);
+    }
+
+    private static int checkRating(int rating) {
+        if (rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("Điểm đánh giá phải từ 1 đến 5");
+        }
+        return rating;
+    }
+
+    /**
+     * Cộng/trừ tổng tồn theo lượng thay đổi của từng biến thể (đặt hàng, huỷ, trả hàng),
+     * không phải đọc lại các biến thể của sản phẩm.
+     *
+     * @param deltaByVariant id biến thể -> lượng tồn thay đổi (âm khi trừ kho)
+     */
+    public void adjustStock(Map<Long, Integer> deltaByVariant) {
+        List<Object[]> args = new ArrayList<>();
+        List<Long> variantIds = new ArrayList<>();
+        deltaByVariant.forEach((variantId, delta) -> {
+            if (delta != null && delta != 0) {
+                args.add(new Object[]{delta, variantId});
+                variantIds.add(variantId);
+            }
+        });
+        if (args.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                UPDATE products SET total_stock = total_stock + ?
+                WHERE id = (SELECT product_id FROM product_variants WHERE id = ? AND status = 1)
+                """, args);
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofVariants(variantIds));
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.SuggestionResponse;
+import com.example.shoozy_shop.util.TextNormalizer;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Gợi ý cho ô tìm kiếm (typeahead) từ trie trong bộ nhớ, không chạm DB.
+ * - Khoá là tên sản phẩm/thương hiệu/danh mục đã bỏ dấu, thêm các hậu tố bắt đầu từ từ thứ 2, 3...
+ *   để gõ "pegasus" vẫn ra "Nike Pegasus"
+ * - Mỗi nút giữ sẵn TOP_K mục bán chạy nhất trong cây con nên trả lời chỉ tốn thời gian đi hết tiền tố
+ * - Xếp theo số lượng đã bán (đơn DELIVERED/COMPLETED, như thống kê top bán chạy); thương hiệu/danh mục
+ *   cộng dồn từ các sản phẩm đang bán của nó
+ * Cập nhật theo từng sản phẩm/đơn hàng bởi {@link CatalogIndexUpdater}: chỉ tính lại TOP_K trên các nút
+ * thuộc đường đi của khoá bị đổi.
+ */
+@Component
+public class ProductSuggestIndex {
+
+    public record ProductRow(long id, String name, String thumbnail, boolean active,
+                             Long brandId, String brandName, Long categoryId, String categoryName) {
+    }
+
+    public enum Type {
+        PRODUCT, BRAND, CATEGORY
+    }
+
+    static final int TOP_K = 10;
+    // Gợi ý chỉ cần phần đầu của tên, cắt khoá để trie không phình theo tên dài
+    private static final int MAX_KEY_LENGTH = 24;
+    private static final int MAX_SUFFIXES = 6;
+    private static final int[] NONE = new int[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Được bảo vệ bởi lock
+    private State state = new State();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild(Collection<ProductRow> products, Map<Long, Long> soldByProduct) {
+        State fresh = new State();
+        fresh.sold.putAll(soldByProduct);
+        fresh.bulk = true;
+        products.forEach(fresh::putProduct);
+        fresh.bulk = false;
+        fresh.recomputeAll(fresh.root);
+        lock.writeLock().lock();
+        try {
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+    }
+
+    /**
+     * @param product null nếu sản phẩm không còn tồn tại
+     */
+    public void upsert(long productId, ProductRow product) {
+        lock.writeLock().lock();
+        try {
+            state.removeProduct(productId);
+            if (product != null) {
+                state.putProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cộng (hoặc trừ khi âm) số lượng đã bán theo sản phẩm.
+     */
+    public void addSold(Map<Long, Long> deltaByProduct) {
+        lock.writeLock().lock();
+        try {
+            deltaByProduct.forEach(state::addSold);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Đặt lại tổng đã bán của các sản phẩm (giá trị đọc từ DB), không phụ thuộc các lần cộng dồn trước.
+     */
+    public void setSold(Map<Long, Long> soldByProduct) {
+        lock.writeLock().lock();
+        try {
+            soldByProduct.forEach((productId, sold) ->
+                    state.addSold(productId, sold - state.sold.getOrDefault(productId, 0L)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        String key = key(TextNormalizer.tokens(prefix), 0);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = state.root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            List<SuggestionResponse> result = new ArrayList<>();
+            for (int i = 0; i < node.top.length && i < limit; i++) {
+                Entry e = state.entries.get(node.top[i]);
+                result.add(new SuggestionResponse(e.type.name(), e.refId, e.label, e.thumbnail, e.sold));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String key(List<String> tokens, int from) {
+        String key = String.join(" ", tokens.subList(from, tokens.size()));
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    private static Set<String> keysOf(String label) {
+        List<String> tokens = TextNormalizer.tokens(label);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size() && i < MAX_SUFFIXES; i++) {
+            keys.add(key(tokens, i));
+        }
+        return keys;
+    }
+
+    private static final class Entry {
+        final Type type;
+        final long refId;
+        String label;
+        String thumbnail;
+        Set<String> keys;
+        long sold;
+        // Số sản phẩm đang bán đóng góp vào thương hiệu/danh mục
+        int members;
+
+        Entry(Type type, long refId) {
+            this.type = type;
+            this.refId = refId;
+        }
+    }
+
+    private static final class Node {
+        // Nhãn con sắp xếp tăng dần, tìm bằng binary search
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        int[] terminals = NONE;
+        int[] top = NONE;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node getOrAdd(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            i = -i - 1;
+            Node node = new Node();
+            labels = insert(labels, i, c);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, i);
+            grown[i] = node;
+            System.arraycopy(children, i, grown, i + 1, children.length - i);
+            children = grown;
+            return node;
+        }
+
+        void removeChild(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i < 0) {
+                return;
+            }
+            char[] fewerLabels = new char[labels.length - 1];
+            Node[] fewer = new Node[children.length - 1];
+            System.arraycopy(labels, 0, fewerLabels, 0, i);
+            System.arraycopy(labels, i + 1, fewerLabels, i, labels.length - i - 1);
+            System.arraycopy(children, 0, fewer, 0, i);
+            System.arraycopy(children, i + 1, fewer, i, children.length - i - 1);
+            labels = fewerLabels;
+            children = fewer;
+        }
+
+        boolean isEmpty() {
+            return terminals.length == 0 && children.length == 0;
+        }
+
+        static char[] insert(char[] array, int index, char value) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, index);
+            grown[index] = value;
+            System.arraycopy(array, index, grown, index + 1, array.length - index);
+            return grown;
+        }
+    }
+
+    private static final class State {
+        final Node root = new Node();
+        // Id của mục = vị trí trong danh sách, không dùng lại sau khi xoá
+        final List<Entry> entries = new ArrayList<>();
+        final Map<String, Integer> entryIds = new HashMap<>();
+        final Map<Long, ProductRow> products = new HashMap<>();
+        final Map<Long, Long> sold = new HashMap<>();
+        // Đang dựng toàn bộ: chưa tính TOP_K, làm một lượt ở cuối
+        boolean bulk;
+
+        final Comparator<Integer> rank = Comparator
+                .comparingLong((Integer id) -> entries.get(id).sold).reversed()
+                .thenComparingInt(id -> entries.get(id).label.length())
+                .thenComparingInt(id -> entries.get(id).type.ordinal())
+                .thenComparingLong(id -> entries.get(id).refId);
+
+        void putProduct(ProductRow p) {
+            if (!p.active()) {
+                // Vẫn giữ lại để biết thương hiệu/danh mục khi sản phẩm được bán lại
+                products.put(p.id(), p);
+                return;
+            }
+            products.put(p.id(), p);
+            long productSold = sold.getOrDefault(p.id(), 0L);
+            Entry product = entry(Type.PRODUCT, p.id());
+            product.thumbnail = p.thumbnail();
+            product.sold = productSold;
+            setLabel(product, p.name());
+            if (p.brandId() != null) {
+                join(Type.BRAND, p.brandId(), p.brandName(), productSold);
+            }
+            if (p.categoryId() != null) {
+                join(Type.CATEGORY, p.categoryId(), p.categoryName(), productSold);
+            }
+        }
+
+        void removeProduct(long productId) {
+            ProductRow p = products.remove(productId);
+            if (p == null || !p.active()) {
+                return;
+            }
+            long productSold = sold.getOrDefault(productId, 0L);
+            drop(Type.PRODUCT, productId);
+            if (p.brandId() != null) {
+                leave(Type.BRAND, p.brandId(), productSold);
+            }
+            if (p.categoryId() != null) {
+                leave(Type.CATEGORY, p.categoryId(), productSold);
+            }
+        }
+
+        void addSold(Long productId, Long delta) {
+            sold.merge(productId, delta, Long::sum);
+            ProductRow p = products.get(productId);
+            if (p == null || !p.active()) {
+                return;
+            }
+            adjust(Type.PRODUCT, productId, delta);
+            if (p.brandId() != null) {
+                adjust(Type.BRAND, p.brandId(), delta);
+            }
+            if (p.categoryId() != null) {
+                adjust(Type.CATEGORY, p.categoryId(), delta);
+            }
+        }
+
+        void join(Type type, long refId, String label, long productSold) {
+            Entry e = entry(type, refId);
+            e.members++;
+            e.sold += productSold;
+            setLabel(e, label);
+        }
+
+        void leave(Type type, long refId, long productSold) {
+            Integer id = entryIds.get(type + ":" + refId);
+            if (id == null) {
+                return;
+            }
+            Entry e = entries.get(id);
+            if (--e.members <= 0) {
+                drop(type, refId);
+            } else {
+                e.sold -= productSold;
+                refresh(id);
+            }
+        }
+
+        void adjust(Type type, long refId, long delta) {
+            Integer id = entryIds.get(type + ":" + refId);
+            if (id != null) {
+                entries.get(id).sold += delta;
+                refresh(id);
+            }
+        }
+
+        Entry entry(Type type, long refId) {
+            Integer id = entryIds.computeIfAbsent(type + ":" + refId, k -> {
+                entries.add(new Entry(type, refId));
+                return entries.size() - 1;
+            });
+            return entries.get(id);
+        }
+
+        void setLabel(Entry e, String label) {
+            int id = entryIds.get(e.type + ":" + e.refId);
+            if (label == null || label.equals(e.label)) {
+                refresh(id);
+                return;
+            }
+            if (e.keys != null) {
+                e.keys.forEach(key -> removeKey(key, id));
+            }
+            e.label = label;
+            e.keys = keysOf(label);
+            e.keys.forEach(key -> addKey(key, id));
+        }
+
+        void drop(Type type, long refId) {
+            Integer id = entryIds.remove(type + ":" + refId);
+            if (id == null) {
+                return;
+            }
+            Entry e = entries.get(id);
+            if (e.keys != null) {
+                e.keys.forEach(key -> removeKey(key, id));
+            }
+            entries.set(id, null);
+        }
+
+        void addKey(String key, int id) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) {
+                path[i + 1] = path[i].getOrAdd(key.charAt(i));
+            }
+            Node last = path[key.length()];
+            last.terminals = Arrays.copyOf(last.terminals, last.terminals.length + 1);
+            last.terminals[last.terminals.length - 1] = id;
+            recomputePath(path, key);
+        }
+
+        void removeKey(String key, int id) {
+            Node[] path = walk(key);
+            if (path == null) {
+                return;
+            }
+            Node last = path[key.length()];
+            last.terminals = Arrays.stream(last.terminals).filter(t -> t != id).toArray();
+            recomputePath(path, key);
+        }
+
+        void refresh(int id) {
+            if (bulk) {
+                return;
+            }
+            Entry e = entries.get(id);
+            if (e.keys == null) {
+                return;
+            }
+            for (String key : e.keys) {
+                Node[] path = walk(key);
+                if (path != null) {
+                    recomputePath(path, key);
+                }
+            }
+        }
+
+        Node[] walk(String key) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) {
+                path[i + 1] = path[i].child(key.charAt(i));
+                if (path[i + 1] == null) {
+                    return null;
+                }
+            }
+            return path;
+        }
+
+        // Từ nút sâu nhất lên gốc: TOP_K của cây con con đã đúng nên nút cha chỉ cần gộp lại; bỏ nút rỗng
+        void recomputePath(Node[] path, String key) {
+            if (bulk) {
+                return;
+            }
+            for (int i = key.length(); i >= 0; i--) {
+                Node node = path[i];
+                if (i > 0 && node.isEmpty()) {
+                    path[i - 1].removeChild(key.charAt(i - 1));
+                    continue;
+                }
+                recompute(node);
+            }
+        }
+
+        void recomputeAll(Node node) {
+            for (Node child : node.children) {
+                recomputeAll(child);
+            }
+            recompute(node);
+        }
+
+        void recompute(Node node) {
+            List<Integer> candidates = new ArrayList<>();
+            for (int id : node.terminals) {
+                candidates.add(id);
+            }
+            for (Node child : node.children) {
+                for (int id : child.top) {
+                    candidates.add(id);
+                }
+            }
+            node.top = candidates.stream()
+                    .distinct()
+                    .sorted(rank)
+                    .limit(TOP_K)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.example.shoozy_shop.repository.ProductImageRepository;
 import com.example.shoozy_shop.repository.ProductVariantImageRepository;
 import com.example.shoozy_shop.repository.ProductVariantRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +27,7 @@ public class ProductVariantImageService implements IProductVariantImageService {
     private final ProductVariantImageRepository productVariantImageRepository;
     private final ProductVariantRepository productVariantRepository;
     private final ProductImageRepository productImageRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -64,7 +66,10 @@ public class ProductVariantImageService implements IProductVariantImageService {
             }
         }
 
-        return productVariantImageRepository.save(productVariantImage);
+        ProductVariantImage saved = productVariantImageRepository.save(productVariantImage);
+        // Ảnh/thumbnail biến thể và sản phẩm nằm trong chi tiết, thẻ sản phẩm đang cache
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(product.getId()));
+        return saved;
     }
 
 
@@ -79,6 +84,10 @@ public class ProductVariantImageService implements IProductVariantImageService {
     }
 
     public void deleteByImageId(Long imageId) {
-        productVariantImageRepository.deleteById(imageId);
+        productVariantImageRepository.findById(imageId).ifPresent(link -> {
+            productVariantImageRepository.delete(link);
+            eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(
+                    link.getProductVariant().getProduct().getId()));
+        });
     }
 }
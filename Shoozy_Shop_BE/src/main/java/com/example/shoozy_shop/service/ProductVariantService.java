@@ -2,25 +2,46 @@ package com.example.shoozy_shop.service;
 
 import com.example.shoozy_shop.dto.request.ProductVariantAddRequest;
 import com.example.shoozy_shop.dto.request.ProductVariantUpdateRequest;
+import com.example.shoozy_shop.dto.request.VariantBulkUpdateRequest;
 import com.example.shoozy_shop.dto.response.ProductVariantResponse;
+import com.example.shoozy_shop.dto.response.VariantBulkUpdateResponse;
+import com.example.shoozy_shop.exception.CustomException;
 import com.example.shoozy_shop.exception.ResourceNotFoundException;
 import com.example.shoozy_shop.model.*;
 import com.example.shoozy_shop.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductVariantService implements IProductVariantService {
 
+    // Trường null giữ nguyên giá trị cũ; version null thì bỏ qua kiểm tra phiên bản
+    private static final String BULK_UPDATE = """
+            UPDATE product_variants
+            SET sell_price = COALESCE(?, sell_price), cost_price = COALESCE(?, cost_price), quantity = quantity + ?
+            WHERE id = ? AND status = 1 AND quantity + ? >= 0
+              AND (? IS NULL OR CAST(row_version AS BIGINT) = ?)
+            """;
+    private static final String CURRENT_VERSION = "SELECT CAST(row_version AS BIGINT) FROM product_variants WHERE id = ?";
+
     private final ProductVariantRepository productVariantRepository;
     private final ProductRepository productRepository;
     private final SizeRepository sizeRepository;
     private final MaterialRepository materialRepository;
     private final ColorRepository colorRepository;
+    private final FlashSaleStockLedger flashSaleStockLedger;
+    private final ProductSortKeyService productSortKeyService;
+    private final JdbcTemplate jdbcTemplate;
 
     @Override
     public List<ProductVariantResponse> getAllProductVariants() {
@@ -43,9 +64,11 @@ public class ProductVariantService implements IProductVariantService {
                 .costPrice(variant.getCostPrice())
                 .sellPrice(variant.getSellPrice())
                 .quantity(variant.getQuantity())
+                .version(variant.getVersion())
                 .build();
     }
     @Override
+    @Transactional
     public ProductVariant addProductVariant(ProductVariantAddRequest productVariantAddRequest) {
         Product existingProduct = productRepository.findById(productVariantAddRequest.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("product", productVariantAddRequest.getProductId()));
@@ -61,24 +84,133 @@ public class ProductVariantService implements IProductVariantService {
                 .costPrice(productVariantAddRequest.getCostPrice())
                 .sellPrice(productVariantAddRequest.getSellPrice())
                 .build();
-        return productVariantRepository.save(newProductVariant);
+        ProductVariant saved = productVariantRepository.saveAndFlush(newProductVariant);
+        productSortKeyService.refreshVariantKeys(existingProduct.getId());
+        return withCurrentVersion(saved);
     }
 
     @Override
+    @Transactional
     public ProductVariant updateProductVariant(Long id, ProductVariantUpdateRequest productVariantUpdateRequest) {
         ProductVariant existingProductVariant = productVariantRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("product variant", id));
+        if (flashSaleStockLedger.isManaged(id)
+                && !productVariantUpdateRequest.getQuantity().equals(existingProductVariant.getQuantity())) {
+            throw new IllegalStateException("Biến thể đang ở chế độ flash sale, hãy tắt trước khi sửa số lượng.");
+        }
         existingProductVariant.setQuantity(productVariantUpdateRequest.getQuantity());
         existingProductVariant.setCostPrice(productVariantUpdateRequest.getCostPrice());
         existingProductVariant.setSellPrice(productVariantUpdateRequest.getSellPrice());
-        return productVariantRepository.save(existingProductVariant);
+        ProductVariant saved = productVariantRepository.saveAndFlush(existingProductVariant);
+        productSortKeyService.refreshVariantKeys(saved.getProduct().getId());
+        return withCurrentVersion(saved);
+    }
+
+    // version là @Formula, Hibernate chỉ tính khi nạp entity: sau khi ghi phải đọc lại row_version mới,
+    // nếu không response trả version cũ và lần sửa hàng loạt tiếp theo bị từ chối (409)
+    private ProductVariant withCurrentVersion(ProductVariant variant) {
+        variant.setVersion(jdbcTemplate.queryForObject(CURRENT_VERSION, Long.class, variant.getId()));
+        return variant;
     }
 
     @Override
+    @Transactional
     public void deleteProductVariant(Long id) {
         ProductVariant existingProductVariant = productVariantRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("product variant", id));
         existingProductVariant.setStatus(false);
-        productVariantRepository.save(existingProductVariant);
+        productVariantRepository.saveAndFlush(existingProductVariant);
+        productSortKeyService.refreshVariantKeys(existingProductVariant.getProduct().getId());
+    }
+
+    /**
+     * Đổi giá/nhập kho nhiều biến thể trong một transaction: một batch UPDATE cho mọi biến thể, một câu UPDATE
+     * tính lại khoá sắp xếp của các sản phẩm liên quan và một ProductChangedEvent duy nhất cho cache,
+     * chỉ mục và danh sách sắp hết hàng.
+     * Biến thể đã bị sửa sau version gửi lên, đã ngừng bán hoặc không đủ tồn để trừ thì huỷ cả request (409).
+     */
+    @Override
+    @Transactional
+    public VariantBulkUpdateResponse bulkUpdate(VariantBulkUpdateRequest request) {
+        List<VariantBulkUpdateRequest.Item> items = request.getItems();
+        Set<Long> ids = new LinkedHashSet<>();
+        List<Object[]> args = new ArrayList<>(items.size());
+        for (VariantBulkUpdateRequest.Item item : items) {
+            Long id = item.getVariantId();
+            int delta = item.getQuantityDelta() != null ? item.getQuantityDelta() : 0;
+            if (!ids.add(id)) {
+                throw new IllegalArgumentException("Biến thể " + id + " xuất hiện nhiều lần");
+            }
+            if (item.getSellPrice() == null && item.getCostPrice() == null && delta == 0) {
+                throw new IllegalArgumentException("Biến thể " + id + " không có thay đổi nào");
+            }
+            if (delta != 0 && flashSaleStockLedger.isManaged(id)) {
+                throw new IllegalStateException("Biến thể " + id + " đang ở chế độ flash sale, hãy tắt trước khi sửa số lượng.");
+            }
+            SqlParameterValue version = new SqlParameterValue(Types.BIGINT, item.getVersion());
+            args.add(new Object[]{new SqlParameterValue(Types.DOUBLE, item.getSellPrice()),
+                    new SqlParameterValue(Types.DOUBLE, item.getCostPrice()), delta, id, delta, version, version});
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(BULK_UPDATE, args);
+        List<VariantBulkUpdateRequest.Item> rejected = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || counts[i] == Statement.EXECUTE_FAILED) {
+                rejected.add(items.get(i));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            throw new CustomException(describeRejected(rejected), HttpStatus.CONFLICT.value());
+        }
+
+        List<VariantBulkUpdateResponse.Variant> updated = jdbcTemplate.query("""
+                        SELECT id, product_id, quantity, cost_price, sell_price, CAST(row_version AS BIGINT) AS version
+                        FROM product_variants WHERE id IN (""" + placeholders(ids.size()) + ")",
+                (rs, i) -> new VariantBulkUpdateResponse.Variant(
+                        rs.getLong("id"),
+                        rs.getLong("product_id"),
+                        rs.getInt("quantity"),
+                        rs.getDouble("cost_price"),
+                        rs.getDouble("sell_price"),
+                        rs.getLong("version")),
+                ids.toArray());
+        productSortKeyService.refreshVariantKeys(updated.stream()
+                .map(VariantBulkUpdateResponse.Variant::productId)
+                .collect(Collectors.toSet()));
+        return new VariantBulkUpdateResponse(updated.size(), updated);
+    }
+
+    // Đọc lại các biến thể bị từ chối để báo đúng lý do cho từng biến thể
+    private String describeRejected(List<VariantBulkUpdateRequest.Item> rejected) {
+        Map<Long, VariantBulkUpdateRequest.Item> byId = new LinkedHashMap<>();
+        rejected.forEach(item -> byId.put(item.getVariantId(), item));
+        Map<Long, String> reasons = new LinkedHashMap<>();
+        byId.keySet().forEach(id -> reasons.put(id, "không tồn tại"));
+        jdbcTemplate.query("""
+                        SELECT id, status, quantity, CAST(row_version AS BIGINT) AS version
+                        FROM product_variants WHERE id IN (""" + placeholders(byId.size()) + ")",
+                rs -> {
+                    VariantBulkUpdateRequest.Item item = byId.get(rs.getLong("id"));
+                    int delta = item.getQuantityDelta() != null ? item.getQuantityDelta() : 0;
+                    String reason;
+                    if (!rs.getBoolean("status")) {
+                        reason = "đã ngừng bán";
+                    } else if (item.getVersion() != null && item.getVersion() != rs.getLong("version")) {
+                        reason = "đã bị sửa bởi người khác, hãy tải lại";
+                    } else if (rs.getInt("quantity") + delta < 0) {
+                        reason = "chỉ còn " + rs.getInt("quantity") + " trong kho";
+                    } else {
+                        reason = "không cập nhật được";
+                    }
+                    reasons.put(item.getVariantId(), reason);
+                },
+                byId.keySet().toArray());
+        return reasons.entrySet().stream()
+                .map(e -> "Biến thể " + e.getKey() + " " + e.getValue())
+                .collect(Collectors.joining("; "));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
     }
 }
@@ -13,6 +13,7 @@ import com.example.shoozy_shop.repository.PromotionRepository;
 import jakarta.persistence.Tuple;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -28,6 +29,9 @@ public class PromotionService implements IPromotionService {
     private final PromotionRepository promotionRepository;
     private final PromotionProductRepository promotionProductRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final IIdGeneratorService idGeneratorService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogVersions catalogVersions;
     private static final double MAX_PERCENT = 90.0;
 
 
@@ -81,6 +85,7 @@ public class PromotionService implements IPromotionService {
         Promotion existingPromotion = getPromotionById(id);
         existingPromotion.setStatus(DefineStatus.DELETED.getValue());
         promotionRepository.save(existingPromotion);
+        publishVariantsChanged(id);
     }
 
     @Transactional
@@ -99,7 +104,7 @@ public class PromotionService implements IPromotionService {
 
         ).getValue();
 
-        String code = "SHOOZY" + UUID.randomUUID().toString().replace("-", "").substring(0, 4).toUpperCase();
+        String code = idGeneratorService.nextPromotionCode();
 
         Promotion promotion = Promotion.builder()
                 .name(promotionRequest.getName())
@@ -114,6 +119,7 @@ public class PromotionService implements IPromotionService {
         promotionRepository.save(promotion);
 
         setProductVariant(promotionRequest, promotion);
+        publishVariantsChanged(promotion.getId());
 
         return PromotionResponse.builder()
                 .name(promotion.getName())
@@ -149,6 +155,10 @@ public class PromotionService implements IPromotionService {
         }
 
         List<ProductPromotion> currentPromotions = promotionProductRepository.findByPromotionId(id);
+        // Biến thể bị gỡ khỏi khuyến mãi cũng phải bỏ giá khuyến mãi khỏi cache
+        Set<Long> affectedVariantIds = currentPromotions.stream()
+                .map(pp -> pp.getProductVariant().getId())
+                .collect(Collectors.toCollection(HashSet::new));
         Set<Long> requestIds = requestList.stream()
                 .map(ProductPromotionRequest::getIdPromotionProduct)
                 .filter(Objects::nonNull)
@@ -175,8 +185,11 @@ public class PromotionService implements IPromotionService {
                 productPromotion.setCustomValue(ppq.getCustomValue());
 
                 promotionProductRepository.save(productPromotion);
+                affectedVariantIds.add(variantId);
             }
         }
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofVariants(affectedVariantIds));
+        catalogVersions.bumpAfterCommit(CatalogVersions.PROMOTIONS);
 
         return PromotionResponse.builder()
                 .name(existingPromotion.getName())
@@ -241,7 +254,18 @@ public class PromotionService implements IPromotionService {
         }
 
         promotionRepository.save(promotion);
+        publishVariantsChanged(id);
     }
+
+    // Giá khuyến mãi nằm trong chi tiết/thẻ sản phẩm của các biến thể được áp; danh sách khuyến mãi cũng đổi ETag
+    private void publishVariantsChanged(Long promotionId) {
+        List<Long> variantIds = promotionProductRepository.findByPromotionId(promotionId).stream()
+                .map(pp -> pp.getProductVariant().getId())
+                .toList();
+        eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofVariants(variantIds));
+        catalogVersions.bumpAfterCommit(CatalogVersions.PROMOTIONS);
+    }
+
     private Boolean checkPromotionValid(PromotionRequest promotionRequest) throws Exception {
         // 1) kiểm tra cơ bản
         if (promotionRequest == null) {
@@ -0,0 +1,56 @@
+package com.example.shoozy_shop.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mã hoá message realtime.
+ * - JSON: ObjectWriter dựng sẵn theo từng kiểu message, serialize đúng một lần trên luồng gọi;
+ *   kết quả ({@link RawValue}) được coalescer/Kafka/broker chép nguyên dù gửi tới bao nhiêu destination
+ * - CBOR: chuyển thẳng từ JSON đã serialize (stream token, không dựng cây) cho client xin mã hoá nhị phân
+ */
+@Component
+public class RealtimeEventCodec {
+
+    public static final String ENCODING_HEADER = "x-encoding";
+    public static final String CBOR = "cbor";
+
+    private final ObjectMapper objectMapper;
+    private final CBORFactory cborFactory = new CBORFactory();
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public RealtimeEventCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public RawValue encode(Object message) {
+        ObjectWriter writer = writers.computeIfAbsent(message.getClass(), objectMapper::writerFor);
+        try {
+            return new RawValue(writer.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + message.getClass().getSimpleName(), e);
+        }
+    }
+
+    public byte[] toCbor(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = objectMapper.getFactory().createParser(json);
+             JsonGenerator generator = cborFactory.createGenerator(out)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.shoozy_shop.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Danh sách "sản phẩm liên quan / thường mua cùng" tính sẵn cho từng sản phẩm, giữ trong bộ nhớ dạng long[] TOP_N id.
+ * Điểm của ứng viên = số đơn mua cùng * CO_PURCHASE_WEIGHT + cùng danh mục (2) + cùng thương hiệu (1),
+ * bằng điểm thì ưu tiên sản phẩm bán chạy. Ứng viên: mọi sản phẩm từng mua cùng và các sản phẩm bán chạy
+ * nhất cùng danh mục/thương hiệu, nên sản phẩm chưa có đơn nào vẫn có đủ danh sách.
+ * Dựng lại toàn bộ và cập nhật theo đơn hàng bởi {@link RelatedProductsUpdater}.
+ */
+@Component
+public class RelatedProductsIndex {
+
+    public record ProductRow(long id, Long brandId, Long categoryId, boolean active) {
+    }
+
+    /**
+     * Số đơn (đã giao/hoàn tất) có cả productId và otherId.
+     */
+    public record CoPurchase(long productId, long otherId, long orders) {
+    }
+
+    public static final int TOP_N = 12;
+    // Một lần mua cùng nặng hơn việc cùng danh mục + thương hiệu
+    static final int CO_PURCHASE_WEIGHT = 4;
+    private static final long[] NONE = new long[0];
+
+    private record State(Map<Long, ProductRow> products, Map<Long, Long> sold,
+                         Map<Long, long[]> topByCategory, Map<Long, long[]> topByBrand,
+                         Map<Long, long[]> related) {
+    }
+
+    private volatile State state = new State(Map.of(), Map.of(), Map.of(), Map.of(), new ConcurrentHashMap<>());
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild(Collection<ProductRow> products, Map<Long, Long> soldByProduct, Collection<CoPurchase> coPurchases) {
+        Map<Long, ProductRow> byId = new HashMap<>();
+        products.forEach(p -> byId.put(p.id(), p));
+        Map<Long, List<Long>> byCategory = new HashMap<>();
+        Map<Long, List<Long>> byBrand = new HashMap<>();
+        for (ProductRow product : products) {
+            if (!product.active()) {
+                continue;
+            }
+            if (product.categoryId() != null) {
+                byCategory.computeIfAbsent(product.categoryId(), k -> new ArrayList<>()).add(product.id());
+            }
+            if (product.brandId() != null) {
+                byBrand.computeIfAbsent(product.brandId(), k -> new ArrayList<>()).add(product.id());
+            }
+        }
+        Map<Long, Long> sold = Map.copyOf(soldByProduct);
+        State fresh = new State(byId, sold, topSelling(byCategory, sold), topSelling(byBrand, sold),
+                new ConcurrentHashMap<>());
+
+        Map<Long, List<CoPurchase>> coByProduct = new HashMap<>();
+        coPurchases.forEach(c -> coByProduct.computeIfAbsent(c.productId(), k -> new ArrayList<>()).add(c));
+        for (ProductRow product : products) {
+            long[] related = compute(fresh, product, coByProduct.getOrDefault(product.id(), List.of()));
+            if (related.length > 0) {
+                fresh.related.put(product.id(), related);
+            }
+        }
+        state = fresh;
+        ready = true;
+    }
+
+    /**
+     * Tính lại danh sách của các sản phẩm vừa có đơn thay đổi, với số lần mua cùng mới nhất của chúng.
+     * Sản phẩm chưa có trong chỉ mục (vừa tạo) chờ lần dựng lại định kỳ.
+     */
+    public void refresh(Map<Long, List<CoPurchase>> coPurchasesByProduct) {
+        State current = state;
+        coPurchasesByProduct.forEach((productId, coPurchases) -> {
+            ProductRow product = current.products.get(productId);
+            if (product != null) {
+                current.related.put(productId, compute(current, product, coPurchases));
+            }
+        });
+    }
+
+    public List<Long> related(long productId, int limit) {
+        long[] related = state.related.getOrDefault(productId, NONE);
+        List<Long> ids = new ArrayList<>(Math.min(limit, related.length));
+        for (int i = 0; i < related.length && ids.size() < limit; i++) {
+            ids.add(related[i]);
+        }
+        return ids;
+    }
+
+    private static long[] compute(State state, ProductRow product, List<CoPurchase> coPurchases) {
+        Map<Long, Long> scores = new HashMap<>();
+        for (CoPurchase co : coPurchases) {
+            scores.merge(co.otherId(), co.orders() * CO_PURCHASE_WEIGHT, Long::sum);
+        }
+        if (product.categoryId() != null) {
+            for (long id : state.topByCategory.getOrDefault(product.categoryId(), NONE)) {
+                scores.putIfAbsent(id, 0L);
+            }
+        }
+        if (product.brandId() != null) {
+            for (long id : state.topByBrand.getOrDefault(product.brandId(), NONE)) {
+                scores.putIfAbsent(id, 0L);
+            }
+        }
+        scores.remove(product.id());
+
+        List<long[]> ranked = new ArrayList<>(scores.size());
+        scores.forEach((id, coScore) -> {
+            ProductRow other = state.products.get(id);
+            if (other == null || !other.active()) {
+                return;
+            }
+            long score = coScore
+                    + (Objects.equals(other.categoryId(), product.categoryId()) && other.categoryId() != null ? 2 : 0)
+                    + (Objects.equals(other.brandId(), product.brandId()) && other.brandId() != null ? 1 : 0);
+            ranked.add(new long[]{id, score, state.sold.getOrDefault(id, 0L)});
+        });
+        ranked.sort(Comparator.<long[]>comparingLong(r -> r[1]).reversed()
+                .thenComparing(Comparator.<long[]>comparingLong(r -> r[2]).reversed())
+                .thenComparingLong(r -> r[0]));
+        long[] top = new long[Math.min(TOP_N, ranked.size())];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = ranked.get(i)[0];
+        }
+        return top;
+    }
+
+    // Mỗi nhóm chỉ cần đủ TOP_N + 1 sản phẩm bán chạy nhất (trừ chính sản phẩm đang xem vẫn còn đủ TOP_N)
+    private static Map<Long, long[]> topSelling(Map<Long, List<Long>> groups, Map<Long, Long> sold) {
+        Map<Long, long[]> top = new HashMap<>();
+        groups.forEach((key, ids) -> top.put(key, ids.stream()
+                .sorted(Comparator.<Long>comparingLong(id -> sold.getOrDefault(id, 0L)).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(TOP_N + 1)
+                .mapToLong(Long::longValue)
+                .toArray()));
+        return top;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.shoozy_shop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Giữ {@link RelatedProductsIndex} khớp với DB:
+ * - Dựng toàn bộ khi ứng dụng sẵn sàng và định kỳ (app.related-products.rebuild-interval-ms)
+ * - Đơn vào/rời trạng thái đã bán ({@link CatalogIndexUpdater.SalesChangedEvent}): đếm lại số lần mua cùng
+ *   cho các sản phẩm trong đơn đó và tính lại danh sách của chúng
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RelatedProductsUpdater {
+
+    // Phiên bản trong CatalogVersions, đổi mỗi khi danh sách liên quan được tính lại
+    public static final String VERSION_KEY = "relatedProducts";
+
+    private static final String PRODUCT_COLUMNS = "SELECT id, brand_id, category_id, status FROM products";
+
+    // Cùng cách tính "đã bán" với CatalogIndexUpdater.SOLD_STATUSES
+    private static final String SOLD_COLUMNS = """
+            SELECT pv.product_id, SUM(od.quantity) AS sold
+            FROM order_details od
+            JOIN orders o ON o.id = od.order_id
+            JOIN product_variants pv ON pv.id = od.product_variant_id
+            WHERE o.status IN ('DELIVERED', 'COMPLETED')
+            GROUP BY pv.product_id
+            """;
+
+    // Mỗi cặp sản phẩm khác nhau trong cùng một đơn tính một lần, dù đơn có nhiều biến thể của chúng
+    private static final String CO_PURCHASE_COLUMNS = """
+            WITH bought AS (
+                SELECT DISTINCT od.order_id, pv.product_id
+                FROM order_details od
+                JOIN orders o ON o.id = od.order_id
+                JOIN product_variants pv ON pv.id = od.product_variant_id
+                WHERE o.status IN ('DELIVERED', 'COMPLETED')
+            )
+            SELECT a.product_id, b.product_id AS other_id, COUNT(*) AS orders
+            FROM bought a
+            JOIN bought b ON b.order_id = a.order_id AND b.product_id <> a.product_id
+            """;
+
+    private static final RowMapper<RelatedProductsIndex.CoPurchase> CO_PURCHASE_MAPPER =
+            (rs, i) -> new RelatedProductsIndex.CoPurchase(rs.getLong("product_id"), rs.getLong("other_id"),
+                    rs.getLong("orders"));
+
+    private final RelatedProductsIndex relatedProductsIndex;
+    private final CatalogVersions catalogVersions;
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${app.related-products.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${app.related-products.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            List<RelatedProductsIndex.ProductRow> products = jdbcTemplate.query(PRODUCT_COLUMNS,
+                    (rs, i) -> new RelatedProductsIndex.ProductRow(
+                            rs.getLong("id"),
+                            rs.getObject("brand_id", Long.class),
+                            rs.getObject("category_id", Long.class),
+                            rs.getBoolean("status")));
+            Map<Long, Long> sold = new HashMap<>();
+            jdbcTemplate.query(SOLD_COLUMNS, rs -> { sold.put(rs.getLong("product_id"), rs.getLong("sold")); });
+            List<RelatedProductsIndex.CoPurchase> coPurchases = jdbcTemplate.query(
+                    CO_PURCHASE_COLUMNS + " GROUP BY a.product_id, b.product_id", CO_PURCHASE_MAPPER);
+            relatedProductsIndex.rebuild(products, sold, coPurchases);
+            catalogVersions.bump(VERSION_KEY);
+            log.info("Related products built: {} products, {} co-purchase pairs in {} ms",
+                    products.size(), coPurchases.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            // Chưa sẵn sàng thì ProductService lấy sản phẩm cùng danh mục từ DB
+            log.error("Related products build failed", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSalesChanged(CatalogIndexUpdater.SalesChangedEvent event) {
+        if (!relatedProductsIndex.isReady()) {
+            return;
+        }
+        try {
+            List<Long> productIds = jdbcTemplate.queryForList("""
+                    SELECT DISTINCT pv.product_id
+                    FROM order_details od
+                    JOIN product_variants pv ON pv.id = od.product_variant_id
+                    WHERE od.order_id = ?
+                    """, Long.class, event.orderId());
+            // Đơn chỉ có một sản phẩm không tạo cặp mua cùng nào
+            if (productIds.size() < 2) {
+                return;
+            }
+            String placeholders = productIds.stream().map(id -> "?").collect(Collectors.joining(","));
+            Map<Long, List<RelatedProductsIndex.CoPurchase>> coPurchases = new HashMap<>();
+            productIds.forEach(id -> coPurchases.put(id, new ArrayList<>()));
+            jdbcTemplate.query(CO_PURCHASE_COLUMNS + " WHERE a.product_id IN (" + placeholders + ")"
+                            + " GROUP BY a.product_id, b.product_id",
+                    CO_PURCHASE_MAPPER, productIds.toArray())
+                    .forEach(c -> coPurchases.get(c.productId()).add(c));
+            relatedProductsIndex.refresh(coPurchases);
+            catalogVersions.bump(VERSION_KEY);
+        } catch (RuntimeException e) {
+            // Lần dựng lại định kỳ sẽ sửa phần lệch
+            log.error("Related products update failed for order {}", event.orderId(), e);
+        }
+    }
+}
@@ -28,7 +28,9 @@ import java.math.RoundingMode;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -53,6 +55,10 @@ public class ReturnServiceImpl implements ReturnService {
     @Autowired
     private RefundInfoRepository refundInfoRepository;
     @Autowired
+    private FlashSaleStockLedger flashSaleStockLedger;
+    @Autowired
+    private ProductSortKeyService productSortKeyService;
+    @Autowired
     private final MinioService minioService;
 
     @Override
@@ -360,11 +366,14 @@ public class ReturnServiceImpl implements ReturnService {
 
         switch (newStatus) {
             case RETURNED -> {
+                Map<Long, Integer> stockDelta = new HashMap<>();
                 for (ReturnItem item : req.getReturnItems()) {
                     ProductVariant variant = item.getOrderDetail().getProductVariant();
-                    variant.setQuantity(variant.getQuantity() + item.getQuantity());
-                    productVariantRepository.save(variant);
+                    productVariantRepository.addQuantity(variant.getId(), item.getQuantity());
+                    flashSaleStockLedger.restock(variant.getId(), item.getQuantity());
+                    stockDelta.merge(variant.getId(), item.getQuantity(), Integer::sum);
                 }
+                productSortKeyService.adjustStock(stockDelta);
             }
             case REFUNDED -> {
                 if (refundTransactionRepository.existsByReturnRequestId(req.getId())) {
@@ -4,8 +4,10 @@ import com.example.shoozy_shop.exception.ResourceNotFoundException;
 import com.example.shoozy_shop.model.Review;
 import com.example.shoozy_shop.repository.ReviewRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import com.example.shoozy_shop.dto.event.ReviewEventPayload;
 import com.example.shoozy_shop.dto.request.ReviewRequest;
 import com.example.shoozy_shop.model.Product;
 import com.example.shoozy_shop.model.User;
@@ -16,9 +18,15 @@ import com.example.shoozy_shop.model.OrderDetail;
 import com.example.shoozy_shop.repository.OrderDetailRepository;
 import com.example.shoozy_shop.service.WebSocketService;
 import com.example.shoozy_shop.dto.response.ReviewInfoDTO;
+import com.example.shoozy_shop.dto.response.ReviewPageResponse;
+import com.example.shoozy_shop.util.KeysetCursor;
+import com.example.shoozy_shop.util.ReviewThreads;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +38,10 @@ public class ReviewService {
     private final UserRepository userRepository;
     private final OrderDetailRepository orderDetailRepository;
     private final WebSocketService webSocketService;
+    private final ProductSortKeyService productSortKeyService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int MAX_PAGE_SIZE = 50;
 
     // Lấy tất cả review
     public List<Review> getAllReviews() {
@@ -46,10 +58,13 @@ public class ReviewService {
     @Transactional
     public Review updateReview(Long id, Review review) {
         Review existingReview = getReviewById(id);
+        Integer before = countedRating(existingReview);
         existingReview.setContent(review.getContent());
         existingReview.setIsHidden(review.getIsHidden());
         existingReview.setRating(review.getRating());
-        return reviewRepository.save(existingReview);
+        Review saved = reviewRepository.save(existingReview);
+        adjustRating(saved, before, countedRating(saved));
+        return saved;
     }
 
 //    public List<Review> getReviewsByProductId(Long productId) {
@@ -63,10 +78,12 @@ public class ReviewService {
 //        return commentRepository.save(comment); // Cần inject CommentRepository
 //    }
 
+    @Transactional
     public void deleteReview(Long reviewId) {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new RuntimeException("Review không tồn tại"));
         reviewRepository.delete(review);
+        adjustRating(review, countedRating(review), null);
     }
 
     public List<Review> getReviewsByProductId(Long productId) {
@@ -74,15 +91,45 @@ public class ReviewService {
     }
 
     public List<ReviewResponseDTO> getReviewDTOsByProductId(Long productId) {
-        List<Review> allReviews = getReviewsByProductId(productId);
-        // Lấy các review cha (parent == null)
-        return allReviews.stream()
-                .filter(r -> r.getParent() == null)
-                .map(r -> toDTOWithReplies(r, allReviews))
-                .collect(Collectors.toList());
+        return ReviewThreads.build(getReviewsByProductId(productId), ReviewResponseDTO::fromReview);
+    }
+
+    /**
+     * Một trang review gốc (mới nhất trước) kèm toàn bộ phản hồi, và thống kê điểm tính sẵn của sản phẩm.
+     * Số truy vấn không phụ thuộc số review: một cho trang gốc, một cho mỗi tầng phản hồi, một cho thống kê.
+     */
+    @Transactional(readOnly = true)
+    public ReviewPageResponse getReviewPage(Long productId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        KeysetCursor keyset = KeysetCursor.decode(cursor);
+
+        // Lấy dư một dòng để biết còn trang sau hay không, khỏi phải COUNT(*)
+        List<Review> rows = reviewRepository.findThreadRootPage(productId,
+                keyset != null ? keyset.createdAt() : null,
+                keyset != null ? keyset.id() : null,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasNext = rows.size() > pageSize;
+        List<Review> roots = hasNext ? rows.subList(0, pageSize) : rows;
+
+        List<Review> replies = new ArrayList<>();
+        List<Long> level = roots.stream().map(Review::getId).toList();
+        while (!level.isEmpty()) {
+            List<Review> children = reviewRepository.findVisibleRepliesByParentIdIn(level);
+            replies.addAll(children);
+            level = children.stream().map(Review::getId).toList();
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            Review last = roots.get(roots.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new ReviewPageResponse(ReviewThreads.build(roots, replies, ReviewResponseDTO::fromReview),
+                nextCursor, hasNext, productSortKeyService.ratingSummary(productId));
     }
     // Thêm bình luận mới
     // ReviewService.java
+    @Transactional
     public Review addReview(ReviewRequest request, Long userId) {
         Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("product", request.getProductId()));
@@ -100,8 +147,9 @@ public class ReviewService {
             review.setOrderDetail(orderDetail);
         }
         Review savedReview = reviewRepository.save(review);
+        adjustRating(savedReview, null, countedRating(savedReview));
         // Gửi thông báo socket khi có review mới
-        webSocketService.broadcastRefresh("review", savedReview, "REVIEW_CREATED");
+        webSocketService.broadcastRefresh("review", ReviewEventPayload.from(savedReview), "REVIEW_CREATED");
         return savedReview;
     }
 
@@ -113,38 +161,8 @@ public class ReviewService {
     }
 
     public ReviewResponseDTO toDTO(Review review) {
-        return new ReviewResponseDTO(
-            review.getId(),
-            review.getContent(),
-            review.getRating(),
-            review.getUser() != null ? review.getUser().getId() : null,
-            review.getUser() != null ? review.getUser().getFullname() : null,
-            review.getProduct() != null ? review.getProduct().getId() : null,
-            review.getCreatedAt() != null ? review.getCreatedAt().toString() : null,
-            review.getUpdatedAt() != null ? review.getUpdatedAt().toString() : null,
-            review.getOrderDetail() != null ? review.getOrderDetail().getId() : null,
-            null // replies mặc định null nếu chỉ lấy 1 review đơn lẻ
-        );
-    }
-
-    // Mapping review kèm replies (dùng cho review cha/con)
-    private ReviewResponseDTO toDTOWithReplies(Review review, List<Review> allReviews) {
-        List<ReviewResponseDTO> replies = allReviews.stream()
-                .filter(r -> r.getParent() != null && r.getParent().getId().equals(review.getId()))
-                .map(r -> toDTOWithReplies(r, allReviews))
-                .collect(Collectors.toList());
-        return new ReviewResponseDTO(
-            review.getId(),
-            review.getContent(),
-            review.getRating(),
-            review.getUser() != null ? review.getUser().getId() : null,
-            review.getUser() != null ? review.getUser().getFullname() : null,
-            review.getProduct() != null ? review.getProduct().getId() : null,
-            review.getCreatedAt() != null ? review.getCreatedAt().toString() : null,
-            review.getUpdatedAt() != null ? review.getUpdatedAt().toString() : null,
-            review.getOrderDetail() != null ? review.getOrderDetail().getId() : null,
-            replies
-        );
+        // replies mặc định null nếu chỉ lấy 1 review đơn lẻ
+        return ReviewResponseDTO.fromReview(review, null);
     }
 
     @Transactional
@@ -160,6 +178,7 @@ public class ReviewService {
         reply.setIsHidden(false);
         reply.setRating(null); // hoặc 0 nếu muốn
         reviewRepository.save(reply);
+        adjustRating(reply, null, null);
         return toDTO(reply);
     }
 
@@ -171,19 +190,19 @@ public class ReviewService {
             .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public ReviewInfoDTO getReviewInfoById(Long id) {
         Review review = getReviewById(id);
-        List<Review> allReviews = reviewRepository.findAll();
-        return toReviewInfoDTO(review, allReviews);
+        // Chỉ cần phản hồi trực tiếp của review này, không nạp cả bảng reviews
+        return toReviewInfoDTO(review, review.getChildren());
     }
 
-    private ReviewInfoDTO toReviewInfoDTO(Review review, List<Review> allReviews) {
+    private ReviewInfoDTO toReviewInfoDTO(Review review, List<Review> children) {
         User user = review.getUser();
         Product product = review.getProduct();
         List<ReviewInfoDTO> replies = null;
-        if (allReviews != null) {
-            replies = allReviews.stream()
-                .filter(r -> r.getParent() != null && r.getParent().getId().equals(review.getId()))
+        if (children != null) {
+            replies = children.stream()
                 .map(r -> toReviewInfoDTO(r, null))
                 .collect(Collectors.toList());
         }
@@ -206,4 +225,27 @@ public class ReviewService {
     private ReviewInfoDTO toReviewInfoDTO(Review review) {
         return toReviewInfoDTO(review, null);
     }
+
+    // Điểm của review nếu được tính vào thống kê sản phẩm (review gốc, đang hiển thị, có điểm), ngược lại null
+    private static Integer countedRating(Review review) {
+        if (review.getParent() != null || Boolean.TRUE.equals(review.getIsHidden())) {
+            return null;
+        }
+        return review.getRating();
+    }
+
+    // Cập nhật histogram điểm/điểm trung bình/số review tính sẵn của sản phẩm
+    private void adjustRating(Review review, Integer removed, Integer added) {
+        if (review.getProduct() == null) {
+            return;
+        }
+        Long productId = review.getProduct().getId();
+        if (Objects.equals(removed, added)) {
+            // Điểm không đổi nhưng nội dung/phản hồi đổi: trang chi tiết (có review) vẫn phải nạp lại
+            eventPublisher.publishEvent(CatalogIndexUpdater.ProductChangedEvent.ofProduct(productId));
+        } else {
+            productSortKeyService.adjustRating(productId, removed, added);
+        }
+    }
+
 }
\ No newline at end of file
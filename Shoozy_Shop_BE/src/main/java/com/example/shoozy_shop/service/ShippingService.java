@@ -21,86 +21,111 @@ public class ShippingService {
 
     @Value("${ghn.fromDistrictId}") private Integer fromDistrictId;
 
+    /**
+     * Điểm giao đã quy ra mã GHN cùng dịch vụ sẽ dùng; không phụ thuộc khối lượng nên tra được song song
+     * với việc tính giá sản phẩm (xem CheckoutQuoteService).
+     */
+    public record Destination(Integer toDistrictId, String toWardCode, Integer serviceTypeId) {
+    }
+
+    public static final Destination DEFAULT_DESTINATION = new Destination(1454, "1A0101", 2); // Hà Nội - Quận Ba Đình - Phường Phúc Xá
+    public static final BigDecimal DEFAULT_FEE = new BigDecimal(25000); // 25,000 VND
+
     public FeeShippingResponse calcFromProvinceAddress(OpenApiRequest r) {
         try {
-            // 1) Bảo đảm có TÊN (nếu payload chưa có tên thì gọi Province API để lấy)
-            String provinceName = r.getProvinceName();
-            String districtName = r.getDistrictName();
-            String wardName     = r.getWardName();
+            Destination destination = resolveDestination(r);
+            return calcFee(destination, r.getWeight(), r.getInsuranceValue());
+        } catch (Exception e) {
+            // Xử lý tất cả các ngoại lệ và trả về giá trị mặc định
+            System.err.println("Lỗi không xác định khi tính phí vận chuyển: " + e.getMessage());
+            return fallback();
+        }
+    }
 
-            try {
-                if (provinceName == null && r.getProvinceCode() != null)
-                    provinceName = provinceApi.getProvinceName(r.getProvinceCode());
-                if (districtName == null && r.getDistrictCode() != null)
-                    districtName = provinceApi.getDistrictName(r.getDistrictCode());
-                if (wardName == null && r.getWardCode() != null)
-                    wardName = provinceApi.getWardName(r.getWardCode());
-            } catch (Exception e) {
-                System.err.println("Lỗi khi lấy thông tin địa chỉ từ Province API: " + e.getMessage());
-            }
+    public FeeShippingResponse fallback() {
+        return new FeeShippingResponse(DEFAULT_FEE, "VND", DEFAULT_DESTINATION.serviceTypeId(),
+                DEFAULT_DESTINATION.toDistrictId(), DEFAULT_DESTINATION.toWardCode());
+    }
 
-            // Sử dụng giá trị mặc định nếu thiếu thông tin
-            if (provinceName == null) provinceName = "Hà Nội";
-            if (districtName == null) districtName = "Quận Ba Đình";
-            if (wardName == null) wardName = "Phường Phúc Xá";
+    /**
+     * Chỉ quy điểm giao ra mã quận/phường GHN, không chọn dịch vụ; serviceTypeId giữ nguyên giá trị trong payload.
+     */
+    public Destination resolveArea(OpenApiRequest r) {
+        // 1) Bảo đảm có TÊN (nếu payload chưa có tên thì gọi Province API để lấy)
+        String provinceName = r.getProvinceName();
+        String districtName = r.getDistrictName();
+        String wardName     = r.getWardName();
 
-            // 2) Map TÊN → mã GHN
-            Integer provinceId   = resolver.resolveProvinceIdByName(provinceName);
-            Integer toDistrictId = resolver.resolveDistrictId(provinceId, districtName);
-            String  toWardCode   = resolver.resolveWardCode(toDistrictId, wardName); // LƯU Ý: CHUỖI
+        try {
+            if (provinceName == null && r.getProvinceCode() != null)
+                provinceName = provinceApi.getProvinceName(r.getProvinceCode());
+            if (districtName == null && r.getDistrictCode() != null)
+                districtName = provinceApi.getDistrictName(r.getDistrictCode());
+            if (wardName == null && r.getWardCode() != null)
+                wardName = provinceApi.getWardName(r.getWardCode());
+        } catch (Exception e) {
+            System.err.println("Lỗi khi lấy thông tin địa chỉ từ Province API: " + e.getMessage());
+        }
 
-            // Kiểm tra và xử lý weight
-            Integer weight = r.getWeight();
-            if (weight == null || weight <= 0) {
-                weight = 500; // Giá trị mặc định nếu weight không hợp lệ (500g)
-            }
-            
-            // Kiểm tra và xử lý insuranceValue
-            Integer insuranceValue = r.getInsuranceValue();
-            if (insuranceValue != null && insuranceValue < 0) {
-                insuranceValue = 0; // Đặt giá trị mặc định nếu insuranceValue không hợp lệ
-            }
+        // Sử dụng giá trị mặc định nếu thiếu thông tin
+        if (provinceName == null) provinceName = "Hà Nội";
+        if (districtName == null) districtName = "Quận Ba Đình";
+        if (wardName == null) wardName = "Phường Phúc Xá";
 
-            // 3) Chọn service_type_id (nếu chưa truyền)
-            Integer serviceTypeId = r.getServiceTypeId();
-            if (serviceTypeId == null) {
-                try {
-                    var services = ghn.availableServices(fromDistrictId, toDistrictId);
-                    if (services != null && !services.isEmpty()) {
-                        serviceTypeId = services.stream()
-                                .min(Comparator.comparingInt(m -> ((Number)m.getOrDefault("service_fee", 0)).intValue()))
-                                .map(m -> ((Number)m.get("service_type_id")).intValue())
-                                .orElse(2);
-                    } else {
-                        serviceTypeId = 2; // Giá trị mặc định nếu không có dịch vụ nào
-                    }
-                } catch (Exception e) {
-                    System.err.println("Lỗi khi lấy danh sách dịch vụ: " + e.getMessage());
-                    serviceTypeId = 2; // Giá trị mặc định
-                }
-            }
+        // 2) Map TÊN → mã GHN
+        Integer provinceId   = resolver.resolveProvinceIdByName(provinceName);
+        Integer toDistrictId = resolver.resolveDistrictId(provinceId, districtName);
+        String  toWardCode   = resolver.resolveWardCode(toDistrictId, wardName); // LƯU Ý: CHUỖI
+        return new Destination(toDistrictId, toWardCode, r.getServiceTypeId());
+    }
 
-            // 4) Tính phí
-            BigDecimal fee;
+    public Destination resolveDestination(OpenApiRequest r) {
+        Destination area = resolveArea(r);
+
+        // 3) Chọn service_type_id (nếu chưa truyền)
+        Integer serviceTypeId = area.serviceTypeId();
+        if (serviceTypeId == null) {
             try {
-                fee = BigDecimal.valueOf(ghn.calcFee(fromDistrictId, toDistrictId, toWardCode, weight, serviceTypeId, insuranceValue));
+                var services = ghn.availableServices(fromDistrictId, area.toDistrictId());
+                if (services != null && !services.isEmpty()) {
+                    serviceTypeId = services.stream()
+                            .min(Comparator.comparingInt(m -> ((Number)m.getOrDefault("service_fee", 0)).intValue()))
+                            .map(m -> ((Number)m.get("service_type_id")).intValue())
+                            .orElse(2);
+                } else {
+                    serviceTypeId = 2; // Giá trị mặc định nếu không có dịch vụ nào
+                }
             } catch (Exception e) {
-                System.err.println("Lỗi khi tính phí vận chuyển: " + e.getMessage());
-                // Giá trị mặc định nếu không tính được phí
-                fee = new BigDecimal(25000); // 25,000 VND
+                System.err.println("Lỗi khi lấy danh sách dịch vụ: " + e.getMessage());
+                serviceTypeId = 2; // Giá trị mặc định
             }
+        }
+        return new Destination(area.toDistrictId(), area.toWardCode(), serviceTypeId);
+    }
 
-            return new FeeShippingResponse(fee, "VND", serviceTypeId, toDistrictId, toWardCode);
+    public FeeShippingResponse calcFee(Destination destination, Integer weight, Integer insuranceValue) {
+        // Kiểm tra và xử lý weight
+        if (weight == null || weight <= 0) {
+            weight = 500; // Giá trị mặc định nếu weight không hợp lệ (500g)
+        }
+
+        // Kiểm tra và xử lý insuranceValue
+        if (insuranceValue != null && insuranceValue < 0) {
+            insuranceValue = 0; // Đặt giá trị mặc định nếu insuranceValue không hợp lệ
+        }
+
+        // 4) Tính phí
+        BigDecimal fee;
+        try {
+            fee = BigDecimal.valueOf(ghn.calcFee(fromDistrictId, destination.toDistrictId(), destination.toWardCode(),
+                    weight, destination.serviceTypeId(), insuranceValue));
         } catch (Exception e) {
-            // Xử lý tất cả các ngoại lệ và trả về giá trị mặc định
-            System.err.println("Lỗi không xác định khi tính phí vận chuyển: " + e.getMessage());
-            return new FeeShippingResponse(
-                new BigDecimal(25000), // 25,000 VND
-                "VND",
-                2, // Standard service
-                1454, // Hà Nội - Quận Ba Đình
-                "1A0101" // Phường Phúc Xá
-            );
+            System.err.println("Lỗi khi tính phí vận chuyển: " + e.getMessage());
+            // Giá trị mặc định nếu không tính được phí
+            fee = DEFAULT_FEE;
         }
+
+        return new FeeShippingResponse(fee, "VND", destination.serviceTypeId(), destination.toDistrictId(),
+                destination.toWardCode());
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,13 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.config.CacheConfig;
 import com.example.shoozy_shop.exception.ResourceNotFoundException;
 import com.example.shoozy_shop.model.Brand;
 import com.example.shoozy_shop.model.Size;
 import com.example.shoozy_shop.repository.SizeRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,16 +21,19 @@ public class SizeService implements ISizeService {
     private final SizeRepository sizeRepository;
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.SIZES, key = "'all'", sync = true)
     public List<Size> getAllSizes() {
         return sizeRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.SIZES, key = "'active'", sync = true)
     public List<Size> getActiveSizes() {
         return sizeRepository.findAllByStatusTrue();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.SIZES, key = "#id", sync = true)
     public Size getSizeById(Long id) {
         return sizeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("size", id));
@@ -35,6 +41,7 @@ public class SizeService implements ISizeService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.SIZES, allEntries = true)
     public Size addSize(Size size) {
         if(sizeRepository.existsByValue(size.getValue())) {
             throw new IllegalArgumentException("Size '" + size.getValue() + "' already exists!");
@@ -45,6 +52,7 @@ public class SizeService implements ISizeService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = {CacheConfig.SIZES, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Size updateSize(Long id, Size size) {
         Size existingSize = this.getSizeById(id);
         existingSize.setValue(size.getValue());
@@ -53,6 +61,7 @@ public class SizeService implements ISizeService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.SIZES, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public void deleteSize(Long id) {
         Size existingSize = this.getSizeById(id);
         existingSize.setStatus(false);
@@ -60,6 +69,7 @@ public class SizeService implements ISizeService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.SIZES, CacheConfig.PRODUCT_DETAIL, CacheConfig.PRODUCT_CARDS}, allEntries = true)
     public Boolean restoreBrand(Long id) {
         Optional<Size> optional = sizeRepository.findById(id);
         if (optional.isPresent()) {
@@ -0,0 +1,95 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.OrderDetailRequest;
+import com.example.shoozy_shop.exception.OutOfStockException;
+import com.example.shoozy_shop.exception.ResourceNotFoundException;
+import com.example.shoozy_shop.model.ProductVariant;
+import com.example.shoozy_shop.repository.ProductVariantRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    private final ProductVariantRepository productVariantRepository;
+    private final FlashSaleStockLedger flashSaleStockLedger;
+    private final ProductSortKeyService productSortKeyService;
+
+    /**
+     * Giữ kho cho toàn bộ dòng hàng của một đơn:
+     * - Gộp số lượng theo biến thể (một biến thể có thể xuất hiện nhiều dòng)
+     * - Biến thể đang flash sale: giữ hàng trong {@link FlashSaleStockLedger}, không khoá dòng DB
+     * - Các biến thể còn lại: khoá bằng một truy vấn theo thứ tự id tăng dần,
+     *   kiểm tra tồn kho trong bộ nhớ rồi trừ kho bằng một lần flush theo batch
+     *
+     * @return map id biến thể -> entity
+     */
+    @Transactional
+    public Map<Long, ProductVariant> reserve(List<OrderDetailRequest> details) {
+        SortedMap<Long, Integer> requested = new TreeMap<>();
+        SortedMap<Long, Integer> flashSale = new TreeMap<>();
+        for (OrderDetailRequest d : details) {
+            Long variantId = d.getProductVariantId();
+            (flashSaleStockLedger.isManaged(variantId) ? flashSale : requested)
+                    .merge(variantId, d.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, ProductVariant> variants = new HashMap<>();
+        if (!requested.isEmpty()) {
+            productVariantRepository.findAllByIdInForUpdate(requested.keySet())
+                    .forEach(pv -> variants.put(pv.getId(), pv));
+        }
+        if (!flashSale.isEmpty()) {
+            productVariantRepository.findAllById(flashSale.keySet())
+                    .forEach(pv -> variants.put(pv.getId(), pv));
+        }
+
+        // Kiểm tra toàn bộ trước khi sửa bất kỳ dòng nào
+        for (Map.Entry<Long, Integer> e : requested.entrySet()) {
+            ProductVariant pv = variants.get(e.getKey());
+            if (pv == null) {
+                throw new ResourceNotFoundException("product variant", e.getKey());
+            }
+            int reqQuantity = e.getValue();
+            int available = pv.getQuantity() == null ? 0 : pv.getQuantity();
+            if (available <= 0 || reqQuantity > available) {
+                throw new OutOfStockException(reqQuantity, Math.max(0, available));
+            }
+        }
+
+        // Phần đã giữ trong sổ flash sale sẽ tự trả lại nếu transaction rollback
+        for (Map.Entry<Long, Integer> e : flashSale.entrySet()) {
+            if (!variants.containsKey(e.getKey())) {
+                throw new ResourceNotFoundException("product variant", e.getKey());
+            }
+            if (!flashSaleStockLedger.tryReserve(e.getKey(), e.getValue())) {
+                Integer left = flashSaleStockLedger.available(e.getKey());
+                throw new OutOfStockException(e.getValue(), left == null ? 0 : left);
+            }
+        }
+
+        if (!requested.isEmpty()) {
+            for (Map.Entry<Long, Integer> e : requested.entrySet()) {
+                ProductVariant pv = variants.get(e.getKey());
+                pv.setQuantity(pv.getQuantity() - e.getValue());
+            }
+
+            // Các UPDATE cùng dạng được gom thành một JDBC batch (hibernate.jdbc.batch_size)
+            productVariantRepository.saveAll(requested.keySet().stream().map(variants::get).toList());
+            productVariantRepository.flush();
+
+            Map<Long, Integer> stockDelta = new HashMap<>();
+            requested.forEach((variantId, quantity) -> stockDelta.put(variantId, -quantity));
+            productSortKeyService.adjustStock(stockDelta);
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.shoozy_shop.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bộ đếm tồn kho chia thành nhiều ngăn (stripe) để các luồng checkout ít tranh chấp cùng một biến CAS.
+ * Lượt lấy bắt đầu ở một ngăn ngẫu nhiên và gom dần sang các ngăn khác; nếu tổng không đủ thì trả lại toàn bộ.
+ * Khi kho gần hết, hai lượt lấy song song có thể cùng thất bại dù tổng vẫn đủ cho một trong hai.
+ */
+class StripedStockCounter {
+
+    private final AtomicInteger[] stripes;
+
+    StripedStockCounter(int quantity, int stripeCount) {
+        int n = Math.max(1, stripeCount);
+        int base = Math.max(0, quantity) / n;
+        int remainder = Math.max(0, quantity) % n;
+        stripes = new AtomicInteger[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new AtomicInteger(base + (i < remainder ? 1 : 0));
+        }
+    }
+
+    boolean tryTake(int quantity) {
+        int n = stripes.length;
+        int start = ThreadLocalRandom.current().nextInt(n);
+        int[] taken = new int[n];
+        int remaining = quantity;
+
+        for (int i = 0; i < n && remaining > 0; i++) {
+            int idx = (start + i) % n;
+            AtomicInteger stripe = stripes[idx];
+            while (true) {
+                int current = stripe.get();
+                if (current <= 0) {
+                    break;
+                }
+                int take = Math.min(current, remaining);
+                if (stripe.compareAndSet(current, current - take)) {
+                    taken[idx] += take;
+                    remaining -= take;
+                    break;
+                }
+            }
+        }
+
+        if (remaining > 0) {
+            for (int i = 0; i < n; i++) {
+                if (taken[i] > 0) {
+                    stripes[i].addAndGet(taken[i]);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    void add(int quantity) {
+        stripes[ThreadLocalRandom.current().nextInt(stripes.length)].addAndGet(quantity);
+    }
+
+    int available() {
+        int sum = 0;
+        for (AtomicInteger stripe : stripes) {
+            sum += stripe.get();
+        }
+        return sum;
+    }
+}
@@ -10,7 +10,6 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -19,6 +18,7 @@ public class TransactionService implements ITransactionService {
 
     private final OrderRepository orderRepository;
     private final TransactionRepository transactionRepository;
+    private final IIdGeneratorService idGeneratorService;
 
     private static final Long METHOD_CASH_ID = 1L; // CASH
     private static final Long METHOD_ONL_ID  = 2L; // ONL
@@ -79,7 +79,7 @@ public class TransactionService implements ITransactionService {
         Transaction tx = Transaction.builder()
                 .order(order)
                 .amount(amount)
-                .transactionCode(genInternalTxCode(prefix))
+                .transactionCode(idGeneratorService.nextTransactionCode(prefix))
                 .status(status)
                 .transactionDate(now)
                 .completedDate(completed)
@@ -101,7 +101,7 @@ public class TransactionService implements ITransactionService {
         cancelPendingTransactions(order.getId());
 
         BigDecimal amount = order.getFinalPrice().setScale(0, java.math.RoundingMode.HALF_UP);
-        String txnRef = "VN" + System.currentTimeMillis(); // dùng làm vnp_TxnRef
+        String txnRef = idGeneratorService.nextTransactionCode("VN"); // dùng làm vnp_TxnRef
 
         Transaction tx = Transaction.builder()
                 .order(order)
@@ -125,12 +125,6 @@ public class TransactionService implements ITransactionService {
         }
     }
 
-    private String genInternalTxCode(String prefix) {
-        String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyMMddHHmmss"));
-        int rand = (int) (Math.random() * 900) + 100;
-        return prefix + ts + rand; // ví dụ: COD250815101530123
-    }
-
     public Transaction getTransactionByCode(String codeOrder){
         Transaction transactionExisting = transactionRepository.findByOrder_OrderCode(codeOrder);
         return transactionExisting;
@@ -10,6 +10,7 @@ import com.example.shoozy_shop.repository.OrderRepository;
 import com.example.shoozy_shop.repository.TransactionRepository;
 import com.example.shoozy_shop.repository.VnPayTransactionDetailRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,6 +31,7 @@ public class VnPayService {
     private final VnPayTransactionDetailRepository vnPayTransactionDetailRepository;
     private final TransactionRepository transactionRepository;
     private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // VnPayService.java
     @Transactional
@@ -83,6 +85,9 @@ public class VnPayService {
                 orderRepository.save(order);
             }
             else {
+                if (!CatalogIndexUpdater.SOLD_STATUSES.contains(order.getStatus())) {
+                    eventPublisher.publishEvent(new CatalogIndexUpdater.SalesChangedEvent(order.getId(), 1));
+                }
                 order.setStatus("COMPLETED");
                 orderRepository.save(order);
             }
@@ -1,7 +1,12 @@
 package com.example.shoozy_shop.service;
 
+import com.example.shoozy_shop.dto.event.RealtimeEvent;
+import com.example.shoozy_shop.dto.event.RefreshMessage;
+import com.example.shoozy_shop.dto.response.LowStockProductResponse;
+import com.fasterxml.jackson.databind.util.RawValue;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
@@ -14,19 +19,39 @@ import java.util.Map;
 public class WebSocketService implements IWebSocketService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterBroadcaster clusterBroadcaster;
+    private final RealtimeEventCodec realtimeEventCodec;
 
     @Override
     public void broadcastRefresh(String type, Object data, String action) {
-        Map<String, Object> message = Map.of(
-                "type", type,
-                "timestamp", LocalDateTime.now(),
-                "payload", data,
-                "action", action
-        );
-        messagingTemplate.convertAndSend("/topic/refresh", message);
+        RawValue message = realtimeEventCodec.encode(RefreshMessage.of(type, action, data));
+        clusterBroadcaster.publish("/topic/refresh", entityKey(type, action, data), message);
         log.info("Broadcasted refresh message of type: {}", type);
     }
 
+    /**
+     * Sự kiện đơn hàng chỉ gửi cho người liên quan thay vì /topic/refresh:
+     * admin/staff qua /topic/admin/refresh, chủ đơn qua /user/queue/orders (các session của đúng user đó).
+     * Message giữ format refresh để FE xử lý như cũ, serialize một lần cho cả hai nơi nhận.
+     */
+    public void broadcastOrderEvent(Long orderId, String ownerEmail, Object data, String action) {
+        RawValue message = realtimeEventCodec.encode(RefreshMessage.of("order", action, data));
+        String key = "order:" + action + ":" + orderId;
+        clusterBroadcaster.publish("/topic/admin/refresh", key, message);
+        if (ownerEmail != null) {
+            clusterBroadcaster.publish(userDestination(ownerEmail, "/queue/orders"), key, message);
+        }
+        log.info("Broadcasted order event {} for order {}", action, orderId);
+    }
+
+    /**
+     * Sản phẩm vào/rời/đổi tồn trong danh sách sắp hết hàng ({@link LowStockWatchlist}), chỉ gửi cho admin/staff.
+     */
+    public void broadcastLowStock(LowStockProductResponse product, String action) {
+        RawValue message = realtimeEventCodec.encode(RefreshMessage.of("low-stock", action, product));
+        clusterBroadcaster.publish("/topic/admin/refresh", "low-stock:" + action + ":" + product.getProductId(), message);
+    }
+
     /**
      * Gửi thông báo cập nhật coupon cụ thể cho admin
      * Đảm bảo format message đồng nhất cho frontend
@@ -56,12 +81,14 @@ public class WebSocketService implements IWebSocketService {
                 "timestamp", LocalDateTime.now()
         );
 
+        String key = "coupon:COUPON_UPDATE:" + action + ":" + couponId;
+
         // Gửi đến topic chung (format cũ để tương thích)
-        messagingTemplate.convertAndSend("/topic/refresh", refreshMessage);
+        clusterBroadcaster.publish("/topic/refresh", key, refreshMessage);
 
         // Gửi đến các topic riêng (format mới)
-        messagingTemplate.convertAndSend("/topic/coupon/status", couponUpdateMessage);
-        messagingTemplate.convertAndSend("/topic/admin/coupon", couponUpdateMessage);
+        clusterBroadcaster.publish("/topic/coupon/status", key, couponUpdateMessage);
+        clusterBroadcaster.publish("/topic/admin/coupon", key, couponUpdateMessage);
 
         log.info("Broadcasted coupon update: {} - {} - Quantity: {} - Action: {}", code, couponId, quantity, action);
     }
@@ -80,11 +107,13 @@ public class WebSocketService implements IWebSocketService {
                 "timestamp", LocalDateTime.now()
         );
 
+        String key = "order-coupon:" + action + ":" + orderId;
+
         // Gửi đến topic admin orders
-        messagingTemplate.convertAndSend("/topic/admin/orders", orderUpdate);
+        clusterBroadcaster.publish("/topic/admin/orders", key, orderUpdate);
 
-        // Cũng gửi đến topic refresh để các component khác có thể lắng nghe
-        messagingTemplate.convertAndSend("/topic/refresh", orderUpdate);
+        // Cũng gửi đến topic refresh của admin để các component khác có thể lắng nghe
+        clusterBroadcaster.publish("/topic/admin/refresh", key, orderUpdate);
 
         log.info("Broadcasted order with coupon: Order {} - Coupon {} - Remaining: {} - Action: {}",
                 orderCode, couponCode, couponQuantity, action);
@@ -120,7 +149,7 @@ public class WebSocketService implements IWebSocketService {
         );
 
         // Gửi đến topic public để tất cả user có thể thấy
-        messagingTemplate.convertAndSend("/topic/coupon/quantity", quantityUpdate);
+        clusterBroadcaster.publish("/topic/coupon/quantity", "coupon:COUPON_QUANTITY_UPDATE:" + couponId, quantityUpdate);
 
         log.info("Broadcasted coupon quantity update: {} - Quantity: {}", code, quantity);
     }
@@ -137,10 +166,34 @@ public class WebSocketService implements IWebSocketService {
         );
 
         // Gửi đến tất cả các channel liên quan
-        messagingTemplate.convertAndSend("/topic/coupon/status", outOfStockMessage);
-        messagingTemplate.convertAndSend("/topic/admin/coupon", outOfStockMessage);
-        messagingTemplate.convertAndSend("/topic/refresh", outOfStockMessage);
+        String key = "coupon:COUPON_OUT_OF_STOCK:" + couponId;
+        clusterBroadcaster.publish("/topic/coupon/status", key, outOfStockMessage);
+        clusterBroadcaster.publish("/topic/admin/coupon", key, outOfStockMessage);
+        clusterBroadcaster.publish("/topic/refresh", key, outOfStockMessage);
 
         log.info("Broadcasted coupon out of stock: {}", code);
     }
-}
\ No newline at end of file
+
+    // Tương đương convertAndSendToUser nhưng đi qua coalescer/cluster như các destination khác;
+    // coalescer bỏ buffer của destination sau mỗi lần flush nên không giữ lại một buffer cho mỗi user
+    private String userDestination(String username, String destination) {
+        return "/user/" + username.replace("/", "%2F") + destination;
+    }
+
+    // Khoá gộp message refresh: "<type>:<action>:<id>" nếu payload có id, ngược lại không gộp.
+    // Chỉ gộp các message cùng loại và cùng action (trạng thái mới nhất); create rồi update trong một cửa sổ vẫn đủ cả hai
+    private String entityKey(String type, String action, Object data) {
+        Object id = null;
+        if (data instanceof RealtimeEvent event) {
+            id = event.id();
+        } else if (data instanceof Map<?, ?> map) {
+            id = map.containsKey("id") ? map.get("id") : map.get("orderId");
+        } else if (data != null) {
+            BeanWrapperImpl wrapper = new BeanWrapperImpl(data);
+            if (wrapper.isReadableProperty("id")) {
+                id = wrapper.getPropertyValue("id");
+            }
+        }
+        return id != null ? type + ":" + action + ":" + id : null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.shoozy_shop.util;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * GET có điều kiện: so If-None-Match/If-Modified-Since với phiên bản hiện tại trước khi dựng body.
+ * Khớp thì trả 304 không body; không khớp thì ETag/Last-Modified đã được ghi vào response, chỉ còn dựng body.
+ * Last-Modified chỉ chính xác tới giây: dữ liệu đổi trong giây hiện tại thì chỉ dùng ETag, vì một thay đổi nữa
+ * trong cùng giây sẽ không làm Last-Modified tăng và client chỉ gửi If-Modified-Since sẽ nhận 304 sai.
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    public static <T> ResponseEntity<T> respond(WebRequest request, String etag, long lastModified,
+                                                CacheControl cacheControl, Supplier<T> body) {
+        ResponseEntity<T> notModified = notModified(request, etag, lastModified, cacheControl);
+        return notModified != null ? notModified : ResponseEntity.ok().cacheControl(cacheControl).body(body.get());
+    }
+
+    // Cho body dựng bằng hàm ném checked exception: null nghĩa là client cần body đầy đủ
+    public static <T> ResponseEntity<T> notModified(WebRequest request, String etag, long lastModified,
+                                                    CacheControl cacheControl) {
+        boolean settled = lastModified < System.currentTimeMillis() / 1000 * 1000;
+        if (settled ? request.checkNotModified(etag, lastModified) : request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.shoozy_shop.util;
+
+import com.example.shoozy_shop.model.Review;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Dựng cây review - phản hồi trong O(n): gom phản hồi theo parent id một lần rồi đi từ review gốc xuống,
+ * thay vì quét lại cả danh sách cho từng review.
+ * Phản hồi có cha không nằm trong danh sách (ví dụ cha đã bị ẩn) bị bỏ qua như cách làm cũ.
+ */
+public final class ReviewThreads {
+
+    private ReviewThreads() {
+    }
+
+    /**
+     * @param reviews review gốc và phản hồi lẫn lộn, giữ nguyên thứ tự khi dựng cây
+     * @param mapper  (review, các phản hồi đã map) -> DTO
+     */
+    public static <T> List<T> build(Collection<Review> reviews, BiFunction<Review, List<T>, T> mapper) {
+        List<Review> roots = new ArrayList<>();
+        List<Review> replies = new ArrayList<>();
+        for (Review review : reviews) {
+            (review.getParent() == null ? roots : replies).add(review);
+        }
+        return build(roots, replies, mapper);
+    }
+
+    /**
+     * @param roots   các review gốc cần dựng (ví dụ một trang)
+     * @param replies phản hồi ở mọi cấp của các review gốc đó
+     */
+    public static <T> List<T> build(List<Review> roots, Collection<Review> replies,
+                                    BiFunction<Review, List<T>, T> mapper) {
+        Map<Long, List<Review>> childrenByParent = new HashMap<>();
+        for (Review reply : replies) {
+            // getParent() là proxy lazy, getId() không kéo thêm truy vấn
+            childrenByParent.computeIfAbsent(reply.getParent().getId(), k -> new ArrayList<>()).add(reply);
+        }
+        List<T> result = new ArrayList<>(roots.size());
+        for (Review root : roots) {
+            result.add(map(root, childrenByParent, mapper));
+        }
+        return result;
+    }
+
+    private static <T> T map(Review review, Map<Long, List<Review>> childrenByParent,
+                             BiFunction<Review, List<T>, T> mapper) {
+        List<Review> children = childrenByParent.getOrDefault(review.getId(), List.of());
+        List<T> replies = new ArrayList<>(children.size());
+        for (Review child : children) {
+            replies.add(map(child, childrenByParent, mapper));
+        }
+        return mapper.apply(review, replies);
+    }
+}
@@ -1,16 +1,42 @@
 package com.example.shoozy_shop.util;
 import java.text.Normalizer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 public class TextNormalizer {
     private static final List<String> PREFIXES = List.of(
             "tinh","thanh pho","tp","quan","q.","huyen","thi xa","thi tran","xa","phuong","p."
     );
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
     public static String norm(String s) {
         if (s == null) return "";
-        String noAccent = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        String noAccent = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
         String lower = noAccent.toLowerCase().trim().replaceAll("\\s+", " ");
         for (String p : PREFIXES) lower = lower.replaceAll("^\\s*"+p+"\\s+", "");
         return lower;
     }
-}
\ No newline at end of file
+
+    /**
+     * Bỏ dấu + hạ chữ cho tìm kiếm: "Giày Chạy Bộ Đỏ" -> "giay chay bo do".
+     * Khác norm(): đổi cả đ/Đ (NFD không tách được) và không bỏ tiền tố địa chỉ.
+     */
+    public static String fold(String s) {
+        if (s == null) return "";
+        String noAccent = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        return noAccent.replace('đ', 'd').replace('Đ', 'D').toLowerCase();
+    }
+
+    /**
+     * Tách từ sau khi fold(), bỏ mọi ký tự không phải chữ/số: "SP-001 (Nike)" -> [sp, 001, nike].
+     */
+    public static List<String> tokens(String s) {
+        List<String> result = new ArrayList<>();
+        for (String t : NON_WORD.split(fold(s))) {
+            if (!t.isEmpty()) result.add(t);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.shoozy_shop.config;
+
+import com.example.shoozy_shop.model.Token;
+import com.example.shoozy_shop.repository.TokenRepository;
+import com.example.shoozy_shop.security.JwtUtils;
+import com.example.shoozy_shop.security.UserDetailsImpl;
+import com.example.shoozy_shop.security.UserDetailsServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.security.Principal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StompAuthChannelInterceptorTest {
+
+    private final JwtUtils jwtUtils = mock(JwtUtils.class);
+    private final TokenRepository tokenRepository = mock(TokenRepository.class);
+    private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+    private final StompAuthChannelInterceptor interceptor =
+            new StompAuthChannelInterceptor(jwtUtils, tokenRepository, userDetailsService);
+
+    @Test
+    void connectWithJwtSetsSessionUser() {
+        when(jwtUtils.validateJwtToken("jwt")).thenReturn(true);
+        when(jwtUtils.getUserNameFromJwtToken("jwt")).thenReturn("a@shoozy.vn");
+        when(tokenRepository.findByToken("jwt")).thenReturn(Optional.of(new Token()));
+        when(userDetailsService.loadUserByUsername("a@shoozy.vn"))
+                .thenReturn(new UserDetailsImpl(1L, "a@shoozy.vn", "x", "Customer", true));
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("Authorization", "Bearer jwt");
+        accessor.setLeaveMutable(true);
+        Message<?> result = interceptor.preSend(
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+
+        Principal user = StompHeaderAccessor.wrap(result).getUser();
+        assertNotNull(user);
+        assertEquals("a@shoozy.vn", user.getName());
+    }
+
+    @Test
+    void invalidJwtRejectsConnect() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("Authorization", "Bearer bad");
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null));
+    }
+
+    @Test
+    void adminTopicsRequireStaffRole() {
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/topic/admin/refresh", authOf("Customer")), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/topic/admin/refresh", null), null));
+        assertDoesNotThrow(() -> interceptor.preSend(subscribe("/topic/admin/refresh", authOf("Staff")), null));
+    }
+
+    @Test
+    void userQueueRequiresLogin() {
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/user/queue/orders", null), null));
+        assertDoesNotThrow(() -> interceptor.preSend(subscribe("/user/queue/orders", authOf("Customer")), null));
+        assertDoesNotThrow(() -> interceptor.preSend(subscribe("/topic/refresh", null), null));
+    }
+
+    @Test
+    void privateQueuesOnlyThroughOwnUserPrefix() {
+        // Nghe thẳng queue đã resolve của session khác hoặc qua tên user khác đều bị chặn
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/queue/orders", authOf("Customer")), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/queue/orders-userabc123", authOf("Customer")), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/user/other@shoozy.vn/queue/orders", authOf("Customer")), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/user/u@shoozy.vn/queue/orders", authOf("Customer")), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/user/topic/admin/status", authOf("Customer")), null));
+        assertDoesNotThrow(() -> interceptor.preSend(subscribe("/user/topic/admin/status", authOf("Admin")), null));
+    }
+
+    private Principal authOf(String role) {
+        UserDetailsImpl user = new UserDetailsImpl(1L, "u@shoozy.vn", "x", role, true);
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+
+    private Message<?> subscribe(String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setUser(user);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shoozy_shop.config;
+
+import com.example.shoozy_shop.service.RealtimeEventCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StompEncodingInterceptorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StompEncodingInterceptor interceptor =
+            new StompEncodingInterceptor(new RealtimeEventCodec(objectMapper));
+
+    @Test
+    void nativeSessionAskingForCborReceivesCbor() throws Exception {
+        connect("s1", true, "cbor");
+        connect("s2", true, null);
+        byte[] json = "{\"type\":\"order\",\"payload\":{\"id\":1}}".getBytes(StandardCharsets.UTF_8);
+
+        Message<?> first = interceptor.preSend(message("s1", json), null);
+        Message<?> second = interceptor.preSend(message("s1", json), null);
+        Message<?> plain = interceptor.preSend(message("s2", json), null);
+
+        byte[] cbor = (byte[]) first.getPayload();
+        assertEquals(objectMapper.readTree(json), new CBORMapper().readTree(cbor));
+        assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM, first.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        assertEquals("cbor", SimpMessageHeaderAccessor.wrap(first).getFirstNativeHeader(RealtimeEventCodec.ENCODING_HEADER));
+        // Cùng payload (broker phát cho nhiều subscriber) chỉ chuyển mã một lần
+        assertSame(cbor, second.getPayload());
+        assertSame(json, plain.getPayload());
+    }
+
+    @Test
+    void sockJsSessionStaysOnJsonAndDisconnectForgetsSession() {
+        connect("s3", false, "cbor");
+        assertFalse(interceptor.isCborSession("s3"));
+
+        connect("s4", true, "cbor");
+        assertTrue(interceptor.isCborSession("s4"));
+        SimpMessageHeaderAccessor disconnect = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT);
+        disconnect.setSessionId("s4");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()), null);
+        assertFalse(interceptor.isCborSession("s4"));
+    }
+
+    private void connect(String sessionId, boolean nativeSession, String encoding) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        Map<String, Object> attributes = new HashMap<>();
+        if (nativeSession) {
+            attributes.put(StompEncodingInterceptor.NATIVE_SESSION_ATTR, Boolean.TRUE);
+        }
+        accessor.setSessionAttributes(attributes);
+        if (encoding != null) {
+            accessor.setNativeHeader(RealtimeEventCodec.ENCODING_HEADER, encoding);
+        }
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+
+    private Message<byte[]> message(String sessionId, byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/topic/refresh");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.shoozy_shop.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BroadcastCoalescerTest {
+
+    @Test
+    void keepsLatestStatePerEntityAndSendsOneFramePerDestination() {
+        SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+        // Cửa sổ dài để chỉ flush thủ công trong test
+        BroadcastCoalescer coalescer = new BroadcastCoalescer(template, BroadcastCoalescer.Mode.COALESCE, 60_000);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                long couponId = i % 10;
+                coalescer.send("/topic/admin/coupon", "coupon:" + couponId, Map.of("couponId", couponId, "quantity", i));
+            }
+            coalescer.send("/topic/refresh", null, Map.of("type", "review"));
+            coalescer.flush();
+
+            ArgumentCaptor<Object> frame = ArgumentCaptor.forClass(Object.class);
+            verify(template).convertAndSend(eq("/topic/admin/coupon"), frame.capture());
+            List<?> messages = (List<?>) ((Map<?, ?>) frame.getValue()).get("messages");
+            assertEquals(10, messages.size());
+            // Mỗi coupon chỉ còn lần cập nhật cuối cùng
+            for (Object m : messages) {
+                Map<?, ?> msg = (Map<?, ?>) m;
+                assertEquals(990 + ((Long) msg.get("couponId")).intValue(), msg.get("quantity"));
+            }
+            // Frame chỉ có một message thì gửi nguyên dạng
+            verify(template).convertAndSend("/topic/refresh", (Object) Map.of("type", "review"));
+            assertEquals(1001, coalescer.getMessagesIn());
+            assertEquals(2, coalescer.getFramesOut());
+
+            coalescer.flush();
+            verifyNoMoreInteractions(template);
+        } finally {
+            coalescer.shutdown();
+        }
+    }
+
+    @Test
+    void flushDropsBuffersSoPerUserDestinationsDoNotAccumulate() {
+        SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+        BroadcastCoalescer coalescer = new BroadcastCoalescer(template, BroadcastCoalescer.Mode.COALESCE, 60_000);
+        try {
+            for (int i = 0; i < 500; i++) {
+                coalescer.send("/user/u" + i + "@shoozy.vn/queue/orders", "order:" + i, Map.of("orderId", i));
+            }
+            assertEquals(500, coalescer.pendingDestinations());
+
+            coalescer.flush();
+            assertEquals(0, coalescer.pendingDestinations());
+            verify(template, times(500)).convertAndSend(anyString(), any(Object.class));
+        } finally {
+            coalescer.shutdown();
+        }
+    }
+
+    @Test
+    void legacyModeSendsEveryMessage() {
+        SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+        BroadcastCoalescer coalescer = new BroadcastCoalescer(template, BroadcastCoalescer.Mode.LEGACY, 100);
+        for (int i = 0; i < 5; i++) {
+            coalescer.send("/topic/refresh", "order:1", Map.of("i", i));
+        }
+        verify(template, times(5)).convertAndSend(eq("/topic/refresh"), any(Object.class));
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.config.CacheConfig;
+import com.example.shoozy_shop.dto.response.CacheStatsResponse;
+import com.example.shoozy_shop.model.Brand;
+import com.example.shoozy_shop.model.Product;
+import com.example.shoozy_shop.repository.BrandRepository;
+import com.example.shoozy_shop.repository.ProductRepository;
+import com.example.shoozy_shop.repository.ProductVariantRepository;
+import com.example.shoozy_shop.repository.PromotionProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tải lặp lại trên cache thật (CacheConfig + proxy @Cacheable), repository giả lập đếm số truy vấn xuống DB.
+ */
+@Slf4j
+@SpringJUnitConfig(CacheLoadTest.Config.class)
+class CacheLoadTest {
+
+    private static final int REQUESTS = 10_000;
+    private static final int PRODUCTS = 200;
+    private static final int PAGE_SIZE = 20;
+
+    @Configuration
+    @Import(CacheConfig.class)
+    static class Config {
+        @Bean
+        CatalogVersions catalogVersions() {
+            return new CatalogVersions();
+        }
+
+        @Bean
+        BrandRepository brandRepository() {
+            return mock(BrandRepository.class);
+        }
+
+        @Bean
+        ProductRepository productRepository() {
+            return mock(ProductRepository.class);
+        }
+
+        @Bean
+        ProductVariantRepository productVariantRepository() {
+            return mock(ProductVariantRepository.class);
+        }
+
+        @Bean
+        PromotionProductRepository promotionProductRepository() {
+            return mock(PromotionProductRepository.class);
+        }
+
+        @Bean
+        CatalogIndex catalogIndex() {
+            return mock(CatalogIndex.class);
+        }
+
+        @Bean
+        IBrandService brandService(BrandRepository brandRepository) {
+            return new BrandService(brandRepository);
+        }
+
+        @Bean
+        ProductCardLoader productCardLoader(ProductRepository productRepository,
+                                            ProductVariantRepository productVariantRepository,
+                                            PromotionProductRepository promotionProductRepository,
+                                            CaffeineCacheManager caffeineCacheManager,
+                                            CatalogVersions catalogVersions) {
+            return new ProductCardLoader(productRepository, productVariantRepository, promotionProductRepository,
+                    caffeineCacheManager, catalogVersions);
+        }
+
+        @Bean
+        ProductCacheEvictor productCacheEvictor(CaffeineCacheManager caffeineCacheManager, CatalogIndex catalogIndex) {
+            return new ProductCacheEvictor(caffeineCacheManager, catalogIndex);
+        }
+
+        @Bean
+        CacheStatsService cacheStatsService(CaffeineCacheManager caffeineCacheManager) {
+            return new CacheStatsService(caffeineCacheManager);
+        }
+    }
+
+    @Autowired
+    private IBrandService brandService;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private ProductCardLoader productCardLoader;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+    @Autowired
+    private PromotionProductRepository promotionProductRepository;
+    @Autowired
+    private ProductCacheEvictor productCacheEvictor;
+    @Autowired
+    private CatalogIndex catalogIndex;
+    @Autowired
+    private CacheStatsService cacheStatsService;
+    @Autowired
+    private CaffeineCacheManager caffeineCacheManager;
+
+    @BeforeEach
+    void setUp() {
+        caffeineCacheManager.getCacheNames().forEach(name -> caffeineCacheManager.getCache(name).clear());
+        reset(brandRepository, productRepository, productVariantRepository, promotionProductRepository, catalogIndex);
+        when(productRepository.findWithRefsByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().map(CacheLoadTest::product).toList();
+        });
+        when(productVariantRepository.findCardRowsByProductIdIn(anyCollection())).thenReturn(List.of());
+        when(promotionProductRepository.findActiveByProductIdIn(anyCollection(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void referenceDataHitsDatabaseOnceUnderConcurrentLoad() throws Exception {
+        Brand brand = new Brand();
+        brand.setId(1L);
+        brand.setName("Nike");
+        when(brandRepository.findAllByStatusTrue()).thenReturn(List.of(brand));
+        when(brandRepository.findById(1L)).thenReturn(Optional.of(brand));
+        when(brandRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < REQUESTS; i++) {
+            pool.submit(() -> assertEquals(1, brandService.getActiveBrands().size()));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        // sync = true: các luồng cùng miss lần đầu chờ một lần nạp, không cùng đổ xuống DB
+        int queries = mockingDetails(brandRepository).getInvocations().size();
+        log.debug("brands: {} requests -> {} queries", REQUESTS, queries);
+        assertEquals(1, queries);
+
+        brandService.updateBrand(1L, brand);
+        brandService.getActiveBrands();
+        verify(brandRepository, times(2)).findAllByStatusTrue();
+    }
+
+    @Test
+    void productCardsQueryOnlyMissingProducts() {
+        List<List<Long>> pages = new ArrayList<>();
+        for (long first = 1; first <= PRODUCTS; first += PAGE_SIZE) {
+            List<Long> page = new ArrayList<>();
+            for (long id = first; id < first + PAGE_SIZE; id++) {
+                page.add(id);
+            }
+            pages.add(page);
+        }
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(PAGE_SIZE, productCardLoader.loadByIds(pages.get(i % pages.size()), null, null).size());
+        }
+
+        // Không cache: 3 truy vấn cho mỗi request; có cache: 3 truy vấn cho mỗi trang, lần đầu gặp
+        int queries = mockingDetails(productRepository).getInvocations().size()
+                + mockingDetails(productVariantRepository).getInvocations().size()
+                + mockingDetails(promotionProductRepository).getInvocations().size();
+        log.debug("product cards: {} requests, {} queries (uncached {})", REQUESTS, queries, REQUESTS * 3);
+        assertEquals(pages.size() * 3, queries);
+
+        CacheStatsResponse stats = cacheStatsService.stats().stream()
+                .filter(s -> s.getName().equals(CacheConfig.PRODUCT_CARDS))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(PRODUCTS, stats.getSize());
+        assertEquals(PRODUCTS, stats.getMissCount());
+        assertEquals((long) REQUESTS * PAGE_SIZE - PRODUCTS, stats.getHitCount());
+
+        // Đổi biến thể của sản phẩm 5: chỉ sản phẩm 5 bị nạp lại
+        clearInvocations(productRepository);
+        when(catalogIndex.isReady()).thenReturn(true);
+        when(catalogIndex.productsOfVariants(Set.of(51L))).thenReturn(Set.of(5L));
+        productCacheEvictor.onProductChanged(CatalogIndexUpdater.ProductChangedEvent.ofVariants(List.of(51L)));
+        productCardLoader.loadByIds(pages.get(0), null, null);
+        verify(productRepository).findWithRefsByIdIn(List.of(5L));
+    }
+
+    private static Product product(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Runner " + id);
+        return product;
+    }
+}
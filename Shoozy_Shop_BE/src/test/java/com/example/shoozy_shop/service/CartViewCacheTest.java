@@ -0,0 +1,109 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.ProductCartResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CartViewCacheTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CartViewCache cache = new CartViewCache(jdbcTemplate, 100, 30);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void servesRepeatedReadsAndCartEditsFromMemory() {
+        when(jdbcTemplate.query(contains("ci.cart_id = ?"), any(RowMapper.class), eq(1L)))
+                .thenReturn(List.of(item(11, 101, 10, 2), item(12, 102, 10, 1)));
+
+        cache.items(1L);
+        cache.onCartItemChanged(new CartViewCache.CartItemChangedEvent(1L, 11L, 5));
+        cache.onCartItemChanged(new CartViewCache.CartItemChangedEvent(1L, 12L, null));
+        List<ProductCartResponse> items = cache.items(1L);
+
+        assertEquals(List.of(11L), items.stream().map(ProductCartResponse::getIdCartItem).toList());
+        assertEquals(5, items.get(0).getQuantity());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void insertsNewItemByReadingOnlyThatRow() {
+        when(jdbcTemplate.query(contains("ci.cart_id = ?"), any(RowMapper.class), eq(1L)))
+                .thenReturn(List.of(item(11, 101, 10, 2)));
+        when(jdbcTemplate.query(contains("ci.id = ?"), any(RowMapper.class), eq(13L)))
+                .thenReturn(List.of(item(13, 103, 20, 1)));
+
+        cache.items(1L);
+        cache.onCartItemChanged(new CartViewCache.CartItemChangedEvent(1L, 13L, 1));
+
+        assertEquals(List.of(11L, 13L), cache.items(1L).stream().map(ProductCartResponse::getIdCartItem).toList());
+        verify(jdbcTemplate, times(1)).query(contains("ci.cart_id = ?"), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void productChangeEvictsOnlyCartsContainingIt() {
+        when(jdbcTemplate.query(contains("ci.cart_id = ?"), any(RowMapper.class), eq(1L)))
+                .thenReturn(List.of(item(11, 101, 10, 2)));
+        when(jdbcTemplate.query(contains("ci.cart_id = ?"), any(RowMapper.class), eq(2L)))
+                .thenReturn(List.of(item(21, 201, 20, 1)));
+        cache.items(1L);
+        cache.items(2L);
+
+        // Giá biến thể 101 đổi (theo id biến thể), rồi sản phẩm 30 không nằm trong giỏ nào đổi (theo id sản phẩm)
+        cache.onProductChanged(CatalogIndexUpdater.ProductChangedEvent.ofVariants(List.of(101L)));
+        cache.onProductChanged(CatalogIndexUpdater.ProductChangedEvent.ofProduct(30L));
+        cache.items(1L);
+        cache.items(2L);
+
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), eq(1L));
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), eq(2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void doesNotKeepAViewThatChangedWhileLoading() {
+        when(jdbcTemplate.query(contains("ci.cart_id = ?"), any(RowMapper.class), eq(1L))).thenAnswer(inv -> {
+            // Giá đổi và commit trong lúc đang đọc giỏ: bản vừa đọc có thể đã cũ
+            cache.onProductChanged(new CatalogIndexUpdater.ProductChangedEvent(Set.of(10L), Set.of()));
+            return List.of(item(11, 101, 10, 2));
+        });
+
+        assertEquals(1, cache.items(1L).size());
+        cache.items(1L);
+
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), eq(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expiresWhenAPromotionInTheCartStartsOrEnds() {
+        when(jdbcTemplate.query(contains("ci.cart_id = ?"), any(RowMapper.class), eq(1L)))
+                .thenReturn(List.of(new CartViewCache.Item(11, 101, 10, 0.8, null, LocalDateTime.now().minusSeconds(1),
+                        response(11, 10, 2))));
+
+        cache.items(1L);
+        cache.items(1L);
+
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), eq(1L));
+    }
+
+    private static CartViewCache.Item item(long cartItemId, long variantId, long productId, int quantity) {
+        return new CartViewCache.Item(cartItemId, variantId, productId, 0.8, null, null,
+                response(cartItemId, productId, quantity));
+    }
+
+    private static ProductCartResponse response(long cartItemId, long productId, int quantity) {
+        return new ProductCartResponse(cartItemId, productId, "Giày " + productId, null, 900_000.0, 0.0, 40, "Đen",
+                quantity, 10);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.CatalogFilterRequest;
+import com.example.shoozy_shop.dto.response.CatalogFacetResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh lọc danh mục bằng bitmap với cách Specification đang làm (JOIN biến thể, lọc từng dòng, DISTINCT, sort).
+ * Không có SQL Server trong môi trường benchmark nên nhánh "join" mô phỏng lại plan đó trên cùng dữ liệu trong RAM,
+ * tức là bỏ qua chi phí mạng/IO của DB — con số thực tế của nhánh DB chỉ có thể tệ hơn.
+ * Chạy: mvn test-compile rồi chạy main() của lớp này (hoặc từ IDE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogIndexBenchmark {
+
+    @Param({"5000"})
+    int productCount;
+
+    @Param({"8"})
+    int variantsPerProduct;
+
+    private CatalogIndex index;
+    private CatalogIndex.ProductRow[] products;
+    private List<CatalogIndex.VariantRow> variants;
+    private CatalogFilterRequest filter;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        String[] genders = {"Male", "Female", "Unisex"};
+        products = new CatalogIndex.ProductRow[productCount];
+        variants = new ArrayList<>(productCount * variantsPerProduct);
+        long variantId = 1;
+        for (int i = 0; i < productCount; i++) {
+            long productId = i + 1;
+            double minPrice = Double.MAX_VALUE;
+            int stock = 0;
+            for (int v = 0; v < variantsPerProduct; v++) {
+                double price = 200_000 + random.nextInt(60) * 50_000;
+                int quantity = random.nextInt(5) == 0 ? 0 : random.nextInt(30);
+                variants.add(new CatalogIndex.VariantRow(variantId++, productId, 1L + random.nextInt(12),
+                        1L + random.nextInt(10), price, quantity));
+                minPrice = Math.min(minPrice, price);
+                stock += quantity;
+            }
+            products[i] = new CatalogIndex.ProductRow(productId, 1L + random.nextInt(20), 1L + random.nextInt(8),
+                    1L + random.nextInt(5), genders[random.nextInt(genders.length)], true, minPrice,
+                    random.nextInt(50) / 10.0, stock, LocalDateTime.now().minusMinutes(i));
+        }
+        index = new CatalogIndex(200_000);
+        index.rebuild(Arrays.asList(products), variants);
+
+        filter = CatalogFilterRequest.builder()
+                .brandIds(List.of(1L, 2L, 3L, 4L, 5L))
+                .sizeIds(List.of(5L, 6L))
+                .minPrice(500_000.0)
+                .maxPrice(1_500_000.0)
+                .inStock(true)
+                .status(true)
+                .build();
+    }
+
+    @Benchmark
+    public CatalogIndex.SearchResult bitmapSearch() {
+        return index.search(filter, "price", "asc", 1, 20);
+    }
+
+    @Benchmark
+    public CatalogFacetResponse bitmapFacets() {
+        return index.facets(filter);
+    }
+
+    @Benchmark
+    public List<Long> joinDistinctSearch() {
+        Map<Long, CatalogIndex.ProductRow> byId = new HashMap<>();
+        for (CatalogIndex.ProductRow p : products) {
+            byId.put(p.id(), p);
+        }
+        // products JOIN product_variants, điều kiện trên từng dòng rồi DISTINCT
+        Set<Long> distinct = new HashSet<>();
+        for (CatalogIndex.VariantRow v : variants) {
+            CatalogIndex.ProductRow p = byId.get(v.productId());
+            if (p.active() && filter.getBrandIds().contains(p.brandId())
+                    && filter.getSizeIds().contains(v.sizeId())
+                    && v.sellPrice() >= filter.getMinPrice() && v.sellPrice() <= filter.getMaxPrice()
+                    && v.quantity() > 0) {
+                distinct.add(p.id());
+            }
+        }
+        List<CatalogIndex.ProductRow> rows = new ArrayList<>(distinct.size());
+        for (Long id : distinct) {
+            rows.add(byId.get(id));
+        }
+        rows.sort(Comparator.comparing(CatalogIndex.ProductRow::minSellPrice)
+                .thenComparingLong(CatalogIndex.ProductRow::id));
+        return rows.stream().limit(20).map(CatalogIndex.ProductRow::id).toList();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CatalogIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
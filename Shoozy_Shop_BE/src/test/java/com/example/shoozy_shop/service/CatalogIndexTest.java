@@ -0,0 +1,177 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.CatalogFilterRequest;
+import com.example.shoozy_shop.dto.response.CatalogFacetResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogIndexTest {
+
+    private static final long BUCKET = 200_000;
+
+    private final Random random = new Random(42);
+    private final List<CatalogIndex.ProductRow> products = new ArrayList<>();
+    private final List<CatalogIndex.VariantRow> variants = new ArrayList<>();
+
+    @Test
+    void filtersMatchJoinSemanticsOnRandomCatalog() {
+        generate(300, 6);
+        CatalogIndex index = new CatalogIndex(BUCKET);
+        index.rebuild(products, variants);
+
+        for (int i = 0; i < 200; i++) {
+            CatalogFilterRequest filter = randomFilter();
+            Set<Long> expected = bruteForce(filter);
+            CatalogIndex.SearchResult result = index.search(filter, "id", "asc", 1, 10_000);
+            assertEquals(expected.size(), result.total(), filter::toString);
+            assertEquals(new TreeSet<>(expected), new TreeSet<>(result.productIds()), filter::toString);
+        }
+    }
+
+    @Test
+    void facetCountsIgnoreOwnFilter() {
+        generate(300, 6);
+        CatalogIndex index = new CatalogIndex(BUCKET);
+        index.rebuild(products, variants);
+
+        for (int i = 0; i < 50; i++) {
+            CatalogFilterRequest filter = randomFilter();
+            CatalogFacetResponse facets = index.facets(filter);
+            assertEquals(bruteForce(filter).size(), facets.getTotal());
+
+            facets.getBrands().forEach((brandId, count) -> {
+                CatalogFilterRequest f = copy(filter);
+                f.setBrandIds(List.of(brandId));
+                assertEquals(bruteForce(f).size(), count, "brand " + brandId);
+            });
+            facets.getSizes().forEach((sizeId, count) -> {
+                CatalogFilterRequest f = copy(filter);
+                f.setSizeIds(List.of(sizeId));
+                assertEquals(bruteForce(f).size(), count, "size " + sizeId);
+            });
+            facets.getPriceBuckets().forEach((low, count) -> {
+                CatalogFilterRequest f = copy(filter);
+                f.setMinPrice((double) low);
+                f.setMaxPrice(low + BUCKET - 1.0);
+                assertEquals(bruteForce(f).size(), count, "price " + low);
+            });
+        }
+    }
+
+    @Test
+    void sortsAndPagesByMaintainedKeys() {
+        generate(120, 3);
+        CatalogIndex index = new CatalogIndex(BUCKET);
+        index.rebuild(products, variants);
+        CatalogFilterRequest all = new CatalogFilterRequest();
+
+        List<Long> expected = products.stream()
+                .sorted(Comparator.comparing(CatalogIndex.ProductRow::minSellPrice,
+                                Comparator.nullsLast(Comparator.<Double>reverseOrder()))
+                        .thenComparingLong(CatalogIndex.ProductRow::id))
+                .map(CatalogIndex.ProductRow::id)
+                .toList();
+        List<Long> paged = new ArrayList<>();
+        for (int page = 1; page <= 12; page++) {
+            paged.addAll(index.search(all, "price", "desc", page, 10).productIds());
+        }
+        assertEquals(expected, paged);
+        assertEquals(List.of(120L, 119L), index.search(all, "id", "desc", 1, 2).productIds());
+    }
+
+    @Test
+    void upsertReplacesProductAndItsVariants() {
+        generate(50, 3);
+        CatalogIndex index = new CatalogIndex(BUCKET);
+        index.rebuild(products, variants);
+
+        CatalogIndex.ProductRow old = products.get(0);
+        CatalogIndex.ProductRow moved = new CatalogIndex.ProductRow(old.id(), 999L, old.categoryId(), old.materialId(),
+                old.gender(), true, 50_000.0, 0, 7, old.createdAt());
+        index.upsert(old.id(), moved, List.of(new CatalogIndex.VariantRow(9_999, old.id(), 77L, 88L, 50_000.0, 7)));
+
+        CatalogFilterRequest byBrand = CatalogFilterRequest.builder().brandIds(List.of(999L)).sizeIds(List.of(77L)).build();
+        assertEquals(List.of(old.id()), index.search(byBrand, "id", "asc", 1, 10).productIds());
+        assertEquals(Set.of(old.id()), index.productsOfVariants(List.of(9_999L)));
+        // Biến thể cũ của sản phẩm đã bị gỡ
+        long oldVariant = variants.stream().filter(v -> v.productId() == old.id()).findFirst().orElseThrow().id();
+        assertTrue(index.productsOfVariants(List.of(oldVariant)).isEmpty());
+
+        index.upsert(old.id(), null, List.of());
+        assertEquals(0, index.search(byBrand, "id", "asc", 1, 10).total());
+    }
+
+    private void generate(int productCount, int maxVariants) {
+        long variantId = 1;
+        String[] genders = {"Male", "Female", "Unisex", "Kids"};
+        for (long id = 1; id <= productCount; id++) {
+            int variantCount = random.nextInt(maxVariants + 1);
+            List<CatalogIndex.VariantRow> own = new ArrayList<>();
+            for (int v = 0; v < variantCount; v++) {
+                double price = 100_000 + random.nextInt(40) * 50_000;
+                own.add(new CatalogIndex.VariantRow(variantId++, id, 1L + random.nextInt(8), 1L + random.nextInt(6),
+                        price, random.nextInt(4) == 0 ? 0 : random.nextInt(50)));
+            }
+            variants.addAll(own);
+            Double minPrice = own.stream().map(CatalogIndex.VariantRow::sellPrice).min(Double::compare).orElse(null);
+            products.add(new CatalogIndex.ProductRow(id, 1L + random.nextInt(5), 1L + random.nextInt(4),
+                    1L + random.nextInt(3), genders[random.nextInt(genders.length)], random.nextInt(10) != 0,
+                    minPrice, random.nextInt(50) / 10.0, own.stream().mapToInt(CatalogIndex.VariantRow::quantity).sum(),
+                    LocalDateTime.now().minusDays(id)));
+        }
+    }
+
+    private CatalogFilterRequest randomFilter() {
+        CatalogFilterRequest f = new CatalogFilterRequest();
+        if (random.nextBoolean()) f.setBrandIds(randomIds(5));
+        if (random.nextBoolean()) f.setCategoryIds(randomIds(4));
+        if (random.nextInt(3) == 0) f.setMaterialIds(randomIds(3));
+        if (random.nextBoolean()) f.setSizeIds(randomIds(8));
+        if (random.nextBoolean()) f.setColorIds(randomIds(6));
+        if (random.nextInt(3) == 0) f.setGender(random.nextBoolean() ? "Male" : "Unisex");
+        if (random.nextBoolean()) f.setMinPrice(100_000.0 + random.nextInt(20) * 37_000);
+        if (random.nextBoolean()) f.setMaxPrice(600_000.0 + random.nextInt(30) * 41_000);
+        if (random.nextInt(3) == 0) f.setInStock(true);
+        if (random.nextInt(3) == 0) f.setStatus(random.nextBoolean());
+        return f;
+    }
+
+    private List<Long> randomIds(int max) {
+        return random.ints(1 + random.nextInt(3), 1, max + 1).mapToObj(i -> (long) i).distinct().toList();
+    }
+
+    // Cùng ngữ nghĩa với truy vấn Specification: JOIN biến thể + DISTINCT, điều kiện biến thể trên cùng một dòng
+    private Set<Long> bruteForce(CatalogFilterRequest f) {
+        boolean variantFilter = f.getSizeIds() != null || f.getColorIds() != null
+                || f.getMinPrice() != null || f.getMaxPrice() != null || Boolean.TRUE.equals(f.getInStock());
+        Predicate<CatalogIndex.VariantRow> variantMatch = v ->
+                (f.getSizeIds() == null || f.getSizeIds().contains(v.sizeId()))
+                        && (f.getColorIds() == null || f.getColorIds().contains(v.colorId()))
+                        && (f.getMinPrice() == null || v.sellPrice() >= f.getMinPrice())
+                        && (f.getMaxPrice() == null || v.sellPrice() <= f.getMaxPrice())
+                        && (!Boolean.TRUE.equals(f.getInStock()) || v.quantity() > 0);
+        Set<Long> withVariant = variants.stream().filter(variantMatch)
+                .map(CatalogIndex.VariantRow::productId).collect(Collectors.toSet());
+        return products.stream()
+                .filter(p -> f.getStatus() == null || f.getStatus() == p.active())
+                .filter(p -> f.getBrandIds() == null || f.getBrandIds().contains(p.brandId()))
+                .filter(p -> f.getCategoryIds() == null || f.getCategoryIds().contains(p.categoryId()))
+                .filter(p -> f.getMaterialIds() == null || f.getMaterialIds().contains(p.materialId()))
+                .filter(p -> f.getGender() == null || f.getGender().equals(p.gender()))
+                .filter(p -> !variantFilter || withVariant.contains(p.id()))
+                .map(CatalogIndex.ProductRow::id)
+                .collect(Collectors.toSet());
+    }
+
+    private CatalogFilterRequest copy(CatalogFilterRequest f) {
+        return new CatalogFilterRequest(f.getBrandIds(), f.getCategoryIds(), f.getMaterialIds(), f.getSizeIds(),
+                f.getColorIds(), f.getGender(), f.getMinPrice(), f.getMaxPrice(), f.getInStock(), f.getStatus());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.CatalogFilterRequest;
+import com.example.shoozy_shop.dto.response.SuggestionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CatalogIndexUpdaterTest {
+
+    private final CatalogIndex catalogIndex = new CatalogIndex(200_000);
+    private final ProductSuggestIndex suggestIndex = new ProductSuggestIndex();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CatalogIndexUpdater updater =
+            new CatalogIndexUpdater(catalogIndex, new ProductSearchIndex(), suggestIndex, jdbcTemplate);
+
+    private static final CatalogIndex.ProductRow PRODUCT =
+            new CatalogIndex.ProductRow(1, null, null, null, null, true, 500_000.0, 0, 10, null);
+
+    @BeforeEach
+    void stubTexts() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(1L);
+        when(rs.getString("name")).thenReturn("Giày Nike");
+        when(rs.getBoolean("status")).thenReturn(true);
+        doAnswer(inv -> {
+            inv.getArgument(1, RowCallbackHandler.class).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM products p"), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void productChangeCommittedDuringRebuildIsNotOverwrittenBySnapshot() {
+        // Sản phẩm bị xoá ngay sau khi rebuild đọc xong bản chụp (vẫn còn sản phẩm)
+        when(jdbcTemplate.query(contains("FROM products"), any(RowMapper.class))).thenAnswer(inv -> {
+            updater.onProductChanged(CatalogIndexUpdater.ProductChangedEvent.ofProduct(1L));
+            return List.of(PRODUCT);
+        });
+
+        updater.rebuild();
+
+        assertEquals(0, catalogIndex.search(new CatalogFilterRequest(), "id", "asc", 1, 10).total());
+        verify(jdbcTemplate).query(contains("WHERE id IN"), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void salesCommittedDuringRebuildAreReadBackAbsolutely() throws Exception {
+        when(jdbcTemplate.query(contains("FROM products"), any(RowMapper.class))).thenReturn(List.of(PRODUCT));
+        // Đơn hoàn tất sau lúc bản chụp đọc số đã bán (0)
+        doAnswer(inv -> {
+            updater.onSalesChanged(new CatalogIndexUpdater.SalesChangedEvent(7L, 1));
+            return null;
+        }).when(jdbcTemplate).query(contains("GROUP BY"), any(RowCallbackHandler.class));
+        ResultSet sold = mock(ResultSet.class);
+        when(sold.getLong("product_id")).thenReturn(1L);
+        when(sold.getLong("sold")).thenReturn(5L);
+        doAnswer(inv -> {
+            inv.getArgument(1, RowCallbackHandler.class).processRow(sold);
+            return null;
+        }).when(jdbcTemplate).query(contains("od2.order_id IN (?)"), any(RowCallbackHandler.class), eq(7L));
+
+        updater.rebuild();
+
+        assertEquals(List.of(5L), suggestIndex.suggest("giay nike", 10).stream()
+                .map(SuggestionResponse::getSold).toList());
+    }
+}
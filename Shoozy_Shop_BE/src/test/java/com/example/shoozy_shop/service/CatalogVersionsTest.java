@@ -0,0 +1,112 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.config.CacheConfig;
+import com.example.shoozy_shop.controller.BrandController;
+import com.example.shoozy_shop.model.Brand;
+import com.example.shoozy_shop.util.ConditionalGet;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class CatalogVersionsTest {
+
+    private final CatalogVersions versions = new CatalogVersions();
+    private final CaffeineCacheManager cacheManager = new CacheConfig().caffeineCacheManager(10, 10_000, 60, versions);
+
+    @Test
+    void evictAndClearChangeVersionsButLoadsDoNot() {
+        Cache details = cacheManager.getCache(CacheConfig.PRODUCT_DETAIL);
+        String product1 = versions.entryEtag(CacheConfig.PRODUCT_DETAIL, 1L);
+        String product2 = versions.entryEtag(CacheConfig.PRODUCT_DETAIL, 2L);
+        String all = versions.etag(CacheConfig.PRODUCT_DETAIL);
+
+        details.put(1L, "v1");
+        assertEquals(product1, versions.entryEtag(CacheConfig.PRODUCT_DETAIL, 1L));
+
+        // Xoá một sản phẩm: chỉ ETag của sản phẩm đó và của danh sách đổi
+        details.evict(1L);
+        assertNotEquals(product1, versions.entryEtag(CacheConfig.PRODUCT_DETAIL, 1L));
+        assertEquals(product2, versions.entryEtag(CacheConfig.PRODUCT_DETAIL, 2L));
+        assertNotEquals(all, versions.etag(CacheConfig.PRODUCT_DETAIL));
+
+        // Xoá cả cache (đổi thương hiệu...): mọi sản phẩm đổi ETag
+        details.clear();
+        assertNotEquals(product2, versions.entryEtag(CacheConfig.PRODUCT_DETAIL, 2L));
+    }
+
+    @Test
+    void epochKeepsEtagsUniqueAcrossRestarts() throws Exception {
+        String before = versions.etag(CacheConfig.BRANDS);
+        Thread.sleep(2);
+        assertNotEquals(before, new CatalogVersions().etag(CacheConfig.BRANDS));
+    }
+
+    @Test
+    void changeWithinTheCurrentSecondIsValidatedByEtagOnly() {
+        // Phiên bản đổi trong giây hiện tại (hoặc sau đó): Last-Modified chưa chốt nên If-Modified-Since không được 304
+        long lastModified = System.currentTimeMillis() / 1000 * 1000 + 1000;
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/v1/brands/active");
+        servletRequest.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        ResponseEntity<String> response = ConditionalGet.respond(
+                new ServletWebRequest(servletRequest, servletResponse), "v2", lastModified,
+                CacheControl.noCache(), () -> "body");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(servletResponse.getHeader(HttpHeaders.LAST_MODIFIED));
+        assertEquals("\"v2\"", servletResponse.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void repeatRequestGets304WithoutRebuildingBody() throws Exception {
+        BrandService brandService = mock(BrandService.class);
+        Brand brand = new Brand();
+        brand.setId(1L);
+        brand.setName("Nike");
+        when(brandService.getActiveBrands()).thenReturn(List.of(brand));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new BrandController(brandService, versions))
+                .addPlaceholderValue("api.prefix", "/api/v1")
+                .build();
+
+        MvcResult first = mvc.perform(get("/api/v1/brands/active"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        assertNotNull(etag);
+        assertFalse(etag.startsWith("W/"));
+
+        mvc.perform(get("/api/v1/brands/active").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mvc.perform(get("/api/v1/brands/active").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+        verify(brandService, times(1)).getActiveBrands();
+
+        // Sửa thương hiệu xoá cache brands sau commit: ETag cũ không còn khớp
+        cacheManager.getCache(CacheConfig.BRANDS).clear();
+        mvc.perform(get("/api/v1/brands/active").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + versions.etag(CacheConfig.BRANDS) + "\""));
+        verify(brandService, times(2)).getActiveBrands();
+    }
+}
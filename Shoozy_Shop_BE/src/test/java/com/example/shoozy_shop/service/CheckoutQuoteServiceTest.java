@@ -0,0 +1,240 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.CheckoutQuoteRequest;
+import com.example.shoozy_shop.dto.request.OpenApiRequest;
+import com.example.shoozy_shop.dto.request.OrderDetailRequest;
+import com.example.shoozy_shop.dto.request.OrderRequest;
+import com.example.shoozy_shop.dto.response.CheckoutQuoteResponse;
+import com.example.shoozy_shop.dto.response.CouponForOrderResponse;
+import com.example.shoozy_shop.dto.response.FeeShippingResponse;
+import com.example.shoozy_shop.dto.response.ProductCartResponse;
+import com.example.shoozy_shop.exception.CustomException;
+import com.example.shoozy_shop.repository.CartRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CheckoutQuoteServiceTest {
+
+    private static final ShippingService.Destination DESTINATION = new ShippingService.Destination(1442, "20109", 2);
+
+    private final CartViewCache cartViewCache = mock(CartViewCache.class);
+    private final ICouponService couponService = mock(ICouponService.class);
+    private final IAddressService addressService = mock(IAddressService.class);
+    private final ShippingService shippingService = mock(ShippingService.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    CheckoutQuoteServiceTest() {
+        when(cartViewCache.cartIdOf(eq(7L), any())).thenReturn(70L);
+        // Biến thể 101: 1.000.000đ, giảm 10% (khuyến mãi 5), 0.8kg x2; biến thể 102: 500.000đ, 0.5kg x1
+        when(cartViewCache.lines(70L)).thenReturn(List.of(
+                line(11, 101, 1_000_000.0, new CartViewCache.Promotion(5, "KM10", "Giảm 10%", 10.0), 10.0, 0.8, 2),
+                line(12, 102, 500_000.0, null, 0.0, 0.5, 1)));
+        when(couponService.getUsableCoupons(7L)).thenReturn(List.of(
+                coupon("SALE10", true, 10.0, 200_000.0, 1_000_000.0),
+                coupon("BIG", false, 500_000.0, null, 5_000_000.0)));
+        when(shippingService.resolveDestination(any())).thenReturn(DESTINATION);
+        // Đơn hàng chỉ quy ra mã quận/phường; tên viết khác nhưng cùng phường vẫn ra cùng mã
+        when(shippingService.resolveArea(any())).thenAnswer(inv -> {
+            OpenApiRequest address = inv.getArgument(0);
+            return address.getWardName().contains("Bến Nghé")
+                    ? new ShippingService.Destination(1442, "20107", null)
+                    : new ShippingService.Destination(1442, "20109", null);
+        });
+        when(shippingService.calcFee(eq(DESTINATION), anyInt(), any())).thenReturn(
+                new FeeShippingResponse(new BigDecimal(30000), "VND", 2, 1442, "20109"));
+        when(shippingService.fallback()).thenCallRealMethod();
+    }
+
+    private CheckoutQuoteService service(long ttlMinutes, long couponsTimeoutMs, long shippingTimeoutMs) {
+        return new CheckoutQuoteService(cartViewCache, mock(CartRepository.class), couponService, addressService,
+                shippingService, jdbcTemplate, "test-secret", ttlMinutes, 2000, couponsTimeoutMs, shippingTimeoutMs);
+    }
+
+    @Test
+    void quotesEverythingAndOrderCanTrustTheToken() {
+        CheckoutQuoteService service = service(15, 1000, 1000);
+
+        CheckoutQuoteResponse quote = service.quote(7L, request("SALE10"));
+
+        // (1.000.000 - 100.000) x 2 + 500.000
+        assertEquals(0, new BigDecimal(2300000).compareTo(quote.getSubtotal()));
+        // 10% = 230.000 nhưng chặn ở 200.000; mã BIG chưa đủ điều kiện đơn 5.000.000
+        assertEquals(0, new BigDecimal(200000).compareTo(quote.getCouponDiscount()));
+        assertEquals(List.of("SALE10"), quote.getCoupons().stream().map(CouponForOrderResponse::getCode).toList());
+        assertEquals(0, new BigDecimal(2130000).compareTo(quote.getTotal()));
+        assertTrue(quote.getWarnings().isEmpty(), quote.getWarnings().toString());
+        verify(shippingService).calcFee(DESTINATION, 2100, 0);
+
+        CheckoutQuoteService.Quote trusted = service.verify(quote.getQuoteToken(), 7L, order(7L, 2, "SALE10"));
+        assertEquals(0, new BigDecimal(100000).compareTo(trusted.line(101L).unitDiscount()));
+        assertEquals("KM10", trusted.line(101L).promotionCode());
+        assertNull(trusted.line(102L).promotionId());
+        assertEquals(0, new BigDecimal(200000).compareTo(trusted.couponDiscount()));
+        assertEquals(0, new BigDecimal(30000).compareTo(trusted.shippingFee()));
+        verify(jdbcTemplate).update(contains("INSERT INTO checkout_quote_redemptions"), eq(trusted.id()), any());
+    }
+
+    @Test
+    void tokenPlacesOnlyOneOrder() {
+        CheckoutQuoteService service = service(15, 1000, 1000);
+        String token = service.quote(7L, request(null)).getQuoteToken();
+        when(jdbcTemplate.update(contains("INSERT INTO checkout_quote_redemptions"), anyString(), any(Timestamp.class)))
+                .thenReturn(1)
+                .thenThrow(new DuplicateKeyException("pk_checkout_quote_redemptions"));
+
+        service.verify(token, 7L, order(7L, 2, null));
+        assertEquals(409, assertThrows(CustomException.class,
+                () -> service.verify(token, 7L, order(7L, 2, null))).getStatus());
+    }
+
+    @Test
+    void rejectsTamperedForeignChangedOrExpiredQuotes() throws InterruptedException {
+        CheckoutQuoteService service = service(15, 1000, 1000);
+        String token = service.quote(7L, request(null)).getQuoteToken();
+
+        assertEquals(400, assertThrows(CustomException.class,
+                () -> service(15, 1000, 1000).verify(token + "x", 7L, order(7L, 2, null))).getStatus());
+        CheckoutQuoteService otherKey = new CheckoutQuoteService(cartViewCache, mock(CartRepository.class),
+                couponService, addressService, shippingService, jdbcTemplate, "other-secret", 15, 2000, 1000, 1000);
+        assertEquals(400, assertThrows(CustomException.class,
+                () -> otherKey.verify(token, 7L, order(7L, 2, null))).getStatus());
+        // Người đăng nhập khác, hoặc đơn ghi userId khác trong body
+        assertEquals(400, assertThrows(CustomException.class,
+                () -> service.verify(token, 8L, order(8L, 2, null))).getStatus());
+        assertEquals(400, assertThrows(CustomException.class,
+                () -> service.verify(token, 7L, order(8L, 2, null))).getStatus());
+        assertEquals(409, assertThrows(CustomException.class,
+                () -> service.verify(token, 7L, order(7L, 3, null))).getStatus());
+        assertEquals(409, assertThrows(CustomException.class,
+                () -> service.verify(token, 7L, order(7L, 2, "SALE10"))).getStatus());
+        OrderRequest otherCartItems = order(7L, 2, null);
+        otherCartItems.setCartItemId(List.of(11L));
+        assertEquals(409, assertThrows(CustomException.class,
+                () -> service.verify(token, 7L, otherCartItems)).getStatus());
+        OrderRequest otherDestination = order(7L, 2, null);
+        otherDestination.getShippingAddress().setWardName("Phường Bến Nghé");
+        assertEquals(409, assertThrows(CustomException.class,
+                () -> service.verify(token, 7L, otherDestination)).getStatus());
+        OrderRequest noDestination = order(7L, 2, null);
+        noDestination.setShippingAddress(null);
+        assertEquals(409, assertThrows(CustomException.class,
+                () -> service.verify(token, 7L, noDestination)).getStatus());
+        verifyNoInteractions(jdbcTemplate);
+
+        CheckoutQuoteService expiring = service(0, 1000, 1000);
+        String expired = expiring.quote(7L, request(null)).getQuoteToken();
+        Thread.sleep(5);
+        assertEquals(409, assertThrows(CustomException.class,
+                () -> expiring.verify(expired, 7L, order(7L, 2, null))).getStatus());
+    }
+
+    @Test
+    void independentLookupsRunConcurrently() {
+        // Ba lần tra chỉ qua được barrier khi cùng đang chạy; chạy lần lượt thì lần đầu chờ hết hạn và báo lỗi
+        CyclicBarrier allInFlight = new CyclicBarrier(3);
+        List<CartViewCache.Item> lines = cartViewCache.lines(70L);
+        when(cartViewCache.lines(70L)).thenAnswer(inv -> {
+            allInFlight.await(5, TimeUnit.SECONDS);
+            return lines;
+        });
+        when(couponService.getUsableCoupons(7L)).thenAnswer(inv -> {
+            allInFlight.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(shippingService.resolveDestination(any())).thenAnswer(inv -> {
+            allInFlight.await(5, TimeUnit.SECONDS);
+            return DESTINATION;
+        });
+
+        CheckoutQuoteResponse quote = service(15, 10_000, 10_000).quote(7L, request(null));
+
+        assertTrue(quote.getWarnings().isEmpty(), quote.getWarnings().toString());
+        assertFalse(allInFlight.isBroken());
+    }
+
+    @Test
+    @Timeout(30)
+    void slowDependenciesFallBackWithinTheirTimeouts() throws InterruptedException {
+        // Mã giảm giá và GHN không bao giờ trả lời: chỉ thời hạn của từng phần mới kết thúc được báo giá
+        CountDownLatch cancelled = new CountDownLatch(2);
+        when(couponService.getUsableCoupons(7L)).thenAnswer(inv -> blockUntilCancelled(cancelled));
+        when(shippingService.resolveDestination(any())).thenAnswer(inv -> blockUntilCancelled(cancelled));
+
+        CheckoutQuoteResponse quote = service(15, 200, 300).quote(7L, request("SALE10"));
+
+        assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        assertEquals(0, ShippingService.DEFAULT_FEE.compareTo(quote.getShipping().getTotal()));
+        assertNull(quote.getCouponCode());
+        // Mã giảm giá không tải được, mã yêu cầu không áp được, phí ship dùng mặc định
+        assertEquals(3, quote.getWarnings().size(), quote.getWarnings().toString());
+        assertEquals(0, new BigDecimal(2325000).compareTo(quote.getTotal()));
+    }
+
+    @Test
+    void rejectsItemsOutsideTheUsersCart() {
+        CheckoutQuoteRequest request = request(null);
+        request.setCartItemIds(List.of(11L, 99L));
+
+        assertThrows(IllegalArgumentException.class, () -> service(15, 1000, 1000).quote(7L, request));
+    }
+
+    private static Object blockUntilCancelled(CountDownLatch cancelled) {
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            cancelled.countDown();
+        }
+        return null;
+    }
+
+    private static CheckoutQuoteRequest request(String couponCode) {
+        OpenApiRequest address = new OpenApiRequest();
+        address.setProvinceName("Hà Nội");
+        address.setDistrictName("Quận Cầu Giấy");
+        address.setWardName("Phường Dịch Vọng");
+        return new CheckoutQuoteRequest(List.of(11L, 12L), couponCode, address);
+    }
+
+    private static OrderRequest order(Long userId, int firstQuantity, String couponCode) {
+        OrderRequest order = new OrderRequest();
+        order.setUserId(userId);
+        order.setCouponCode(couponCode);
+        order.setCartItemId(List.of(12L, 11L));
+        order.setAddress("144 Xuân Thủy, phường dịch vọng,  Quận Cầu Giấy, Hà Nội");
+        OpenApiRequest destination = new OpenApiRequest();
+        destination.setProvinceName("Thành phố Hà Nội");
+        destination.setDistrictName("Cầu Giấy");
+        destination.setWardName("Dịch Vọng");
+        order.setShippingAddress(destination);
+        order.setOrderDetails(List.of(new OrderDetailRequest(101L, firstQuantity, 5L),
+                new OrderDetailRequest(102L, 1, null)));
+        return order;
+    }
+
+    private static CartViewCache.Item line(long cartItemId, long variantId, double price,
+                                           CartViewCache.Promotion promotion, double discountPercent, double weight,
+                                           int quantity) {
+        return new CartViewCache.Item(cartItemId, variantId, variantId / 10, weight, promotion, null,
+                new ProductCartResponse(cartItemId, variantId / 10, "Giày " + variantId, null, price, discountPercent,
+                        40, "Đen", quantity, 10));
+    }
+
+    private static CouponForOrderResponse coupon(String code, boolean percent, double value, Double limit,
+                                                 double condition) {
+        return CouponForOrderResponse.builder().code(code).type(percent).value(value).valueLimit(limit)
+                .condition(condition).status(1).build();
+    }
+}
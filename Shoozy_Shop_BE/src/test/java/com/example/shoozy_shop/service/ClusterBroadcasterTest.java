@@ -0,0 +1,112 @@
+package com.example.shoozy_shop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@EmbeddedKafka(partitions = 3, topics = ClusterBroadcasterTest.TOPIC)
+class ClusterBroadcasterTest {
+
+    static final String TOPIC = "ws-broadcast-test";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void everyNodeDeliversInOrderPerDestination(EmbeddedKafkaBroker broker) throws Exception {
+        KafkaTemplate<String, String> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()),
+                new StringSerializer(), new StringSerializer()));
+
+        SimpMessagingTemplate stompA = mock(SimpMessagingTemplate.class);
+        SimpMessagingTemplate stompB = mock(SimpMessagingTemplate.class);
+        ClusterBroadcaster nodeA = node(stompA, template, "a");
+        ClusterBroadcaster nodeB = node(stompB, template, "b");
+        List<KafkaMessageListenerContainer<String, String>> containers = List.of(
+                listen(broker, nodeA, "node-a"), listen(broker, nodeB, "node-b"));
+        try {
+            for (int i = 0; i < 20; i++) {
+                (i % 2 == 0 ? nodeA : nodeB).publish("/topic/refresh", "order:" + i, Map.of("seq", i));
+            }
+            template.flush();
+
+            for (SimpMessagingTemplate stomp : List.of(stompA, stompB)) {
+                verify(stomp, timeout(10_000).times(20)).convertAndSend(anyString(), any(Object.class));
+                List<Integer> received = new ArrayList<>();
+                mockingDetails(stomp).getInvocations().forEach(inv ->
+                        received.add(((JsonNode) inv.getArgument(1)).get("seq").asInt()));
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    expected.add(i);
+                }
+                assertEquals(expected, received);
+            }
+        } finally {
+            containers.forEach(KafkaMessageListenerContainer::stop);
+        }
+    }
+
+    @Test
+    void duplicateEnvelopeIsDeliveredOnce() throws Exception {
+        SimpMessagingTemplate stomp = mock(SimpMessagingTemplate.class);
+        ClusterBroadcaster node = node(stomp, null, "a");
+        String json = objectMapper.writeValueAsString(new ClusterBroadcaster.Envelope(
+                "id-1", "b", "/topic/refresh", "order:1", objectMapper.valueToTree(Map.of("seq", 1))));
+
+        node.deliver(json);
+        node.deliver(json);
+
+        verify(stomp, times(1)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void listenersWithTheSameNodeIdUseSeparateGroups() {
+        // Trùng node-id (vd để mặc định) vẫn phải mỗi tiến trình một group, nếu không các node chia nhau partition
+        KafkaBroadcastListener a = new KafkaBroadcastListener(node(mock(SimpMessagingTemplate.class), null, "a"), "default");
+        KafkaBroadcastListener b = new KafkaBroadcastListener(node(mock(SimpMessagingTemplate.class), null, "b"), "default");
+
+        assertTrue(a.getGroupId().startsWith("ws-fanout-default:"));
+        assertNotEquals(a.getGroupId(), b.getGroupId());
+    }
+
+    private ClusterBroadcaster node(SimpMessagingTemplate stomp, KafkaTemplate<String, String> template, String id) {
+        BroadcastCoalescer coalescer = new BroadcastCoalescer(stomp, BroadcastCoalescer.Mode.LEGACY, 100);
+        return new ClusterBroadcaster(coalescer, template, objectMapper, ClusterBroadcaster.Mode.KAFKA, TOPIC, id);
+    }
+
+    private KafkaMessageListenerContainer<String, String> listen(EmbeddedKafkaBroker broker, ClusterBroadcaster node,
+                                                                 String group) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps(group, "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        ContainerProperties containerProps = new ContainerProperties(TOPIC);
+        containerProps.setMessageListener((MessageListener<String, String>) record -> node.deliver(record.value()));
+        KafkaMessageListenerContainer<String, String> container = new KafkaMessageListenerContainer<>(
+                new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer()),
+                containerProps);
+        container.start();
+        ContainerTestUtils.waitForAssignment(container, 3);
+        return container;
+    }
+}
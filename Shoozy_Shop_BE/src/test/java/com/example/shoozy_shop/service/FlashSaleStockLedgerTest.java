@@ -0,0 +1,180 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.model.ProductVariant;
+import com.example.shoozy_shop.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FlashSaleStockLedgerTest {
+
+    @TempDir
+    Path journalDir;
+
+    private final ProductVariantRepository productVariantRepository = mock(ProductVariantRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private FlashSaleStockLedger ledger() throws Exception {
+        // Chưa node nào giữ sổ: lần claim đầu thành công
+        when(jdbcTemplate.update(contains("UPDATE flash_sale_owner"), any(Object[].class))).thenReturn(1);
+        FlashSaleStockLedger ledger = newLedger();
+        ledger.recover();
+        return ledger;
+    }
+
+    @SuppressWarnings("unchecked")
+    private FlashSaleStockLedger newLedger() {
+        doAnswer(inv -> {
+            inv.getArgument(0, Consumer.class).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        return new FlashSaleStockLedger(productVariantRepository, mock(ProductSortKeyService.class), jdbcTemplate,
+                transactionTemplate, journalDir.toString(), 4, "n1", 30_000);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recoveryReplaysOnlyReservationsWhoseOrderCommitted() throws Exception {
+        // Seq 1 thuộc đơn đã rollback (không có dấu), seq 2 và 3 thuộc đơn đã commit
+        Files.writeString(journalDir.resolve("journal.log"), "1;5;2\n2;5;3\n3;6;1\n4;6");
+        when(jdbcTemplate.queryForList(contains("flash_sale_reservations"), eq(Long.class), eq("n1")))
+                .thenReturn(List.of(2L, 3L));
+
+        ledger();
+
+        ArgumentCaptor<List<Object[]>> stock = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE product_variants"), stock.capture());
+        assertEquals(List.of("1;6", "3;5"), stock.getValue().stream().map(a -> a[0] + ";" + a[1]).sorted().toList());
+        ArgumentCaptor<List<Object[]>> markers = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("DELETE FROM flash_sale_reservations"), markers.capture());
+        assertEquals(List.of(2L, 3L), markers.getValue().stream().map(a -> (Long) a[1]).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushesCommittedReservationsAndReturnsRolledBackOnes() throws Exception {
+        ProductVariant pv = new ProductVariant();
+        pv.setQuantity(10);
+        when(productVariantRepository.findById(5L)).thenReturn(Optional.of(pv));
+        FlashSaleStockLedger ledger = ledger();
+        ledger.enable(5L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(ledger.tryReserve(5L, 3));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertTrue(ledger.tryReserve(5L, 2));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(8, ledger.available(5L));
+        verify(jdbcTemplate).update(contains("INSERT INTO flash_sale_reservations"), eq("n1"), eq(1L));
+        verify(jdbcTemplate).update(contains("INSERT INTO flash_sale_reservations"), eq("n1"), eq(2L));
+        // Dòng journal đã nằm trên đĩa trước khi đơn commit
+        assertTrue(Files.readString(journalDir.resolve("journal.log")).contains("2;5;2"));
+
+        ledger.flush();
+
+        ArgumentCaptor<List<Object[]>> stock = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE product_variants"), stock.capture());
+        assertEquals(List.of("2;5"), stock.getValue().stream().map(a -> a[0] + ";" + a[1]).toList());
+        ArgumentCaptor<List<Object[]>> markers = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("DELETE FROM flash_sale_reservations"), markers.capture());
+        assertEquals(List.of(2L), markers.getValue().stream().map(a -> (Long) a[1]).toList());
+        try (var files = Files.list(journalDir)) {
+            assertEquals(List.of("journal.log"), files.map(f -> f.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void restartAfterFlushDoesNotApplyTheDecrementAgain() throws Exception {
+        ProductVariant pv = new ProductVariant();
+        pv.setQuantity(10);
+        when(productVariantRepository.findById(5L)).thenReturn(Optional.of(pv));
+        FlashSaleStockLedger ledger = ledger();
+        ledger.enable(5L);
+        assertTrue(ledger.tryReserve(5L, 2));
+        ledger.flush();
+        ledger.shutdown();
+
+        // Dấu bị xoá cùng transaction với lượng trừ: lần khởi động sau không còn dấu nào để phát lại
+        when(jdbcTemplate.queryForList(contains("flash_sale_reservations"), eq(Long.class), eq("n1")))
+                .thenReturn(List.of());
+        ledger();
+
+        ArgumentCaptor<List<Object[]>> stock = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("UPDATE product_variants"), stock.capture());
+        assertEquals(List.of("2;5"), stock.getValue().stream().map(a -> a[0] + ";" + a[1]).toList());
+        verify(jdbcTemplate).update(contains("DELETE FROM flash_sale_owner"), any(Object[].class));
+        try (var files = Files.list(journalDir)) {
+            assertEquals(List.of("journal.log"), files.map(f -> f.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void reEnablingWhileAnOrderIsInFlightDoesNotSellItsStockTwice() throws Exception {
+        ProductVariant pv = new ProductVariant();
+        pv.setQuantity(10);
+        when(productVariantRepository.findById(5L)).thenReturn(Optional.of(pv));
+        FlashSaleStockLedger ledger = ledger();
+        ledger.enable(5L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(ledger.tryReserve(5L, 3));
+        assertTrue(ledger.tryReserve(5L, 2));
+        ledger.disable(5L);
+        // DB vẫn là 10 vì chưa đơn nào commit, nhưng 5 đã được giữ
+        assertEquals(5, ledger.enable(5L));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Đơn rollback trả hàng vào bộ đếm mới, đơn commit được ghi xuống DB
+        assertEquals(7, ledger.available(5L));
+        ledger.flush();
+        pv.setQuantity(7);
+        ledger.disable(5L);
+        assertEquals(7, ledger.enable(5L));
+    }
+
+    @Test
+    void startupFailsWhileAnotherNodeHoldsTheLedger() {
+        when(jdbcTemplate.update(contains("flash_sale_owner"), any(Object[].class))).thenReturn(0);
+        FlashSaleStockLedger ledger = newLedger();
+
+        assertThrows(IllegalStateException.class, ledger::recover);
+        assertThrows(IllegalStateException.class, () -> ledger.tryReserve(5L, 1));
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(status));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.shoozy_shop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class IdGeneratorServiceTest {
+
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 10_000;
+
+    @Test
+    void concurrentOrderCodesAreUniqueAndFetchOneBlockPerHundred() throws Exception {
+        AtomicLong sequence = new AtomicLong(1);
+        AtomicInteger roundTrips = new AtomicInteger();
+        IdGeneratorService generator = new IdGeneratorService(name -> {
+            roundTrips.incrementAndGet();
+            return sequence.getAndAdd(IdGeneratorService.BLOCK_SIZE);
+        });
+
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = IntStream.range(0, THREADS)
+                    .<Future<?>>mapToObj(i -> pool.submit(() -> {
+                        for (int j = 0; j < PER_THREAD; j++) {
+                            codes.add(generator.nextOrderCode());
+                        }
+                    }))
+                    .toList();
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.debug("Generated {} order codes in {} ms ({}/s), {} sequence round trips",
+                THREADS * PER_THREAD, elapsedMs, THREADS * PER_THREAD * 1000L / elapsedMs, roundTrips.get());
+
+        assertEquals(THREADS * PER_THREAD, codes.size());
+        assertEquals(THREADS * PER_THREAD / IdGeneratorService.BLOCK_SIZE, roundTrips.get());
+    }
+
+    @Test
+    void twoNodesSharingOneSequenceNeverCollide() {
+        AtomicLong sequence = new AtomicLong(1_000_000);
+        IdGeneratorService nodeA = new IdGeneratorService(name -> sequence.getAndAdd(IdGeneratorService.BLOCK_SIZE));
+        IdGeneratorService nodeB = new IdGeneratorService(name -> sequence.getAndAdd(IdGeneratorService.BLOCK_SIZE));
+
+        Set<String> skus = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(skus.add(nodeA.nextSku()));
+            assertTrue(skus.add(nodeB.nextSku()));
+        }
+        assertTrue(skus.stream().allMatch(sku -> sku.length() <= 10));
+    }
+}
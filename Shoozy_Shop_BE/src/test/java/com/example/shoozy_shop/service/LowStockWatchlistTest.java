@@ -0,0 +1,89 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.LowStockProductResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LowStockWatchlistTest {
+
+    private final WebSocketService webSocketService = mock(WebSocketService.class);
+    // Danh mục 2 có ngưỡng riêng là 20
+    private final LowStockWatchlist watchlist = new LowStockWatchlist(mock(JdbcTemplate.class), webSocketService,
+            10, "2:20");
+
+    @Test
+    void firstBuildListsLowStockWithoutPushing() {
+        watchlist.apply(List.of(row(1, 1L, true, 9), row(2, 1L, true, 10), row(3, 2L, true, 15),
+                row(4, 1L, false, 0), row(5, null, true, 3)), Set.of(1L, 2L, 3L, 4L, 5L), watchlist.startRead(), true);
+
+        List<LowStockProductResponse> list = watchlist.list();
+        assertEquals(List.of(5L, 1L, 3L), list.stream().map(LowStockProductResponse::getProductId).toList());
+        assertEquals(20, list.get(2).getThreshold());
+        verifyNoInteractions(webSocketService);
+    }
+
+    @Test
+    void pushesOnlyProductsThatEnterChangeOrLeave() {
+        watchlist.apply(List.of(row(1, 1L, true, 5), row(2, 1L, true, 50), row(3, 1L, true, 8)),
+                Set.of(1L, 2L, 3L), watchlist.startRead(), false);
+
+        // 1 giảm tồn, 2 rơi xuống dưới ngưỡng, 3 nhập thêm hàng, 4 đổi tên nhưng vẫn đủ hàng
+        watchlist.apply(List.of(row(1, 1L, true, 4), row(2, 1L, true, 9), row(3, 1L, true, 30),
+                row(4, 1L, true, 100)), Set.of(1L, 2L, 3L, 4L), watchlist.startRead(), false);
+
+        verify(webSocketService).broadcastLowStock(argThat(p -> p.getProductId() == 1L && p.getTotalQuantity() == 4),
+                eq(LowStockWatchlist.UPDATED));
+        verify(webSocketService).broadcastLowStock(argThat(p -> p.getProductId() == 2L), eq(LowStockWatchlist.ADDED));
+        verify(webSocketService).broadcastLowStock(argThat(p -> p.getProductId() == 3L), eq(LowStockWatchlist.REMOVED));
+        verifyNoMoreInteractions(webSocketService);
+        assertEquals(List.of(1L, 2L), watchlist.list().stream().map(LowStockProductResponse::getProductId).toList());
+    }
+
+    @Test
+    void unchangedOrDeletedProducts() {
+        watchlist.apply(List.of(row(1, 1L, true, 5)), Set.of(1L), watchlist.startRead(), false);
+
+        watchlist.apply(List.of(row(1, 1L, true, 5)), Set.of(1L), watchlist.startRead(), false);
+        verifyNoInteractions(webSocketService);
+
+        // Sản phẩm bị xoá không còn dòng nào trong DB
+        watchlist.apply(List.of(), Set.of(1L), watchlist.startRead(), false);
+        verify(webSocketService).broadcastLowStock(any(), eq(LowStockWatchlist.REMOVED));
+        assertTrue(watchlist.list().isEmpty());
+    }
+
+    @Test
+    void olderReadDoesNotOverwriteNewerOne() {
+        watchlist.apply(List.of(row(1, 1L, true, 50), row(2, 1L, true, 50)), Set.of(1L, 2L),
+                watchlist.startRead(), true);
+        long older = watchlist.startRead();
+        long newer = watchlist.startRead();
+
+        // Lần đọc sau thấy sản phẩm 1 đã bán hết, nhưng áp xong trước lần đọc trước
+        watchlist.apply(List.of(row(1, 1L, true, 0)), Set.of(1L), newer, false);
+        watchlist.apply(List.of(row(1, 1L, true, 50), row(2, 1L, true, 3)), Set.of(1L, 2L), older, false);
+        assertEquals(List.of(1L, 2L), watchlist.list().stream().map(LowStockProductResponse::getProductId).toList());
+
+        // Lần dựng lại bắt đầu trước cũng không ghi đè
+        watchlist.apply(List.of(row(1, 1L, true, 50), row(2, 1L, true, 3)), Set.of(1L, 2L), older, true);
+        assertEquals(0, watchlist.list().get(0).getTotalQuantity());
+    }
+
+    @Test
+    void rejectsMalformedCategoryThresholds() {
+        assertEquals(20, LowStockWatchlist.parseThresholds(" 3 : 20 ").get(3L));
+        assertTrue(LowStockWatchlist.parseThresholds("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> LowStockWatchlist.parseThresholds("3=20"));
+    }
+
+    private static LowStockWatchlist.StockRow row(long id, Long categoryId, boolean active, long stock) {
+        return new LowStockWatchlist.StockRow(id, "Giày " + id, null, categoryId, active, stock);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.OrderDetailResponse;
+import com.example.shoozy_shop.enums.ReturnStatus;
+import com.example.shoozy_shop.model.*;
+import com.example.shoozy_shop.repository.ReturnItemRepository;
+import com.example.shoozy_shop.repository.ReviewRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderDetailBatchLoaderTest {
+
+    private final ReturnItemRepository returnItemRepository = mock(ReturnItemRepository.class);
+    private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+    private final OrderDetailBatchLoader loader = new OrderDetailBatchLoader(returnItemRepository, reviewRepository);
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50})
+    void queryCountDoesNotGrowWithLineCount(int lines) {
+        Order order = order(1L, 7L, lines);
+        List<Object[]> refunded = new ArrayList<>();
+        refunded.add(new Object[]{1L, 2L});
+        when(returnItemRepository.sumQuantityByOrderDetailIdsAndStatus(anyCollection(), eq(ReturnStatus.REFUNDED)))
+                .thenReturn(refunded);
+        when(reviewRepository.findByUserIdAndOrderDetailIdIn(eq(7L), anyCollection())).thenReturn(List.of());
+
+        List<OrderDetailResponse> result = loader.load(order);
+
+        assertEquals(lines, result.size());
+        verify(returnItemRepository, times(1)).sumQuantityByOrderDetailIdsAndStatus(anyCollection(), any());
+        verify(reviewRepository, times(1)).findByUserIdAndOrderDetailIdIn(anyLong(), anyCollection());
+        OrderDetailResponse first = result.stream().filter(r -> r.getOrderDetailId() == 1L).findFirst().orElseThrow();
+        assertEquals(2, first.getRefundedQuantity());
+        assertNull(first.getReviewId());
+    }
+
+    @Test
+    void returnableItemsUseOneGroupedQuery() {
+        Order order = order(1L, 7L, 50);
+        List<Object[]> returned = new ArrayList<>();
+        returned.add(new Object[]{1L, 3L});
+        returned.add(new Object[]{2L, 1L});
+        when(returnItemRepository.sumQuantityByOrderDetailIds(anyCollection())).thenReturn(returned);
+
+        var items = loader.loadReturnable(order.getOrderDetails());
+
+        // Dòng 1 đã trả hết (3/3), dòng 2 còn 2
+        assertEquals(49, items.size());
+        assertEquals(2, items.stream().filter(i -> i.getOrderDetailId() == 2L).findFirst().orElseThrow().getQuantity());
+        verify(returnItemRepository, times(1)).sumQuantityByOrderDetailIds(anyCollection());
+    }
+
+    private Order order(Long orderId, Long userId, int lines) {
+        User user = new User();
+        user.setId(userId);
+        Product product = new Product();
+        product.setId(10L);
+        product.setName("Runner");
+        Set<OrderDetail> details = new LinkedHashSet<>();
+        for (long i = 1; i <= lines; i++) {
+            ProductVariant pv = ProductVariant.builder()
+                    .id(100 + i)
+                    .product(product)
+                    .color(Color.builder().id(1L).name("Black").build())
+                    .size(new Size(1L, 42, true))
+                    .build();
+            OrderDetail od = new OrderDetail();
+            od.setId(i);
+            od.setProductVariant(pv);
+            od.setQuantity(3);
+            od.setPrice(100.0);
+            od.setTotalMoney(300.0);
+            details.add(od);
+        }
+        Order order = new Order();
+        order.setId(orderId);
+        order.setUser(user);
+        order.setOrderDetails(details);
+        return order;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.shoozy_shop.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thời gian phát một loạt sự kiện qua {@link PartitionedDispatcher} với 1 lane (tương đương một luồng phát tuần tự)
+ * và nhiều lane. Mỗi task chờ một khoảng ngắn để mô phỏng lần gửi STOMP/broker, không phải việc CPU.
+ * Chạy: mvn test-compile rồi chạy main() của lớp này (hoặc từ IDE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionedDispatcherBenchmark {
+
+    @Param({"1", "8"})
+    int lanes;
+
+    @Param({"2000"})
+    int events;
+
+    @Param({"64"})
+    int keys;
+
+    @Param({"20"})
+    int sendMicros;
+
+    private PartitionedDispatcher dispatcher;
+    private String[] keyNames;
+
+    @Setup
+    public void setup() {
+        dispatcher = new PartitionedDispatcher("bench", lanes, 1024, PartitionedDispatcher.OverflowPolicy.BLOCK);
+        keyNames = new String[keys];
+        for (int k = 0; k < keys; k++) {
+            keyNames[k] = "order:" + k;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.close();
+    }
+
+    @Benchmark
+    public Object dispatchBatch() throws Exception {
+        long sendNanos = TimeUnit.MICROSECONDS.toNanos(sendMicros);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[events];
+        for (int i = 0; i < events; i++) {
+            futures[i] = dispatcher.submit(keyNames[i % keys], () -> LockSupport.parkNanos(sendNanos));
+        }
+        return CompletableFuture.allOf(futures).get(1, TimeUnit.MINUTES);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PartitionedDispatcherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.shoozy_shop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Đo thông lượng nằm ở {@link PartitionedDispatcherBenchmark}.
+ */
+class PartitionedDispatcherTest {
+
+    @Test
+    void keepsPerKeyOrderWhileLanesRunInParallel() throws Exception {
+        int keys = 64;
+        int perKey = 300;
+        int producers = 4;
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        Map<String, Set<String>> threadsOfKey = new ConcurrentHashMap<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Boolean>> futures = new CopyOnWriteArrayList<>();
+
+        ExecutorService submitters = Executors.newFixedThreadPool(producers);
+        try (PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", 8, 1024,
+                PartitionedDispatcher.OverflowPolicy.BLOCK)) {
+            // Mỗi luồng gửi một nhóm khoá riêng: thứ tự của một khoá là thứ tự gửi của đúng một luồng
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                submitters.submit(() -> {
+                    for (int i = 0; i < perKey; i++) {
+                        for (int k = producer; k < keys; k += producers) {
+                            String key = "order:" + k;
+                            int seq = i;
+                            futures.add(dispatcher.submit(key, () -> {
+                                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                                threadsOfKey.computeIfAbsent(key, x -> ConcurrentHashMap.newKeySet())
+                                        .add(Thread.currentThread().getName());
+                                seen.computeIfAbsent(key, x -> new CopyOnWriteArrayList<>()).add(seq);
+                                // Giữ task một chút để các lane chồng lên nhau cả trên máy ít nhân
+                                LockSupport.parkNanos(10_000);
+                                running.decrementAndGet();
+                            }));
+                        }
+                    }
+                });
+            }
+            submitters.shutdown();
+            assertTrue(submitters.awaitTermination(30, TimeUnit.SECONDS));
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+            dispatcher.close();
+
+            // Thống kê được cập nhật sau khi future hoàn tất, chỉ đọc sau khi các lane đã dừng
+            List<PartitionedDispatcher.LaneStats> stats = dispatcher.stats();
+            assertEquals(keys * perKey, stats.stream().mapToLong(PartitionedDispatcher.LaneStats::processed).sum());
+            assertTrue(stats.stream().filter(s -> s.processed() > 0).count() > 1, "phải dùng nhiều lane");
+        }
+
+        assertTrue(maxRunning.get() > 1, "các lane phải chạy song song");
+        assertEquals(keys, seen.size());
+        for (Map.Entry<String, List<Integer>> e : seen.entrySet()) {
+            assertEquals(1, threadsOfKey.get(e.getKey()).size(), e.getKey() + " chỉ chạy trên một lane");
+            List<Integer> order = e.getValue();
+            assertEquals(perKey, order.size());
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, order.get(i), e.getKey());
+            }
+        }
+    }
+
+    @Test
+    void slowKeyDoesNotStallOtherLanes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", 4, 16,
+                PartitionedDispatcher.OverflowPolicy.BLOCK)) {
+            String slowKey = "coupon:1";
+            dispatcher.submit(slowKey, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            String otherKey = null;
+            for (int k = 0; otherKey == null; k++) {
+                if (dispatcher.laneOf("order:" + k) != dispatcher.laneOf(slowKey)) {
+                    otherKey = "order:" + k;
+                }
+            }
+            assertTrue(dispatcher.submit(otherKey, () -> { }).get(2, TimeUnit.SECONDS));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void blockPolicyWaitsForRoomAndLosesNothing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        try (PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", 1, 2,
+                PartitionedDispatcher.OverflowPolicy.BLOCK)) {
+            CompletableFuture<Boolean> first = blockLane(dispatcher, release);
+            List<CompletableFuture<Boolean>> futures = new CopyOnWriteArrayList<>();
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 5; i++) {
+                    int seq = i;
+                    futures.add(dispatcher.submit("k", () -> ran.add(seq)));
+                }
+            });
+            producer.start();
+
+            // 2 chỗ trong hàng đợi đã đầy, bên gửi bị giữ lại ở task thứ 3
+            long deadline = System.currentTimeMillis() + 5000;
+            while (producer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(Thread.State.WAITING, producer.getState());
+            assertEquals(2, futures.size());
+
+            release.countDown();
+            producer.join(5000);
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            for (CompletableFuture<Boolean> f : futures) {
+                assertTrue(f.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(List.of(0, 1, 2, 3, 4), ran);
+            assertEquals(0, dispatcher.stats().get(0).rejected());
+        }
+    }
+
+    @Test
+    void dropOldestPolicyEvictsTheOldestQueuedTasks() throws Exception {
+        List<Boolean> results = overflow(PartitionedDispatcher.OverflowPolicy.DROP_OLDEST);
+        // Task đang chạy xong; 3 task xếp hàng sớm nhất bị loại, 2 task mới nhất được giữ
+        assertEquals(List.of(true, false, false, false, true, true), results);
+    }
+
+    @Test
+    void spillPolicyHandsBackNewTasksWhenFull() throws Exception {
+        List<Boolean> results = overflow(PartitionedDispatcher.OverflowPolicy.SPILL);
+        // 2 task đầu vào được hàng đợi, các task đến sau được trả về cho bên gửi
+        assertEquals(List.of(true, true, true, false, false, false), results);
+    }
+
+    // Một lane sức chứa 2, chặn lane bằng một task rồi gửi thêm 5 task; trả kết quả theo thứ tự gửi
+    private List<Boolean> overflow(PartitionedDispatcher.OverflowPolicy policy) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        try (PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", 1, 2, policy)) {
+            futures.add(blockLane(dispatcher, release));
+            for (int i = 0; i < 5; i++) {
+                futures.add(dispatcher.submit("k", () -> { }));
+            }
+            release.countDown();
+
+            List<Boolean> results = new ArrayList<>();
+            for (CompletableFuture<Boolean> f : futures) {
+                results.add(f.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(3, dispatcher.stats().get(0).rejected());
+            return results;
+        }
+    }
+
+    private CompletableFuture<Boolean> blockLane(PartitionedDispatcher dispatcher, CountDownLatch release)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> future = dispatcher.submit("k", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        return future;
+    }
+}
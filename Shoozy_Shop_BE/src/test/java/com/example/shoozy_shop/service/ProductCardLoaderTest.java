@@ -0,0 +1,164 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.config.CacheConfig;
+import com.example.shoozy_shop.dto.response.ProductCardResponse;
+import com.example.shoozy_shop.model.*;
+import com.example.shoozy_shop.repository.ProductRepository;
+import com.example.shoozy_shop.repository.ProductVariantRepository;
+import com.example.shoozy_shop.repository.PromotionProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductCardLoaderTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductVariantRepository productVariantRepository = mock(ProductVariantRepository.class);
+    private final PromotionProductRepository promotionProductRepository = mock(PromotionProductRepository.class);
+    private final CatalogVersions catalogVersions = new CatalogVersions();
+    private final ProductCardLoader loader =
+            new ProductCardLoader(productRepository, productVariantRepository, promotionProductRepository,
+                    new CaffeineCacheManager(), catalogVersions);
+
+    private final Size size42 = new Size(1L, 42, true);
+    private final Size size43 = new Size(2L, 43, true);
+    private final Color black = Color.builder().id(1L).name("Black").build();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50})
+    void queryCountDoesNotGrowWithPageSize(int pageSize) {
+        List<Long> ids = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        List<Object[]> variants = new ArrayList<>();
+        for (long id = 1; id <= pageSize; id++) {
+            ids.add(id);
+            products.add(product(id));
+            variants.add(new Object[]{100 + id * 2, id, size42, black, 5, 500_000.0, "v.jpg"});
+            variants.add(new Object[]{101 + id * 2, id, size43, black, 0, 550_000.0, "v.jpg"});
+        }
+        when(productRepository.findWithRefsByIdIn(anyCollection())).thenReturn(products);
+        when(productVariantRepository.findCardRowsByProductIdIn(anyCollection())).thenReturn(variants);
+        when(promotionProductRepository.findActiveByProductIdIn(anyCollection(), any())).thenReturn(List.of());
+
+        List<ProductCardResponse> cards = loader.loadByIds(ids, null, null);
+
+        assertEquals(pageSize, cards.size());
+        assertEquals(2, cards.get(0).getVariants().size());
+        verify(productRepository, times(1)).findWithRefsByIdIn(anyCollection());
+        verify(productVariantRepository, times(1)).findCardRowsByProductIdIn(anyCollection());
+        verify(promotionProductRepository, times(1)).findActiveByProductIdIn(anyCollection(), any());
+        verifyNoMoreInteractions(productRepository, productVariantRepository, promotionProductRepository);
+    }
+
+    @Test
+    void keepsPageOrderAndAttachesPromotionsAndAggregates() {
+        Product first = product(1L);
+        Product second = product(2L);
+        second.setMinSellPrice(null);
+        when(productRepository.findWithRefsByIdIn(anyCollection())).thenReturn(List.of(first, second));
+        List<Object[]> variants = new ArrayList<>();
+        variants.add(new Object[]{11L, 1L, size42, black, 3, 400_000.0, null});
+        variants.add(new Object[]{12L, 1L, size43, black, 1, 420_000.0, null});
+        variants.add(new Object[]{21L, 2L, size42, black, 7, 300_000.0, null});
+        when(productVariantRepository.findCardRowsByProductIdIn(anyCollection())).thenReturn(variants);
+        Promotion sale = Promotion.builder().id(9L).name("Sale").code("S9").value(10.0).status(1)
+                .startDate(LocalDateTime.now().minusDays(1)).expirationDate(LocalDateTime.now().plusDays(1)).build();
+        List<Object[]> promotions = new ArrayList<>();
+        promotions.add(new Object[]{11L, 1L, 15.0, sale});
+        promotions.add(new Object[]{12L, 1L, null, sale});
+        when(promotionProductRepository.findActiveByProductIdIn(anyCollection(), any())).thenReturn(promotions);
+
+        // Id 3 không còn tồn tại; size 42 đang được lọc
+        List<ProductCardResponse> cards = loader.loadByIds(List.of(2L, 3L, 1L), List.of(1L), null);
+
+        assertEquals(List.of(2L, 1L), cards.stream().map(ProductCardResponse::getId).toList());
+        ProductCardResponse card = cards.get(1);
+        assertEquals(List.of(11L), card.getVariants().stream().map(ProductCardResponse.Variant::getId).toList());
+        assertEquals(15.0, card.getVariants().get(0).getPromotions().get(0).getCustomValue());
+        // Khuyến mãi áp cho hai biến thể chỉ hiện một lần ở mức sản phẩm
+        assertEquals(1, card.getActivePromotions().size());
+        assertEquals(12, card.getTotalQuantity());
+        assertEquals(4.5, card.getAverageRating());
+        assertEquals(0.0, cards.get(0).getMinPrice());
+        assertEquals(0, cards.get(0).getActivePromotions().size());
+    }
+
+    @Test
+    void cachedCardsSkipQueriesAndFilterOnCopies() {
+        when(productRepository.findWithRefsByIdIn(anyCollection())).thenReturn(List.of(product(1L)));
+        List<Object[]> variants = new ArrayList<>();
+        variants.add(new Object[]{11L, 1L, size42, black, 3, 400_000.0, null});
+        variants.add(new Object[]{12L, 1L, size43, black, 1, 420_000.0, null});
+        when(productVariantRepository.findCardRowsByProductIdIn(anyCollection())).thenReturn(variants);
+        when(promotionProductRepository.findActiveByProductIdIn(anyCollection(), any())).thenReturn(List.of());
+
+        assertEquals(1, loader.loadByIds(List.of(1L), List.of(1L), null).get(0).getVariants().size());
+        // Lần sau lấy từ cache, thẻ trong cache vẫn đủ biến thể dù lần trước có lọc size
+        assertEquals(2, loader.loadByIds(List.of(1L), null, null).get(0).getVariants().size());
+        assertEquals(2, loader.load(List.of(product(1L)), null, null).get(0).getVariants().size());
+        verify(productRepository, times(1)).findWithRefsByIdIn(anyCollection());
+        verify(productVariantRepository, times(1)).findCardRowsByProductIdIn(anyCollection());
+    }
+
+    @Test
+    void cardReadBeforeAnEvictionIsNotCached() {
+        when(productRepository.findWithRefsByIdIn(anyCollection())).thenAnswer(inv -> {
+            // Sản phẩm đổi và thẻ bị xoá trong lúc đang đọc DB
+            catalogVersions.entryChanged(CacheConfig.PRODUCT_CARDS, 1L);
+            return List.of(product(1L));
+        });
+        when(productVariantRepository.findCardRowsByProductIdIn(anyCollection())).thenReturn(List.of());
+        when(promotionProductRepository.findActiveByProductIdIn(anyCollection(), any())).thenReturn(List.of());
+
+        assertEquals(1, loader.loadByIds(List.of(1L), null, null).size());
+        assertEquals(1, loader.loadByIds(List.of(1L), null, null).size());
+        verify(productRepository, times(2)).findWithRefsByIdIn(anyCollection());
+    }
+
+    @Test
+    void expiredPromotionRebuildsCard() {
+        when(productRepository.findWithRefsByIdIn(anyCollection())).thenReturn(List.of(product(1L)));
+        when(productVariantRepository.findCardRowsByProductIdIn(anyCollection())).thenReturn(List.of());
+        Promotion ending = Promotion.builder().id(9L).name("Sale").code("S9").value(10.0).status(1)
+                .startDate(LocalDateTime.now().minusDays(1)).expirationDate(LocalDateTime.now().plusNanos(1_000_000)).build();
+        List<Object[]> promotions = new ArrayList<>();
+        promotions.add(new Object[]{11L, 1L, null, ending});
+        when(promotionProductRepository.findActiveByProductIdIn(anyCollection(), any()))
+                .thenReturn(promotions)
+                .thenReturn(List.of());
+
+        assertEquals(1, loader.loadByIds(List.of(1L), null, null).get(0).getActivePromotions().size());
+        await(ending.getExpirationDate());
+        assertTrue(loader.loadByIds(List.of(1L), null, null).get(0).getActivePromotions().isEmpty());
+        verify(promotionProductRepository, times(2)).findActiveByProductIdIn(anyCollection(), any());
+    }
+
+    private static void await(LocalDateTime time) {
+        while (!LocalDateTime.now().isAfter(time)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private Product product(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Runner " + id);
+        product.setBrand(new Brand());
+        product.setTotalStock(12);
+        product.setMinSellPrice(400_000.0);
+        product.setMaxSellPrice(420_000.0);
+        product.setAvgRating(4.5);
+        product.setReviewCount(2);
+        return product;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.shoozy_shop.service;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.example.shoozy_shop.dto.request.ProductImportRow;
+import com.example.shoozy_shop.dto.response.ProductImportResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class ProductImportServiceTest {
+
+    private static final String CSV_HEADER =
+            "Tên sản phẩm,Thương hiệu,Danh mục,Chất liệu,Giới tính,Cân nặng,Mô tả,Size,Màu,Số lượng,Giá vốn,Giá bán\n";
+
+    private static final List<String> STATEMENTS = List.of(
+            "SELECT id, name FROM brands", "SELECT id, name FROM categories", "SELECT id, name FROM materials",
+            "SELECT id, value AS name FROM sizes", "SELECT id, name FROM colors", "SELECT id, name FROM products",
+            "SELECT product_id, size_id, color_id FROM product_variants", "SELECT id, sku FROM products",
+            "INSERT INTO products", "INSERT INTO product_variants");
+
+    // DB giả: sản phẩm 100 "Existing Shoe" đã có biến thể size 40 (id 1) màu Đen (id 1)
+    private final Map<Long, String[]> products = new HashMap<>(Map.of(100L, new String[]{"Existing Shoe", "SP1"}));
+    private final List<Object[]> variants = new ArrayList<>(List.<Object[]>of(new Object[]{100L, 1L, 1L}));
+    private final Map<String, Integer> calls = new HashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1000);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class, this::database);
+    private final ProductSortKeyService productSortKeyService = mock(ProductSortKeyService.class);
+    private final IIdGeneratorService idGeneratorService = mock(IIdGeneratorService.class,
+            inv -> "SP" + nextId.incrementAndGet());
+
+    private ProductImportService service(int chunkSize) {
+        return new ProductImportService(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                idGeneratorService, productSortKeyService, chunkSize);
+    }
+
+    @Test
+    void importsAcrossChunksAndReportsBadRows() {
+        List<ProductImportRow> rows = List.of(
+                row("Air Max", "Nike", "40", "Đen", 10),
+                row("air max ", "Nike", "41", "Đen", 5),
+                row("Air Max", "Nike", "40", "Đen", 1),          // trùng biến thể ở chunk trước
+                row("Ultra", "Adidas", "40", "Đen", 1),          // thương hiệu không có
+                row("Existing Shoe", null, "40", "Đen", 1),      // trùng biến thể đã có trong DB
+                row("Existing Shoe", null, "41", "Đen", -1),     // số lượng âm
+                row("Existing Shoe", null, "41", "Trắng", 7));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EasyExcel.write(out, ProductImportRow.class).sheet("Sản phẩm").doWrite(rows);
+
+        ProductImportResponse result = service(2).importProducts(new ByteArrayInputStream(out.toByteArray()),
+                ExcelTypeEnum.XLSX);
+
+        assertEquals(7, result.getTotalRows());
+        assertEquals(1, result.getCreatedProducts());
+        assertEquals(3, result.getCreatedVariants());
+        assertEquals(4, result.getFailedRows());
+        assertEquals(List.of(4, 5, 6, 7), result.getErrors().stream().map(ProductImportResponse.RowError::row).toList());
+        assertTrue(result.getErrors().get(1).message().contains("thương hiệu 'Adidas'"));
+        // "Air Max" chỉ được tạo một lần dù hai dòng khác chữ hoa/thường
+        assertEquals(2, products.size());
+        assertEquals(List.of(100L), variants.stream().skip(3).map(v -> v[0]).toList());
+        verify(productSortKeyService, atLeastOnce()).refreshVariantKeys(anyCollection());
+    }
+
+    @Test
+    void badCellOnlyFailsItsRow() {
+        String csv = CSV_HEADER
+                + "Air Max,Nike,Giày chạy,Da,Nữ,0.8,Mới,40,Đen,mười,500000,900000\n"
+                + "Air Max,Nike,Giày chạy,Da,Nữ,0.8,Mới,41,Đen,3,500000,900000\n";
+
+        ProductImportResponse result = service(1000).importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ExcelTypeEnum.CSV);
+
+        assertEquals(2, result.getTotalRows());
+        assertEquals(1, result.getCreatedVariants());
+        assertEquals(new ProductImportResponse.RowError(2, "Cột 10 sai kiểu dữ liệu"), result.getErrors().get(0));
+    }
+
+    @Test
+    void rejectsFileWithoutRequiredColumns() {
+        String csv = "Tên sản phẩm,Thương hiệu\nAir Max,Nike\n";
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service(1000).importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ExcelTypeEnum.CSV));
+        assertTrue(e.getMessage().contains("Size"));
+    }
+
+    @Test
+    void queriesPerChunkNotPerRow() {
+        // 10.000 sản phẩm x 5 size = 50.000 biến thể
+        StringBuilder csv = new StringBuilder(CSV_HEADER);
+        for (int p = 0; p < 10_000; p++) {
+            for (int size = 38; size <= 42; size++) {
+                csv.append("Mẫu ").append(p).append(",Nike,Giày chạy,Da,Nam,0.8,,").append(size)
+                        .append(",Đen,5,500000,900000\n");
+            }
+        }
+
+        long start = System.nanoTime();
+        ProductImportResponse result = service(1000).importProducts(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), ExcelTypeEnum.CSV);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(0, result.getFailedRows(), () -> result.getErrors().toString());
+        assertEquals(10_000, result.getCreatedProducts());
+        assertEquals(50_000, result.getCreatedVariants());
+        // 50 chunk: mỗi chunk một batch sản phẩm, một batch biến thể, một lần tra tên, một lần tra SKU
+        assertEquals(50, calls.get("INSERT INTO products"));
+        assertEquals(50, calls.get("INSERT INTO product_variants"));
+        assertEquals(50, calls.get("SELECT id, name FROM products"));
+        assertEquals(50, calls.get("SELECT id, sku FROM products"));
+        verify(productSortKeyService, times(50)).refreshVariantKeys(anyCollection());
+        assertTrue(elapsedMs < 20_000, elapsedMs + " ms");
+    }
+
+    private static ProductImportRow row(String name, String brand, String size, String color, int quantity) {
+        return ProductImportRow.builder()
+                .productName(name).brand(brand).category("Giày chạy").material("Da").gender("Nam").weight(0.8)
+                .size(size).color(color).quantity(quantity).costPrice(500_000.0).sellPrice(900_000.0)
+                .build();
+    }
+
+    private Object database(InvocationOnMock inv) {
+        String method = inv.getMethod().getName();
+        if (!method.equals("queryForList") && !method.equals("batchUpdate")) {
+            return null;
+        }
+        String sql = ((String) inv.getRawArguments()[0]).trim();
+        String statement = STATEMENTS.stream().filter(sql::startsWith).findFirst()
+                .orElseThrow(() -> new AssertionError("Unexpected SQL: " + sql));
+        calls.merge(statement, 1, Integer::sum);
+        Object[] args = inv.getRawArguments().length > 1 && inv.getRawArguments()[1] instanceof Object[] a ? a : new Object[0];
+        return switch (statement) {
+            case "SELECT id, name FROM brands" -> List.of(entry(1L, "Nike"));
+            case "SELECT id, name FROM categories" -> List.of(entry(1L, "Giày chạy"));
+            case "SELECT id, name FROM materials" -> List.of(entry(1L, "Da"));
+            case "SELECT id, value AS name FROM sizes" -> List.of(entry(1L, "40"), entry(2L, "41"), entry(3L, "38"),
+                    entry(4L, "39"), entry(5L, "42"));
+            case "SELECT id, name FROM colors" -> List.of(entry(1L, "Đen"), entry(2L, "Trắng"));
+            case "SELECT id, name FROM products" -> {
+                Set<String> names = new HashSet<>();
+                for (Object a : args) {
+                    names.add(a.toString().toLowerCase(Locale.ROOT));
+                }
+                List<Map<String, Object>> found = new ArrayList<>();
+                products.forEach((id, p) -> {
+                    if (names.contains(p[0].toLowerCase(Locale.ROOT))) {
+                        found.add(entry(id, p[0]));
+                    }
+                });
+                yield found;
+            }
+            case "SELECT product_id, size_id, color_id FROM product_variants" -> {
+                Set<Object> ids = Set.of(args);
+                yield variants.stream().filter(v -> ids.contains(v[0]))
+                        .map(v -> Map.<String, Object>of("product_id", v[0], "size_id", v[1], "color_id", v[2]))
+                        .toList();
+            }
+            case "SELECT id, sku FROM products" -> {
+                Set<Object> skus = Set.of(args);
+                List<Map<String, Object>> found = new ArrayList<>();
+                products.forEach((id, p) -> {
+                    if (skus.contains(p[1])) {
+                        found.add(Map.of("id", id, "sku", p[1]));
+                    }
+                });
+                yield found;
+            }
+            case "INSERT INTO products" -> {
+                @SuppressWarnings("unchecked")
+                List<Object[]> batch = (List<Object[]>) inv.getRawArguments()[1];
+                batch.forEach(b -> products.put(nextId.incrementAndGet(), new String[]{(String) b[1], (String) b[0]}));
+                yield new int[batch.size()];
+            }
+            case "INSERT INTO product_variants" -> {
+                @SuppressWarnings("unchecked")
+                List<Object[]> batch = (List<Object[]>) inv.getRawArguments()[1];
+                batch.forEach(b -> variants.add(new Object[]{b[0], b[1], b[2]}));
+                yield new int[batch.size()];
+            }
+            default -> throw new AssertionError(statement);
+        };
+    }
+
+    private static Map<String, Object> entry(Long id, String name) {
+        return Map.of("id", id, "name", name);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.shoozy_shop.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thời gian một lần tìm kiếm toàn văn trên 100k sản phẩm; mục tiêu dưới 1 ms (1000 us) mỗi truy vấn.
+ * Truy vấn gồm nhiều từ, từ bỏ dấu, tiền tố và mã sản phẩm như khách gõ thật.
+ * Chạy: mvn test-compile rồi chạy main() của lớp này (hoặc từ IDE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSearchIndexBenchmark {
+
+    @Param({"100000"})
+    int productCount;
+
+    @Param({"giay chay bo nike", "dep nu", "sandal tre em", "giay da bo den", "m4242", "chong truot"})
+    String query;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setup() {
+        String[] words = {"giày", "dép", "sandal", "chạy", "bộ", "thể", "thao", "da", "bò", "trắng", "đen", "đỏ",
+                "xanh", "nam", "nữ", "trẻ", "em", "cao", "cổ", "thấp", "êm", "nhẹ", "chống", "trượt", "lưới", "vải"};
+        String[] brands = {"Nike", "Adidas", "Bitis", "Vascara", "Puma", "Converse", "Vans", "Asics"};
+        Random random = new Random(3);
+        List<ProductSearchIndex.ProductText> products = new ArrayList<>(productCount);
+        for (long id = 1; id <= productCount; id++) {
+            StringBuilder name = new StringBuilder();
+            for (int w = 0; w < 5; w++) {
+                name.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            name.append("M").append(id);
+            products.add(new ProductSearchIndex.ProductText(id, name.toString(), "SP-" + id,
+                    brands[random.nextInt(brands.length)], words[random.nextInt(words.length)], null));
+        }
+        index = new ProductSearchIndex();
+        index.rebuild(products);
+    }
+
+    @Benchmark
+    public ProductSearchIndex.Result search() {
+        return index.search(query, null, 1, 20);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductSearchIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
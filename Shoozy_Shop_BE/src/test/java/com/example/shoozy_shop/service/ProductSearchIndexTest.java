@@ -0,0 +1,100 @@
+package com.example.shoozy_shop.service;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private static ProductSearchIndex.ProductText product(long id, String name, String sku, String brand,
+                                                          String category, String description) {
+        return new ProductSearchIndex.ProductText(id, name, sku, brand, category, description);
+    }
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @Test
+    void matchesWithoutDiacriticsAndByPrefix() {
+        index.rebuild(List.of(
+                product(1, "Giày chạy bộ Nike Pegasus", "SP-0001", "Nike", "Giày thể thao", null),
+                product(2, "Dép Đi Biển", "SP-0002", "Bitis", "Dép", "Êm chân, đi mưa thoải mái"),
+                product(3, "Giày tây da bò", "SP-0003", "Vascara", "Giày công sở", "Da thật")));
+
+        assertEquals(List.of(1L), index.search("giay chay bo", null, 1, 10).productIds());
+        assertEquals(List.of(2L), index.search("dep di bien", null, 1, 10).productIds());
+        assertEquals(List.of(1L), index.search("GIÀY CHẠY", null, 1, 10).productIds());
+        // Tiền tố của từ cuối, và SKU tách theo dấu gạch
+        assertEquals(List.of(1L), index.search("peg", null, 1, 10).productIds());
+        assertEquals(List.of(3L), index.search("sp 0003", null, 1, 10).productIds());
+        // Mọi từ đều phải khớp
+        assertEquals(0, index.search("giay bitis", null, 1, 10).total());
+        assertEquals(0, index.search("  --  ", null, 1, 10).total());
+    }
+
+    @Test
+    void matchesSkuFragmentsLikeTheOldSubstringSearch() {
+        index.rebuild(List.of(
+                product(1, "Giày chạy bộ", "SP041241", "Nike", "Giày", null),
+                product(2, "Dép kẹp", "SP-099120", "Bitis", "Dép", null),
+                product(3, "Mã 041241 trong tên", "X9", null, null, null)));
+
+        assertEquals(List.of(3L, 1L), index.search("041241", null, 1, 10).productIds());
+        assertEquals(List.of(1L), index.search("1241", null, 1, 10).productIds());
+        assertEquals(List.of(1L), index.search("p04124", null, 1, 10).productIds());
+        // Dấu gạch trong SKU không chặn khớp chuỗi con
+        assertEquals(List.of(2L), index.search("p099", null, 1, 10).productIds());
+        assertEquals(List.of(2L), index.search("9912", null, 1, 10).productIds());
+        assertEquals(0, index.search("0999", null, 1, 10).total());
+        index.upsert(1, null);
+        assertEquals(List.of(3L), index.search("041241", null, 1, 10).productIds());
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        index.rebuild(List.of(
+                product(1, "Áo thun basic", "A1", "Local", "Áo", "Phối cùng giày sneaker rất hợp"),
+                product(2, "Giày sneaker trắng", "G1", "Local", "Giày", null),
+                product(3, "Tất cổ ngắn", "T1", "Local", "Phụ kiện", "Dùng với giày")));
+
+        List<Long> ranked = index.search("giay", null, 1, 10).productIds();
+        assertEquals(2L, ranked.get(0));
+        assertEquals(3, ranked.size());
+        // Khớp nguyên từ xếp trên khớp tiền tố
+        index.upsert(4, product(4, "Giaydep", "X1", null, null, null));
+        assertEquals(2L, index.search("giay", null, 1, 10).productIds().get(0));
+    }
+
+    @Test
+    void pagesWithinFilterAndAppliesUpserts() {
+        List<ProductSearchIndex.ProductText> products = new ArrayList<>();
+        for (long id = 1; id <= 30; id++) {
+            products.add(product(id, "Giày mẫu " + id, "SP-" + id, "Nike", "Giày", null));
+        }
+        index.rebuild(products);
+
+        RoaringBitmap even = new RoaringBitmap();
+        for (int id = 2; id <= 30; id += 2) {
+            even.add(id);
+        }
+        ProductSearchIndex.Result page1 = index.search("giay mau", even, 1, 10);
+        ProductSearchIndex.Result page2 = index.search("giay mau", even, 2, 10);
+        assertEquals(15, page1.total());
+        assertEquals(10, page1.productIds().size());
+        assertEquals(5, page2.productIds().size());
+        assertTrue(page1.productIds().stream().allMatch(id -> id % 2 == 0));
+        assertTrue(page1.productIds().stream().noneMatch(page2.productIds()::contains));
+
+        index.upsert(2, product(2, "Dép lê", "SP-2", "Nike", "Dép", null));
+        index.upsert(4, null);
+        assertEquals(13, index.search("giay mau", even, 1, 10).total());
+        assertEquals(List.of(2L), index.search("dep le", null, 1, 10).productIds());
+        // match() trả bản sao, sửa không ảnh hưởng chỉ mục
+        index.match("nike").clear();
+        assertEquals(29, index.match("nike").getCardinality());
+    }
+}
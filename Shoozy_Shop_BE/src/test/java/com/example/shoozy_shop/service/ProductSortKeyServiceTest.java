@@ -0,0 +1,37 @@
+package com.example.shoozy_shop.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductSortKeyServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final ProductSortKeyService service = new ProductSortKeyService(jdbcTemplate, eventPublisher);
+
+    @Test
+    void refreshVariantKeysSplitsIdsBelowTheParameterLimit() {
+        List<Long> ids = LongStream.rangeClosed(1, 4500).boxed().toList();
+
+        service.refreshVariantKeys(ids);
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(3)).update(contains("UPDATE p SET min_sell_price"), args.capture());
+        assertEquals(List.of(2000, 2000, 500), args.getAllValues().stream().map(a -> a.length).toList());
+        List<Object> all = new ArrayList<>();
+        args.getAllValues().forEach(a -> all.addAll(List.of(a)));
+        assertEquals(ids, all);
+        // Chỉ một sự kiện cho cả lô
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.SuggestionResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class ProductSuggestIndexTest {
+
+    private final ProductSuggestIndex index = new ProductSuggestIndex();
+
+    private static ProductSuggestIndex.ProductRow product(long id, String name, long brandId, String brand,
+                                                          long categoryId, String category) {
+        return new ProductSuggestIndex.ProductRow(id, name, "p" + id + ".jpg", true, brandId, brand, categoryId, category);
+    }
+
+    private List<String> labels(String q) {
+        return index.suggest(q, 10).stream().map(SuggestionResponse::getLabel).toList();
+    }
+
+    @Test
+    void suggestsByFoldedPrefixAndLaterWords() {
+        index.rebuild(List.of(
+                product(1, "Giày chạy bộ Nike Pegasus", 1, "Nike", 1, "Giày thể thao"),
+                product(2, "Giày tây da bò", 2, "Vascara", 2, "Giày công sở"),
+                product(3, "Dép đi biển", 3, "Bitis", 3, "Dép")), Map.of(1L, 50L, 2L, 10L, 3L, 5L));
+
+        // Cùng số đã bán thì nhãn ngắn hơn lên trước
+        assertEquals(List.of("Giày thể thao", "Giày chạy bộ Nike Pegasus", "Giày công sở", "Giày tây da bò"),
+                labels("giay"));
+        assertEquals(List.of("Giày chạy bộ Nike Pegasus"), labels("PEGA"));
+        assertEquals(List.of("Dép", "Dép đi biển"), labels("dep"));
+        assertEquals(List.of("Nike", "Giày chạy bộ Nike Pegasus"), labels("nike"));
+        assertTrue(labels("xyz").isEmpty());
+        assertTrue(labels("  ").isEmpty());
+
+        SuggestionResponse first = index.suggest("nike", 1).get(0);
+        assertEquals("BRAND", first.getType());
+        assertEquals(1L, first.getId());
+        assertEquals(50L, first.getSold());
+    }
+
+    @Test
+    void salesAndEditsReorderAndPrune() {
+        index.rebuild(List.of(
+                product(1, "Giày Nike Air", 1, "Nike", 1, "Sneaker"),
+                product(2, "Giày Nike Zoom", 1, "Nike", 1, "Sneaker")), Map.of(1L, 5L));
+        assertEquals(List.of("Giày Nike Air", "Giày Nike Zoom"), labels("giay nike"));
+
+        index.addSold(Map.of(2L, 9L));
+        assertEquals(List.of("Giày Nike Zoom", "Giày Nike Air"), labels("giay nike"));
+        assertEquals(14L, index.suggest("nike", 1).get(0).getSold());
+
+        index.upsert(2, product(2, "Giày Puma Speed", 2, "Puma", 1, "Sneaker"));
+        assertEquals(List.of("Giày Nike Air"), labels("giay nike"));
+        assertEquals(List.of("Puma", "Giày Puma Speed"), labels("puma"));
+        assertEquals(5L, index.suggest("nike", 1).get(0).getSold());
+
+        index.upsert(1, new ProductSuggestIndex.ProductRow(1, "Giày Nike Air", null, false, 1L, "Nike", 1L, "Sneaker"));
+        assertTrue(labels("nike").isEmpty());
+        assertTrue(labels("air").isEmpty());
+        index.upsert(2, null);
+        assertTrue(labels("giay").isEmpty());
+        assertTrue(labels("sneaker").isEmpty());
+    }
+
+    @Test
+    void incrementalUpdatesMatchFreshBuild() {
+        Random random = new Random(11);
+        String[] words = {"giày", "dép", "sandal", "chạy", "bộ", "da", "bò", "trắng", "đen", "nam", "nữ", "em"};
+        Map<Long, ProductSuggestIndex.ProductRow> products = new HashMap<>();
+        Map<Long, Long> sold = new HashMap<>();
+        index.rebuild(List.of(), Map.of());
+        for (int step = 0; step < 2_000; step++) {
+            long id = 1 + random.nextInt(200);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + id;
+                long brand = 1 + random.nextInt(6);
+                long category = 1 + random.nextInt(3);
+                ProductSuggestIndex.ProductRow row = new ProductSuggestIndex.ProductRow(id, name, null,
+                        random.nextInt(8) != 0, brand, "Hãng " + words[(int) brand], category, "Loại " + category);
+                products.put(id, row);
+                index.upsert(id, row);
+            } else if (op < 9) {
+                long delta = random.nextInt(20);
+                sold.merge(id, delta, Long::sum);
+                index.addSold(Map.of(id, delta));
+            } else {
+                products.remove(id);
+                index.upsert(id, null);
+            }
+        }
+
+        ProductSuggestIndex fresh = new ProductSuggestIndex();
+        fresh.rebuild(products.values(), sold);
+        for (String q : List.of("g", "gi", "giay", "da", "d", "hang", "hang da", "loai", "nu", "em", "1", "12")) {
+            assertEquals(
+                    fresh.suggest(q, 10).stream().map(s -> s.getType() + s.getId() + "=" + s.getSold()).toList(),
+                    index.suggest(q, 10).stream().map(s -> s.getType() + s.getId() + "=" + s.getSold()).toList(), q);
+        }
+    }
+
+    @Test
+    void answersWithoutScanningCatalog() {
+        String[] words = {"giày", "dép", "sandal", "chạy", "bộ", "thể", "thao", "da", "bò", "trắng", "đen", "đỏ",
+                "xanh", "nam", "nữ", "trẻ", "em", "cao", "cổ", "thấp", "êm", "nhẹ", "chống", "trượt"};
+        Random random = new Random(5);
+        List<ProductSuggestIndex.ProductRow> products = new ArrayList<>();
+        Map<Long, Long> sold = new HashMap<>();
+        for (long id = 1; id <= 20_000; id++) {
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " "
+                    + words[random.nextInt(words.length)] + " M" + id;
+            long brand = 1 + random.nextInt(40);
+            products.add(product(id, name, brand, "Brand " + brand, 1 + random.nextInt(10), "Category"));
+            sold.put(id, (long) random.nextInt(1000));
+        }
+        index.rebuild(products, sold);
+
+        String[] queries = {"g", "gi", "giay", "giay ch", "sandal tr", "m1234", "brand 1", "e"};
+        for (int i = 0; i < 20_000; i++) {
+            index.suggest(queries[i % queries.length], 8);
+        }
+        int rounds = 50_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            index.suggest(queries[i % queries.length], 8);
+        }
+        double avgMicros = (System.nanoTime() - start) / 1000.0 / rounds;
+        log.debug("suggest on 20k products: {} us/query", avgMicros);
+        assertEquals(8, index.suggest("g", 8).size());
+        assertTrue(avgMicros < 1_000, "avg " + avgMicros + " us");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.ProductVariantUpdateRequest;
+import com.example.shoozy_shop.dto.request.VariantBulkUpdateRequest;
+import com.example.shoozy_shop.dto.response.VariantBulkUpdateResponse;
+import com.example.shoozy_shop.exception.CustomException;
+import com.example.shoozy_shop.model.Product;
+import com.example.shoozy_shop.model.ProductVariant;
+import com.example.shoozy_shop.repository.*;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductVariantBulkUpdateTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FlashSaleStockLedger flashSaleStockLedger = mock(FlashSaleStockLedger.class);
+    private final ProductSortKeyService productSortKeyService = mock(ProductSortKeyService.class);
+    private final ProductVariantRepository productVariantRepository = mock(ProductVariantRepository.class);
+    private final ProductVariantService service = new ProductVariantService(productVariantRepository,
+            mock(ProductRepository.class), mock(SizeRepository.class), mock(MaterialRepository.class),
+            mock(ColorRepository.class), flashSaleStockLedger, productSortKeyService, jdbcTemplate);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void appliesAllItemsInOneBatchAndOneEvent() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1, 1});
+        List<VariantBulkUpdateResponse.Variant> rows = List.of(
+                new VariantBulkUpdateResponse.Variant(1L, 10L, 5, 400.0, 900.0, 7L),
+                new VariantBulkUpdateResponse.Variant(2L, 10L, 25, 400.0, 800.0, 8L),
+                new VariantBulkUpdateResponse.Variant(3L, 20L, 3, 100.0, 200.0, 9L));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(rows);
+
+        VariantBulkUpdateResponse response = service.bulkUpdate(request(
+                item(1L, 900.0, null, null, 6L),
+                item(2L, null, null, 20, null),
+                item(3L, 200.0, 100.0, -2, null)));
+
+        assertEquals(3, response.getUpdated());
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), args.capture());
+        Object[] first = args.getValue().get(0);
+        assertEquals(900.0, ((SqlParameterValue) first[0]).getValue());
+        assertNull(((SqlParameterValue) first[1]).getValue());
+        assertEquals(6L, ((SqlParameterValue) first[5]).getValue());
+        assertEquals(-2, args.getValue().get(2)[2]);
+        // Một lần tính lại khoá sắp xếp (một ProductChangedEvent) cho cả hai sản phẩm
+        verify(productSortKeyService, times(1)).refreshVariantKeys(Set.of(10L, 20L));
+    }
+
+    @Test
+    void singleUpdateReturnsTheNewRowVersion() {
+        Product product = new Product();
+        product.setId(10L);
+        ProductVariant variant = new ProductVariant();
+        variant.setId(1L);
+        variant.setProduct(product);
+        variant.setQuantity(5);
+        variant.setVersion(6L);
+        when(productVariantRepository.findById(1L)).thenReturn(Optional.of(variant));
+        when(productVariantRepository.saveAndFlush(variant)).thenReturn(variant);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq(1L))).thenReturn(7L);
+
+        ProductVariant saved = service.updateProductVariant(1L, new ProductVariantUpdateRequest(5, 400.0, 900.0));
+
+        // Version trả về là row_version sau lần ghi, dùng được ngay cho lần sửa hàng loạt tiếp theo
+        assertEquals(7L, saved.getVersion());
+    }
+
+    @Test
+    void rejectsWholeRequestWhenAVariantIsStale() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        CustomException e = assertThrows(CustomException.class, () -> service.bulkUpdate(request(
+                item(1L, 900.0, null, null, 6L), item(2L, 800.0, null, null, 3L))));
+
+        assertEquals(409, e.getStatus());
+        assertTrue(e.getMessage().startsWith("Biến thể 2 "), e.getMessage());
+        verifyNoInteractions(productSortKeyService);
+    }
+
+    @Test
+    void validatesBeforeTouchingTheDatabase() {
+        assertThrows(IllegalArgumentException.class, () -> service.bulkUpdate(request(
+                item(1L, 900.0, null, null, null), item(1L, null, 100.0, null, null))));
+        assertThrows(IllegalArgumentException.class, () -> service.bulkUpdate(request(
+                item(1L, null, null, 0, null))));
+
+        when(flashSaleStockLedger.isManaged(5L)).thenReturn(true);
+        assertThrows(IllegalStateException.class, () -> service.bulkUpdate(request(item(5L, null, null, 10, null))));
+        // Chỉ đổi giá thì vẫn được khi đang flash sale
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        service.bulkUpdate(request(item(5L, 100.0, null, null, null)));
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    private static VariantBulkUpdateRequest request(VariantBulkUpdateRequest.Item... items) {
+        return new VariantBulkUpdateRequest(List.of(items));
+    }
+
+    private static VariantBulkUpdateRequest.Item item(Long id, Double sellPrice, Double costPrice, Integer delta,
+                                                      Long version) {
+        return new VariantBulkUpdateRequest.Item(id, sellPrice, costPrice, delta, version);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.event.OrderEventPayload;
+import com.example.shoozy_shop.dto.event.RefreshMessage;
+import com.example.shoozy_shop.model.Order;
+import com.example.shoozy_shop.model.PaymentMethod;
+import com.example.shoozy_shop.model.Role;
+import com.example.shoozy_shop.model.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class RealtimeEventCodecTest {
+
+    private static final int ROUNDS = 5_000;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final RealtimeEventCodec codec = new RealtimeEventCodec(objectMapper);
+
+    @Test
+    void recordPayloadIsSmallerAndFasterThanEntity() throws Exception {
+        Order order = sampleOrder();
+        Object entityMessage = Map.of("type", "order", "action", "ORDER_UPDATED_STATUS",
+                "timestamp", LocalDateTime.now(), "payload", order);
+
+        byte[] entityJson = objectMapper.writeValueAsBytes(entityMessage);
+        byte[] recordJson = codec.encode(RefreshMessage.of("order", "ORDER_UPDATED_STATUS", OrderEventPayload.from(order)))
+                .rawValue().toString().getBytes(StandardCharsets.UTF_8);
+        byte[] recordCbor = codec.toCbor(recordJson);
+
+        // Đo: tạo record + serialize, so với serialize cả entity
+        long entityNanos = time(() -> objectMapper.writeValueAsBytes(entityMessage));
+        long recordNanos = time(() -> codec.encode(RefreshMessage.of("order", "ORDER_UPDATED_STATUS", OrderEventPayload.from(order))));
+        log.debug("order event: entity {} B {} ns/op, record {} B {} ns/op, record cbor {} B",
+                entityJson.length, entityNanos / ROUNDS, recordJson.length, recordNanos / ROUNDS, recordCbor.length);
+
+        assertTrue(recordJson.length < entityJson.length);
+        assertTrue(recordCbor.length < recordJson.length);
+        // Giữ field FE đang đọc
+        JsonNode payload = objectMapper.readTree(recordJson).get("payload");
+        assertEquals("OD0001", payload.get("orderCode").asText());
+        assertEquals("COD", payload.get("paymentType").asText());
+        assertEquals(objectMapper.readTree(recordJson), new CBORMapper().readTree(recordCbor));
+    }
+
+    @Test
+    void encodedMessageIsCopiedVerbatimIntoBatchAndKafkaEnvelope() throws Exception {
+        RawValue message = codec.encode(RefreshMessage.of("order", "ORDER_CANCELLED", OrderEventPayload.from(sampleOrder())));
+        JsonNode expected = objectMapper.readTree(message.rawValue().toString());
+
+        Map<String, Object> batch = Map.of("type", "BATCH", "count", 2, "messages", List.of(message, message));
+        JsonNode frame = objectMapper.readTree(objectMapper.writeValueAsString(batch));
+        assertEquals(expected, frame.get("messages").get(1));
+
+        // ClusterBroadcaster chuyển message sang cây JSON trước khi gửi lên Kafka
+        String envelope = objectMapper.writeValueAsString(Map.of("payload", objectMapper.valueToTree(message)));
+        assertEquals(expected, objectMapper.readTree(envelope).get("payload"));
+    }
+
+    private long time(ThrowingRunnable task) throws Exception {
+        for (int i = 0; i < ROUNDS; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            task.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private Order sampleOrder() {
+        Role role = new Role("User", "Khách hàng");
+        User user = new User();
+        user.setId(7L);
+        user.setRole(role);
+        user.setFullname("Nguyễn Văn A");
+        user.setEmail("a@example.com");
+        user.setPhoneNumber("0912345678");
+        user.setAddress("12 Trần Duy Hưng, Cầu Giấy, Hà Nội");
+        user.setAvatar("https://cdn.example.com/avatars/7.png");
+
+        PaymentMethod paymentMethod = new PaymentMethod();
+        paymentMethod.setId(1L);
+        paymentMethod.setName("COD");
+
+        Order order = Order.builder()
+                .id(42L)
+                .orderCode("OD0001")
+                .user(user)
+                .paymentMethod(paymentMethod)
+                .fullname("Nguyễn Văn A")
+                .phoneNumber("0912345678")
+                .address("12 Trần Duy Hưng, Cầu Giấy, Hà Nội")
+                .note("Giao giờ hành chính")
+                .type(false)
+                .status("PROCESSING")
+                .totalMoney(new BigDecimal("1250000"))
+                .shippingFee(new BigDecimal("30000"))
+                .finalPrice(new BigDecimal("1280000"))
+                .build();
+        order.setCreatedAt(LocalDateTime.now());
+        order.setUpdatedAt(LocalDateTime.now());
+        return order;
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
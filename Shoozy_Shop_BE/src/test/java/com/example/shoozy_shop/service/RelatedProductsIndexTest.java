@@ -0,0 +1,73 @@
+package com.example.shoozy_shop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RelatedProductsIndexTest {
+
+    private final RelatedProductsIndex index = new RelatedProductsIndex();
+
+    private static RelatedProductsIndex.ProductRow product(long id, long brandId, long categoryId) {
+        return new RelatedProductsIndex.ProductRow(id, brandId, categoryId, true);
+    }
+
+    private static RelatedProductsIndex.CoPurchase co(long productId, long otherId, long orders) {
+        return new RelatedProductsIndex.CoPurchase(productId, otherId, orders);
+    }
+
+    @Test
+    void ranksCoPurchaseThenCategoryAndBrandThenSales() {
+        index.rebuild(List.of(
+                        product(1, 1, 1),
+                        product(2, 1, 1),
+                        product(3, 2, 1),
+                        product(4, 1, 2),
+                        product(5, 3, 3),
+                        product(6, 2, 1),
+                        new RelatedProductsIndex.ProductRow(7, 1L, 1L, false)),
+                Map.of(3L, 100L, 6L, 5L, 7L, 1_000L),
+                List.of(co(1, 5, 2), co(5, 1, 2), co(1, 7, 9)));
+
+        // 5: mua cùng 2 đơn; 2: cùng danh mục + thương hiệu; 3, 6: cùng danh mục (3 bán chạy hơn); 4: cùng thương hiệu
+        // 7 đã ngừng bán nên không xuất hiện dù mua cùng nhiều nhất
+        assertEquals(List.of(5L, 2L, 3L, 6L, 4L), index.related(1, 12));
+        assertEquals(List.of(5L, 2L), index.related(1, 2));
+        assertEquals(List.of(1L), index.related(5, 12));
+        assertTrue(index.related(99, 12).isEmpty());
+    }
+
+    @Test
+    void refreshUsesNewCoPurchaseCounts() {
+        index.rebuild(List.of(product(1, 1, 1), product(2, 1, 1), product(3, 2, 2)), Map.of(), List.of());
+        assertEquals(List.of(2L), index.related(1, 12));
+
+        index.refresh(Map.of(1L, List.of(co(1, 3, 1)), 3L, List.of(co(3, 1, 1))));
+
+        assertEquals(List.of(3L, 2L), index.related(1, 12));
+        assertEquals(List.of(1L), index.related(3, 12));
+    }
+
+    @Test
+    void listsAreCappedAtTopN() {
+        List<RelatedProductsIndex.ProductRow> products = new ArrayList<>();
+        List<RelatedProductsIndex.CoPurchase> pairs = new ArrayList<>();
+        for (long id = 1; id <= 5_000; id++) {
+            products.add(product(id, id % 20, id % 50));
+            if (id > 1) {
+                pairs.add(co(1, id, id % 7));
+            }
+        }
+        index.rebuild(products, Map.of(), pairs);
+
+        assertEquals(RelatedProductsIndex.TOP_N, index.related(1, 100).size());
+        for (long id = 2; id <= 5_000; id += 499) {
+            List<Long> related = index.related(id, 100);
+            assertEquals(RelatedProductsIndex.TOP_N, related.size());
+            assertTrue(!related.contains(id));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.response.ReviewPageResponse;
+import com.example.shoozy_shop.dto.response.ReviewResponseDTO;
+import com.example.shoozy_shop.dto.response.ReviewSummaryResponse;
+import com.example.shoozy_shop.model.Product;
+import com.example.shoozy_shop.model.Review;
+import com.example.shoozy_shop.model.User;
+import com.example.shoozy_shop.repository.OrderDetailRepository;
+import com.example.shoozy_shop.repository.ProductRepository;
+import com.example.shoozy_shop.repository.ReviewRepository;
+import com.example.shoozy_shop.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReviewServiceTest {
+
+    private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+    private final ProductSortKeyService productSortKeyService = mock(ProductSortKeyService.class);
+    private final ReviewService reviewService = new ReviewService(reviewRepository, mock(ProductRepository.class),
+            mock(UserRepository.class), mock(OrderDetailRepository.class), mock(WebSocketService.class),
+            productSortKeyService, mock(org.springframework.context.ApplicationEventPublisher.class));
+
+    private final Product product = product();
+    private final User user = user();
+    private final LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Test
+    void buildsThreadsInOnePass() {
+        // 5.000 review gốc, mỗi review một phản hồi và một phản hồi lồng
+        List<Review> all = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < 5_000; i++) {
+            Review root = review(id++, null, 5);
+            Review reply = review(id++, root, null);
+            all.add(root);
+            all.add(reply);
+            all.add(review(id++, reply, null));
+        }
+        Review hiddenParent = review(id++, null, 1);
+        all.add(review(id, hiddenParent, null));
+        when(reviewRepository.findByProductIdAndIsHiddenFalse(1L)).thenReturn(all);
+
+        long start = System.nanoTime();
+        List<ReviewResponseDTO> threads = reviewService.getReviewDTOsByProductId(1L);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(5_000, threads.size());
+        ReviewResponseDTO first = threads.get(0);
+        assertEquals(1L, first.getId());
+        assertEquals(2L, first.getReplies().get(0).getId());
+        assertEquals(3L, first.getReplies().get(0).getReplies().get(0).getId());
+        assertTrue(first.getReplies().get(0).getReplies().get(0).getReplies().isEmpty());
+        // Phản hồi của review không nằm trong danh sách bị bỏ như trước
+        assertTrue(threads.stream().noneMatch(t -> t.getId().equals(hiddenParent.getId())));
+        // Cách cũ (quét lại cả danh sách cho mỗi review) mất hàng giây với 15.000 review
+        assertTrue(elapsedMs < 2_000, elapsedMs + " ms");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50})
+    void pageQueriesDoNotGrowWithPageSize(int size) {
+        List<Review> roots = new ArrayList<>();
+        List<Review> replies = new ArrayList<>();
+        for (long i = 1; i <= size + 1; i++) {
+            Review root = review(i, null, 4);
+            root.setCreatedAt(base.minusMinutes(i));
+            roots.add(root);
+            if (i <= size) {
+                replies.add(review(1000 + i, root, null));
+            }
+        }
+        when(reviewRepository.findThreadRootPage(eq(1L), isNull(), isNull(), any())).thenReturn(roots);
+        when(reviewRepository.findVisibleRepliesByParentIdIn(anyCollection())).thenReturn(replies)
+                .thenReturn(List.of());
+        ReviewSummaryResponse summary = new ReviewSummaryResponse(1L, 4.0, size + 1, new int[]{0, 0, 0, size + 1, 0});
+        when(productSortKeyService.ratingSummary(1L)).thenReturn(summary);
+
+        ReviewPageResponse page = reviewService.getReviewPage(1L, null, size);
+
+        assertEquals(size, page.getItems().size());
+        assertTrue(page.isHasNext());
+        assertNotNull(page.getNextCursor());
+        assertSame(summary, page.getSummary());
+        page.getItems().forEach(item -> assertEquals(1, item.getReplies().size()));
+        verify(reviewRepository, times(1)).findThreadRootPage(anyLong(), any(), any(), any());
+        // Một truy vấn cho tầng phản hồi, một truy vấn xác nhận hết tầng
+        verify(reviewRepository, times(2)).findVisibleRepliesByParentIdIn(anyCollection());
+        verify(productSortKeyService, times(1)).ratingSummary(1L);
+    }
+
+    @Test
+    void nextCursorContinuesAfterLastRoot() {
+        Review last = review(7L, null, 5);
+        last.setCreatedAt(base);
+        when(reviewRepository.findThreadRootPage(anyLong(), any(), any(), any()))
+                .thenReturn(List.of(review(9L, null, 3), last, review(5L, null, 1)));
+        when(reviewRepository.findVisibleRepliesByParentIdIn(anyCollection())).thenReturn(List.of());
+
+        ReviewPageResponse page = reviewService.getReviewPage(1L, null, 2);
+        reviewService.getReviewPage(1L, page.getNextCursor(), 2);
+
+        verify(reviewRepository).findThreadRootPage(eq(1L), eq(base), eq(7L), any());
+    }
+
+    @Test
+    void ratingAggregatesFollowVisibilityAndRatingChanges() {
+        Review existing = review(1L, null, 2);
+        existing.setIsHidden(true);
+        when(reviewRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(reviewRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        Review change = new Review();
+        change.setIsHidden(false);
+        change.setRating(4);
+        reviewService.updateReview(1L, change);
+        // Review ẩn chuyển sang hiển thị: chỉ cộng mức 4 sao
+        verify(productSortKeyService).adjustRating(10L, null, 4);
+
+        reviewService.deleteReview(1L);
+        verify(productSortKeyService).adjustRating(10L, 4, null);
+    }
+
+    private Review review(long id, Review parent, Integer rating) {
+        Review review = new Review();
+        review.setId(id);
+        review.setParent(parent);
+        review.setRating(rating);
+        review.setIsHidden(false);
+        review.setUser(user);
+        review.setProduct(product);
+        review.setCreatedAt(base);
+        return review;
+    }
+
+    private static Product product() {
+        Product product = new Product();
+        product.setId(10L);
+        return product;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(3L);
+        user.setFullname("Khách");
+        return user;
+    }
+}
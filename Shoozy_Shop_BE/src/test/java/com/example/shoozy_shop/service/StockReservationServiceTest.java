@@ -0,0 +1,100 @@
+package com.example.shoozy_shop.service;
+
+import com.example.shoozy_shop.dto.request.OrderDetailRequest;
+import com.example.shoozy_shop.exception.OutOfStockException;
+import com.example.shoozy_shop.model.ProductVariant;
+import com.example.shoozy_shop.repository.ProductVariantRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockReservationServiceTest {
+
+    private final ProductVariantRepository productVariantRepository = mock(ProductVariantRepository.class);
+    private final FlashSaleStockLedger flashSaleStockLedger = mock(FlashSaleStockLedger.class);
+    private final ProductSortKeyService productSortKeyService = mock(ProductSortKeyService.class);
+    private final StockReservationService service =
+            new StockReservationService(productVariantRepository, flashSaleStockLedger, productSortKeyService);
+
+    private final Map<Long, ProductVariant> stock = new HashMap<>();
+
+    private ProductVariant variant(long id, int quantity) {
+        ProductVariant pv = new ProductVariant();
+        pv.setId(id);
+        pv.setQuantity(quantity);
+        stock.put(id, pv);
+        return pv;
+    }
+
+    // Trả biến thể theo đúng thứ tự id được truyền vào, như truy vấn "order by pv.id asc"
+    @SuppressWarnings("unchecked")
+    private void stubLocks() {
+        when(productVariantRepository.findAllByIdInForUpdate(anyCollection())).thenAnswer(inv ->
+                ((Collection<Long>) inv.getArgument(0)).stream().map(stock::get).filter(Objects::nonNull).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mergesQuantitiesPerVariant() {
+        variant(5, 10);
+        variant(3, 5);
+        stubLocks();
+
+        service.reserve(List.of(new OrderDetailRequest(5L, 2, null), new OrderDetailRequest(3L, 1, null),
+                new OrderDetailRequest(5L, 4, null)));
+
+        assertEquals(4, stock.get(5L).getQuantity());
+        assertEquals(4, stock.get(3L).getQuantity());
+        ArgumentCaptor<Map<Long, Integer>> delta = ArgumentCaptor.forClass(Map.class);
+        verify(productSortKeyService).adjustStock(delta.capture());
+        assertEquals(Map.of(5L, -6, 3L, -1), delta.getValue());
+        verify(productVariantRepository, times(1)).findAllByIdInForUpdate(anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void locksAndWritesVariantsInAscendingIdOrder() {
+        variant(9, 5);
+        variant(2, 5);
+        variant(5, 5);
+        stubLocks();
+
+        service.reserve(List.of(new OrderDetailRequest(9L, 1, null), new OrderDetailRequest(2L, 1, null),
+                new OrderDetailRequest(5L, 1, null)));
+
+        ArgumentCaptor<Collection<Long>> locked = ArgumentCaptor.forClass(Collection.class);
+        verify(productVariantRepository).findAllByIdInForUpdate(locked.capture());
+        assertEquals(List.of(2L, 5L, 9L), new ArrayList<>(locked.getValue()));
+        ArgumentCaptor<List<ProductVariant>> saved = ArgumentCaptor.forClass(List.class);
+        verify(productVariantRepository).saveAll(saved.capture());
+        assertEquals(List.of(2L, 5L, 9L), saved.getValue().stream().map(ProductVariant::getId).toList());
+    }
+
+    @Test
+    void oneShortLineLeavesEveryVariantUnchanged() {
+        variant(1, 10);
+        variant(2, 3);
+        variant(7, 100);
+        stubLocks();
+        when(flashSaleStockLedger.isManaged(7L)).thenReturn(true);
+        when(productVariantRepository.findAllById(anyIterable())).thenReturn(List.of(stock.get(7L)));
+
+        OutOfStockException e = assertThrows(OutOfStockException.class, () -> service.reserve(List.of(
+                new OrderDetailRequest(1L, 2, null),
+                new OrderDetailRequest(2L, 4, null),
+                new OrderDetailRequest(7L, 1, null))));
+
+        assertEquals(3, e.getAllowAdd());
+        assertEquals(10, stock.get(1L).getQuantity());
+        assertEquals(3, stock.get(2L).getQuantity());
+        // Kiểm tra xong toàn bộ dòng thường mới giữ hàng flash sale
+        verify(flashSaleStockLedger, never()).tryReserve(anyLong(), anyInt());
+        verify(productVariantRepository, never()).saveAll(any());
+        verifyNoInteractions(productSortKeyService);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.shoozy_shop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class StripedStockCounterTest {
+
+    @Test
+    void hotVariantNeverOversells() throws Exception {
+        int stock = 200_000;
+        int threads = 16;
+        StripedStockCounter counter = new StripedStockCounter(stock, 8);
+        AtomicInteger sold = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    // Mỗi luồng mua tới khi sổ báo hết hàng
+                    int misses = 0;
+                    while (misses < 100) {
+                        if (counter.tryTake(1)) {
+                            sold.incrementAndGet();
+                            misses = 0;
+                        } else {
+                            misses++;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.debug("Sold {} units of one variant on {} threads in {} ms ({} orders/s)",
+                sold.get(), threads, elapsedMs, sold.get() * 1000L / elapsedMs);
+
+        assertEquals(stock, sold.get());
+        assertEquals(0, counter.available());
+    }
+
+    @Test
+    void multiUnitTakeSpansStripesOrLeavesStockUntouched() {
+        StripedStockCounter counter = new StripedStockCounter(10, 4);
+
+        assertTrue(counter.tryTake(7));
+        assertEquals(3, counter.available());
+        assertFalse(counter.tryTake(4));
+        assertEquals(3, counter.available());
+
+        counter.add(2);
+        assertTrue(counter.tryTake(5));
+        assertEquals(0, counter.available());
+    }
+}
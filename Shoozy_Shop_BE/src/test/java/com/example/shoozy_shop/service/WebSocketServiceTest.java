@@ -0,0 +1,64 @@
+package com.example.shoozy_shop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WebSocketServiceTest {
+
+    private final SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+    // Cửa sổ dài để chỉ flush thủ công trong test
+    private final BroadcastCoalescer coalescer =
+            new BroadcastCoalescer(template, BroadcastCoalescer.Mode.COALESCE, 60_000);
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final WebSocketService webSocketService = new WebSocketService(template,
+            new ClusterBroadcaster(coalescer, (KafkaTemplate<String, String>) null, objectMapper,
+                    ClusterBroadcaster.Mode.LOCAL, "t", "n1"),
+            new RealtimeEventCodec(objectMapper));
+
+    @AfterEach
+    void shutdown() {
+        coalescer.shutdown();
+    }
+
+    @Test
+    void distinctEventKindsForOneEntitySurviveAWindow() {
+        webSocketService.broadcastCouponUpdate(3L, "SALE", 1, 1, "update");
+        webSocketService.broadcastCouponUpdate(3L, "SALE", 0, 1, "update");
+        webSocketService.broadcastCouponOutOfStock(3L, "SALE");
+        coalescer.flush();
+
+        // Hai lần cập nhật cùng loại gộp thành lần cuối, thông báo hết hàng vẫn giữ riêng
+        List<?> messages = batch("/topic/admin/coupon");
+        assertEquals(List.of("COUPON_UPDATE", "COUPON_OUT_OF_STOCK"),
+                messages.stream().map(m -> ((Map<?, ?>) m).get("type")).toList());
+        assertEquals(0, ((Map<?, ?>) messages.get(0)).get("quantity"));
+    }
+
+    @Test
+    void createAndUpdateOfTheSameRowAreBothDelivered() {
+        webSocketService.broadcastRefresh("product", Map.of("id", 7L, "name", "A"), "create");
+        webSocketService.broadcastRefresh("product", Map.of("id", 7L, "name", "B"), "update");
+        webSocketService.broadcastRefresh("product", Map.of("id", 7L, "name", "C"), "update");
+        coalescer.flush();
+
+        assertEquals(2, batch("/topic/refresh").size());
+    }
+
+    private List<?> batch(String destination) {
+        ArgumentCaptor<Object> frame = ArgumentCaptor.forClass(Object.class);
+        verify(template).convertAndSend(eq(destination), frame.capture());
+        return (List<?>) ((Map<?, ?>) frame.getValue()).get("messages");
+    }
+}
@@ -39,6 +39,10 @@ export const getCheckoutItems = (cartItemIds) =>
     params: { ids: cartItemIds.join(',') }
   });
 
+// Giá, mã giảm giá dùng được, phí ship và tổng tiền trong một lần gọi; gửi lại quoteToken khi tạo đơn
+export const getCheckoutQuote = ({ userId, cartItemIds, couponCode = null, shippingAddress = null }) =>
+  apiClient.post('/checkout/quote', { userId, cartItemIds, couponCode, shippingAddress });
+
 export const getReturnableItems = (orderId, userId) => {
   return apiClient.get(`/orders/${orderId}/returnable-items`, {
     params: { userId }
@@ -23,6 +23,9 @@ export const getListOfProducts = (params = {}) => {
 
 export const getAllProductsByCategory = (params = {}) => apiClient.get(`${BASE_URL}/by-category`, { params });
 
+// Sản phẩm liên quan/thường mua cùng (tối đa 12 thẻ)
+export const getRelatedProducts = (id, params = {}) => apiClient.get(`${BASE_URL}/${id}/related`, { params });
+
 
 export const getActiveProductsForPromotion = (productIds = []) => {
   return apiClient.get(`${BASE_URL}/active-for-promotion`, {
@@ -32,3 +35,12 @@ export const getActiveProductsForPromotion = (productIds = []) => {
 };
 
 export const restoreProduct = (id) => apiClient.put(`${BASE_URL}/${id}/restore`);
+
+// Nhập sản phẩm/biến thể hàng loạt từ file .xlsx/.xls/.csv, trả về số dòng đã nhập và lỗi theo dòng
+export const importProducts = (file) => {
+  const formData = new FormData();
+  formData.append('file', file);
+  return apiClient.post(`${BASE_URL}/import`, formData, {
+    headers: { 'Content-Type': 'multipart/form-data' }
+  });
+};
@@ -9,3 +9,6 @@ export const getProductVariantById = (id) => apiClient.get(`${BASE_URL}/${id}`);
 export const updateProductVariant = (id, productVariantData) => apiClient.put(`${BASE_URL}/${id}`, productVariantData);
 
 export const deleteProductVariant = (id) => apiClient.delete(`${BASE_URL}/${id}`);
+
+// Đổi giá/nhập kho nhiều biến thể: items = [{variantId, sellPrice?, costPrice?, quantityDelta?, version?}]
+export const bulkUpdateProductVariants = (items) => apiClient.patch(`${BASE_URL}/bulk`, { items });
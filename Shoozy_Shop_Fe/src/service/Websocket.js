@@ -3,54 +3,97 @@ import SockJS from 'sockjs-client'
 
 let stompClient = null
 let connected = false
+// Token dùng cho kết nối hiện tại, đổi token (đăng nhập/đăng xuất) thì kết nối lại
+let connectedToken = null
+
+const currentToken = () => localStorage.getItem('token')
+const isStaff = () => ['Admin', 'Staff'].includes(localStorage.getItem('userRole'))
 
 // Danh sách callback cho các loại message khác nhau
 const refreshListeners = []
 const couponListeners = []
 const orderListeners = []
 
+// Server gộp nhiều message cùng kênh thành một frame {type: 'BATCH', messages: [...]}
+const unpack = (message) => {
+  const data = JSON.parse(message.body)
+  return data && data.type === 'BATCH' ? data.messages : [data]
+}
+
 export const connectWebSocket = () => {
-  if (connected) return
+  if (stompClient && stompClient.active && connectedToken === currentToken()) return
+  if (stompClient) {
+    stompClient.deactivate()
+    connected = false
+  }
 
-  const socket = new SockJS('http://localhost:8080/ws')
   stompClient = new Client({
-    webSocketFactory: () => socket,
+    webSocketFactory: () => new SockJS('http://localhost:8080/ws'),
     reconnectDelay: 5000,
 
+    // Gửi JWT trong frame CONNECT để server biết user/role của phiên
+    beforeConnect: () => {
+      connectedToken = currentToken()
+      stompClient.connectHeaders = connectedToken ? { Authorization: `Bearer ${connectedToken}` } : {}
+    },
+
     onConnect: () => {
       console.log('🔌 [WS] Connected to WebSocket server')
       connected = true
 
+      // Đơn hàng của chính user đang đăng nhập
+      if (connectedToken) {
+        stompClient.subscribe('/user/queue/orders', (message) => {
+          unpack(message).forEach((data) => {
+            refreshListeners.forEach((cb) => cb(data))
+          })
+        })
+      }
+
       // Kênh refresh tổng
       stompClient.subscribe('/topic/refresh', (message) => {
-        const data = JSON.parse(message.body)
-        console.log('Received refresh message:', data)
-        refreshListeners.forEach((cb) => cb(data))
+        unpack(message).forEach((data) => {
+          console.log('Received refresh message:', data)
+          refreshListeners.forEach((cb) => cb(data))
+        })
       })
 
-      // Kênh cập nhật coupon cho admin
-      stompClient.subscribe('/topic/admin/coupon', (message) => {
-        const data = JSON.parse(message.body)
-        console.log('🎫 [WS] Received coupon update from /topic/admin/coupon:', data)
-        couponListeners.forEach((cb) => {
-          console.log('🎫 [WS] Calling coupon listener:', cb)
-          cb(data)
+      // Các kênh admin chỉ dành cho Admin/Staff (server từ chối SUBSCRIBE của role khác)
+      if (isStaff()) {
+        // Sự kiện đơn hàng cho admin (format giống /topic/refresh)
+        stompClient.subscribe('/topic/admin/refresh', (message) => {
+          unpack(message).forEach((data) => {
+            refreshListeners.forEach((cb) => cb(data))
+          })
         })
-      })
 
-      // Kênh thông báo đơn hàng có sử dụng coupon
-      stompClient.subscribe('/topic/admin/orders', (message) => {
-        const data = JSON.parse(message.body)
-        orderListeners.forEach((cb) => {
-          cb(data)
+        // Kênh cập nhật coupon cho admin
+        stompClient.subscribe('/topic/admin/coupon', (message) => {
+          unpack(message).forEach((data) => {
+            console.log('🎫 [WS] Received coupon update from /topic/admin/coupon:', data)
+            couponListeners.forEach((cb) => {
+              console.log('🎫 [WS] Calling coupon listener:', cb)
+              cb(data)
+            })
+          })
         })
-      })
+
+        // Kênh thông báo đơn hàng có sử dụng coupon
+        stompClient.subscribe('/topic/admin/orders', (message) => {
+          unpack(message).forEach((data) => {
+            orderListeners.forEach((cb) => {
+              cb(data)
+            })
+          })
+        })
+      }
 
       // Kênh trạng thái coupon riêng
       stompClient.subscribe('/topic/coupon/status', (message) => {
-        const data = JSON.parse(message.body)
-        couponListeners.forEach((cb) => {
-          cb(data)
+        unpack(message).forEach((data) => {
+          couponListeners.forEach((cb) => {
+            cb(data)
+          })
         })
       })
 